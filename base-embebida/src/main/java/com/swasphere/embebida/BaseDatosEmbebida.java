@@ -0,0 +1,149 @@
+package com.swasphere.embebida;
+
+import com.swasphere.modelo.MigradorEsquema;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.h2.api.Trigger;
+
+/**
+ * Base de datos H2 en memoria, en modo MySQL, con el esquema que dejan las
+ * migraciones. Permite probar y medir ProductoDAO y UsuarioDAO sin un
+ * servidor. El esquema se crea aplicando MigradorEsquema con las sentencias
+ * que H2 no admite adaptadas; en particular, los disparadores de MySQL no se
+ * pueden ejecutar en H2, así que los sustituye {@link Disparador}, que
+ * numera los cambios, anota los números reservados, incrementa la versión y
+ * registra las eliminaciones igual que ellos.
+ *
+ * @autor ljsanchez23
+ */
+public final class BaseDatosEmbebida {
+
+    private BaseDatosEmbebida() {
+    }
+
+    /**
+     * Obtiene la URL JDBC de una base de datos embebida. La base de datos
+     * existe mientras dure el proceso.
+     *
+     * @param nombre El nombre de la base de datos.
+     * @return La URL JDBC.
+     */
+    public static String url(String nombre) {
+        return "jdbc:h2:mem:" + nombre + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Crea una base de datos embebida vacía con el esquema de la aplicación.
+     *
+     * @param nombre El nombre de la base de datos; no debe existir.
+     * @return Una conexión a la base de datos. El llamador es responsable de
+     * cerrarla.
+     * @throws SQLException Si no se puede crear el esquema.
+     */
+    public static Connection crear(String nombre) throws SQLException {
+        Connection connection = DriverManager.getConnection(url(nombre), "sa", "");
+        try {
+            new MigradorH2().migrar(connection);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * MigradorEsquema para H2. Las demás sentencias de las migraciones se
+     * ejecutan tal cual en el modo MySQL de H2.
+     */
+    private static final class MigradorH2 extends MigradorEsquema {
+
+        // H2 no admite varias operaciones en un ALTER TABLE
+        private static final Pattern INDICE_UNICO = Pattern.compile(
+                "ALTER TABLE (\\w+) DROP INDEX (\\w+), ADD UNIQUE INDEX (\\w+) \\((\\w+)\\)");
+
+        @Override
+        protected String[] adaptar(String sentencia) {
+            if (sentencia.startsWith("CREATE TRIGGER ")) {
+                // Se conservan el nombre, el momento y la operación del disparador
+                return new String[]{sentencia.substring(0, sentencia.indexOf(" FOR EACH ROW "))
+                    + " FOR EACH ROW CALL \"" + Disparador.class.getName() + "\""};
+            }
+            Matcher indice = INDICE_UNICO.matcher(sentencia);
+            if (indice.matches()) {
+                return new String[]{"ALTER TABLE " + indice.group(1) + " DROP INDEX " + indice.group(2),
+                    "CREATE UNIQUE INDEX " + indice.group(3) + " ON " + indice.group(1) + " (" + indice.group(4) + ")"};
+            }
+            // H2 guarda siempre las columnas generadas y compara las cadenas
+            // carácter a carácter, como utf8mb4_bin
+            return new String[]{sentencia.replace(" STORED", "")
+                .replace("SYSDATE(3)", "CURRENT_TIMESTAMP(3)")
+                .replace(" CHARACTER SET utf8mb4 COLLATE utf8mb4_bin", "")};
+        }
+
+        // Una base de datos en memoria sólo la migra quien la crea
+        @Override
+        protected void bloquear(Connection connection) {
+        }
+
+        @Override
+        protected void desbloquear(Connection connection) {
+        }
+    }
+
+    /**
+     * Equivalente en H2 de los disparadores de productos de la última
+     * migración que los define. Las posiciones de las columnas son las que
+     * dejan las migraciones.
+     */
+    public static final class Disparador implements Trigger {
+
+        private static final int NOMBRE = 0;
+        private static final int NOMBRE_NORMALIZADO = 3;
+        private static final int CAMBIO = 4;
+        private static final int VERSION = 5;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                int type) {
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            long cambio;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO registro_cambios (reservado) VALUES (CURRENT_TIMESTAMP(3))",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.executeUpdate();
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    rs.next();
+                    cambio = rs.getLong(1);
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SET @cambios_reservados = CONCAT_WS(',', @cambios_reservados, ?)")) {
+                pstmt.setLong(1, cambio);
+                pstmt.execute();
+            }
+            if (newRow == null) {
+                try (PreparedStatement pstmt = conn.prepareStatement("MERGE INTO productos_eliminados"
+                        + " (nombre_normalizado, nombre, cambio) KEY (nombre_normalizado) VALUES (?, ?, ?)")) {
+                    pstmt.setObject(1, oldRow[NOMBRE_NORMALIZADO]);
+                    pstmt.setObject(2, oldRow[NOMBRE]);
+                    pstmt.setLong(3, cambio);
+                    pstmt.executeUpdate();
+                }
+                return;
+            }
+            newRow[CAMBIO] = cambio;
+            if (oldRow != null) {
+                newRow[VERSION] = ((Number) oldRow[VERSION]).longValue() + 1;
+            }
+        }
+    }
+}
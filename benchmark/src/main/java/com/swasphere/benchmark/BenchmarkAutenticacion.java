@@ -0,0 +1,53 @@
+package com.swasphere.benchmark;
+
+import com.swasphere.controlador.UsuarioControlador;
+import com.swasphere.modelo.UsuarioDAO;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark JMH de UsuarioControlador.autenticar contra la base de datos
+ * embebida, con tantos usuarios como productos tiene el inventario.
+ *
+ * @autor ljsanchez23
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Thread)
+public class BenchmarkAutenticacion {
+
+    private UsuarioControlador controlador;
+
+    /**
+     * Crea el controlador sobre el DAO de usuarios de la aplicación.
+     */
+    @Setup
+    public void preparar() {
+        controlador = new UsuarioControlador(new UsuarioDAO());
+    }
+
+    /**
+     * Autentica un usuario existente elegido al azar.
+     *
+     * @param inventario La base de datos cargada.
+     * @return El resultado de la autenticación.
+     */
+    @Benchmark
+    public String autenticar(InventarioEmbebido inventario) {
+        int indice = ThreadLocalRandom.current().nextInt(inventario.filas);
+        return controlador.autenticar(InventarioEmbebido.nombreUsuario(indice), InventarioEmbebido.PASSWORD);
+    }
+}
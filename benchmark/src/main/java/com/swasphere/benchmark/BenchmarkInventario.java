@@ -0,0 +1,272 @@
+package com.swasphere.benchmark;
+
+import com.swasphere.controlador.ProductoControlador;
+import com.swasphere.controlador.UsuarioControlador;
+import com.swasphere.modelo.ArchivoColumnar;
+import com.swasphere.modelo.InventarioColumnar;
+import com.swasphere.modelo.MigradorEsquema;
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ProductoMemoriaDAO;
+import com.swasphere.modelo.ProductoRepository;
+import com.swasphere.modelo.Repositorios;
+import com.swasphere.modelo.UsuarioMemoriaDAO;
+import com.swasphere.modelo.UsuarioRepository;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mide las rutas más usadas del acceso a datos: buscar un producto, leer el
+ * inventario completo, sugerir nombres por prefijo, buscar nombres con
+ * errores de escritura, agregar un producto y autenticar un usuario, con
+ * inventarios de distintos tamaños. Para cada escenario informa el
+ * rendimiento, la latencia media y de cola, y la memoria asignada por
+ * operación. También compara la valoración del inventario sobre la lista de
+ * productos y sobre InventarioColumnar, junto con la memoria que retiene
+ * cada representación, y la escritura y lectura de la instantánea en un
+ * archivo columnar con y sin compresión.
+ *
+ * Se construye con el módulo de benchmarks y se ejecuta con:
+ * <pre>
+ * mvn -B package
+ * java -cp benchmark/target/benchmarks.jar -DALMACENAMIENTO=memoria com.swasphere.benchmark.BenchmarkInventario
+ * </pre>
+ * Para las mediciones con JMH sobre la base de datos embebida véase
+ * {@link EjecutarBenchmarks}.
+ *
+ * Propiedades del sistema:
+ * <ul>
+ * <li>ALMACENAMIENTO: "memoria" o "mysql", como en la aplicación.</li>
+ * <li>BENCHMARK_FILAS: tamaños de inventario separados por comas (por
+ * defecto 1000,100000,1000000).</li>
+ * <li>BENCHMARK_CALENTAMIENTO_MS y BENCHMARK_MEDICION_MS: duración del
+ * calentamiento y de la medición de cada escenario.</li>
+ * <li>BENCHMARK_PERMITIR_LIMPIAR: debe valer true para medir contra MySQL,
+ * porque el benchmark vacía la tabla productos.</li>
+ * </ul>
+ *
+ * Cada operación se cronometra por separado con System.nanoTime, cuyo coste
+ * (unas decenas de nanosegundos) se incluye en las latencias.
+ *
+ * @autor ljsanchez23
+ */
+public class BenchmarkInventario {
+
+    private static final int TAMANO_CARGA = 10_000;
+    private static final String USUARIO = "benchmark";
+    private static final String PASSWORD = "benchmark";
+
+    // Evita que el compilador descarte resultados no usados
+    private static volatile long sumidero;
+
+    private final long calentamientoNanos;
+    private final long medicionNanos;
+    private final ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * Operación medida. Recibe el número de iteración para variar la clave.
+     */
+    private interface Operacion {
+
+        long ejecutar(long iteracion) throws Exception;
+    }
+
+    /**
+     * Constructor de la clase BenchmarkInventario.
+     *
+     * @param calentamientoMs La duración del calentamiento de cada escenario.
+     * @param medicionMs La duración de la medición de cada escenario.
+     */
+    public BenchmarkInventario(long calentamientoMs, long medicionMs) {
+        this.calentamientoNanos = calentamientoMs * 1_000_000;
+        this.medicionNanos = medicionMs * 1_000_000;
+    }
+
+    /**
+     * @param args the command line arguments
+     * @throws Exception Si falla la preparación de los datos.
+     */
+    public static void main(String[] args) throws Exception {
+        boolean memoria = Repositorios.isMemoria();
+        if (!memoria) {
+            if (!Boolean.getBoolean("BENCHMARK_PERMITIR_LIMPIAR")) {
+                System.err.println("El benchmark vacía la tabla productos; use -DBENCHMARK_PERMITIR_LIMPIAR=true"
+                        + " o -DALMACENAMIENTO=memoria.");
+                return;
+            }
+            new MigradorEsquema().migrar();
+        }
+        BenchmarkInventario benchmark = new BenchmarkInventario(
+                Long.getLong("BENCHMARK_CALENTAMIENTO_MS", 2_000),
+                Long.getLong("BENCHMARK_MEDICION_MS", 5_000));
+
+        List<ResultadoMedicion> resultados = new ArrayList<>();
+        for (String valor : System.getProperty("BENCHMARK_FILAS", "1000,100000,1000000").split(",")) {
+            int filas = Integer.parseInt(valor.trim());
+            ProductoRepository productos = memoria ? new ProductoMemoriaDAO() : Repositorios.getProductos();
+            UsuarioRepository usuarios = memoria ? new UsuarioMemoriaDAO() : Repositorios.getUsuarios();
+            resultados.addAll(benchmark.medir(productos, usuarios, filas));
+        }
+
+        System.out.println("Almacenamiento: " + (memoria ? "memoria" : "mysql"));
+        System.out.println(ResultadoMedicion.cabecera());
+        for (ResultadoMedicion resultado : resultados) {
+            System.out.println(resultado);
+        }
+    }
+
+    /**
+     * Carga un inventario del tamaño indicado y mide todos los escenarios.
+     *
+     * @param productos El repositorio de productos a medir. Se vacía antes
+     * de la carga.
+     * @param usuarios El repositorio de usuarios a medir.
+     * @param filas El número de productos a cargar.
+     * @return Los resultados de cada escenario.
+     * @throws Exception Si falla la preparación de los datos.
+     */
+    public List<ResultadoMedicion> medir(ProductoRepository productos, UsuarioRepository usuarios, int filas) throws Exception {
+        productos.limpiarTabla();
+        cargar(productos, filas);
+        usuarios.eliminarUsuario(USUARIO);
+        usuarios.insertarUsuario(USUARIO, PASSWORD);
+        UsuarioControlador usuarioControlador = new UsuarioControlador(usuarios);
+
+        List<ResultadoMedicion> resultados = new ArrayList<>();
+        try {
+            resultados.add(medir("buscarProducto", filas, i -> {
+                Producto producto = productos.buscarProducto(nombre(aleatorio(i, filas)));
+                return producto == null ? 0 : producto.getCantidad();
+            }));
+            resultados.add(medir("obtenerTodosProductos", filas, i -> productos.obtenerTodosProductos().size()));
+            // Los índices de nombres se cargan durante el calentamiento
+            ProductoControlador productoControlador = new ProductoControlador(productos);
+            resultados.add(medir("sugerirNombres", filas, i -> {
+                String nombre = nombre(aleatorio(i, filas));
+                return productoControlador.sugerirNombres(nombre.substring(0, Math.min(nombre.length(), 12)), 10).size();
+            }));
+            resultados.add(medir("buscarSimilares", filas, i -> productoControlador.buscarProductosSimilares(
+                    "prodcuto-" + aleatorio(i, filas), 5).size()));
+            resultados.add(medir("autenticar", filas, i -> usuarioControlador.autenticar(USUARIO,
+                    (i & 1) == 0 ? PASSWORD : "incorrecta").length()));
+
+            // Con el almacenamiento en memoria la lista comparte los String de
+            // los nombres con el repositorio, así que su cifra no los incluye
+            long base = heapRetenido();
+            List<Producto> lista = productos.obtenerTodosProductos();
+            long bytesLista = heapRetenido() - base;
+            base = heapRetenido();
+            InventarioColumnar columnar = InventarioColumnar.cargar(productos);
+            long bytesColumnar = heapRetenido() - base;
+            System.out.println("Memoria retenida con " + filas + " filas: lista " + bytesLista
+                    + " bytes, columnar " + bytesColumnar + " bytes (estimados " + columnar.getBytesEstimados() + ")");
+            resultados.add(medir("valoracionLista", filas, i -> {
+                long total = 0;
+                for (Producto producto : lista) {
+                    total += producto.getCantidad() * Math.round(producto.getPrecio() * InventarioColumnar.ESCALA_PRECIO);
+                }
+                return total;
+            }));
+            resultados.add(medir("valoracionColumnar", filas, i -> columnar.getValoracionTotalFija()));
+            Path archivo = Files.createTempFile("inventario-", ".col");
+            try {
+                for (boolean comprimir : new boolean[]{false, true}) {
+                    String sufijo = comprimir ? "Comprimido" : "";
+                    System.out.println("Archivo columnar" + (comprimir ? " comprimido" : "") + " con " + filas
+                            + " filas: " + ArchivoColumnar.escribir(columnar, archivo, comprimir) + " bytes");
+                    resultados.add(medir("escribirArchivoColumnar" + sufijo, filas,
+                            i -> ArchivoColumnar.escribir(columnar, archivo, comprimir)));
+                    resultados.add(medir("leerArchivoColumnar" + sufijo, filas,
+                            i -> ArchivoColumnar.leer(archivo).getTamano()));
+                }
+            } finally {
+                Files.deleteIfExists(archivo);
+            }
+            // Se mide al final porque hace crecer el inventario
+            resultados.add(medir("agregarProducto", filas, i -> productos.agregarProducto(
+                    new Producto("nuevo-" + filas + "-" + i, 1, 1.0)) ? 1 : 0));
+        } finally {
+            usuarios.eliminarUsuario(USUARIO);
+            productos.limpiarTabla();
+        }
+        return resultados;
+    }
+
+    private ResultadoMedicion medir(String escenario, int filas, Operacion operacion) throws Exception {
+        // El calentamiento usa iteraciones negativas para no repetir las
+        // claves que se insertarán durante la medición
+        long iteracion = Long.MIN_VALUE / 2;
+        long finCalentamiento = System.nanoTime() + calentamientoNanos;
+        long acumulado = 0;
+        while (System.nanoTime() < finCalentamiento) {
+            acumulado += operacion.ejecutar(iteracion++);
+        }
+        System.gc();
+
+        Histograma latencias = new Histograma();
+        long bytesAntes = bytesAsignados();
+        long inicio = System.nanoTime();
+        long fin = inicio + medicionNanos;
+        long operaciones = 0;
+        long ahora = inicio;
+        do {
+            long antes = ahora;
+            acumulado += operacion.ejecutar(operaciones++);
+            ahora = System.nanoTime();
+            latencias.registrar(ahora - antes);
+        } while (ahora < fin);
+        long bytesDespues = bytesAsignados();
+        sumidero += acumulado;
+
+        long bytes = bytesAntes < 0 || bytesDespues < 0 ? -1 : bytesDespues - bytesAntes;
+        return new ResultadoMedicion(escenario, filas, operaciones, ahora - inicio, latencias, bytes);
+    }
+
+    /**
+     * Memoria del montículo en uso tras pedir una recolección, para estimar
+     * lo que retiene una estructura recién creada.
+     */
+    private long heapRetenido() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memoria.getHeapMemoryUsage().getUsed();
+    }
+
+    private long bytesAsignados() {
+        if (hilos instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) hilos).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void cargar(ProductoRepository productos, int filas) {
+        List<Producto> lote = new ArrayList<>(TAMANO_CARGA);
+        for (int i = 0; i < filas; i++) {
+            lote.add(new Producto(nombre(i), i % 1000, (i % 10_000) / 100.0));
+            if (lote.size() == TAMANO_CARGA || i == filas - 1) {
+                productos.agregarProductos(lote);
+                lote.clear();
+            }
+        }
+    }
+
+    private static String nombre(int indice) {
+        return "producto-" + indice;
+    }
+
+    /**
+     * Índice pseudoaleatorio de un producto cargado, derivado de la
+     * iteración para no asignar ni compartir un generador.
+     */
+    private static int aleatorio(long iteracion, int filas) {
+        long x = iteracion * 0x9E3779B97F4A7C15L;
+        x ^= x >>> 31;
+        return (int) Math.floorMod(x, (long) filas);
+    }
+}
@@ -0,0 +1,83 @@
+package com.swasphere.benchmark;
+
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ProductoDAO;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks JMH de las operaciones más usadas de ProductoDAO contra la base
+ * de datos embebida. El modo SampleTime informa los percentiles de la
+ * latencia, y EjecutarBenchmarks añade la memoria asignada por operación.
+ *
+ * @autor ljsanchez23
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Thread)
+public class BenchmarkProductoDAO {
+
+    // Los productos agregados no se repiten entre hilos ni iteraciones
+    private static final AtomicLong AGREGADOS = new AtomicLong();
+
+    private ProductoDAO dao;
+
+    /**
+     * Crea el DAO, que toma las conexiones del pool de la aplicación.
+     */
+    @Setup
+    public void preparar() {
+        dao = new ProductoDAO();
+    }
+
+    /**
+     * Busca un producto existente elegido al azar.
+     *
+     * @param inventario El inventario cargado.
+     * @return El producto encontrado.
+     * @throws SQLException Si falla la consulta.
+     */
+    @Benchmark
+    public Producto buscarProducto(InventarioEmbebido inventario) throws SQLException {
+        return dao.buscarProducto(InventarioEmbebido.nombreProducto(ThreadLocalRandom.current().nextInt(inventario.filas)));
+    }
+
+    /**
+     * Lee el inventario completo.
+     *
+     * @param inventario El inventario cargado.
+     * @return Todos los productos.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Producto> obtenerTodosProductos(InventarioEmbebido inventario) {
+        return dao.obtenerTodosProductos();
+    }
+
+    /**
+     * Inserta un producto nuevo.
+     *
+     * @param inventario El inventario cargado.
+     * @return true si se insertó.
+     */
+    @Benchmark
+    public boolean agregarProducto(InventarioEmbebido inventario) {
+        return dao.agregarProducto(new Producto("nuevo-" + AGREGADOS.incrementAndGet(), 1, 1.0));
+    }
+}
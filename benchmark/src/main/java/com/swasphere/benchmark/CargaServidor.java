@@ -0,0 +1,253 @@
+package com.swasphere.benchmark;
+
+import com.swasphere.controlador.ProductoControlador;
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ProductoMemoriaDAO;
+import com.swasphere.servidor.ServidorInventario;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga de la API HTTP del inventario: varios clientes
+ * concurrentes repiten cada escenario durante un tiempo fijo sobre
+ * conexiones persistentes y se informa el rendimiento y las latencias de
+ * cada uno. Por defecto arranca el servidor en el mismo proceso con el
+ * almacenamiento en memoria; con CARGA_URL mide un servidor ya arrancado,
+ * que debe tener cargados los productos "producto-0" a "producto-N".
+ *
+ * Se construye con el módulo de benchmarks y se ejecuta con:
+ * <pre>
+ * mvn -B package
+ * java -cp benchmark/target/benchmarks.jar com.swasphere.benchmark.CargaServidor
+ * </pre>
+ *
+ * Propiedades del sistema:
+ * <ul>
+ * <li>CARGA_URL: dirección base del servidor, por ejemplo
+ * http://localhost:8080.</li>
+ * <li>CARGA_TOKEN: token de escritura del servidor de CARGA_URL. El servidor
+ * del mismo proceso usa uno aleatorio.</li>
+ * <li>CARGA_PRODUCTOS: número de productos (por defecto 100000).</li>
+ * <li>CARGA_CLIENTES: clientes concurrentes (por defecto 32).</li>
+ * <li>CARGA_LOTE: productos por petición en lote (por defecto 50).</li>
+ * <li>CARGA_CALENTAMIENTO_MS y CARGA_MEDICION_MS: duración del
+ * calentamiento y de la medición de cada escenario.</li>
+ * </ul>
+ *
+ * @autor ljsanchez23
+ */
+public class CargaServidor {
+
+    private static final int TAMANO_CARGA = 10_000;
+
+    private final HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String base;
+    private final String token;
+    private final int productos;
+    private final int clientes;
+    private final long calentamientoNanos;
+    private final long medicionNanos;
+    private final AtomicLong errores = new AtomicLong();
+
+    /**
+     * Petición medida. Recibe el número de iteración para variar la clave.
+     */
+    private interface Peticion {
+
+        HttpRequest crear(long iteracion);
+    }
+
+    /**
+     * Constructor de la clase CargaServidor.
+     *
+     * @param base La dirección base del servidor.
+     * @param token El token de escritura del servidor, o null si no tiene.
+     * @param productos El número de productos cargados.
+     * @param clientes El número de clientes concurrentes.
+     * @param calentamientoMs La duración del calentamiento de cada escenario.
+     * @param medicionMs La duración de la medición de cada escenario.
+     */
+    public CargaServidor(String base, String token, int productos, int clientes, long calentamientoMs, long medicionMs) {
+        this.base = base;
+        this.token = token;
+        this.productos = productos;
+        this.clientes = clientes;
+        this.calentamientoNanos = calentamientoMs * 1_000_000;
+        this.medicionNanos = medicionMs * 1_000_000;
+    }
+
+    /**
+     * @param args the command line arguments
+     * @throws Exception Si falla la preparación del servidor.
+     */
+    public static void main(String[] args) throws Exception {
+        int productos = Integer.getInteger("CARGA_PRODUCTOS", 100_000);
+        int clientes = Integer.getInteger("CARGA_CLIENTES", 32);
+        int lote = Integer.getInteger("CARGA_LOTE", 50);
+        String url = System.getProperty("CARGA_URL");
+        String token = System.getProperty("CARGA_TOKEN");
+
+        ServidorInventario servidor = null;
+        if (url == null) {
+            // Como en SupplySwaSphere: sin TCP_NODELAY cada respuesta espera
+            // el ACK retardado del cliente
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true");
+            }
+            ProductoMemoriaDAO repositorio = new ProductoMemoriaDAO();
+            cargar(repositorio, productos);
+            token = UUID.randomUUID().toString();
+            servidor = new ServidorInventario(new ProductoControlador(repositorio),
+                    new InetSocketAddress("localhost", 0), clientes, token);
+            servidor.iniciar();
+            url = "http://localhost:" + servidor.getPuerto();
+        }
+        CargaServidor carga = new CargaServidor(url, token, productos, clientes,
+                Long.getLong("CARGA_CALENTAMIENTO_MS", 3_000), Long.getLong("CARGA_MEDICION_MS", 10_000));
+        try {
+            List<ResultadoMedicion> resultados = carga.medir(lote);
+            System.out.println("Servidor: " + url + ", clientes: " + clientes);
+            System.out.println(ResultadoMedicion.cabecera());
+            for (ResultadoMedicion resultado : resultados) {
+                System.out.println(resultado);
+            }
+            System.out.println("Respuestas con error: " + carga.errores.get());
+        } finally {
+            if (servidor != null) {
+                servidor.detener(0);
+            }
+        }
+    }
+
+    /**
+     * Mide todos los escenarios.
+     *
+     * @param lote El número de productos de cada petición en lote.
+     * @return Los resultados de cada escenario.
+     * @throws InterruptedException Si se interrumpe la medición.
+     */
+    public List<ResultadoMedicion> medir(int lote) throws InterruptedException {
+        List<ResultadoMedicion> resultados = new ArrayList<>();
+        resultados.add(medir("http:buscar", i -> get("/api/productos/" + codificar(nombre(aleatorio(i, productos))))));
+        resultados.add(medir("http:pagina100", i -> get("/api/productos?limite=100&despues="
+                + codificar(nombre(aleatorio(i, productos))))));
+        resultados.add(medir("http:busquedaLote" + lote, i -> {
+            StringBuilder cuerpo = new StringBuilder("{\"nombres\":[");
+            for (int j = 0; j < lote; j++) {
+                cuerpo.append(j > 0 ? ",\"" : "\"").append(nombre(aleatorio(i * lote + j, productos))).append('"');
+            }
+            return post("/api/lotes/busqueda", cuerpo.append("]}").toString());
+        }));
+        resultados.add(medir("http:ajuste", i -> post("/api/productos/" + codificar(nombre(aleatorio(i, productos)))
+                + "/ajuste", "{\"delta\":" + ((i & 1) == 0 ? 1 : -1) + ",\"permitirNegativo\":true}")));
+        return resultados;
+    }
+
+    private ResultadoMedicion medir(String escenario, Peticion peticion) throws InterruptedException {
+        ejecutar(peticion, calentamientoNanos, new Histograma[clientes], new long[clientes]);
+        Histograma[] latencias = new Histograma[clientes];
+        long[] operaciones = new long[clientes];
+        long duracion = ejecutar(peticion, medicionNanos, latencias, operaciones);
+        Histograma total = new Histograma();
+        long suma = 0;
+        for (int c = 0; c < clientes; c++) {
+            total.sumar(latencias[c]);
+            suma += operaciones[c];
+        }
+        return new ResultadoMedicion(escenario, productos, suma, duracion, total, -1);
+    }
+
+    /**
+     * Lanza los clientes, cada uno con su histograma, y espera a que
+     * terminen.
+     *
+     * @return La duración real de la ejecución en nanosegundos.
+     */
+    private long ejecutar(Peticion peticion, long duracionNanos, Histograma[] latencias, long[] operaciones)
+            throws InterruptedException {
+        Thread[] hilos = new Thread[clientes];
+        long inicio = System.nanoTime();
+        long fin = inicio + duracionNanos;
+        for (int c = 0; c < clientes; c++) {
+            int indice = c;
+            latencias[c] = new Histograma();
+            hilos[c] = new Thread(() -> {
+                // Cada cliente recorre claves distintas
+                long iteracion = (long) indice << 40;
+                long ahora = System.nanoTime();
+                while (ahora < fin) {
+                    long antes = ahora;
+                    try {
+                        HttpResponse<String> respuesta = cliente.send(peticion.crear(iteracion++),
+                                HttpResponse.BodyHandlers.ofString());
+                        if (respuesta.statusCode() != 200) {
+                            errores.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errores.incrementAndGet();
+                    }
+                    ahora = System.nanoTime();
+                    latencias[indice].registrar(ahora - antes);
+                    operaciones[indice]++;
+                }
+            }, "cliente-" + c);
+            hilos[c].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    private HttpRequest get(String ruta) {
+        return HttpRequest.newBuilder(URI.create(base + ruta)).GET().build();
+    }
+
+    private HttpRequest post(String ruta, String cuerpo) {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(base + ruta))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo));
+        if (token != null) {
+            peticion.header("Authorization", "Bearer " + token);
+        }
+        return peticion.build();
+    }
+
+    private static void cargar(ProductoMemoriaDAO repositorio, int filas) {
+        List<Producto> lote = new ArrayList<>(TAMANO_CARGA);
+        for (int i = 0; i < filas; i++) {
+            lote.add(new Producto(nombre(i), 1_000, (i % 10_000) / 100.0));
+            if (lote.size() == TAMANO_CARGA || i == filas - 1) {
+                repositorio.agregarProductos(lote);
+                lote.clear();
+            }
+        }
+    }
+
+    private static String nombre(int indice) {
+        return "producto-" + indice;
+    }
+
+    private static String codificar(String nombre) {
+        return URLEncoder.encode(nombre, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * Índice pseudoaleatorio de un producto cargado, derivado de la
+     * iteración para no asignar ni compartir un generador.
+     */
+    private static int aleatorio(long iteracion, int filas) {
+        long x = iteracion * 0x9E3779B97F4A7C15L;
+        x ^= x >>> 31;
+        return (int) Math.floorMod(x, (long) filas);
+    }
+}
@@ -0,0 +1,36 @@
+package com.swasphere.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de los benchmarks JMH. Acepta las mismas opciones que la
+ * línea de comandos de JMH y añade siempre el perfilador de memoria, que
+ * informa los bytes asignados por operación y la tasa de asignación.
+ *
+ * Se construye y ejecuta con:
+ * <pre>
+ * mvn -B package
+ * java -jar benchmark/target/benchmarks.jar
+ * java -jar benchmark/target/benchmarks.jar BenchmarkProductoDAO.buscarProducto -p filas=100000
+ * </pre>
+ *
+ * @autor ljsanchez23
+ */
+public class EjecutarBenchmarks {
+
+    /**
+     * @param args Las opciones de JMH.
+     * @throws Exception Si las opciones no son válidas o falla un benchmark.
+     */
+    public static void main(String[] args) throws Exception {
+        Options opciones = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opciones).run();
+    }
+}
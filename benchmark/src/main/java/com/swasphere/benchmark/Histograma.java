@@ -0,0 +1,113 @@
+package com.swasphere.benchmark;
+
+/**
+ * Histograma de latencias en nanosegundos con cubetas logarítmicas: cada
+ * potencia de dos se divide en 16 cubetas, así que los percentiles tienen un
+ * error relativo menor del 7 % con memoria fija y sin asignaciones al
+ * registrar.
+ *
+ * @autor ljsanchez23
+ */
+class Histograma {
+
+    private static final int SUBCUBETAS = 16;
+    private static final int BITS_SUBCUBETA = 4;
+
+    private final long[] cubetas = new long[64 * SUBCUBETAS];
+    private long total;
+    private long suma;
+    private long maximo;
+
+    /**
+     * Registra una latencia.
+     *
+     * @param nanos La latencia en nanosegundos.
+     */
+    void registrar(long nanos) {
+        cubetas[indice(nanos)]++;
+        total++;
+        suma += nanos;
+        if (nanos > maximo) {
+            maximo = nanos;
+        }
+    }
+
+    /**
+     * Suma las latencias de otro histograma, por ejemplo el de otro hilo.
+     *
+     * @param otro El histograma a sumar.
+     */
+    void sumar(Histograma otro) {
+        for (int i = 0; i < cubetas.length; i++) {
+            cubetas[i] += otro.cubetas[i];
+        }
+        total += otro.total;
+        suma += otro.suma;
+        maximo = Math.max(maximo, otro.maximo);
+    }
+
+    /**
+     * Obtiene el número de latencias registradas.
+     *
+     * @return El total de registros.
+     */
+    long getTotal() {
+        return total;
+    }
+
+    /**
+     * Obtiene la latencia media.
+     *
+     * @return La media en nanosegundos, o 0 si no hay registros.
+     */
+    double getMedia() {
+        return total == 0 ? 0 : (double) suma / total;
+    }
+
+    /**
+     * Obtiene la latencia máxima registrada.
+     *
+     * @return El máximo en nanosegundos.
+     */
+    long getMaximo() {
+        return maximo;
+    }
+
+    /**
+     * Obtiene un percentil de las latencias registradas.
+     *
+     * @param percentil El percentil entre 0 y 100.
+     * @return El límite superior de la cubeta que contiene el percentil, en
+     * nanosegundos.
+     */
+    long getPercentil(double percentil) {
+        long objetivo = (long) Math.ceil(total * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < cubetas.length; i++) {
+            acumulado += cubetas[i];
+            if (acumulado >= objetivo && acumulado > 0) {
+                return Math.min(limiteSuperior(i), maximo);
+            }
+        }
+        return maximo;
+    }
+
+    private static int indice(long nanos) {
+        if (nanos < SUBCUBETAS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + sub;
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int exponente = indice / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        int sub = indice % SUBCUBETAS;
+        long base = (long) (SUBCUBETAS + sub) << (exponente - BITS_SUBCUBETA);
+        return base + (1L << (exponente - BITS_SUBCUBETA)) - 1;
+    }
+}
@@ -0,0 +1,119 @@
+package com.swasphere.benchmark;
+
+import com.swasphere.embebida.BaseDatosEmbebida;
+import com.swasphere.modelo.ConexionPool;
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ProductoDAO;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Base de datos embebida con un inventario y una tabla de usuarios del
+ * tamaño indicado, compartida por todos los hilos de un benchmark. La
+ * aplicación llega a ella a través de su pool de conexiones, igual que a
+ * MySQL, por lo que cada benchmark debe ejecutarse en su propio proceso.
+ *
+ * @autor ljsanchez23
+ */
+@State(Scope.Benchmark)
+public class InventarioEmbebido {
+
+    /**
+     * Contraseña de todos los usuarios cargados.
+     */
+    public static final String PASSWORD = "benchmark";
+
+    private static final int TAMANO_CARGA = 10_000;
+
+    /**
+     * Número de productos y de usuarios cargados.
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int filas;
+
+    private Connection conexion;
+
+    /**
+     * Crea la base de datos, la carga y configura el pool de la aplicación
+     * para que la use.
+     *
+     * @throws SQLException Si falla la carga.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        String nombre = "benchmark" + System.nanoTime();
+        conexion = BaseDatosEmbebida.crear(nombre);
+        cargarProductos();
+        cargarUsuarios();
+        System.setProperty("DB_URL", BaseDatosEmbebida.url(nombre));
+        System.setProperty("DB_USER", "sa");
+        System.setProperty("DB_PASSWORD", "");
+    }
+
+    /**
+     * Cierra el pool y la base de datos.
+     *
+     * @throws SQLException Si falla el cierre.
+     */
+    @TearDown(Level.Trial)
+    public void cerrar() throws SQLException {
+        ConexionPool.getInstancia().cerrar();
+        conexion.close();
+    }
+
+    /**
+     * Obtiene el nombre de un producto cargado.
+     *
+     * @param indice El índice del producto, entre 0 y filas - 1.
+     * @return El nombre del producto.
+     */
+    public static String nombreProducto(int indice) {
+        return "producto-" + indice;
+    }
+
+    /**
+     * Obtiene el nombre de un usuario cargado.
+     *
+     * @param indice El índice del usuario, entre 0 y filas - 1.
+     * @return El nombre del usuario.
+     */
+    public static String nombreUsuario(int indice) {
+        return "usuario-" + indice;
+    }
+
+    private void cargarProductos() {
+        ProductoDAO dao = new ProductoDAO(conexion);
+        dao.setTamanoLote(TAMANO_CARGA);
+        List<Producto> lote = new ArrayList<>(TAMANO_CARGA);
+        for (int i = 0; i < filas; i++) {
+            lote.add(new Producto(nombreProducto(i), 1_000, (i % 10_000) / 100.0));
+            if (lote.size() == TAMANO_CARGA || i == filas - 1) {
+                dao.agregarProductos(lote);
+                lote.clear();
+            }
+        }
+    }
+
+    private void cargarUsuarios() throws SQLException {
+        String sql = "INSERT INTO usuarios (nombreUsuario, password) VALUES (?, ?)";
+        try (PreparedStatement pstmt = conexion.prepareStatement(sql)) {
+            for (int i = 0; i < filas; i++) {
+                pstmt.setString(1, nombreUsuario(i));
+                pstmt.setString(2, PASSWORD);
+                pstmt.addBatch();
+                if ((i + 1) % TAMANO_CARGA == 0 || i == filas - 1) {
+                    pstmt.executeBatch();
+                }
+            }
+        }
+    }
+}
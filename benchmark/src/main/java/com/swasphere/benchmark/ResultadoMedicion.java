@@ -0,0 +1,86 @@
+package com.swasphere.benchmark;
+
+/**
+ * Resultado de medir un escenario: rendimiento, latencias y asignación de
+ * memoria por operación.
+ *
+ * @autor ljsanchez23
+ */
+class ResultadoMedicion {
+
+    private final String escenario;
+    private final int filas;
+    private final long operaciones;
+    private final long duracionNanos;
+    private final Histograma latencias;
+    private final long bytesAsignados;
+
+    /**
+     * Constructor de la clase ResultadoMedicion.
+     *
+     * @param escenario El nombre del escenario medido.
+     * @param filas El número de productos cargados.
+     * @param operaciones El número de operaciones medidas.
+     * @param duracionNanos La duración de la medición.
+     * @param latencias Las latencias de cada operación.
+     * @param bytesAsignados Los bytes asignados por el hilo durante la
+     * medición, o -1 si la máquina virtual no los informa.
+     */
+    ResultadoMedicion(String escenario, int filas, long operaciones, long duracionNanos,
+            Histograma latencias, long bytesAsignados) {
+        this.escenario = escenario;
+        this.filas = filas;
+        this.operaciones = operaciones;
+        this.duracionNanos = duracionNanos;
+        this.latencias = latencias;
+        this.bytesAsignados = bytesAsignados;
+    }
+
+    /**
+     * Obtiene el número de operaciones por segundo.
+     *
+     * @return El rendimiento medido.
+     */
+    double getOperacionesPorSegundo() {
+        return operaciones * 1e9 / duracionNanos;
+    }
+
+    /**
+     * Obtiene los bytes asignados por operación.
+     *
+     * @return Los bytes por operación, o -1 si no se midieron.
+     */
+    double getBytesPorOperacion() {
+        return bytesAsignados < 0 ? -1 : (double) bytesAsignados / operaciones;
+    }
+
+    /**
+     * Obtiene la cabecera de la tabla de resultados.
+     *
+     * @return Los nombres de las columnas.
+     */
+    static String cabecera() {
+        return String.format("%-22s %9s %12s %11s %11s %11s %11s %12s %10s",
+                "Escenario", "Filas", "ops/s", "media(us)", "p50(us)", "p99(us)", "p99.9(us)", "B/op", "MB/s");
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una fila de la tabla de resultados.
+     */
+    @Override
+    public String toString() {
+        double bytesPorOperacion = getBytesPorOperacion();
+        String asignacion = bytesPorOperacion < 0 ? "n/d" : String.format("%.0f", bytesPorOperacion);
+        String tasa = bytesPorOperacion < 0 ? "n/d"
+                : String.format("%.1f", bytesAsignados / (duracionNanos / 1e9) / (1024 * 1024));
+        return String.format("%-22s %9d %12.0f %11.2f %11.2f %11.2f %11.2f %12s %10s",
+                escenario, filas, getOperacionesPorSegundo(),
+                latencias.getMedia() / 1e3,
+                latencias.getPercentil(50) / 1e3,
+                latencias.getPercentil(99) / 1e3,
+                latencias.getPercentil(99.9) / 1e3,
+                asignacion, tasa);
+    }
+}
@@ -0,0 +1,195 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.Producto;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché acotada de productos por nombre normalizado, con expulsión del menos
+ * usado recientemente y caducidad por tiempo. También recuerda los nombres
+ * que no existen para no repetir búsquedas fallidas.
+ *
+ * @autor ljsanchez23
+ */
+public class CacheProductos {
+
+    private final int capacidad;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entrada> entradas;
+
+    // Se incrementa con cada escritura; una carga iniciada antes no se guarda
+    private long generacion;
+
+    // Contadores para las estadísticas, protegidos por this
+    private long aciertos;
+    private long fallos;
+    private long expulsiones;
+
+    /**
+     * Constructor de la clase CacheProductos.
+     *
+     * @param capacidad El número máximo de nombres en caché.
+     * @param ttlMs El tiempo de vida de cada entrada en milisegundos.
+     */
+    public CacheProductos(int capacidad, long ttlMs) {
+        this.capacidad = capacidad;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.entradas = new LinkedHashMap<String, Entrada>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+                if (size() > CacheProductos.this.capacidad) {
+                    expulsiones++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Obtiene un producto de la caché o, si no está o caducó, lo carga con el
+     * cargador y lo guarda.
+     *
+     * @param nombre El nombre del producto.
+     * @param cargador La consulta a ejecutar cuando el producto no está en
+     * caché.
+     * @return Una copia del producto, o null si el producto no existe.
+     * @throws SQLException Si el cargador falla.
+     */
+    public Producto obtener(String nombre, CargadorProducto cargador) throws SQLException {
+        String clave = Producto.normalizarNombre(nombre);
+        long generacionCarga;
+        synchronized (this) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada != null && System.nanoTime() - entrada.creada < ttlNanos) {
+                aciertos++;
+                return copiar(entrada.producto);
+            }
+            if (entrada != null) {
+                entradas.remove(clave);
+            }
+            fallos++;
+            generacionCarga = generacion;
+        }
+        Producto producto = cargador.cargar(nombre);
+        synchronized (this) {
+            if (generacion == generacionCarga) {
+                entradas.put(clave, new Entrada(copiar(producto)));
+            }
+        }
+        return producto;
+    }
+
+    /**
+     * Guarda el estado actual de un producto tras una escritura.
+     *
+     * @param producto El producto escrito.
+     */
+    public synchronized void poner(Producto producto) {
+        generacion++;
+        entradas.put(Producto.normalizarNombre(producto.getNombre()), new Entrada(copiar(producto)));
+    }
+
+    /**
+     * Descarta la entrada de un producto tras una escritura.
+     *
+     * @param nombre El nombre del producto.
+     */
+    public synchronized void invalidar(String nombre) {
+        generacion++;
+        entradas.remove(Producto.normalizarNombre(nombre));
+    }
+
+    /**
+     * Descarta todas las entradas.
+     */
+    public synchronized void limpiar() {
+        generacion++;
+        entradas.clear();
+    }
+
+    /**
+     * Obtiene el número de nombres en caché, incluidos los de productos que
+     * no existen y las entradas caducadas que aún no se han consultado.
+     *
+     * @return El número de entradas.
+     */
+    public synchronized int getTamano() {
+        return entradas.size();
+    }
+
+    /**
+     * Obtiene el número de consultas resueltas con una entrada vigente.
+     *
+     * @return El número de aciertos desde la creación de la caché.
+     */
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    /**
+     * Obtiene el número de consultas que tuvieron que cargar el producto,
+     * porque no estaba en caché o su entrada había caducado.
+     *
+     * @return El número de fallos desde la creación de la caché.
+     */
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    /**
+     * Obtiene el número de entradas descartadas por superar la capacidad.
+     *
+     * @return El número de expulsiones desde la creación de la caché.
+     */
+    public synchronized long getExpulsiones() {
+        return expulsiones;
+    }
+
+    /**
+     * Obtiene la proporción de búsquedas servidas desde la caché.
+     *
+     * @return La tasa de aciertos entre 0 y 1.
+     */
+    public synchronized double getTasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con las estadísticas de la caché.
+     */
+    @Override
+    public synchronized String toString() {
+        return "CacheProductos{" + "tamano=" + entradas.size() + "/" + capacidad + ", aciertos=" + aciertos
+                + ", fallos=" + fallos + ", expulsiones=" + expulsiones + '}';
+    }
+
+    private static Producto copiar(Producto producto) {
+        return producto == null ? null : new Producto(producto);
+    }
+
+    /**
+     * Consulta que carga un producto cuando no está en caché.
+     */
+    public interface CargadorProducto {
+
+        Producto cargar(String nombre) throws SQLException;
+    }
+
+    /**
+     * Producto en caché, o null si se sabe que no existe.
+     */
+    private static final class Entrada {
+
+        private final Producto producto;
+        private final long creada = System.nanoTime();
+
+        private Entrada(Producto producto) {
+            this.producto = producto;
+        }
+    }
+}
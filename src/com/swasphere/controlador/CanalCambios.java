@@ -0,0 +1,177 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.CambioProducto;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Difunde los cambios confirmados en el inventario a quienes tienen una
+ * tabla abierta. Un hilo consulta periódicamente el registro de cambios y
+ * entrega a cada suscripción, en lotes, los cambios posteriores al último
+ * que recibió. Las suscripciones que van por el mismo cambio comparten la
+ * consulta, así que varias ventanas abiertas no multiplican el trabajo de la
+ * base de datos.
+ *
+ * @autor ljsanchez23
+ */
+public class CanalCambios {
+
+    // Lotes como máximo por suscripción en cada consulta, para no retrasar al resto
+    private static final int MAXIMO_LOTES = 20;
+
+    private final ProductoControlador productoControlador;
+    private final long intervaloMillis;
+    private final int tamanoLote;
+    private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService planificador;
+    private ScheduledFuture<?> consulta;
+
+    /**
+     * Suscripción a los cambios del inventario.
+     */
+    public static final class Suscripcion {
+
+        private final CanalCambios canal;
+        private final Consumer<List<CambioProducto>> alRecibir;
+
+        // Último cambio entregado; negativo hasta la primera consulta si se suscribió desde ahora
+        private volatile long cambio;
+        private volatile boolean activa = true;
+
+        private Suscripcion(CanalCambios canal, long cambio, Consumer<List<CambioProducto>> alRecibir) {
+            this.canal = canal;
+            this.cambio = cambio;
+            this.alRecibir = alRecibir;
+        }
+
+        /**
+         * Deja de recibir cambios. Un lote que se estuviera entregando puede
+         * llegar todavía.
+         */
+        public void cancelar() {
+            activa = false;
+            canal.quitar(this);
+        }
+
+        /**
+         * Indica si la suscripción sigue recibiendo cambios.
+         *
+         * @return true si no se canceló.
+         */
+        public boolean isActiva() {
+            return activa;
+        }
+    }
+
+    /**
+     * Constructor de la clase CanalCambios.
+     *
+     * @param productoControlador El controlador del que se leen los cambios.
+     * @param intervaloMillis El tiempo entre dos consultas; 0 o menos para no
+     * consultar nunca.
+     * @param tamanoLote El número máximo de cambios de cada entrega.
+     */
+    public CanalCambios(ProductoControlador productoControlador, long intervaloMillis, int tamanoLote) {
+        this.productoControlador = productoControlador;
+        this.intervaloMillis = intervaloMillis;
+        this.tamanoLote = Math.max(1, tamanoLote);
+    }
+
+    /**
+     * Empieza a entregar los cambios posteriores a uno dado. Los lotes se
+     * entregan en el hilo del canal, en orden de confirmación.
+     *
+     * @param desdeCambio El último cambio ya reflejado, o un valor negativo
+     * para recibir sólo los cambios que se confirmen a partir de ahora.
+     * @param alRecibir La acción a ejecutar con cada lote de cambios.
+     * @return La suscripción, que debe cancelarse cuando ya no se necesite.
+     */
+    public synchronized Suscripcion suscribir(long desdeCambio, Consumer<List<CambioProducto>> alRecibir) {
+        Suscripcion suscripcion = new Suscripcion(this, desdeCambio, alRecibir);
+        suscripciones.add(suscripcion);
+        if (consulta == null && intervaloMillis > 0) {
+            if (planificador == null) {
+                planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread hilo = new Thread(r, "canal-cambios");
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+            }
+            consulta = planificador.scheduleWithFixedDelay(this::consultar, intervaloMillis, intervaloMillis, TimeUnit.MILLISECONDS);
+        }
+        return suscripcion;
+    }
+
+    /**
+     * Obtiene el número de suscripciones activas.
+     *
+     * @return El número de suscripciones.
+     */
+    public int getSuscripciones() {
+        return suscripciones.size();
+    }
+
+    private synchronized void quitar(Suscripcion suscripcion) {
+        suscripciones.remove(suscripcion);
+        if (suscripciones.isEmpty() && consulta != null) {
+            consulta.cancel(false);
+            consulta = null;
+        }
+    }
+
+    /**
+     * Consulta los cambios de todas las suscripciones, una vez por cada
+     * último cambio distinto.
+     */
+    void consultar() {
+        try {
+            long ultimoCambio = -1;
+            Map<Long, List<Suscripcion>> porCambio = new LinkedHashMap<>();
+            for (Suscripcion suscripcion : suscripciones) {
+                if (suscripcion.cambio < 0) {
+                    if (ultimoCambio < 0) {
+                        ultimoCambio = productoControlador.getUltimoCambio();
+                    }
+                    if (ultimoCambio < 0) {
+                        continue;
+                    }
+                    suscripcion.cambio = ultimoCambio;
+                }
+                porCambio.computeIfAbsent(suscripcion.cambio, cambio -> new ArrayList<>()).add(suscripcion);
+            }
+            for (Map.Entry<Long, List<Suscripcion>> grupo : porCambio.entrySet()) {
+                entregar(grupo.getKey(), grupo.getValue());
+            }
+        } catch (RuntimeException e) {
+            // Un error no debe detener las consultas siguientes
+            e.printStackTrace();
+        }
+    }
+
+    private void entregar(long desdeCambio, List<Suscripcion> grupo) {
+        for (int lote = 0; lote < MAXIMO_LOTES; lote++) {
+            List<CambioProducto> cambios = productoControlador.getCambiosDesde(desdeCambio, tamanoLote);
+            if (cambios == null || cambios.isEmpty()) {
+                return;
+            }
+            desdeCambio = cambios.get(cambios.size() - 1).getCambio();
+            for (Suscripcion suscripcion : grupo) {
+                if (suscripcion.activa) {
+                    suscripcion.cambio = desdeCambio;
+                    suscripcion.alRecibir.accept(cambios);
+                }
+            }
+            if (cambios.size() < tamanoLote) {
+                return;
+            }
+        }
+    }
+}
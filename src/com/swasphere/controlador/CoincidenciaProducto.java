@@ -0,0 +1,53 @@
+package com.swasphere.controlador;
+
+/**
+ * Nombre de producto encontrado por una búsqueda aproximada, con su
+ * puntuación de parecido.
+ *
+ * @autor ljsanchez23
+ */
+public class CoincidenciaProducto {
+
+    private final String nombre;
+    private final double puntuacion;
+
+    /**
+     * Constructor de la clase CoincidenciaProducto.
+     *
+     * @param nombre El nombre del producto.
+     * @param puntuacion El parecido con el texto buscado, entre 0 y 1.
+     */
+    public CoincidenciaProducto(String nombre, double puntuacion) {
+        this.nombre = nombre;
+        this.puntuacion = puntuacion;
+    }
+
+    /**
+     * Obtiene el nombre del producto.
+     *
+     * @return El nombre del producto.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Obtiene el parecido con el texto buscado.
+     *
+     * @return Un valor entre 0 y 1; 1 indica el mismo nombre sin contar
+     * acentos ni mayúsculas.
+     */
+    public double getPuntuacion() {
+        return puntuacion;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con el nombre y la puntuación.
+     */
+    @Override
+    public String toString() {
+        return "CoincidenciaProducto{" + "nombre='" + nombre + '\'' + ", puntuacion=" + puntuacion + '}';
+    }
+}
@@ -0,0 +1,71 @@
+package com.swasphere.controlador;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ejecutor compartido para las operaciones de base de datos que no deben
+ * bloquear el hilo de eventos de Swing. Usa hilos virtuales si la máquina
+ * virtual los ofrece y, si no, un grupo de hilos demonio.
+ *
+ * @autor ljsanchez23
+ */
+public final class EjecutorTareas {
+
+    private static final Logger LOGGER = Logger.getLogger(EjecutorTareas.class.getName());
+
+    private static final ExecutorService EJECUTOR = crearEjecutor();
+
+    private EjecutorTareas() {
+    }
+
+    /**
+     * Ejecuta una tarea en segundo plano. Cancelar el futuro devuelto
+     * interrumpe el hilo que ejecuta la tarea.
+     *
+     * @param <T> El tipo del resultado.
+     * @param tarea La tarea a ejecutar.
+     * @return Un futuro que se completa con el resultado de la tarea.
+     */
+    public static <T> CompletableFuture<T> ejecutar(Callable<T> tarea) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Future<?> ejecucion = EJECUTOR.submit(() -> {
+            try {
+                resultado.complete(tarea.call());
+            } catch (Throwable t) {
+                resultado.completeExceptionally(t);
+            }
+        });
+        resultado.whenComplete((valor, error) -> {
+            if (resultado.isCancelled()) {
+                ejecucion.cancel(true);
+            }
+        });
+        return resultado;
+    }
+
+    private static ExecutorService crearEjecutor() {
+        try {
+            // Disponible desde Java 21
+            ExecutorService virtuales = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOGGER.log(Level.FINE, "Usando hilos virtuales para las tareas de base de datos");
+            return virtuales;
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger contador = new AtomicInteger();
+            ThreadFactory fabrica = r -> {
+                Thread hilo = new Thread(r, "tarea-bd-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            };
+            return Executors.newCachedThreadPool(fabrica);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ResultadoLote;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cola de escritura diferida de cantidades. Las actualizaciones se encolan y
+ * un hilo escritor las envía en lotes: espera una ventana corta desde la
+ * primera pendiente para que las actualizaciones repetidas del mismo
+ * producto se combinen en una sola, de la que se escribe sólo la última
+ * cantidad. Cuando la cola alcanza su capacidad, quien encola espera a que
+ * el escritor la vacíe. Al cerrarla se escriben las pendientes.
+ *
+ * Las actualizaciones que fallan por un error del almacenamiento vuelven a la
+ * cola, salvo que ya haya otra más reciente del mismo producto, y se
+ * reintentan con esperas crecientes. Al cerrar la cola se reintentan unas
+ * pocas veces; las que siguen fallando quedan disponibles en
+ * getRechazadas().
+ *
+ * @autor ljsanchez23
+ */
+public class EscrituraDiferida {
+
+    private static final Logger LOGGER = Logger.getLogger(EscrituraDiferida.class.getName());
+
+    // Espera máxima entre reintentos de un lote fallido
+    private static final long ESPERA_MAXIMA_REINTENTO_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    // Intentos de escribir las pendientes una vez cerrada la cola
+    private static final int INTENTOS_AL_CERRAR = 3;
+
+    private final Function<Map<String, Integer>, ResultadoLote> escritor;
+    private final long ventanaNanos;
+    private final int capacidad;
+    private final Thread hilo;
+
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition despertar = cerrojo.newCondition();
+    private final Condition hayEspacio = cerrojo.newCondition();
+    private final Condition loteEscrito = cerrojo.newCondition();
+
+    // Estado de la cola, protegido por el cerrojo
+    private Map<String, Integer> pendientes = new LinkedHashMap<>();
+    private Map<String, Integer> enEscritura = Collections.emptyMap();
+    private boolean urgente;
+    private boolean cerrada;
+    private long lotesIniciados;
+    private long lotesEscritos;
+    private int fallosSeguidos;
+    private final Map<String, Integer> rechazadas = new LinkedHashMap<>();
+
+    // Métricas, protegidas por el cerrojo
+    private long recibidas;
+    private long escritas;
+    private long fallidas;
+    private long reintentadas;
+    private long esperas;
+    private long latenciaTotalNanos;
+    private long latenciaMaximaNanos;
+
+    /**
+     * Constructor de la clase EscrituraDiferida. Arranca el hilo escritor.
+     *
+     * @param escritor La acción que escribe un lote de cantidades por nombre
+     * de producto.
+     * @param ventanaMillis El tiempo que espera el escritor desde la primera
+     * actualización pendiente antes de escribir el lote.
+     * @param capacidad El número máximo de productos pendientes.
+     */
+    public EscrituraDiferida(Function<Map<String, Integer>, ResultadoLote> escritor, long ventanaMillis, int capacidad) {
+        this.escritor = escritor;
+        this.ventanaNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ventanaMillis));
+        this.capacidad = Math.max(1, capacidad);
+        hilo = new Thread(this::escribir, "escritura-diferida");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Encola la nueva cantidad de un producto, reemplazando la que estuviera
+     * pendiente. Si la cola está llena espera a que se vacíe.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevaCantidad La nueva cantidad del producto.
+     * @return true si la cantidad quedó encolada, false si la cola está
+     * cerrada o el hilo fue interrumpido mientras esperaba.
+     */
+    public boolean encolar(String nombre, int nuevaCantidad) {
+        String clave = Producto.normalizarNombre(nombre);
+        cerrojo.lock();
+        try {
+            if (!pendientes.containsKey(clave)) {
+                while (!cerrada && pendientes.size() >= capacidad) {
+                    esperas++;
+                    urgente = true;
+                    despertar.signal();
+                    hayEspacio.await();
+                }
+            }
+            if (cerrada) {
+                return false;
+            }
+            if (pendientes.isEmpty()) {
+                despertar.signal();
+            }
+            pendientes.put(clave, nuevaCantidad);
+            recibidas++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de un producto que todavía no se escribió.
+     *
+     * @param nombre El nombre del producto.
+     * @return La cantidad pendiente, o null si no hay ninguna.
+     */
+    public Integer getCantidadPendiente(String nombre) {
+        String clave = Producto.normalizarNombre(nombre);
+        cerrojo.lock();
+        try {
+            Integer cantidad = pendientes.get(clave);
+            return cantidad != null ? cantidad : enEscritura.get(clave);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Escribe sin esperar la ventana las actualizaciones encoladas hasta
+     * ahora y espera a que terminen.
+     *
+     * @return true si se escribieron, false si alguna falló y volvió a la
+     * cola para reintentarse.
+     */
+    public boolean vaciar() {
+        cerrojo.lock();
+        try {
+            long objetivo = pendientes.isEmpty() ? lotesIniciados : lotesIniciados + 1;
+            if (!pendientes.isEmpty()) {
+                urgente = true;
+                despertar.signal();
+            }
+            boolean interrumpido = false;
+            while (lotesEscritos < objetivo && hilo.isAlive()
+                    && !(cerrada && pendientes.isEmpty() && enEscritura.isEmpty())) {
+                try {
+                    loteEscrito.await();
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+            return fallosSeguidos == 0;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Cierra la cola: deja de aceptar actualizaciones, escribe las pendientes
+     * y espera a que termine el escritor.
+     */
+    public void cerrar() {
+        cerrojo.lock();
+        try {
+            cerrada = true;
+            despertar.signal();
+            hayEspacio.signalAll();
+        } finally {
+            cerrojo.unlock();
+        }
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void escribir() {
+        while (true) {
+            Map<String, Integer> lote;
+            long numero;
+            cerrojo.lock();
+            try {
+                while (pendientes.isEmpty() && !cerrada) {
+                    despertar.awaitUninterruptibly();
+                }
+                if (pendientes.isEmpty()) {
+                    return;
+                }
+                if (cerrada && fallosSeguidos >= INTENTOS_AL_CERRAR) {
+                    rechazar();
+                    continue;
+                }
+                // Ventana para combinar las actualizaciones repetidas, o
+                // espera antes de reintentar un lote fallido
+                long restante = fallosSeguidos == 0 ? ventanaNanos : esperaReintento();
+                while (restante > 0 && !urgente && !cerrada) {
+                    try {
+                        restante = despertar.awaitNanos(restante);
+                    } catch (InterruptedException e) {
+                        restante = 0;
+                    }
+                }
+                urgente = false;
+                lote = pendientes;
+                enEscritura = lote;
+                pendientes = new LinkedHashMap<>();
+                numero = ++lotesIniciados;
+                hayEspacio.signalAll();
+            } finally {
+                cerrojo.unlock();
+            }
+
+            long inicio = System.nanoTime();
+            int exitosas = 0;
+            Map<String, Integer> reintentar = new LinkedHashMap<>();
+            try {
+                ResultadoLote resultado = escritor.apply(lote);
+                exitosas = resultado.getExitosos();
+                // El resultado sigue el orden de iteración del lote
+                int i = 0;
+                for (Map.Entry<String, Integer> entrada : lote.entrySet()) {
+                    if (!resultado.isExitoso(i) && resultado.getError(i) != null) {
+                        reintentar.put(entrada.getKey(), entrada.getValue());
+                    }
+                    i++;
+                }
+                if (exitosas + reintentar.size() < lote.size()) {
+                    LOGGER.log(Level.WARNING, "No se actualizaron las cantidades de {0}", resultado.getClavesFallidas());
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                reintentar.putAll(lote);
+            }
+            long latencia = System.nanoTime() - inicio;
+
+            cerrojo.lock();
+            try {
+                enEscritura = Collections.emptyMap();
+                for (Map.Entry<String, Integer> entrada : reintentar.entrySet()) {
+                    pendientes.putIfAbsent(entrada.getKey(), entrada.getValue());
+                }
+                fallosSeguidos = reintentar.isEmpty() ? 0 : fallosSeguidos + 1;
+                if (!reintentar.isEmpty()) {
+                    LOGGER.log(Level.WARNING, "Se reintentará la escritura de {0} cantidades", reintentar.size());
+                }
+                lotesEscritos = numero;
+                // Las filas que vuelven a la cola se cuentan cuando se resuelvan
+                escritas += lote.size() - reintentar.size();
+                reintentadas += reintentar.size();
+                fallidas += lote.size() - exitosas - reintentar.size();
+                latenciaTotalNanos += latencia;
+                latenciaMaximaNanos = Math.max(latenciaMaximaNanos, latencia);
+                loteEscrito.signalAll();
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+    }
+
+    /**
+     * Calcula la espera antes del siguiente reintento, que se duplica con
+     * cada fallo seguido hasta un máximo.
+     */
+    private long esperaReintento() {
+        long base = Math.max(ventanaNanos, TimeUnit.MILLISECONDS.toNanos(100));
+        return Math.min(base << Math.min(fallosSeguidos - 1, 16), ESPERA_MAXIMA_REINTENTO_NANOS);
+    }
+
+    /**
+     * Aparta las pendientes que no se pudieron escribir antes de cerrar.
+     * Debe llamarse con el cerrojo tomado.
+     */
+    private void rechazar() {
+        LOGGER.log(Level.SEVERE, "No se pudieron escribir las cantidades de {0} productos al cerrar: {1}",
+                new Object[]{pendientes.size(), pendientes.keySet()});
+        rechazadas.putAll(pendientes);
+        pendientes.clear();
+        hayEspacio.signalAll();
+        loteEscrito.signalAll();
+    }
+
+    /**
+     * Obtiene las cantidades que no se pudieron escribir al cerrar la cola,
+     * para que quien la usa pueda guardarlas o reintentarlas.
+     *
+     * @return Las cantidades rechazadas por nombre normalizado de producto.
+     */
+    public Map<String, Integer> getRechazadas() {
+        cerrojo.lock();
+        try {
+            return new LinkedHashMap<>(rechazadas);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene el número de actualizaciones encoladas.
+     *
+     * @return El número de actualizaciones recibidas.
+     */
+    public long getRecibidas() {
+        cerrojo.lock();
+        try {
+            return recibidas;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene el número de actualizaciones enviadas al almacenamiento, una
+     * por producto y lote. Las que fallan y se reintentan cuentan una sola
+     * vez, cuando se escriben o se dan por fallidas.
+     *
+     * @return El número de actualizaciones escritas.
+     */
+    public long getEscritas() {
+        cerrojo.lock();
+        try {
+            return escritas;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene el número de actualizaciones escritas que no se aplicaron,
+     * normalmente porque el producto ya no existía.
+     *
+     * @return El número de actualizaciones fallidas.
+     */
+    public long getFallidas() {
+        cerrojo.lock();
+        try {
+            return fallidas;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene el número de actualizaciones que fallaron por un error del
+     * almacenamiento y volvieron a la cola.
+     *
+     * @return El número de actualizaciones reintentadas.
+     */
+    public long getReintentadas() {
+        cerrojo.lock();
+        try {
+            return reintentadas;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene el número de lotes escritos.
+     *
+     * @return El número de lotes.
+     */
+    public long getLotes() {
+        cerrojo.lock();
+        try {
+            return lotesEscritos;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene las veces que alguien esperó porque la cola estaba llena.
+     *
+     * @return El número de esperas.
+     */
+    public long getEsperas() {
+        cerrojo.lock();
+        try {
+            return esperas;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Calcula cuántas actualizaciones recibidas se combinaron en cada
+     * actualización escrita.
+     *
+     * @return Las recibidas por escrita, o 0 si todavía no se escribió nada.
+     */
+    public double getRatioCoalescencia() {
+        cerrojo.lock();
+        try {
+            long enCola = pendientes.size() + enEscritura.size();
+            return escritas == 0 ? 0 : (double) (recibidas - enCola) / escritas;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Calcula la duración media de la escritura de un lote.
+     *
+     * @return La latencia media en milisegundos, o 0 si no hay lotes.
+     */
+    public double getLatenciaMediaMillis() {
+        cerrojo.lock();
+        try {
+            return lotesEscritos == 0 ? 0 : latenciaTotalNanos / 1e6 / lotesEscritos;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene la duración máxima de la escritura de un lote.
+     *
+     * @return La latencia máxima en milisegundos.
+     */
+    public double getLatenciaMaximaMillis() {
+        cerrojo.lock();
+        try {
+            return latenciaMaximaNanos / 1e6;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con las métricas de la cola.
+     */
+    @Override
+    public String toString() {
+        return String.format("EscrituraDiferida{recibidas=%d, escritas=%d, fallidas=%d, reintentadas=%d, lotes=%d, "
+                + "esperas=%d, coalescencia=%.2f, latenciaMedia=%.3f ms, latenciaMaxima=%.3f ms}",
+                getRecibidas(), getEscritas(), getFallidas(), getReintentadas(), getLotes(), getEsperas(),
+                getRatioCoalescencia(), getLatenciaMediaMillis(), getLatenciaMaximaMillis());
+    }
+}
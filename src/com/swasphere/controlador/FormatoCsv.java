@@ -0,0 +1,218 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.Producto;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Formato CSV del inventario: una cabecera "nombre,cantidad,precio" y un
+ * producto por fila, con los campos entre comillas dobles cuando contienen
+ * el separador, comillas o saltos de línea. Se escribe siempre con comas y
+ * punto decimal; al leer se acepta también el punto y coma como separador,
+ * con coma decimal en el precio, que es lo que generan las hojas de cálculo
+ * en español.
+ *
+ * @autor ljsanchez23
+ */
+final class FormatoCsv {
+
+    static final String CABECERA = "nombre,cantidad,precio";
+
+    // Longitud máxima del nombre en la tabla productos
+    private static final int LONGITUD_NOMBRE = 255;
+
+    private final char separador;
+
+    private FormatoCsv(char separador) {
+        this.separador = separador;
+    }
+
+    /**
+     * Elige el formato según el primer registro del archivo.
+     *
+     * @param primerRegistro El primer registro leído.
+     * @return El formato con el separador que usa el archivo.
+     */
+    static FormatoCsv detectar(String primerRegistro) {
+        int puntosYComa = 0;
+        for (int i = 0; i < primerRegistro.length(); i++) {
+            if (primerRegistro.charAt(i) == ';') {
+                puntosYComa++;
+            }
+        }
+        return new FormatoCsv(puntosYComa >= 2 ? ';' : ',');
+    }
+
+    /**
+     * Abre un archivo para escribir, comprimido con gzip si se pide.
+     *
+     * @param archivo La ruta del archivo. Se reemplaza si existe.
+     * @param comprimir true para comprimir con gzip.
+     * @return El escritor del archivo.
+     * @throws IOException Si no se puede crear el archivo.
+     */
+    static Writer abrirEscritura(Path archivo, boolean comprimir) throws IOException {
+        OutputStream salida = Files.newOutputStream(archivo);
+        if (comprimir) {
+            salida = new GZIPOutputStream(salida, 64 * 1024);
+        }
+        return new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Abre un archivo para leer. Los archivos comprimidos con gzip se
+     * reconocen por su firma, sin mirar la extensión.
+     *
+     * @param archivo La ruta del archivo.
+     * @return El lector del archivo.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    static BufferedReader abrirLectura(Path archivo) throws IOException {
+        InputStream entrada = new BufferedInputStream(Files.newInputStream(archivo), 64 * 1024);
+        entrada.mark(2);
+        int firma = entrada.read() | (entrada.read() << 8);
+        entrada.reset();
+        if (firma == GZIPInputStream.GZIP_MAGIC) {
+            entrada = new GZIPInputStream(entrada, 64 * 1024);
+        }
+        return new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Escribe un producto como una fila.
+     *
+     * @param escritor El destino de la fila.
+     * @param producto El producto a escribir.
+     * @throws IOException Si no se puede escribir.
+     */
+    static void escribir(Writer escritor, Producto producto) throws IOException {
+        String nombre = producto.getNombre();
+        if (nombre.indexOf(',') >= 0 || nombre.indexOf('"') >= 0 || nombre.indexOf('\n') >= 0 || nombre.indexOf('\r') >= 0) {
+            escritor.write('"');
+            escritor.write(nombre.replace("\"", "\"\""));
+            escritor.write('"');
+        } else {
+            escritor.write(nombre);
+        }
+        escritor.write(',');
+        escritor.write(Integer.toString(producto.getCantidad()));
+        escritor.write(',');
+        // Sin notación científica, que las hojas de cálculo leen como texto
+        escritor.write(BigDecimal.valueOf(producto.getPrecio()).toPlainString());
+        escritor.write("\r\n");
+    }
+
+    /**
+     * Indica si un registro es la cabecera.
+     *
+     * @param registro El registro leído.
+     * @return true si el primer campo es "nombre", false si no lo es o el
+     * registro está mal formado.
+     */
+    boolean isCabecera(String registro) {
+        List<String> campos;
+        try {
+            campos = dividir(registro);
+        } catch (IllegalArgumentException e) {
+            // Se rechazará como registro al interpretarlo
+            return false;
+        }
+        return !campos.isEmpty() && "nombre".equalsIgnoreCase(campos.get(0).trim());
+    }
+
+    /**
+     * Interpreta y valida un registro.
+     *
+     * @param registro El registro leído, con los saltos de línea de los
+     * campos entre comillas.
+     * @return El producto del registro.
+     * @throws IllegalArgumentException Si el registro no es válido; el
+     * mensaje explica el motivo.
+     */
+    Producto parsear(String registro) {
+        List<String> campos = dividir(registro);
+        if (campos.size() != 3) {
+            throw new IllegalArgumentException("se esperaban 3 campos y hay " + campos.size());
+        }
+        String nombre = campos.get(0).trim();
+        if (nombre.isEmpty()) {
+            throw new IllegalArgumentException("el nombre está vacío");
+        }
+        if (nombre.length() > LONGITUD_NOMBRE) {
+            throw new IllegalArgumentException("el nombre supera los " + LONGITUD_NOMBRE + " caracteres");
+        }
+        int cantidad;
+        try {
+            cantidad = Integer.parseInt(campos.get(1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("cantidad no válida: " + campos.get(1));
+        }
+        if (cantidad < 0) {
+            throw new IllegalArgumentException("la cantidad es negativa");
+        }
+        String textoPrecio = campos.get(2).trim();
+        if (separador == ';') {
+            textoPrecio = textoPrecio.replace(',', '.');
+        }
+        double precio;
+        try {
+            precio = Double.parseDouble(textoPrecio);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("precio no válido: " + campos.get(2));
+        }
+        if (!(precio >= 0) || Double.isInfinite(precio)) {
+            throw new IllegalArgumentException("precio no válido: " + campos.get(2));
+        }
+        return new Producto(nombre, cantidad, precio);
+    }
+
+    /**
+     * Separa los campos de un registro, quitando las comillas que los
+     * delimitan.
+     */
+    private List<String> dividir(String registro) {
+        List<String> campos = new ArrayList<>(3);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < registro.length(); i++) {
+            char c = registro.charAt(i);
+            if (entreComillas) {
+                if (c != '"') {
+                    campo.append(c);
+                } else if (i + 1 < registro.length() && registro.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    entreComillas = false;
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("comillas sin cerrar");
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+}
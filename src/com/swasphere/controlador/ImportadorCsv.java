@@ -0,0 +1,285 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.OperacionProducto;
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ResultadoLote;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Importación de un CSV del inventario en tres etapas que trabajan a la vez:
+ * un hilo lee los registros en bloques, varios hilos los interpretan y
+ * validan, y el hilo que importa escribe cada bloque en lotes en el orden
+ * del archivo. La cola entre la lectura y la escritura está acotada, de modo
+ * que la memoria usada no depende del tamaño del archivo. Los productos que
+ * ya existen se actualizan con la cantidad y el precio del archivo.
+ *
+ * @autor ljsanchez23
+ */
+final class ImportadorCsv {
+
+    // Bloque que marca el final de la lectura
+    private static final CompletableFuture<Bloque> FIN = CompletableFuture.completedFuture(null);
+
+    // Un registro válido no llega a esta longitud, porque el nombre tiene como
+    // máximo 255 caracteres; así unas comillas sin cerrar no se tragan el archivo
+    private static final int LONGITUD_MAXIMA_REGISTRO = 1_024;
+
+    private final ProductoControlador controlador;
+    private final int tamanoBloque;
+    private final int hilos;
+
+    /**
+     * Registros de un bloque con el número de línea en que empieza cada
+     * uno, y los productos que resultan de interpretarlos.
+     */
+    private static final class Bloque {
+
+        private final List<String> registros;
+        private final long[] lineas;
+        private final List<Producto> productos = new ArrayList<>();
+        private final List<Long> lineasProductos = new ArrayList<>();
+        private final List<String> errores = new ArrayList<>();
+        private final List<Long> lineasErrores = new ArrayList<>();
+
+        private Bloque(List<String> registros, long[] lineas) {
+            this.registros = registros;
+            this.lineas = lineas;
+        }
+    }
+
+    /**
+     * Constructor de la clase ImportadorCsv.
+     *
+     * @param controlador El controlador con el que se escriben los lotes.
+     * @param tamanoBloque El número de registros de cada bloque y lote.
+     * @param hilos El número de hilos que interpretan los registros.
+     */
+    ImportadorCsv(ProductoControlador controlador, int tamanoBloque, int hilos) {
+        this.controlador = controlador;
+        this.tamanoBloque = Math.max(1, tamanoBloque);
+        this.hilos = Math.max(1, hilos);
+    }
+
+    /**
+     * Importa todos los registros de un CSV.
+     *
+     * @param lector El lector del archivo.
+     * @return El resultado de la importación.
+     * @throws IOException Si no se puede leer el archivo.
+     * @throws InterruptedException Si el hilo se interrumpe durante la
+     * importación. Los bloques ya escritos se conservan.
+     */
+    ResultadoImportacion importar(BufferedReader lector) throws IOException, InterruptedException {
+        ExecutorService interpretes = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "importacion-csv");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        BlockingQueue<CompletableFuture<Bloque>> cola = new ArrayBlockingQueue<>(hilos * 2);
+        Thread lectura = new Thread(() -> leer(lector, interpretes, cola), "lectura-csv");
+        lectura.setDaemon(true);
+        lectura.start();
+
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        try {
+            CompletableFuture<Bloque> siguiente;
+            while ((siguiente = cola.take()) != FIN) {
+                Bloque bloque;
+                try {
+                    bloque = siguiente.join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) e.getCause()).getCause();
+                    }
+                    throw e;
+                }
+                escribir(bloque, resultado);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return resultado;
+        } finally {
+            lectura.interrupt();
+            interpretes.shutdownNow();
+        }
+    }
+
+    /**
+     * Lee los registros en bloques y encola su interpretación. Un registro
+     * sigue en la línea siguiente mientras tenga comillas sin cerrar y no
+     * supere la longitud máxima.
+     */
+    private void leer(BufferedReader lector, ExecutorService interpretes, BlockingQueue<CompletableFuture<Bloque>> cola) {
+        try {
+            FormatoCsv formato = null;
+            List<String> registros = new ArrayList<>(tamanoBloque);
+            long[] lineas = new long[tamanoBloque];
+            long numeroLinea = 0;
+            String linea;
+            try {
+                while ((linea = lector.readLine()) != null) {
+                    numeroLinea++;
+                    long inicio = numeroLinea;
+                    String registro = linea;
+                    while (comillasAbiertas(registro) && registro.length() < LONGITUD_MAXIMA_REGISTRO
+                            && (linea = lector.readLine()) != null) {
+                        numeroLinea++;
+                        registro += "\n" + linea;
+                    }
+                    if (formato == null) {
+                        // Las hojas de cálculo suelen empezar el archivo con una marca de orden de bytes
+                        if (registro.startsWith("\uFEFF")) {
+                            registro = registro.substring(1);
+                        }
+                        formato = FormatoCsv.detectar(registro);
+                        if (formato.isCabecera(registro)) {
+                            continue;
+                        }
+                    }
+                    if (registro.trim().isEmpty()) {
+                        continue;
+                    }
+                    lineas[registros.size()] = inicio;
+                    registros.add(registro);
+                    if (registros.size() == tamanoBloque) {
+                        encolar(new Bloque(registros, lineas), formato, interpretes, cola);
+                        registros = new ArrayList<>(tamanoBloque);
+                        lineas = new long[tamanoBloque];
+                    }
+                }
+            } catch (IOException e) {
+                cola.put(CompletableFuture.failedFuture(new UncheckedIOException(e)));
+                return;
+            }
+            if (!registros.isEmpty()) {
+                encolar(new Bloque(registros, lineas), formato, interpretes, cola);
+            }
+            cola.put(FIN);
+        } catch (InterruptedException e) {
+            // La importación terminó antes de leer todo el archivo
+        } catch (RuntimeException e) {
+            // Cualquier otro fallo llega al hilo que importa, que si no
+            // esperaría para siempre el final de la lectura
+            try {
+                cola.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException interrumpido) {
+                // La importación ya terminó
+            }
+        }
+    }
+
+    private static void encolar(Bloque bloque, FormatoCsv formato, ExecutorService interpretes,
+            BlockingQueue<CompletableFuture<Bloque>> cola) throws InterruptedException {
+        cola.put(CompletableFuture.supplyAsync(() -> interpretar(bloque, formato), interpretes));
+    }
+
+    private static Bloque interpretar(Bloque bloque, FormatoCsv formato) {
+        for (int i = 0; i < bloque.registros.size(); i++) {
+            try {
+                bloque.productos.add(formato.parsear(bloque.registros.get(i)));
+                bloque.lineasProductos.add(bloque.lineas[i]);
+            } catch (IllegalArgumentException e) {
+                bloque.errores.add(e.getMessage());
+                bloque.lineasErrores.add(bloque.lineas[i]);
+            }
+        }
+        return bloque;
+    }
+
+    /**
+     * Escribe los productos válidos de un bloque: consulta cuáles existen,
+     * inserta en un lote los nuevos y actualiza en una sola transacción los
+     * existentes. Si el bloque repite un producto, vale su última fila.
+     */
+    private void escribir(Bloque bloque, ResultadoImportacion resultado) {
+        resultado.sumarRegistros(bloque.registros.size());
+        for (int i = 0; i < bloque.errores.size(); i++) {
+            resultado.agregarError(bloque.lineasErrores.get(i), bloque.errores.get(i));
+        }
+        Map<String, Integer> ultimaFila = new LinkedHashMap<>();
+        for (int i = 0; i < bloque.productos.size(); i++) {
+            ultimaFila.put(Producto.normalizarNombre(bloque.productos.get(i).getNombre()), i);
+        }
+        List<Producto> productos = new ArrayList<>(ultimaFila.size());
+        List<Long> lineas = new ArrayList<>(ultimaFila.size());
+        for (int indice : ultimaFila.values()) {
+            productos.add(bloque.productos.get(indice));
+            lineas.add(bloque.lineasProductos.get(indice));
+        }
+        if (productos.isEmpty()) {
+            return;
+        }
+
+        List<String> nombres = new ArrayList<>(productos.size());
+        for (Producto producto : productos) {
+            nombres.add(producto.getNombre());
+        }
+        Set<String> existentes = controlador.buscarExistentes(nombres);
+        if (existentes == null) {
+            for (long linea : lineas) {
+                resultado.agregarError(linea, "no se pudo consultar el inventario");
+            }
+            return;
+        }
+
+        List<Producto> nuevos = new ArrayList<>();
+        List<Long> lineasNuevos = new ArrayList<>();
+        List<OperacionProducto> cambios = new ArrayList<>();
+        List<Long> lineasCambios = new ArrayList<>();
+        for (int i = 0; i < productos.size(); i++) {
+            Producto producto = productos.get(i);
+            if (existentes.contains(Producto.normalizarNombre(producto.getNombre()))) {
+                cambios.add(OperacionProducto.actualizar(producto.getNombre(), producto.getCantidad(), 0, producto.getPrecio()));
+                lineasCambios.add(lineas.get(i));
+            } else {
+                nuevos.add(producto);
+                lineasNuevos.add(lineas.get(i));
+            }
+        }
+        if (!nuevos.isEmpty()) {
+            ResultadoLote altas = controlador.agregarProductos(nuevos);
+            for (int i = 0; i < nuevos.size(); i++) {
+                if (altas.isExitoso(i)) {
+                    resultado.sumarInsertado();
+                } else {
+                    resultado.agregarError(lineasNuevos.get(i), "no se pudo guardar el producto");
+                }
+            }
+        }
+        if (cambios.isEmpty()) {
+            return;
+        }
+        ResultadoLote actualizaciones = controlador.aplicarOperaciones(cambios);
+        for (int i = 0; i < cambios.size(); i++) {
+            if (actualizaciones != null && actualizaciones.isExitoso(i)) {
+                resultado.sumarActualizado();
+            } else {
+                resultado.agregarError(lineasCambios.get(i), "no se pudo guardar el producto");
+            }
+        }
+    }
+
+    private static boolean comillasAbiertas(String registro) {
+        boolean abiertas = false;
+        for (int i = 0; i < registro.length(); i++) {
+            if (registro.charAt(i) == '"') {
+                abiertas = !abiertas;
+            }
+        }
+        return abiertas;
+    }
+}
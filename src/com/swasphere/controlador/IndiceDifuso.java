@@ -0,0 +1,350 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.Producto;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de trigramas de nombres de producto para búsquedas tolerantes a
+ * errores de escritura. Los nombres se comparan sin acentos, sin distinguir
+ * mayúsculas y con los espacios consecutivos reducidos a uno, de modo que
+ * "cafe" encuentra "Café".
+ *
+ * La búsqueda tiene dos fases. Primero se puntúan los candidatos con los
+ * trigramas selectivos de la consulta, cada uno con un peso que crece cuanto
+ * menos frecuente es; los trigramas presentes en una gran parte del catálogo
+ * aportan poco y se omiten para no recorrer listas de millones de
+ * posiciones; si la consulta sólo tiene trigramas frecuentes se recorre una
+ * parte acotada de la lista menos frecuente. Después los mejores candidatos
+ * se ordenan por la media del coeficiente de Dice entre los trigramas de
+ * ambos nombres y la similitud de edición (distancia de Damerau-Levenshtein
+ * normalizada).
+ *
+ * @autor ljsanchez23
+ */
+public class IndiceDifuso implements IndiceNombres {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    // Puntuación mínima de una coincidencia
+    private static final double PUNTUACION_MINIMA = 0.3;
+
+    // Candidatos de la primera fase por cada coincidencia pedida
+    private static final int CANDIDATOS_POR_RESULTADO = 8;
+
+    // Una lista con más posiciones que esta fracción del catálogo no se
+    // recorre, salvo que no haya otra
+    private static final int DIVISOR_SELECTIVIDAD = 20;
+
+    private String[] nombres = new String[0];
+    private short[] numGramas = new short[0];
+    private int tamano;
+    private int eliminados;
+    private final Map<String, Integer> idPorClave = new HashMap<>();
+    private final Map<Long, ListaIds> listas = new HashMap<>();
+
+    // Puntuación acumulada por candidato, reutilizada entre búsquedas
+    private float[] puntuaciones = new float[0];
+
+    /**
+     * Lista creciente de identificadores, ordenada por construcción.
+     */
+    private static final class ListaIds {
+
+        private int[] ids = new int[2];
+        private int tamano;
+
+        private void agregar(int id) {
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+            }
+            ids[tamano++] = id;
+        }
+    }
+
+    /**
+     * Reemplaza el contenido del índice.
+     *
+     * @param nombresProductos Los nombres de todos los productos.
+     */
+    @Override
+    public synchronized void cargar(Collection<String> nombresProductos) {
+        nombres = new String[Math.max(16, nombresProductos.size())];
+        numGramas = new short[nombres.length];
+        tamano = 0;
+        eliminados = 0;
+        idPorClave.clear();
+        listas.clear();
+        for (String nombre : nombresProductos) {
+            agregar(nombre);
+        }
+    }
+
+    /**
+     * Agrega un nombre. No hace nada si ya estaba en el índice.
+     *
+     * @param nombre El nombre del producto.
+     */
+    @Override
+    public synchronized void agregar(String nombre) {
+        String clave = Producto.normalizarNombre(nombre);
+        if (idPorClave.containsKey(clave)) {
+            return;
+        }
+        if (tamano == nombres.length) {
+            nombres = Arrays.copyOf(nombres, tamano * 2);
+            numGramas = Arrays.copyOf(numGramas, tamano * 2);
+        }
+        int id = tamano++;
+        long[] gramas = gramas(plegar(nombre));
+        nombres[id] = nombre;
+        numGramas[id] = (short) Math.min(gramas.length, Short.MAX_VALUE);
+        idPorClave.put(clave, id);
+        for (long grama : gramas) {
+            listas.computeIfAbsent(grama, g -> new ListaIds()).agregar(id);
+        }
+    }
+
+    /**
+     * Elimina un nombre. No hace nada si no estaba en el índice.
+     *
+     * @param nombre El nombre del producto.
+     */
+    @Override
+    public synchronized void eliminar(String nombre) {
+        Integer id = idPorClave.remove(Producto.normalizarNombre(nombre));
+        if (id == null) {
+            return;
+        }
+        // Las listas conservan el identificador hasta la reconstrucción
+        nombres[id] = null;
+        if (++eliminados > Math.max(1024, tamano / 4)) {
+            List<String> vigentes = new ArrayList<>(tamano - eliminados);
+            for (int i = 0; i < tamano; i++) {
+                if (nombres[i] != null) {
+                    vigentes.add(nombres[i]);
+                }
+            }
+            cargar(vigentes);
+        }
+    }
+
+    /**
+     * Busca los nombres más parecidos a un texto.
+     *
+     * @param texto El texto buscado.
+     * @param limite El número máximo de coincidencias.
+     * @return Las coincidencias con puntuación de al menos 0,3, de mayor a
+     * menor puntuación.
+     */
+    public synchronized List<CoincidenciaProducto> buscar(String texto, int limite) {
+        List<CoincidenciaProducto> coincidencias = new ArrayList<>();
+        String consulta = plegar(texto);
+        if (consulta.isEmpty() || limite <= 0 || tamano == 0) {
+            return coincidencias;
+        }
+        long[] gramasConsulta = gramas(consulta);
+        List<ListaIds> recorridas = listasSelectivas(gramasConsulta);
+
+        // Primera fase: puntuación por trigramas selectivos
+        int maximoCandidatos = limite * CANDIDATOS_POR_RESULTADO;
+        if (puntuaciones.length < tamano) {
+            puntuaciones = new float[nombres.length];
+        }
+        ListaIds tocados = new ListaIds();
+        for (ListaIds lista : recorridas) {
+            float peso = (float) Math.log((double) tamano / lista.tamano) + 1;
+            // Una lista no selectiva da a todos la misma puntuación: basta
+            // una muestra acotada
+            int recorrer = Math.min(lista.tamano, Math.max(limiteSelectividad(), maximoCandidatos));
+            for (int i = 0; i < recorrer; i++) {
+                int id = lista.ids[i];
+                if (puntuaciones[id] == 0) {
+                    tocados.agregar(id);
+                }
+                puntuaciones[id] += peso;
+            }
+        }
+        PriorityQueue<long[]> peores = new PriorityQueue<>((a, b) -> Float.compare(
+                Float.intBitsToFloat((int) a[0]), Float.intBitsToFloat((int) b[0])));
+        for (int i = 0; i < tocados.tamano; i++) {
+            int id = tocados.ids[i];
+            float puntuacion = puntuaciones[id];
+            puntuaciones[id] = 0;
+            if (nombres[id] == null) {
+                continue;
+            }
+            // Se normaliza por la longitud para no favorecer nombres largos
+            puntuacion /= (float) Math.sqrt(numGramas[id]);
+            if (peores.size() < maximoCandidatos) {
+                peores.add(new long[]{Float.floatToIntBits(puntuacion), id});
+            } else if (puntuacion > Float.intBitsToFloat((int) peores.peek()[0])) {
+                peores.poll();
+                peores.add(new long[]{Float.floatToIntBits(puntuacion), id});
+            }
+        }
+
+        // Segunda fase: puntuación exacta de los mejores candidatos
+        for (long[] candidato : peores) {
+            String nombre = nombres[(int) candidato[1]];
+            String plegado = plegar(nombre);
+            double puntuacion = (dice(gramasConsulta, gramas(plegado)) + similitudEdicion(consulta, plegado)) / 2;
+            if (puntuacion >= PUNTUACION_MINIMA) {
+                coincidencias.add(new CoincidenciaProducto(nombre, puntuacion));
+            }
+        }
+        coincidencias.sort((a, b) -> {
+            int orden = Double.compare(b.getPuntuacion(), a.getPuntuacion());
+            return orden != 0 ? orden : a.getNombre().compareTo(b.getNombre());
+        });
+        return coincidencias.size() > limite ? new ArrayList<>(coincidencias.subList(0, limite)) : coincidencias;
+    }
+
+    /**
+     * Obtiene el número de nombres del índice.
+     *
+     * @return El número de nombres.
+     */
+    public synchronized int getTamano() {
+        return tamano - eliminados;
+    }
+
+    /**
+     * Quita acentos y mayúsculas y reduce los espacios.
+     *
+     * @param texto El texto a plegar.
+     * @return El texto plegado.
+     */
+    static String plegar(String texto) {
+        String base = texto;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 0x7F) {
+                base = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        StringBuilder plegado = new StringBuilder(base.length());
+        boolean espacio = false;
+        for (int i = 0; i < base.length(); i++) {
+            char c = base.charAt(i);
+            if (Character.isWhitespace(c)) {
+                espacio = plegado.length() > 0;
+            } else {
+                if (espacio) {
+                    plegado.append(' ');
+                    espacio = false;
+                }
+                plegado.append(Character.toLowerCase(c));
+            }
+        }
+        return plegado.toString();
+    }
+
+    /**
+     * Elige las listas de trigramas a recorrer: las que no superan el límite
+     * de selectividad o, si ninguna lo cumple, la menos frecuente.
+     */
+    private List<ListaIds> listasSelectivas(long[] gramasConsulta) {
+        int limite = limiteSelectividad();
+        List<ListaIds> selectivas = new ArrayList<>();
+        ListaIds menosFrecuente = null;
+        for (long grama : gramasConsulta) {
+            ListaIds lista = listas.get(grama);
+            if (lista == null) {
+                continue;
+            }
+            if (lista.tamano <= limite) {
+                selectivas.add(lista);
+            } else if (menosFrecuente == null || lista.tamano < menosFrecuente.tamano) {
+                menosFrecuente = lista;
+            }
+        }
+        if (selectivas.isEmpty() && menosFrecuente != null) {
+            selectivas.add(menosFrecuente);
+        }
+        return selectivas;
+    }
+
+    private int limiteSelectividad() {
+        return Math.max(1024, tamano / DIVISOR_SELECTIVIDAD);
+    }
+
+    /**
+     * Obtiene los trigramas distintos de un texto plegado, ordenados, con dos
+     * espacios al principio y uno al final para dar peso a los extremos.
+     */
+    private static long[] gramas(String plegado) {
+        String relleno = "  " + plegado + " ";
+        long[] gramas = new long[relleno.length() - 2];
+        for (int i = 0; i < gramas.length; i++) {
+            gramas[i] = ((long) relleno.charAt(i) << 32) | ((long) relleno.charAt(i + 1) << 16) | relleno.charAt(i + 2);
+        }
+        Arrays.sort(gramas);
+        int distintos = 0;
+        for (int i = 0; i < gramas.length; i++) {
+            if (i == 0 || gramas[i] != gramas[i - 1]) {
+                gramas[distintos++] = gramas[i];
+            }
+        }
+        return Arrays.copyOf(gramas, distintos);
+    }
+
+    private static double dice(long[] a, long[] b) {
+        int comunes = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                comunes++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return 2.0 * comunes / (a.length + b.length);
+    }
+
+    /**
+     * Calcula 1 menos la distancia de Damerau-Levenshtein (con trasposición
+     * de caracteres contiguos) dividida por la longitud mayor.
+     */
+    private static double similitudEdicion(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+        if (n == 0 || m == 0) {
+            return n == m ? 1 : 0;
+        }
+        int[] anterior2 = new int[m + 1];
+        int[] anterior = new int[m + 1];
+        int[] actual = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            actual[0] = i;
+            for (int j = 1; j <= m; j++) {
+                int coste = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distancia = Math.min(Math.min(anterior[j] + 1, actual[j - 1] + 1), anterior[j - 1] + coste);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distancia = Math.min(distancia, anterior2[j - 2] + 1);
+                }
+                actual[j] = distancia;
+            }
+            int[] libre = anterior2;
+            anterior2 = anterior;
+            anterior = actual;
+            actual = libre;
+        }
+        return 1 - (double) anterior[m] / Math.max(n, m);
+    }
+}
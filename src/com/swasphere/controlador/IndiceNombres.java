@@ -0,0 +1,33 @@
+package com.swasphere.controlador;
+
+import java.util.Collection;
+
+/**
+ * Índice en memoria de los nombres de producto que se mantiene al día con los
+ * cambios confirmados del inventario.
+ *
+ * @autor ljsanchez23
+ */
+interface IndiceNombres {
+
+    /**
+     * Reemplaza el contenido del índice.
+     *
+     * @param nombresProductos Los nombres de todos los productos.
+     */
+    void cargar(Collection<String> nombresProductos);
+
+    /**
+     * Agrega un nombre. No hace nada si ya estaba en el índice.
+     *
+     * @param nombre El nombre del producto.
+     */
+    void agregar(String nombre);
+
+    /**
+     * Elimina un nombre. No hace nada si no estaba en el índice.
+     *
+     * @param nombre El nombre del producto.
+     */
+    void eliminar(String nombre);
+}
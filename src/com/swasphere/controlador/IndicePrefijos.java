@@ -0,0 +1,347 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.Producto;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Índice en memoria de nombres de producto para sugerencias por prefijo,
+ * sin distinguir mayúsculas. Las sugerencias se ordenan por popularidad (las
+ * veces que se usó cada nombre) y, a igual popularidad, alfabéticamente.
+ *
+ * Los nombres se guardan en un arreglo ordenado: el rango de un prefijo se
+ * localiza con búsqueda binaria y los k más populares del rango se extraen de
+ * un árbol de segmentos de máximos en O(k log n), sin recorrer el rango. Los
+ * nombres agregados después de la carga esperan en un mapa ordenado pequeño y
+ * se fusionan con el arreglo cuando superan un umbral; los eliminados se
+ * marcan en el árbol hasta la siguiente fusión.
+ *
+ * @autor ljsanchez23
+ */
+public class IndicePrefijos implements IndiceNombres {
+
+    // Marca de los nombres eliminados y de las hojas de relleno del árbol
+    private static final long ELIMINADO = -1;
+
+    // Máximo de nombres agregados antes de fusionarlos con el arreglo
+    private static final int MAXIMO_AGREGADOS = 1024;
+
+    private static final Comparator<Agregado> ORDEN_AGREGADOS = (a, b) -> {
+        int orden = Long.compare(b.popularidad, a.popularidad);
+        return orden != 0 ? orden : a.clave.compareTo(b.clave);
+    };
+
+    private String[] claves = new String[0];
+    private String[] nombres = new String[0];
+    private long[] popularidad = new long[0];
+    private long[] arbol = new long[2];
+    private int hojas = 1;
+    private int eliminados;
+    private final TreeMap<String, Agregado> agregados = new TreeMap<>();
+
+    /**
+     * Nombre agregado después de la última fusión.
+     */
+    private static final class Agregado {
+
+        private final String clave;
+        private final String nombre;
+        private long popularidad;
+
+        private Agregado(String clave, String nombre, long popularidad) {
+            this.clave = clave;
+            this.nombre = nombre;
+            this.popularidad = popularidad;
+        }
+    }
+
+    /**
+     * Reemplaza el contenido del índice. Los nombres repetidos sin distinguir
+     * mayúsculas se guardan una sola vez.
+     *
+     * @param nombresProductos Los nombres de todos los productos.
+     */
+    @Override
+    public synchronized void cargar(Collection<String> nombresProductos) {
+        List<Agregado> ordenados = new ArrayList<>(nombresProductos.size());
+        for (String nombre : nombresProductos) {
+            ordenados.add(new Agregado(Producto.normalizarNombre(nombre), nombre, 0));
+        }
+        ordenados.sort((a, b) -> a.clave.compareTo(b.clave));
+        int tamano = 0;
+        for (int i = 0; i < ordenados.size(); i++) {
+            if (tamano == 0 || !ordenados.get(tamano - 1).clave.equals(ordenados.get(i).clave)) {
+                ordenados.set(tamano++, ordenados.get(i));
+            }
+        }
+        String[] nuevasClaves = new String[tamano];
+        String[] nuevosNombres = new String[tamano];
+        for (int i = 0; i < tamano; i++) {
+            nuevasClaves[i] = ordenados.get(i).clave;
+            nuevosNombres[i] = ordenados.get(i).nombre;
+        }
+        agregados.clear();
+        instalar(nuevasClaves, nuevosNombres, new long[tamano]);
+    }
+
+    /**
+     * Agrega un nombre. No hace nada si ya estaba en el índice.
+     *
+     * @param nombre El nombre del producto.
+     */
+    @Override
+    public synchronized void agregar(String nombre) {
+        String clave = Producto.normalizarNombre(nombre);
+        int indice = Arrays.binarySearch(claves, clave);
+        if (indice >= 0) {
+            if (arbol[hojas + indice] == ELIMINADO) {
+                nombres[indice] = nombre;
+                popularidad[indice] = 0;
+                eliminados--;
+                fijar(indice, 0);
+            }
+            return;
+        }
+        if (agregados.putIfAbsent(clave, new Agregado(clave, nombre, 0)) == null && agregados.size() > MAXIMO_AGREGADOS) {
+            fusionar();
+        }
+    }
+
+    /**
+     * Elimina un nombre y olvida su popularidad. No hace nada si no estaba
+     * en el índice.
+     *
+     * @param nombre El nombre del producto.
+     */
+    @Override
+    public synchronized void eliminar(String nombre) {
+        String clave = Producto.normalizarNombre(nombre);
+        if (agregados.remove(clave) != null) {
+            return;
+        }
+        int indice = Arrays.binarySearch(claves, clave);
+        if (indice >= 0 && arbol[hojas + indice] != ELIMINADO) {
+            fijar(indice, ELIMINADO);
+            if (++eliminados > Math.max(MAXIMO_AGREGADOS, claves.length / 4)) {
+                fusionar();
+            }
+        }
+    }
+
+    /**
+     * Suma un uso a un nombre para que suba en las sugerencias.
+     *
+     * @param nombre El nombre del producto usado.
+     */
+    public synchronized void registrarUso(String nombre) {
+        String clave = Producto.normalizarNombre(nombre);
+        Agregado agregado = agregados.get(clave);
+        if (agregado != null) {
+            agregado.popularidad++;
+            return;
+        }
+        int indice = Arrays.binarySearch(claves, clave);
+        if (indice >= 0 && arbol[hojas + indice] != ELIMINADO) {
+            fijar(indice, ++popularidad[indice]);
+        }
+    }
+
+    /**
+     * Obtiene los nombres más populares que empiezan por un prefijo.
+     *
+     * @param prefijo El comienzo del nombre, sin distinguir mayúsculas.
+     * @param limite El número máximo de sugerencias.
+     * @return Los nombres ordenados por popularidad y alfabéticamente.
+     */
+    public synchronized List<String> sugerir(String prefijo, int limite) {
+        String clave = Producto.normalizarNombre(prefijo);
+        List<String> sugerencias = new ArrayList<>(Math.min(limite, 64));
+        if (limite <= 0) {
+            return sugerencias;
+        }
+        int desde = primero(clave);
+        int hasta = finPrefijo(clave, desde);
+
+        // Candidatos del arreglo en orden de popularidad
+        PriorityQueue<long[]> nodos = new PriorityQueue<>(IndicePrefijos::compararNodos);
+        int izquierda = desde + hojas;
+        int derecha = hasta + hojas;
+        while (izquierda < derecha) {
+            if ((izquierda & 1) == 1) {
+                nodos.add(nodo(izquierda++));
+            }
+            if ((derecha & 1) == 1) {
+                nodos.add(nodo(--derecha));
+            }
+            izquierda >>= 1;
+            derecha >>= 1;
+        }
+        // Los mejores candidatos agregados después de la última fusión
+        PriorityQueue<Agregado> peores = new PriorityQueue<>(ORDEN_AGREGADOS.reversed());
+        int sinUso = 0;
+        for (Agregado agregado : agregados.subMap(clave, true, clave + Character.MAX_VALUE, false).values()) {
+            // Los nombres sin uso llegan en orden alfabético: bastan los primeros
+            if (agregado.popularidad == 0 && sinUso++ >= limite) {
+                continue;
+            }
+            peores.add(agregado);
+            if (peores.size() > limite) {
+                peores.poll();
+            }
+        }
+        List<Agregado> otros = new ArrayList<>(peores);
+        otros.sort(ORDEN_AGREGADOS);
+        int siguienteOtro = 0;
+        while (sugerencias.size() < limite) {
+            int hoja = siguienteHoja(nodos);
+            Agregado otro = siguienteOtro < otros.size() ? otros.get(siguienteOtro) : null;
+            if (hoja < 0 && otro == null) {
+                break;
+            }
+            if (hoja >= 0 && (otro == null || arbol[hojas + hoja] > otro.popularidad
+                    || (arbol[hojas + hoja] == otro.popularidad
+                    && claves[hoja].compareTo(otro.clave) < 0))) {
+                sugerencias.add(nombres[hoja]);
+            } else {
+                sugerencias.add(otro.nombre);
+                siguienteOtro++;
+                if (hoja >= 0) {
+                    // La hoja no se usó; vuelve a la cola
+                    nodos.add(nodo(hojas + hoja));
+                }
+            }
+        }
+        return sugerencias;
+    }
+
+    /**
+     * Obtiene el número de nombres del índice.
+     *
+     * @return El número de nombres.
+     */
+    public synchronized int getTamano() {
+        return claves.length - eliminados + agregados.size();
+    }
+
+    /**
+     * Extrae de la cola la hoja más popular, dividiendo los nodos internos.
+     *
+     * @return La posición de la hoja, o -1 si no quedan nombres vigentes.
+     */
+    private int siguienteHoja(PriorityQueue<long[]> nodos) {
+        while (!nodos.isEmpty()) {
+            long[] actual = nodos.poll();
+            if (actual[0] == ELIMINADO) {
+                return -1;
+            }
+            int posicion = (int) actual[1];
+            if (posicion >= hojas) {
+                return posicion - hojas;
+            }
+            nodos.add(nodo(2 * posicion));
+            nodos.add(nodo(2 * posicion + 1));
+        }
+        return -1;
+    }
+
+    /**
+     * Describe un nodo del árbol por su máximo, su posición y la primera hoja
+     * que cubre, que desempata alfabéticamente.
+     */
+    private long[] nodo(int posicion) {
+        int primeraHoja = posicion;
+        while (primeraHoja < hojas) {
+            primeraHoja *= 2;
+        }
+        return new long[]{arbol[posicion], posicion, primeraHoja};
+    }
+
+    private static int compararNodos(long[] a, long[] b) {
+        int orden = Long.compare(b[0], a[0]);
+        return orden != 0 ? orden : Long.compare(a[2], b[2]);
+    }
+
+    private int primero(String clave) {
+        int indice = Arrays.binarySearch(claves, clave);
+        return indice >= 0 ? indice : -indice - 1;
+    }
+
+    /**
+     * Busca el final del rango de claves que empiezan por el prefijo: todas
+     * las claves anteriores son menores que el prefijo o empiezan por él.
+     */
+    private int finPrefijo(String clave, int desde) {
+        int bajo = desde;
+        int alto = claves.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (claves[medio].startsWith(clave)) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private void fijar(int indice, long valor) {
+        int posicion = hojas + indice;
+        arbol[posicion] = valor;
+        for (posicion >>= 1; posicion > 0; posicion >>= 1) {
+            arbol[posicion] = Math.max(arbol[2 * posicion], arbol[2 * posicion + 1]);
+        }
+    }
+
+    /**
+     * Fusiona los nombres vigentes del arreglo con los agregados en un nuevo
+     * arreglo ordenado, en una pasada.
+     */
+    private void fusionar() {
+        int tamano = claves.length - eliminados + agregados.size();
+        String[] nuevasClaves = new String[tamano];
+        String[] nuevosNombres = new String[tamano];
+        long[] nuevaPopularidad = new long[tamano];
+        Iterator<Agregado> it = agregados.values().iterator();
+        Agregado otro = it.hasNext() ? it.next() : null;
+        int n = 0;
+        for (int i = 0; i <= claves.length; i++) {
+            if (i < claves.length && arbol[hojas + i] == ELIMINADO) {
+                continue;
+            }
+            while (otro != null && (i == claves.length || otro.clave.compareTo(claves[i]) < 0)) {
+                nuevasClaves[n] = otro.clave;
+                nuevosNombres[n] = otro.nombre;
+                nuevaPopularidad[n++] = otro.popularidad;
+                otro = it.hasNext() ? it.next() : null;
+            }
+            if (i < claves.length) {
+                nuevasClaves[n] = claves[i];
+                nuevosNombres[n] = nombres[i];
+                nuevaPopularidad[n++] = popularidad[i];
+            }
+        }
+        agregados.clear();
+        instalar(nuevasClaves, nuevosNombres, nuevaPopularidad);
+    }
+
+    private void instalar(String[] nuevasClaves, String[] nuevosNombres, long[] nuevaPopularidad) {
+        int tamano = nuevasClaves.length;
+        claves = nuevasClaves;
+        nombres = nuevosNombres;
+        popularidad = nuevaPopularidad;
+        hojas = Integer.highestOneBit(Math.max(1, tamano - 1)) << 1;
+        arbol = new long[2 * hojas];
+        Arrays.fill(arbol, ELIMINADO);
+        System.arraycopy(popularidad, 0, arbol, hojas, tamano);
+        for (int posicion = hojas - 1; posicion > 0; posicion--) {
+            arbol[posicion] = Math.max(arbol[2 * posicion], arbol[2 * posicion + 1]);
+        }
+        eliminados = 0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.CambioProducto;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantiene un índice de nombres al día con el inventario: lo carga con la
+ * primera consulta y después le aplica los cambios confirmados desde la
+ * última sincronización, como mucho una vez por intervalo salvo que se haya
+ * marcado como desactualizado tras una escritura.
+ *
+ * @autor ljsanchez23
+ *
+ * @param <T> El tipo del índice.
+ */
+class IndiceSincronizado<T extends IndiceNombres> {
+
+    // Tiempo mínimo entre dos consultas de cambios
+    private static final long INTERVALO_NANOS = 1_000_000_000L;
+
+    private final ProductoControlador productoControlador;
+    private final T indice;
+
+    // Estado de la sincronización, protegido por this
+    private boolean cargado;
+    private long cambio;
+    private long sincronizacion;
+
+    private volatile boolean desactualizado;
+
+    /**
+     * Constructor de la clase IndiceSincronizado.
+     *
+     * @param productoControlador El controlador que lee el inventario y sus
+     * cambios.
+     * @param indice El índice a mantener.
+     */
+    IndiceSincronizado(ProductoControlador productoControlador, T indice) {
+        this.productoControlador = productoControlador;
+        this.indice = indice;
+    }
+
+    /**
+     * Obtiene el índice sin sincronizarlo.
+     *
+     * @return El índice.
+     */
+    T getIndice() {
+        return indice;
+    }
+
+    /**
+     * Obtiene el índice después de ponerlo al día si hace falta.
+     *
+     * @return El índice, o null si no se pudo leer el inventario.
+     */
+    synchronized T obtener() {
+        long ahora = System.nanoTime();
+        if (cargado && !desactualizado && ahora - sincronizacion < INTERVALO_NANOS) {
+            return indice;
+        }
+        desactualizado = false;
+        if (!cargado) {
+            long ultimoCambio = productoControlador.getUltimoCambio();
+            List<String> nombres = new ArrayList<>();
+            if (ultimoCambio < 0 || !productoControlador.recorrerInventario(producto -> nombres.add(producto.getNombre()))) {
+                return null;
+            }
+            indice.cargar(nombres);
+            cambio = ultimoCambio;
+            cargado = true;
+        } else {
+            List<CambioProducto> cambios = productoControlador.getCambiosDesde(cambio);
+            if (cambios == null) {
+                return null;
+            }
+            for (CambioProducto cambioProducto : cambios) {
+                if (cambioProducto.getProducto() == null) {
+                    indice.eliminar(cambioProducto.getNombre());
+                } else {
+                    indice.agregar(cambioProducto.getNombre());
+                }
+                cambio = cambioProducto.getCambio();
+            }
+        }
+        sincronizacion = ahora;
+        return indice;
+    }
+
+    /**
+     * Hace que la siguiente consulta pida los cambios sin esperar al
+     * intervalo, para que se vean las escrituras propias.
+     */
+    void marcarDesactualizado() {
+        desactualizado = true;
+    }
+}
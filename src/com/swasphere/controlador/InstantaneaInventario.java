@@ -0,0 +1,35 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.Producto;
+import java.util.List;
+
+/**
+ * Inventario completo junto con el número del último cambio confirmado antes
+ * de leerlo, a partir del cual se pueden pedir los cambios posteriores.
+ *
+ * @autor ljsanchez23
+ */
+public class InstantaneaInventario {
+
+    private final List<Producto> productos;
+    private final long ultimoCambio;
+
+    /**
+     * Constructor de la clase InstantaneaInventario.
+     *
+     * @param productos Los productos del inventario.
+     * @param ultimoCambio El número del último cambio, o -1 si no se conoce.
+     */
+    public InstantaneaInventario(List<Producto> productos, long ultimoCambio) {
+        this.productos = productos;
+        this.ultimoCambio = ultimoCambio;
+    }
+
+    public List<Producto> getProductos() {
+        return productos;
+    }
+
+    public long getUltimoCambio() {
+        return ultimoCambio;
+    }
+}
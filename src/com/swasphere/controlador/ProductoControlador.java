@@ -1,8 +1,31 @@
 package com.swasphere.controlador;
 
+import com.swasphere.modelo.ArchivoColumnar;
+import com.swasphere.modelo.CambioProducto;
+import com.swasphere.modelo.Cancelacion;
+import com.swasphere.modelo.CierreAplicacion;
+import com.swasphere.modelo.InventarioColumnar;
+import com.swasphere.modelo.OperacionProducto;
 import com.swasphere.modelo.Producto;
-import com.swasphere.modelo.ProductoDAO;
+import com.swasphere.modelo.ProductoRepository;
+import com.swasphere.modelo.Repositorios;
+import com.swasphere.modelo.ResultadoActualizacion;
+import com.swasphere.modelo.ResultadoLote;
+import com.swasphere.modelo.ResumenInventario;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.sql.SQLException;
 
 /**
@@ -12,16 +35,118 @@ import java.sql.SQLException;
  */
 public class ProductoControlador {
 
-    private ProductoDAO productoDAO;
+    // Número máximo de cambios pedidos en cada consulta incremental
+    private static final int LIMITE_CAMBIOS = 5_000;
+
+    // Productos por lote al importar un archivo de inventario
+    private static final int LOTE_IMPORTACION = 10_000;
+
+    // Hilos que interpretan los registros al importar un CSV
+    private static final int HILOS_IMPORTACION_CSV = Integer.getInteger("IMPORTACION_CSV_HILOS",
+            Runtime.getRuntime().availableProcessors());
+
+    private static ProductoControlador instancia;
+
+    private ProductoRepository productoDAO;
+    private final CacheProductos cache;
+
+    // Índices de nombres, cargados con su primera consulta
+    private final IndiceSincronizado<IndicePrefijos> indicePrefijos = new IndiceSincronizado<>(this, new IndicePrefijos());
+    private final IndiceSincronizado<IndiceDifuso> indiceDifuso = new IndiceSincronizado<>(this, new IndiceDifuso());
+
+    // Difusión de cambios a las tablas abiertas
+    private final CanalCambios canalCambios = new CanalCambios(this, Long.getLong("CAMBIOS_INTERVALO_MS", 2_000L),
+            Integer.getInteger("CAMBIOS_LOTE", 500));
+
+    // Cola de cantidades pendientes de escribir; null si se escriben al momento
+    private volatile EscrituraDiferida escrituraDiferida;
+
+    /**
+     * Constructor de la clase ProductoControlador.
+     *
+     * @param productoDAO El repositorio de productos.
+     */
+    public ProductoControlador(ProductoRepository productoDAO) {
+        this(productoDAO, new CacheProductos(Integer.getInteger("CACHE_PRODUCTOS_MAX", 10_000),
+                Long.getLong("CACHE_PRODUCTOS_TTL_MS", 30_000L)));
+    }
 
     /**
      * Constructor de la clase ProductoControlador.
      *
-     * @param productoDAO La instancia de ProductoDAO para interactuar con la
-     * base de datos.
+     * @param productoDAO El repositorio de productos.
+     * @param cache La caché de búsquedas por nombre.
      */
-    public ProductoControlador(ProductoDAO productoDAO) {
+    public ProductoControlador(ProductoRepository productoDAO, CacheProductos cache) {
         this.productoDAO = productoDAO;
+        this.cache = cache;
+        if (Boolean.getBoolean("ESCRITURA_DIFERIDA")) {
+            activarEscrituraDiferida(Long.getLong("ESCRITURA_DIFERIDA_VENTANA_MS", 100L),
+                    Integer.getInteger("ESCRITURA_DIFERIDA_MAXIMO", 10_000));
+        }
+    }
+
+    /**
+     * Obtiene el controlador compartido por todas las vistas, de modo que la
+     * caché de productos sirva a toda la aplicación.
+     *
+     * @return La instancia compartida del controlador.
+     */
+    public static synchronized ProductoControlador getInstancia() {
+        if (instancia == null) {
+            instancia = new ProductoControlador(Repositorios.getProductos());
+        }
+        return instancia;
+    }
+
+    /**
+     * Obtiene la caché de búsquedas por nombre y sus estadísticas.
+     *
+     * @return La caché del controlador.
+     */
+    public CacheProductos getCache() {
+        return cache;
+    }
+
+    /**
+     * Obtiene el canal que difunde los cambios del inventario a las tablas
+     * abiertas.
+     *
+     * @return El canal de cambios del controlador.
+     */
+    public CanalCambios getCanalCambios() {
+        return canalCambios;
+    }
+
+    /**
+     * Activa la escritura diferida de cantidades: actualizarCantidad encola
+     * la nueva cantidad y un hilo escritor las envía en lotes, combinando las
+     * actualizaciones repetidas del mismo producto. Las pendientes se
+     * escriben al terminar la aplicación, antes de cerrar el diario y las
+     * conexiones.
+     *
+     * @param ventanaMillis El tiempo que se esperan más actualizaciones antes
+     * de escribir un lote.
+     * @param capacidad El número máximo de productos pendientes.
+     * @return La cola de escritura, nueva o la que ya estaba activa.
+     */
+    public synchronized EscrituraDiferida activarEscrituraDiferida(long ventanaMillis, int capacidad) {
+        if (escrituraDiferida == null) {
+            EscrituraDiferida cola = new EscrituraDiferida(this::escribirCantidades, ventanaMillis, capacidad);
+            CierreAplicacion.registrar(CierreAplicacion.Fase.ESCRITURAS, cola::cerrar);
+            escrituraDiferida = cola;
+        }
+        return escrituraDiferida;
+    }
+
+    /**
+     * Obtiene la cola de escritura diferida y sus métricas.
+     *
+     * @return La cola de escritura, o null si las cantidades se escriben al
+     * momento.
+     */
+    public EscrituraDiferida getEscrituraDiferida() {
+        return escrituraDiferida;
     }
 
     /**
@@ -32,7 +157,14 @@ public class ProductoControlador {
      * contrario.
      */
     public boolean agregarProducto(Producto producto) {
-        return productoDAO.agregarProducto(producto);
+        boolean agregado = productoDAO.agregarProducto(producto);
+        marcarIndicesDesactualizados();
+        if (agregado) {
+            cache.poner(producto);
+        } else {
+            cache.invalidar(producto.getNombre());
+        }
+        return agregado;
     }
 
     /**
@@ -43,22 +175,487 @@ public class ProductoControlador {
      * contrario.
      */
     public boolean eliminarProducto(String nombre) {
-        return productoDAO.eliminarProducto(nombre);
+        try {
+            vaciarEscrituraDiferida();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+        boolean eliminado = productoDAO.eliminarProducto(nombre);
+        marcarIndicesDesactualizados();
+        cache.invalidar(nombre);
+        return eliminado;
     }
 
     /**
      * Muestra el inventario completo en la consola.
      */
     public void mostrarInventario() {
-        List<Producto> inventario = productoDAO.obtenerTodosProductos();
-        if (inventario.isEmpty()) {
+        // Se imprime a medida que se lee para no cargar todo el inventario
+        long[] total = {0};
+        boolean completo = recorrerInventario(producto -> {
+            if (total[0]++ == 0) {
+                System.out.println("Inventario:");
+            }
+            System.out.println(producto);
+        });
+        if (completo && total[0] == 0) {
             System.out.println("El inventario está vacío.");
-        } else {
-            System.out.println("Inventario:");
-            for (Producto producto : inventario) {
-                System.out.println(producto);
+        }
+    }
+
+    /**
+     * Recorre el inventario completo sin cargarlo en memoria.
+     *
+     * @param consumidor La acción a ejecutar para cada producto.
+     * @return true si se recorrió todo el inventario, false si ocurrió un
+     * error.
+     */
+    public boolean recorrerInventario(Consumer<Producto> consumidor) {
+        try {
+            productoDAO.recorrerProductos(consumidor);
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Carga el inventario completo por bloques, entregando cada bloque en
+     * cuanto se lee para poder mostrar las primeras filas sin esperar al
+     * resto.
+     *
+     * @param tamanoBloque El número de productos de cada bloque.
+     * @param alLeerBloque La acción a ejecutar con cada bloque, en el hilo que
+     * lee el inventario.
+     * @param cancelacion La señal que detiene la carga.
+     * @return El número del último cambio leído antes de recorrer el
+     * inventario, o -1 si ocurrió un error o la carga se canceló.
+     */
+    public long cargarInventario(int tamanoBloque, Consumer<List<Producto>> alLeerBloque, Cancelacion cancelacion) {
+        long ultimoCambio = getUltimoCambio();
+        if (ultimoCambio < 0) {
+            return -1;
+        }
+        List<Producto> bloque = new ArrayList<>(tamanoBloque);
+        try {
+            productoDAO.recorrerProductos(producto -> {
+                bloque.add(producto);
+                if (bloque.size() >= tamanoBloque) {
+                    alLeerBloque.accept(new ArrayList<>(bloque));
+                    bloque.clear();
+                }
+            }, cancelacion);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        if (cancelacion.isCancelada()) {
+            return -1;
+        }
+        if (!bloque.isEmpty()) {
+            alLeerBloque.accept(bloque);
+        }
+        return ultimoCambio;
+    }
+
+    /**
+     * Obtiene una página del inventario ordenado por nombre.
+     *
+     * @param despuesDeNombre El último nombre de la página anterior, o null
+     * para la primera página.
+     * @param limite El número máximo de productos de la página.
+     * @return Una lista con los productos de la página, vacía si no hay más
+     * productos o si ocurrió un error.
+     */
+    public List<Producto> getPaginaInventario(String despuesDeNombre, int limite) {
+        try {
+            return consultarPagina(despuesDeNombre, limite);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Obtiene una página del inventario ordenado por nombre, informando los
+     * errores del almacenamiento en lugar de devolver una página vacía.
+     *
+     * @param despuesDeNombre El último nombre de la página anterior, o null
+     * para la primera página.
+     * @param limite El número máximo de productos de la página.
+     * @return Una lista con los productos de la página, vacía si no hay más
+     * productos.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    public List<Producto> consultarPagina(String despuesDeNombre, int limite) throws SQLException {
+        return productoDAO.obtenerPagina(despuesDeNombre, limite);
+    }
+
+    /**
+     * Obtiene la página del inventario ordenado por nombre que empieza en una
+     * posición. Sirve para saltar a una página sin leer las anteriores.
+     *
+     * @param posicion La posición del primer producto, empezando en cero.
+     * @param limite El número máximo de productos de la página.
+     * @return Una lista con los productos de la página, vacía si no hay más
+     * productos o si ocurrió un error.
+     */
+    public List<Producto> getPaginaInventarioEnPosicion(int posicion, int limite) {
+        try {
+            return productoDAO.obtenerPaginaEnPosicion(posicion, limite);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Obtiene el número de productos del inventario.
+     *
+     * @return El número de productos, o -1 si ocurrió un error.
+     */
+    public long getNumeroProductos() {
+        try {
+            return productoDAO.contarProductos();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Obtiene el número del último cambio confirmado en el inventario.
+     *
+     * @return El número del último cambio, o -1 si ocurrió un error.
+     */
+    public long getUltimoCambio() {
+        try {
+            return productoDAO.obtenerUltimoCambio();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Obtiene el inventario completo junto con el número del último cambio
+     * leído antes de recorrerlo.
+     *
+     * @return La instantánea del inventario.
+     */
+    public InstantaneaInventario getInstantaneaInventario() {
+        long ultimoCambio = getUltimoCambio();
+        return new InstantaneaInventario(getInventario(), ultimoCambio);
+    }
+
+    /**
+     * Obtiene el inventario completo en formato columnar, recorriéndolo sin
+     * crear la lista de productos.
+     *
+     * @return La instantánea columnar del inventario, o null si ocurrió un
+     * error.
+     */
+    public InventarioColumnar getInventarioColumnar() {
+        try {
+            return InventarioColumnar.cargar(productoDAO);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Exporta el inventario completo a un archivo columnar binario.
+     *
+     * @param archivo La ruta del archivo. Se reemplaza si existe.
+     * @param comprimir true para comprimir las columnas.
+     * @return El tamaño del archivo en bytes, o -1 si ocurrió un error.
+     */
+    public long exportarInventario(Path archivo, boolean comprimir) {
+        try {
+            vaciarEscrituraDiferida();
+            return ArchivoColumnar.escribir(InventarioColumnar.cargar(productoDAO), archivo, comprimir);
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Importa en lotes los productos de un archivo columnar binario.
+     *
+     * @param archivo La ruta del archivo.
+     * @param reemplazar true para vaciar antes el inventario; si no, los
+     * productos que ya existen no se importan. En ambos casos sólo se importa
+     * la primera aparición de cada nombre del archivo.
+     * @return El número de productos importados, o -1 si ocurrió un error.
+     */
+    public int importarInventario(Path archivo, boolean reemplazar) {
+        InventarioColumnar inventario;
+        try {
+            inventario = ArchivoColumnar.leer(archivo);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        try {
+            vaciarEscrituraDiferida();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        if (reemplazar) {
+            if (!productoDAO.limpiarTabla()) {
+                return -1;
+            }
+            cache.limpiar();
+            marcarIndicesDesactualizados();
+        }
+        int importados = 0;
+        Set<String> vistos = new HashSet<>();
+        List<Producto> lote = new ArrayList<>(Math.min(LOTE_IMPORTACION, inventario.getTamano()));
+        try {
+            for (int i = 0; i < inventario.getTamano(); i++) {
+                lote.add(inventario.getProducto(i));
+                if (lote.size() == LOTE_IMPORTACION) {
+                    importados += agregarNuevos(lote, vistos);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                importados += agregarNuevos(lote, vistos);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        return importados;
+    }
+
+    /**
+     * Agrega los productos de un lote que no existen ni aparecieron antes en
+     * la importación.
+     *
+     * @param lote Los productos del lote.
+     * @param vistos Los nombres normalizados ya importados o descartados.
+     * @return El número de productos agregados.
+     * @throws SQLException Si falla la consulta de los existentes.
+     */
+    private int agregarNuevos(List<Producto> lote, Set<String> vistos) throws SQLException {
+        List<String> nombres = new ArrayList<>(lote.size());
+        for (Producto producto : lote) {
+            nombres.add(producto.getNombre());
+        }
+        vistos.addAll(productoDAO.buscarExistentes(nombres));
+        List<Producto> nuevos = new ArrayList<>(lote.size());
+        for (Producto producto : lote) {
+            if (vistos.add(Producto.normalizarNombre(producto.getNombre()))) {
+                nuevos.add(producto);
             }
         }
+        return nuevos.isEmpty() ? 0 : agregarProductos(nuevos).getExitosos();
+    }
+
+    /**
+     * Exporta el inventario completo a un archivo CSV. Las filas se escriben
+     * a medida que se leen del almacenamiento, sin cargar el inventario.
+     *
+     * @param archivo La ruta del archivo. Se reemplaza si existe.
+     * @param comprimir true para comprimir el archivo con gzip.
+     * @return El número de productos exportados, o -1 si ocurrió un error.
+     */
+    public long exportarCsv(Path archivo, boolean comprimir) {
+        long[] filas = {0};
+        try {
+            vaciarEscrituraDiferida();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        try (Writer escritor = FormatoCsv.abrirEscritura(archivo, comprimir)) {
+            escritor.write(FormatoCsv.CABECERA);
+            escritor.write("\r\n");
+            productoDAO.recorrerProductos(producto -> {
+                try {
+                    FormatoCsv.escribir(escritor, producto);
+                    filas[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return filas[0];
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+            return -1;
+        } catch (UncheckedIOException e) {
+            e.getCause().printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Averigua cuáles de varios productos existen.
+     *
+     * @param nombres Los nombres de los productos.
+     * @return Los nombres normalizados de los productos que existen, o null
+     * si ocurrió un error.
+     */
+    public Set<String> buscarExistentes(Collection<String> nombres) {
+        try {
+            return productoDAO.buscarExistentes(nombres);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Importa un archivo CSV, comprimido o no con gzip. Los registros se
+     * interpretan en paralelo y se escriben en lotes; los productos nuevos
+     * se agregan y los existentes toman la cantidad y el precio del archivo.
+     * Los registros no válidos se omiten y se informan en el resultado.
+     *
+     * @param archivo La ruta del archivo.
+     * @return El resultado de la importación, o null si no se pudo leer el
+     * archivo, falló la lectura o se interrumpió la importación.
+     */
+    public ResultadoImportacion importarCsv(Path archivo) {
+        try (BufferedReader lector = FormatoCsv.abrirLectura(archivo)) {
+            return new ImportadorCsv(this, LOTE_IMPORTACION, HILOS_IMPORTACION_CSV).importar(lector);
+        } catch (IOException | CompletionException e) {
+            e.printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene los totales del inventario calculados por el almacenamiento.
+     *
+     * @return El resumen del inventario, o null si ocurrió un error.
+     */
+    public ResumenInventario getResumenInventario() {
+        try {
+            return productoDAO.obtenerResumen();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene los productos con una cantidad inferior a un umbral.
+     *
+     * @param umbral La cantidad a partir de la cual el stock no es bajo.
+     * @param limite El número máximo de productos a devolver.
+     * @return Una lista ordenada por cantidad, o null si ocurrió un error.
+     */
+    public List<Producto> getStockBajo(int umbral, int limite) {
+        try {
+            return productoDAO.obtenerStockBajo(umbral, limite);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene los productos de mayor precio.
+     *
+     * @param limite El número de productos a devolver.
+     * @return Una lista ordenada por precio descendente, o null si ocurrió
+     * un error.
+     */
+    public List<Producto> getMasCaros(int limite) {
+        try {
+            return productoDAO.obtenerMasCaros(limite);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene los productos con mayor cantidad.
+     *
+     * @param limite El número de productos a devolver.
+     * @return Una lista ordenada por cantidad descendente, o null si ocurrió
+     * un error.
+     */
+    public List<Producto> getMayorCantidad(int limite) {
+        try {
+            return productoDAO.obtenerMayorCantidad(limite);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Cuenta los productos por intervalos de cantidad.
+     *
+     * @param ancho El ancho de cada intervalo, mayor que cero.
+     * @return El número de productos por límite inferior de intervalo, o null
+     * si ocurrió un error.
+     */
+    public SortedMap<Integer, Long> getHistogramaCantidades(int ancho) {
+        try {
+            return productoDAO.obtenerHistogramaCantidades(ancho);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene todos los cambios del inventario posteriores a un cambio dado,
+     * pidiéndolos a la base de datos en bloques.
+     *
+     * @param desdeCambio El número del último cambio ya conocido.
+     * @return Una lista de cambios en orden de confirmación, o null si
+     * ocurrió un error.
+     */
+    public List<CambioProducto> getCambiosDesde(long desdeCambio) {
+        List<CambioProducto> todos = new ArrayList<>();
+        List<CambioProducto> cambios;
+        do {
+            cambios = getCambiosDesde(desdeCambio, LIMITE_CAMBIOS);
+            if (cambios == null) {
+                return null;
+            }
+            todos.addAll(cambios);
+            if (!cambios.isEmpty()) {
+                desdeCambio = cambios.get(cambios.size() - 1).getCambio();
+            }
+        } while (cambios.size() == LIMITE_CAMBIOS);
+        return todos;
+    }
+
+    /**
+     * Obtiene los cambios del inventario posteriores a un cambio dado. Los
+     * productos cambiados se descartan de la caché para que las búsquedas
+     * siguientes vean su estado actual.
+     *
+     * @param desdeCambio El número del último cambio ya conocido.
+     * @param limite El número máximo de cambios a devolver.
+     * @return Una lista de cambios en orden de confirmación, o null si
+     * ocurrió un error.
+     */
+    public List<CambioProducto> getCambiosDesde(long desdeCambio, int limite) {
+        try {
+            List<CambioProducto> cambios = productoDAO.obtenerCambiosDesde(desdeCambio, limite);
+            for (CambioProducto cambio : cambios) {
+                cache.invalidar(cambio.getNombre());
+            }
+            return cambios;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 
     /**
@@ -79,27 +676,189 @@ public class ProductoControlador {
      */
     public Producto buscarProducto(String nombre) {
         try {
-            return productoDAO.buscarProducto(nombre);
+            return consultarProducto(nombre);
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    /**
+     * Busca un producto por su nombre, informando los errores del
+     * almacenamiento en lugar de devolver null.
+     *
+     * @param nombre El nombre del producto a buscar.
+     * @return Un objeto Producto si el producto fue encontrado, null si no
+     * existe.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    public Producto consultarProducto(String nombre) throws SQLException {
+        Producto producto = cache.obtener(nombre, productoDAO::buscarProducto);
+        // Se muestra la cantidad que todavía espera en la cola de escritura
+        EscrituraDiferida cola = escrituraDiferida;
+        Integer pendiente = cola != null && producto != null ? cola.getCantidadPendiente(nombre) : null;
+        if (pendiente != null) {
+            producto = new Producto(producto);
+            producto.setCantidad(pendiente);
+        }
+        return producto;
+    }
+
+    /**
+     * Sugiere nombres de productos que empiezan por un prefijo, ordenados por
+     * uso y alfabéticamente. La primera llamada carga los nombres de todo el
+     * inventario; después el índice se pone al día con los cambios
+     * confirmados, como mucho una vez por segundo salvo tras una escritura de
+     * este controlador.
+     *
+     * @param prefijo El comienzo del nombre, sin distinguir mayúsculas.
+     * @param limite El número máximo de sugerencias.
+     * @return Una lista de nombres, o null si ocurrió un error.
+     */
+    public List<String> sugerirNombres(String prefijo, int limite) {
+        IndicePrefijos indice = indicePrefijos.obtener();
+        return indice == null ? null : indice.sugerir(prefijo, limite);
+    }
+
+    /**
+     * Registra que el usuario eligió un producto para que suba en las
+     * sugerencias.
+     *
+     * @param nombre El nombre del producto usado.
+     */
+    public void registrarUsoNombre(String nombre) {
+        indicePrefijos.getIndice().registrarUso(nombre);
+    }
+
+    /**
+     * Busca los productos con nombres parecidos a un texto, tolerando
+     * errores de escritura, acentos y mayúsculas. Sirve para sugerir
+     * alternativas cuando buscarProducto no encuentra el nombre exacto. El
+     * índice se carga con la primera búsqueda y se mantiene como el de
+     * sugerencias.
+     *
+     * @param texto El texto buscado.
+     * @param limite El número máximo de coincidencias.
+     * @return Las coincidencias de mayor a menor puntuación, o null si
+     * ocurrió un error.
+     */
+    public List<CoincidenciaProducto> buscarProductosSimilares(String texto, int limite) {
+        IndiceDifuso indice = indiceDifuso.obtener();
+        return indice == null ? null : indice.buscar(texto, limite);
+    }
+
+    private void marcarIndicesDesactualizados() {
+        indicePrefijos.marcarDesactualizado();
+        indiceDifuso.marcarDesactualizado();
+    }
+
     /**
      * Actualiza la cantidad de un producto.
      *
      * @param nombre El nombre del producto.
      * @param nuevaCantidad La nueva cantidad del producto.
      * @return true si la cantidad fue actualizada exitosamente, false en caso
-     * contrario.
+     * contrario. Con la escritura diferida activa devuelve true al encolarla;
+     * si el producto no existe la escritura consta como fallida en la cola.
      */
     public boolean actualizarCantidad(String nombre, int nuevaCantidad) {
+        EscrituraDiferida cola = escrituraDiferida;
+        if (cola != null && cola.encolar(nombre, nuevaCantidad)) {
+            return true;
+        }
         try {
             return productoDAO.actualizarCantidad(nombre, nuevaCantidad);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            cache.invalidar(nombre);
+        }
+    }
+
+    /**
+     * Actualiza la cantidad de un producto si nadie lo modificó desde que se
+     * leyó. Ante un conflicto el resultado trae el estado vigente del
+     * producto para mostrarlo al usuario.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevaCantidad La nueva cantidad del producto.
+     * @param versionEsperada La versión del producto que se leyó.
+     * @return El resultado de la modificación, o null si ocurrió un error.
+     */
+    public ResultadoActualizacion actualizarCantidad(String nombre, int nuevaCantidad, long versionEsperada) {
+        try {
+            vaciarEscrituraDiferida();
+            return productoDAO.actualizarCantidad(nombre, nuevaCantidad, versionEsperada);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            cache.invalidar(nombre);
+        }
+    }
+
+    /**
+     * Actualiza el precio de un producto si nadie lo modificó desde que se
+     * leyó.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevoPrecio El nuevo precio del producto.
+     * @param versionEsperada La versión del producto que se leyó.
+     * @return El resultado de la modificación, o null si ocurrió un error.
+     */
+    public ResultadoActualizacion actualizarPrecio(String nombre, double nuevoPrecio, long versionEsperada) {
+        try {
+            return productoDAO.actualizarPrecio(nombre, nuevoPrecio, versionEsperada);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            cache.invalidar(nombre);
+        }
+    }
+
+    /**
+     * Registra una entrada o salida de existencias de un producto. El ajuste
+     * se aplica de forma atómica sobre la cantidad almacenada, por lo que es
+     * correcto aunque otros usuarios muevan el mismo producto a la vez.
+     *
+     * @param nombre El nombre del producto.
+     * @param delta Las unidades que entran, o negativas si salen.
+     * @param permitirNegativo false para rechazar el ajuste si las
+     * existencias quedarían por debajo de cero.
+     * @return La nueva cantidad, o null si el producto no existe, el ajuste
+     * fue rechazado u ocurrió un error.
+     */
+    public Integer ajustarCantidad(String nombre, int delta, boolean permitirNegativo) {
+        try {
+            return registrarAjuste(nombre, delta, permitirNegativo);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Registra una entrada o salida de existencias de un producto, como
+     * ajustarCantidad, pero informa los errores del almacenamiento en lugar
+     * de devolver null.
+     *
+     * @param nombre El nombre del producto.
+     * @param delta Las unidades que entran, o negativas si salen.
+     * @param permitirNegativo false para rechazar el ajuste si las
+     * existencias quedarían por debajo de cero.
+     * @return La nueva cantidad, o null si el producto no existe o el ajuste
+     * fue rechazado.
+     * @throws SQLException Si ocurre un error en el almacenamiento o quedan
+     * cantidades diferidas sin escribir.
+     */
+    public Integer registrarAjuste(String nombre, int delta, boolean permitirNegativo) throws SQLException {
+        vaciarEscrituraDiferida();
+        try {
+            return productoDAO.ajustarCantidad(nombre, delta, permitirNegativo);
+        } finally {
+            cache.invalidar(nombre);
         }
     }
 
@@ -117,6 +876,8 @@ public class ProductoControlador {
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            cache.invalidar(nombre);
         }
     }
 
@@ -128,11 +889,124 @@ public class ProductoControlador {
      */
     public boolean productoExiste(String nombre) {
         try {
-            Producto producto = productoDAO.buscarProducto(nombre);
+            Producto producto = cache.obtener(nombre, productoDAO::buscarProducto);
             return producto != null;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
+
+    /**
+     * Inicia una unidad de trabajo para agrupar varias operaciones en una
+     * sola transacción.
+     *
+     * @return Una unidad de trabajo vacía asociada a este controlador.
+     */
+    public UnidadDeTrabajo iniciarUnidadDeTrabajo() {
+        return new UnidadDeTrabajo(this);
+    }
+
+    /**
+     * Aplica varias operaciones en una única transacción. Los productos
+     * afectados se descartan de la caché tanto si se confirma como si se
+     * deshace.
+     *
+     * @param operaciones Las operaciones a aplicar.
+     * @return El resultado de cada operación, o null si ocurrió un error y no
+     * se aplicó ninguna.
+     */
+    public ResultadoLote aplicarOperaciones(List<OperacionProducto> operaciones) {
+        try {
+            vaciarEscrituraDiferida();
+            return productoDAO.aplicarOperaciones(operaciones);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            marcarIndicesDesactualizados();
+            for (OperacionProducto operacion : operaciones) {
+                cache.invalidar(operacion.getNombre());
+            }
+        }
+    }
+
+    /**
+     * Agrega varios productos en lotes.
+     *
+     * @param productos Los productos a agregar.
+     * @return El resultado de cada inserción.
+     */
+    public ResultadoLote agregarProductos(Collection<Producto> productos) {
+        return invalidarLote(productoDAO.agregarProductos(productos));
+    }
+
+    /**
+     * Actualiza la cantidad de varios productos en lotes.
+     *
+     * @param cantidades Las nuevas cantidades por nombre de producto.
+     * @return El resultado de cada actualización.
+     */
+    public ResultadoLote actualizarCantidades(Map<String, Integer> cantidades) {
+        try {
+            vaciarEscrituraDiferida();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return ResultadoLote.fallido(cantidades.keySet(), e.getMessage());
+        }
+        return escribirCantidades(cantidades);
+    }
+
+    /**
+     * Actualiza el precio de varios productos en lotes.
+     *
+     * @param precios Los nuevos precios por nombre de producto.
+     * @return El resultado de cada actualización.
+     */
+    public ResultadoLote actualizarPrecios(Map<String, Double> precios) {
+        return invalidarLote(productoDAO.actualizarPrecios(precios));
+    }
+
+    /**
+     * Elimina varios productos en lotes.
+     *
+     * @param nombres Los nombres de los productos a eliminar.
+     * @return El resultado de cada eliminación.
+     */
+    public ResultadoLote eliminarProductos(Collection<String> nombres) {
+        try {
+            vaciarEscrituraDiferida();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return ResultadoLote.fallido(nombres, e.getMessage());
+        }
+        return invalidarLote(productoDAO.eliminarProductos(nombres));
+    }
+
+    private ResultadoLote escribirCantidades(Map<String, Integer> cantidades) {
+        return invalidarLote(productoDAO.actualizarCantidades(cantidades));
+    }
+
+    /**
+     * Escribe las cantidades pendientes antes de otra escritura que las
+     * pisaría al confirmarse después. Si alguna no se pudo escribir, la
+     * escritura no debe seguir: el reintento de la cola la pisaría con una
+     * cantidad anterior.
+     *
+     * @throws SQLException Si quedaron cantidades pendientes de reintentar.
+     */
+    private void vaciarEscrituraDiferida() throws SQLException {
+        EscrituraDiferida cola = escrituraDiferida;
+        if (cola != null && !cola.vaciar()) {
+            throw new SQLException("No se pudieron escribir las cantidades diferidas; se reintentarán");
+        }
+    }
+
+    private ResultadoLote invalidarLote(ResultadoLote resultado) {
+        marcarIndicesDesactualizados();
+        for (int i = 0; i < resultado.getTotal(); i++) {
+            cache.invalidar(resultado.getClave(i));
+        }
+        return resultado;
+    }
 }
@@ -0,0 +1,324 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.CambioProducto;
+import com.swasphere.modelo.Cancelacion;
+import com.swasphere.modelo.InventarioColumnar;
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ResultadoActualizacion;
+import com.swasphere.modelo.ResultadoLote;
+import com.swasphere.modelo.ResumenInventario;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Variante asíncrona de ProductoControlador: cada operación se ejecuta en el
+ * ejecutor de tareas de base de datos y devuelve un futuro con su resultado.
+ *
+ * @autor ljsanchez23
+ */
+public class ProductoControladorAsincrono {
+
+    private final ProductoControlador productoControlador;
+
+    /**
+     * Constructor de la clase ProductoControladorAsincrono.
+     *
+     * @param productoControlador El controlador que ejecuta las operaciones.
+     */
+    public ProductoControladorAsincrono(ProductoControlador productoControlador) {
+        this.productoControlador = productoControlador;
+    }
+
+    /**
+     * Obtiene el controlador síncrono que ejecuta las operaciones.
+     *
+     * @return El controlador de productos.
+     */
+    public ProductoControlador getControlador() {
+        return productoControlador;
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#agregarProducto(Producto)}.
+     */
+    public CompletableFuture<Boolean> agregarProducto(Producto producto) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.agregarProducto(producto));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#eliminarProducto(String)}.
+     */
+    public CompletableFuture<Boolean> eliminarProducto(String nombre) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.eliminarProducto(nombre));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#mostrarInventario()}.
+     */
+    public CompletableFuture<Void> mostrarInventario() {
+        return EjecutorTareas.ejecutar(() -> {
+            productoControlador.mostrarInventario();
+            return null;
+        });
+    }
+
+    /**
+     * Recorre el inventario en segundo plano. El consumidor se invoca desde
+     * el hilo de la tarea, no desde el hilo de eventos.
+     *
+     * @param consumidor La acción a ejecutar para cada producto.
+     * @return Un futuro que indica si se recorrió todo el inventario.
+     */
+    public CompletableFuture<Boolean> recorrerInventario(Consumer<Producto> consumidor) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.recorrerInventario(consumidor));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#cargarInventario(int, Consumer, Cancelacion)}.
+     * Cancelar el futuro detiene la carga y cancela la consulta en curso.
+     */
+    public CompletableFuture<Long> cargarInventario(int tamanoBloque, Consumer<List<Producto>> alLeerBloque) {
+        Cancelacion cancelacion = new Cancelacion();
+        CompletableFuture<Long> futuro = EjecutorTareas.ejecutar(
+                () -> productoControlador.cargarInventario(tamanoBloque, alLeerBloque, cancelacion));
+        futuro.whenComplete((ultimoCambio, error) -> {
+            if (futuro.isCancelled()) {
+                cancelacion.cancelar();
+            }
+        });
+        return futuro;
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getPaginaInventario(String, int)}.
+     */
+    public CompletableFuture<List<Producto>> getPaginaInventario(String despuesDeNombre, int limite) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.getPaginaInventario(despuesDeNombre, limite));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getPaginaInventarioEnPosicion(int, int)}.
+     */
+    public CompletableFuture<List<Producto>> getPaginaInventarioEnPosicion(int posicion, int limite) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.getPaginaInventarioEnPosicion(posicion, limite));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getNumeroProductos()}.
+     */
+    public CompletableFuture<Long> getNumeroProductos() {
+        return EjecutorTareas.ejecutar(productoControlador::getNumeroProductos);
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getUltimoCambio()}.
+     */
+    public CompletableFuture<Long> getUltimoCambio() {
+        return EjecutorTareas.ejecutar(productoControlador::getUltimoCambio);
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getInstantaneaInventario()}.
+     */
+    public CompletableFuture<InstantaneaInventario> getInstantaneaInventario() {
+        return EjecutorTareas.ejecutar(productoControlador::getInstantaneaInventario);
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getInventarioColumnar()}.
+     */
+    public CompletableFuture<InventarioColumnar> getInventarioColumnar() {
+        return EjecutorTareas.ejecutar(productoControlador::getInventarioColumnar);
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#exportarInventario(Path, boolean)}.
+     */
+    public CompletableFuture<Long> exportarInventario(Path archivo, boolean comprimir) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.exportarInventario(archivo, comprimir));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#importarInventario(Path, boolean)}.
+     */
+    public CompletableFuture<Integer> importarInventario(Path archivo, boolean reemplazar) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.importarInventario(archivo, reemplazar));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#exportarCsv(Path, boolean)}.
+     */
+    public CompletableFuture<Long> exportarCsv(Path archivo, boolean comprimir) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.exportarCsv(archivo, comprimir));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#importarCsv(Path)}.
+     */
+    public CompletableFuture<ResultadoImportacion> importarCsv(Path archivo) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.importarCsv(archivo));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getResumenInventario()}.
+     */
+    public CompletableFuture<ResumenInventario> getResumenInventario() {
+        return EjecutorTareas.ejecutar(productoControlador::getResumenInventario);
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getStockBajo(int, int)}.
+     */
+    public CompletableFuture<List<Producto>> getStockBajo(int umbral, int limite) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.getStockBajo(umbral, limite));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getMasCaros(int)}.
+     */
+    public CompletableFuture<List<Producto>> getMasCaros(int limite) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.getMasCaros(limite));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getMayorCantidad(int)}.
+     */
+    public CompletableFuture<List<Producto>> getMayorCantidad(int limite) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.getMayorCantidad(limite));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getHistogramaCantidades(int)}.
+     */
+    public CompletableFuture<SortedMap<Integer, Long>> getHistogramaCantidades(int ancho) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.getHistogramaCantidades(ancho));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getCambiosDesde(long)}.
+     */
+    public CompletableFuture<List<CambioProducto>> getCambiosDesde(long desdeCambio) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.getCambiosDesde(desdeCambio));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getCambiosDesde(long, int)}.
+     */
+    public CompletableFuture<List<CambioProducto>> getCambiosDesde(long desdeCambio, int limite) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.getCambiosDesde(desdeCambio, limite));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#getInventario()}.
+     */
+    public CompletableFuture<List<Producto>> getInventario() {
+        return EjecutorTareas.ejecutar(productoControlador::getInventario);
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#buscarProducto(String)}.
+     */
+    public CompletableFuture<Producto> buscarProducto(String nombre) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.buscarProducto(nombre));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#sugerirNombres(String, int)}.
+     */
+    public CompletableFuture<List<String>> sugerirNombres(String prefijo, int limite) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.sugerirNombres(prefijo, limite));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#buscarProductosSimilares(String, int)}.
+     */
+    public CompletableFuture<List<CoincidenciaProducto>> buscarProductosSimilares(String texto, int limite) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.buscarProductosSimilares(texto, limite));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#actualizarCantidad(String, int)}.
+     */
+    public CompletableFuture<Boolean> actualizarCantidad(String nombre, int nuevaCantidad) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.actualizarCantidad(nombre, nuevaCantidad));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#actualizarCantidad(String, int, long)}.
+     */
+    public CompletableFuture<ResultadoActualizacion> actualizarCantidad(String nombre, int nuevaCantidad, long versionEsperada) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.actualizarCantidad(nombre, nuevaCantidad, versionEsperada));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#actualizarPrecio(String, double, long)}.
+     */
+    public CompletableFuture<ResultadoActualizacion> actualizarPrecio(String nombre, double nuevoPrecio, long versionEsperada) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.actualizarPrecio(nombre, nuevoPrecio, versionEsperada));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#ajustarCantidad(String, int, boolean)}.
+     */
+    public CompletableFuture<Integer> ajustarCantidad(String nombre, int delta, boolean permitirNegativo) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.ajustarCantidad(nombre, delta, permitirNegativo));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#actualizarPrecio(String, double)}.
+     */
+    public CompletableFuture<Boolean> actualizarPrecio(String nombre, double nuevoPrecio) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.actualizarPrecio(nombre, nuevoPrecio));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#productoExiste(String)}.
+     */
+    public CompletableFuture<Boolean> productoExiste(String nombre) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.productoExiste(nombre));
+    }
+
+    /**
+     * Confirma en segundo plano una unidad de trabajo. La unidad no debe
+     * modificarse hasta que el futuro se complete.
+     *
+     * @param unidad La unidad de trabajo a confirmar.
+     * @return Un futuro con el resultado de {@link UnidadDeTrabajo#confirmar()}.
+     */
+    public CompletableFuture<ResultadoLote> confirmar(UnidadDeTrabajo unidad) {
+        return EjecutorTareas.ejecutar(unidad::confirmar);
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#agregarProductos(Collection)}.
+     */
+    public CompletableFuture<ResultadoLote> agregarProductos(Collection<Producto> productos) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.agregarProductos(productos));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#actualizarCantidades(Map)}.
+     */
+    public CompletableFuture<ResultadoLote> actualizarCantidades(Map<String, Integer> cantidades) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.actualizarCantidades(cantidades));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#actualizarPrecios(Map)}.
+     */
+    public CompletableFuture<ResultadoLote> actualizarPrecios(Map<String, Double> precios) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.actualizarPrecios(precios));
+    }
+
+    /**
+     * Versión asíncrona de {@link ProductoControlador#eliminarProductos(Collection)}.
+     */
+    public CompletableFuture<ResultadoLote> eliminarProductos(Collection<String> nombres) {
+        return EjecutorTareas.ejecutar(() -> productoControlador.eliminarProductos(nombres));
+    }
+}
@@ -0,0 +1,101 @@
+package com.swasphere.controlador;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de importar un archivo CSV: cuántos registros se leyeron, cuántos
+ * productos se agregaron o actualizaron y los errores de los registros
+ * rechazados, con su número de línea.
+ *
+ * @autor ljsanchez23
+ */
+public class ResultadoImportacion {
+
+    // Errores que se conservan con su mensaje; el resto sólo se cuenta
+    private static final int MAXIMO_ERRORES = 1_000;
+
+    private long registros;
+    private long insertados;
+    private long actualizados;
+    private long rechazados;
+    private final List<String> errores = new ArrayList<>();
+
+    void sumarRegistros(int cuantos) {
+        registros += cuantos;
+    }
+
+    void sumarInsertado() {
+        insertados++;
+    }
+
+    void sumarActualizado() {
+        actualizados++;
+    }
+
+    void agregarError(long linea, String mensaje) {
+        rechazados++;
+        if (errores.size() < MAXIMO_ERRORES) {
+            errores.add("Línea " + linea + ": " + mensaje);
+        }
+    }
+
+    /**
+     * Obtiene el número de registros leídos, sin contar la cabecera.
+     *
+     * @return El número de registros.
+     */
+    public long getRegistros() {
+        return registros;
+    }
+
+    /**
+     * Obtiene el número de productos nuevos agregados.
+     *
+     * @return El número de productos insertados.
+     */
+    public long getInsertados() {
+        return insertados;
+    }
+
+    /**
+     * Obtiene el número de productos existentes cuya cantidad y precio se
+     * reemplazaron.
+     *
+     * @return El número de productos actualizados.
+     */
+    public long getActualizados() {
+        return actualizados;
+    }
+
+    /**
+     * Obtiene el número de registros que no se aplicaron.
+     *
+     * @return El número de registros rechazados.
+     */
+    public long getRechazados() {
+        return rechazados;
+    }
+
+    /**
+     * Obtiene los errores de los registros rechazados, hasta un máximo de
+     * mil.
+     *
+     * @return Los mensajes de error, cada uno con su número de línea.
+     */
+    public List<String> getErrores() {
+        return Collections.unmodifiableList(errores);
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con los totales de la importación.
+     */
+    @Override
+    public String toString() {
+        return "ResultadoImportacion{" + "registros=" + registros + ", insertados=" + insertados
+                + ", actualizados=" + actualizados + ", rechazados=" + rechazados + '}';
+    }
+}
@@ -0,0 +1,220 @@
+package com.swasphere.controlador;
+
+import com.swasphere.modelo.OperacionProducto;
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ResultadoLote;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agrupa altas, modificaciones y bajas de productos para confirmarlas en una
+ * sola transacción. Las escrituras sobre un mismo producto se combinan antes
+ * de enviarse: varias modificaciones de la cantidad se reducen a una, una
+ * modificación de un producto agregado en la misma unidad se aplica sobre el
+ * alta, y agregar y después eliminar un producto no genera ninguna sentencia.
+ *
+ * No es segura para usarse desde varios hilos a la vez.
+ *
+ * @autor ljsanchez23
+ */
+public class UnidadDeTrabajo {
+
+    private final ProductoControlador productoControlador;
+    private final Map<String, Pendiente> pendientes = new LinkedHashMap<>();
+
+    /**
+     * Escrituras acumuladas sobre un producto.
+     */
+    private static class Pendiente {
+
+        private String nombre;
+        private boolean eliminar;
+        private Producto insertar;
+        private Integer cantidad;
+        private int delta;
+        private Double precio;
+
+        private boolean hayActualizacion() {
+            return cantidad != null || delta != 0 || precio != null;
+        }
+
+        private void limpiarActualizacion() {
+            cantidad = null;
+            delta = 0;
+            precio = null;
+        }
+    }
+
+    /**
+     * Constructor de la clase UnidadDeTrabajo.
+     *
+     * @param productoControlador El controlador que confirmará las
+     * operaciones.
+     */
+    UnidadDeTrabajo(ProductoControlador productoControlador) {
+        this.productoControlador = productoControlador;
+    }
+
+    /**
+     * Agrega un producto. Si ya había un alta pendiente con el mismo nombre,
+     * se reemplaza.
+     *
+     * @param producto El producto a agregar.
+     * @return Esta unidad de trabajo.
+     */
+    public UnidadDeTrabajo agregarProducto(Producto producto) {
+        Pendiente pendiente = pendiente(producto.getNombre());
+        pendiente.insertar = new Producto(producto);
+        pendiente.limpiarActualizacion();
+        return this;
+    }
+
+    /**
+     * Elimina un producto. Si el producto se agregó en esta misma unidad, el
+     * alta se descarta sin llegar a la base de datos.
+     *
+     * @param nombre El nombre del producto a eliminar.
+     * @return Esta unidad de trabajo.
+     */
+    public UnidadDeTrabajo eliminarProducto(String nombre) {
+        Pendiente pendiente = pendiente(nombre);
+        if (pendiente.insertar != null && !pendiente.eliminar) {
+            pendientes.remove(Producto.normalizarNombre(nombre));
+            return this;
+        }
+        pendiente.eliminar = true;
+        pendiente.insertar = null;
+        pendiente.limpiarActualizacion();
+        return this;
+    }
+
+    /**
+     * Fija la cantidad de un producto.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevaCantidad La nueva cantidad del producto.
+     * @return Esta unidad de trabajo.
+     * @throws IllegalStateException Si el producto se eliminó en esta
+     * unidad.
+     */
+    public UnidadDeTrabajo actualizarCantidad(String nombre, int nuevaCantidad) {
+        Pendiente pendiente = modificable(nombre);
+        if (pendiente.insertar != null) {
+            pendiente.insertar.setCantidad(nuevaCantidad);
+        } else {
+            pendiente.cantidad = nuevaCantidad;
+            pendiente.delta = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Suma unidades a la cantidad de un producto.
+     *
+     * @param nombre El nombre del producto.
+     * @param delta Las unidades que entran, o negativas si salen.
+     * @return Esta unidad de trabajo.
+     * @throws IllegalStateException Si el producto se eliminó en esta
+     * unidad.
+     */
+    public UnidadDeTrabajo ajustarCantidad(String nombre, int delta) {
+        Pendiente pendiente = modificable(nombre);
+        if (pendiente.insertar != null) {
+            pendiente.insertar.setCantidad(pendiente.insertar.getCantidad() + delta);
+        } else {
+            pendiente.delta += delta;
+        }
+        return this;
+    }
+
+    /**
+     * Fija el precio de un producto.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevoPrecio El nuevo precio del producto.
+     * @return Esta unidad de trabajo.
+     * @throws IllegalStateException Si el producto se eliminó en esta
+     * unidad.
+     */
+    public UnidadDeTrabajo actualizarPrecio(String nombre, double nuevoPrecio) {
+        Pendiente pendiente = modificable(nombre);
+        if (pendiente.insertar != null) {
+            pendiente.insertar.setPrecio(nuevoPrecio);
+        } else {
+            pendiente.precio = nuevoPrecio;
+        }
+        return this;
+    }
+
+    /**
+     * Obtiene las operaciones que se enviarán al confirmar, ya combinadas.
+     *
+     * @return Una lista con las operaciones, en el orden en que se tocó cada
+     * producto por primera vez.
+     */
+    public List<OperacionProducto> getOperaciones() {
+        List<OperacionProducto> operaciones = new ArrayList<>();
+        for (Pendiente pendiente : pendientes.values()) {
+            if (pendiente.eliminar) {
+                operaciones.add(OperacionProducto.eliminar(pendiente.nombre));
+            }
+            if (pendiente.insertar != null) {
+                operaciones.add(OperacionProducto.insertar(new Producto(pendiente.insertar)));
+            }
+            if (pendiente.hayActualizacion()) {
+                operaciones.add(OperacionProducto.actualizar(pendiente.nombre, pendiente.cantidad, pendiente.delta, pendiente.precio));
+            }
+        }
+        return operaciones;
+    }
+
+    /**
+     * Indica si no hay operaciones pendientes.
+     *
+     * @return true si no hay nada que confirmar.
+     */
+    public boolean isVacia() {
+        return pendientes.isEmpty();
+    }
+
+    /**
+     * Confirma todas las operaciones en una única transacción. Si falla, no
+     * se aplica ninguna y las operaciones siguen pendientes para poder
+     * reintentar.
+     *
+     * @return El resultado de cada operación combinada, o null si ocurrió un
+     * error y se deshizo la transacción.
+     */
+    public ResultadoLote confirmar() {
+        ResultadoLote resultado = productoControlador.aplicarOperaciones(getOperaciones());
+        if (resultado != null) {
+            pendientes.clear();
+        }
+        return resultado;
+    }
+
+    /**
+     * Descarta todas las operaciones pendientes.
+     */
+    public void descartar() {
+        pendientes.clear();
+    }
+
+    private Pendiente pendiente(String nombre) {
+        Pendiente pendiente = pendientes.computeIfAbsent(Producto.normalizarNombre(nombre), clave -> new Pendiente());
+        if (pendiente.nombre == null) {
+            pendiente.nombre = nombre;
+        }
+        return pendiente;
+    }
+
+    private Pendiente modificable(String nombre) {
+        Pendiente pendiente = pendiente(nombre);
+        if (pendiente.eliminar && pendiente.insertar == null) {
+            throw new IllegalStateException("El producto " + nombre + " se eliminó en esta unidad de trabajo");
+        }
+        return pendiente;
+    }
+}
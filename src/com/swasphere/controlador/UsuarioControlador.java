@@ -1,7 +1,8 @@
 package com.swasphere.controlador;
 
 import com.swasphere.modelo.Usuario;
-import com.swasphere.modelo.UsuarioDAO;
+import com.swasphere.modelo.Repositorios;
+import com.swasphere.modelo.UsuarioRepository;
 import java.sql.SQLException;
 
 /**
@@ -11,13 +12,22 @@ import java.sql.SQLException;
  */
 public class UsuarioControlador {
 
-    private UsuarioDAO usuarioDAO;
+    private UsuarioRepository usuarioDAO;
 
     /**
      * Constructor de la clase UsuarioControlador.
      */
     public UsuarioControlador() {
-        this.usuarioDAO = new UsuarioDAO();
+        this(Repositorios.getUsuarios());
+    }
+
+    /**
+     * Constructor de la clase UsuarioControlador.
+     *
+     * @param usuarioDAO El repositorio de usuarios.
+     */
+    public UsuarioControlador(UsuarioRepository usuarioDAO) {
+        this.usuarioDAO = usuarioDAO;
     }
 
     /**
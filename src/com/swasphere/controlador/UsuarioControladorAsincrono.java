@@ -0,0 +1,63 @@
+package com.swasphere.controlador;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Variante asíncrona de UsuarioControlador: cada operación se ejecuta en el
+ * ejecutor de tareas de base de datos y devuelve un futuro con su resultado.
+ *
+ * @autor ljsanchez23
+ */
+public class UsuarioControladorAsincrono {
+
+    private final UsuarioControlador usuarioControlador;
+
+    /**
+     * Constructor de la clase UsuarioControladorAsincrono.
+     *
+     * @param usuarioControlador El controlador que ejecuta las operaciones.
+     */
+    public UsuarioControladorAsincrono(UsuarioControlador usuarioControlador) {
+        this.usuarioControlador = usuarioControlador;
+    }
+
+    /**
+     * Versión asíncrona de {@link UsuarioControlador#autenticar(String, String)}.
+     */
+    public CompletableFuture<String> autenticar(String nombreUsuario, String password) {
+        return EjecutorTareas.ejecutar(() -> usuarioControlador.autenticar(nombreUsuario, password));
+    }
+
+    /**
+     * Versión asíncrona de {@link UsuarioControlador#cambiarPassword(String, String)}.
+     */
+    public CompletableFuture<Void> cambiarPassword(String nombreUsuario, String nuevoPassword) {
+        return EjecutorTareas.ejecutar(() -> {
+            usuarioControlador.cambiarPassword(nombreUsuario, nuevoPassword);
+            return null;
+        });
+    }
+
+    /**
+     * Registra un nuevo usuario en segundo plano. Un error de base de datos
+     * completa el futuro con la SQLException.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @param password La contraseña del usuario.
+     * @return Un futuro que indica si el usuario fue registrado.
+     */
+    public CompletableFuture<Boolean> registrarUsuario(String nombreUsuario, String password) {
+        return EjecutorTareas.ejecutar(() -> usuarioControlador.registrarUsuario(nombreUsuario, password));
+    }
+
+    /**
+     * Elimina un usuario en segundo plano. Un error de base de datos completa
+     * el futuro con la SQLException.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @return Un futuro que indica si el usuario fue eliminado.
+     */
+    public CompletableFuture<Boolean> eliminarUsuario(String nombreUsuario) {
+        return EjecutorTareas.ejecutar(() -> usuarioControlador.eliminarUsuario(nombreUsuario));
+    }
+}
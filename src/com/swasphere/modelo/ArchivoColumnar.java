@@ -0,0 +1,305 @@
+package com.swasphere.modelo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archivo binario con una instantánea columnar del inventario, pensado para
+ * copias de seguridad y traslados entre sedes sin pasar por la base de
+ * datos. Cada columna se codifica por separado:
+ * <ul>
+ * <li>Nombres: en el orden del inventario, que los agrupa por prefijo, cada
+ * nombre guarda cuántos bytes comparte con el anterior y el resto.</li>
+ * <li>Cantidades y precios en punto fijo: diferencia con el anterior en
+ * zigzag y entero de longitud variable.</li>
+ * </ul>
+ * Las columnas pueden comprimirse además con Deflate.
+ *
+ * Formato: firma (int), versión (byte), opciones (byte), número de productos
+ * (int), bytes de los nombres (int) y, por cada columna, su longitud
+ * codificada y su longitud guardada (int, int), seguidas de las tres
+ * columnas.
+ *
+ * @autor ljsanchez23
+ */
+public final class ArchivoColumnar {
+
+    private static final int FIRMA = 0x53574943;
+    private static final byte VERSION = 1;
+    private static final byte COMPRIMIDO = 1;
+    private static final int COLUMNAS = 3;
+    private static final int CABECERA = 4 + 1 + 1 + 4 + 4 + COLUMNAS * 8;
+
+    private ArchivoColumnar() {
+    }
+
+    /**
+     * Escribe una instantánea en un archivo, reemplazándolo si existe.
+     *
+     * @param inventario La instantánea a escribir.
+     * @param archivo La ruta del archivo.
+     * @param comprimir true para comprimir las columnas con Deflate.
+     * @return El tamaño del archivo en bytes.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public static long escribir(InventarioColumnar inventario, Path archivo, boolean comprimir) throws IOException {
+        int tamano = inventario.getTamano();
+        Salida nombres = new Salida(inventario.nombres.length + 2 * tamano);
+        Salida cantidades = new Salida(2 * tamano);
+        Salida precios = new Salida(3 * tamano);
+        int inicioAnterior = 0;
+        int longitudAnterior = 0;
+        int cantidadAnterior = 0;
+        long precioAnterior = 0;
+        for (int i = 0; i < tamano; i++) {
+            int inicio = inventario.inicioNombre[i];
+            int longitud = inventario.inicioNombre[i + 1] - inicio;
+            int comun = prefijoComun(inventario.nombres, inicioAnterior, longitudAnterior, inicio, longitud);
+            nombres.escribirVarint(comun);
+            nombres.escribirVarint(longitud - comun);
+            nombres.escribir(inventario.nombres, inicio + comun, longitud - comun);
+            inicioAnterior = inicio;
+            longitudAnterior = longitud;
+
+            int cantidad = inventario.cantidades[i];
+            int diferencia = cantidad - cantidadAnterior;
+            cantidades.escribirVarint((diferencia << 1) ^ (diferencia >> 31));
+            cantidadAnterior = cantidad;
+
+            long precio = inventario.precios[i];
+            long diferenciaPrecio = precio - precioAnterior;
+            precios.escribirVarlong((diferenciaPrecio << 1) ^ (diferenciaPrecio >> 63));
+            precioAnterior = precio;
+        }
+
+        Salida[] columnas = {nombres, cantidades, precios};
+        ByteBuffer[] bloques = new ByteBuffer[COLUMNAS + 1];
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+        cabecera.putInt(FIRMA).put(VERSION).put(comprimir ? COMPRIMIDO : 0).putInt(tamano).putInt(inventario.nombres.length);
+        for (int c = 0; c < COLUMNAS; c++) {
+            byte[] guardada = comprimir ? comprimir(columnas[c]) : columnas[c].datos;
+            int longitudGuardada = comprimir ? guardada.length : columnas[c].longitud;
+            cabecera.putInt(columnas[c].longitud).putInt(longitudGuardada);
+            bloques[c + 1] = ByteBuffer.wrap(guardada, 0, longitudGuardada);
+        }
+        cabecera.flip();
+        bloques[0] = cabecera;
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long escritos = 0;
+            // Con un inventario vacío la última columna no tiene bytes, así
+            // que se escribe hasta que no quede nada en ningún bloque
+            while (Arrays.stream(bloques).anyMatch(ByteBuffer::hasRemaining)) {
+                escritos += canal.write(bloques);
+            }
+            canal.force(false);
+            return escritos;
+        }
+    }
+
+    /**
+     * Lee una instantánea escrita con {@link #escribir}.
+     *
+     * @param archivo La ruta del archivo.
+     * @return La instantánea del inventario.
+     * @throws IOException Si no se puede leer el archivo o no tiene un
+     * formato válido.
+     */
+    public static InventarioColumnar leer(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (canal.size() < CABECERA) {
+                throw new IOException("Archivo de inventario no válido: " + archivo);
+            }
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (datos.getInt() != FIRMA || datos.get() != VERSION) {
+                throw new IOException("Archivo de inventario no válido: " + archivo);
+            }
+            boolean comprimido = (datos.get() & COMPRIMIDO) != 0;
+            int tamano = datos.getInt();
+            int bytesNombres = datos.getInt();
+            int[] longitudes = new int[COLUMNAS];
+            int[] guardadas = new int[COLUMNAS];
+            long total = CABECERA;
+            for (int c = 0; c < COLUMNAS; c++) {
+                longitudes[c] = datos.getInt();
+                guardadas[c] = datos.getInt();
+                total += guardadas[c];
+            }
+            if (tamano < 0 || bytesNombres < 0 || total != canal.size()) {
+                throw new IOException("Archivo de inventario no válido: " + archivo);
+            }
+            ByteBuffer[] columnas = new ByteBuffer[COLUMNAS];
+            for (int c = 0; c < COLUMNAS; c++) {
+                ByteBuffer guardada = datos.slice();
+                guardada.limit(guardadas[c]);
+                datos.position(datos.position() + guardadas[c]);
+                columnas[c] = comprimido ? descomprimir(guardada, longitudes[c]) : guardada;
+            }
+            return decodificar(tamano, bytesNombres, columnas[0], columnas[1], columnas[2]);
+        } catch (RuntimeException e) {
+            // Longitudes o enteros variables fuera de rango
+            throw new IOException("Archivo de inventario no válido: " + archivo, e);
+        }
+    }
+
+    private static InventarioColumnar decodificar(int tamano, int bytesNombres, ByteBuffer columnaNombres,
+            ByteBuffer columnaCantidades, ByteBuffer columnaPrecios) throws IOException {
+        byte[] nombres = new byte[bytesNombres];
+        int[] inicioNombre = new int[tamano + 1];
+        int[] cantidades = new int[tamano];
+        long[] precios = new long[tamano];
+        int posicion = 0;
+        int inicioAnterior = 0;
+        int cantidad = 0;
+        long precio = 0;
+        for (int i = 0; i < tamano; i++) {
+            int comun = leerVarint(columnaNombres);
+            int resto = leerVarint(columnaNombres);
+            if (comun > posicion - inicioAnterior) {
+                throw new IOException("Prefijo de nombre fuera de rango en el producto " + i);
+            }
+            System.arraycopy(nombres, inicioAnterior, nombres, posicion, comun);
+            columnaNombres.get(nombres, posicion + comun, resto);
+            inicioAnterior = posicion;
+            posicion += comun + resto;
+            inicioNombre[i + 1] = posicion;
+
+            int diferencia = leerVarint(columnaCantidades);
+            cantidad += (diferencia >>> 1) ^ -(diferencia & 1);
+            cantidades[i] = cantidad;
+
+            long diferenciaPrecio = leerVarlong(columnaPrecios);
+            precio += (diferenciaPrecio >>> 1) ^ -(diferenciaPrecio & 1);
+            precios[i] = precio;
+        }
+        if (posicion != bytesNombres) {
+            throw new IOException("Los nombres ocupan " + posicion + " bytes en lugar de " + bytesNombres);
+        }
+        return new InventarioColumnar(tamano, nombres, inicioNombre, cantidades, precios);
+    }
+
+    private static int prefijoComun(byte[] bytes, int inicioA, int longitudA, int inicioB, int longitudB) {
+        int maximo = Math.min(longitudA, longitudB);
+        int i = Arrays.mismatch(bytes, inicioA, inicioA + maximo, bytes, inicioB, inicioB + maximo);
+        return i < 0 ? maximo : i;
+    }
+
+    private static byte[] comprimir(Salida columna) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(columna.datos, 0, columna.longitud);
+            deflater.finish();
+            Salida comprimida = new Salida(Math.max(64, columna.longitud / 2));
+            while (!deflater.finished()) {
+                comprimida.asegurar(64 * 1024);
+                comprimida.longitud += deflater.deflate(comprimida.datos, comprimida.longitud,
+                        comprimida.datos.length - comprimida.longitud);
+            }
+            return Arrays.copyOf(comprimida.datos, comprimida.longitud);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer descomprimir(ByteBuffer guardada, int longitud) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(guardada);
+            byte[] datos = new byte[longitud];
+            int leidos = 0;
+            while (leidos < longitud && !inflater.finished()) {
+                int n = inflater.inflate(datos, leidos, longitud - leidos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                leidos += n;
+            }
+            if (leidos != longitud) {
+                throw new IOException("Columna comprimida incompleta: " + leidos + " de " + longitud + " bytes");
+            }
+            return ByteBuffer.wrap(datos);
+        } catch (DataFormatException e) {
+            throw new IOException("Columna comprimida dañada", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int leerVarint(ByteBuffer datos) {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 32; desplazamiento += 7) {
+            byte b = datos.get();
+            valor |= (b & 0x7F) << desplazamiento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+        throw new IllegalStateException("Entero variable demasiado largo");
+    }
+
+    private static long leerVarlong(ByteBuffer datos) {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            byte b = datos.get();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+        throw new IllegalStateException("Entero variable demasiado largo");
+    }
+
+    /**
+     * Arreglo de bytes que crece al doble, con escritura de enteros de
+     * longitud variable: siete bits por byte, el bit alto indica que siguen
+     * más.
+     */
+    private static final class Salida {
+
+        private byte[] datos;
+        private int longitud;
+
+        private Salida(int capacidad) {
+            datos = new byte[Math.max(16, capacidad)];
+        }
+
+        private void asegurar(int bytes) {
+            if (longitud + bytes > datos.length) {
+                datos = Arrays.copyOf(datos, Math.max(datos.length * 2, longitud + bytes));
+            }
+        }
+
+        private void escribir(byte[] bytes, int desde, int cuantos) {
+            asegurar(cuantos);
+            System.arraycopy(bytes, desde, datos, longitud, cuantos);
+            longitud += cuantos;
+        }
+
+        private void escribirVarint(int valor) {
+            asegurar(5);
+            while ((valor & ~0x7F) != 0) {
+                datos[longitud++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            datos[longitud++] = (byte) valor;
+        }
+
+        private void escribirVarlong(long valor) {
+            asegurar(10);
+            while ((valor & ~0x7FL) != 0) {
+                datos[longitud++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            datos[longitud++] = (byte) valor;
+        }
+    }
+}
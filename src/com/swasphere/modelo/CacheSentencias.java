@@ -0,0 +1,270 @@
+package com.swasphere.modelo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caché de sentencias preparadas de una conexión física, indexada por el
+ * texto SQL y acotada con expulsión de la menos usada. Las sentencias se
+ * entregan envueltas: close() las devuelve a la caché limpiando sus
+ * parámetros en lugar de cerrarlas. Una sentencia en uso no se entrega dos
+ * veces; si se pide de nuevo antes de cerrarla se prepara una aparte, que se
+ * cierra de verdad. En ambos casos getConnection() devuelve la conexión
+ * prestada y no la física.
+ *
+ * Con MySQL Connector/J la preparación en el servidor sólo se reutiliza si la
+ * URL incluye useServerPrepStmts=true; sin ella la caché ahorra la
+ * preparación en el cliente.
+ *
+ * @autor ljsanchez23
+ */
+class CacheSentencias {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheSentencias.class.getName());
+
+    private final Connection connection;
+    private final int tamanoMaximo;
+    private final AtomicLong aciertos;
+    private final AtomicLong fallos;
+    private final LinkedHashMap<String, SentenciaCacheada> sentencias;
+
+    /**
+     * Constructor de la clase CacheSentencias.
+     *
+     * @param connection La conexión física que prepara las sentencias.
+     * @param tamanoMaximo El número máximo de sentencias conservadas.
+     * @param aciertos El contador compartido de sentencias reutilizadas.
+     * @param fallos El contador compartido de sentencias preparadas.
+     */
+    CacheSentencias(Connection connection, int tamanoMaximo, AtomicLong aciertos, AtomicLong fallos) {
+        this.connection = connection;
+        this.tamanoMaximo = tamanoMaximo;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.sentencias = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Obtiene una sentencia preparada para el texto SQL, reutilizando la de
+     * la caché si está libre.
+     *
+     * @param sql El texto SQL.
+     * @param prestada La conexión que ve el llamador, devuelta por
+     * getConnection() de la sentencia.
+     * @return Una sentencia que vuelve a la caché al cerrarse.
+     * @throws SQLException Si no se puede preparar la sentencia.
+     */
+    synchronized PreparedStatement preparar(String sql, Connection prestada) throws SQLException {
+        SentenciaCacheada cacheada = sentencias.get(sql);
+        if (cacheada != null && !cacheada.isEnUso()) {
+            aciertos.incrementAndGet();
+            return cacheada.entregar(prestada);
+        }
+        fallos.incrementAndGet();
+        PreparedStatement pstmt = connection.prepareStatement(sql);
+        if (cacheada != null) {
+            // La copia en caché está en uso dentro del mismo préstamo
+            return (PreparedStatement) Proxy.newProxyInstance(CacheSentencias.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new Aparte(pstmt, prestada));
+        }
+        cacheada = new SentenciaCacheada(pstmt);
+        sentencias.put(sql, cacheada);
+        expulsarSobrantes();
+        return cacheada.entregar(prestada);
+    }
+
+    /**
+     * Cierra todas las sentencias de la caché.
+     */
+    synchronized void cerrar() {
+        for (SentenciaCacheada cacheada : sentencias.values()) {
+            cacheada.cerrarFisica();
+        }
+        sentencias.clear();
+    }
+
+    /**
+     * Devuelve a la caché las sentencias que el llamador no cerró antes de
+     * devolver la conexión al pool.
+     */
+    synchronized void liberarTodas() {
+        for (SentenciaCacheada cacheada : new ArrayList<>(sentencias.values())) {
+            liberar(cacheada);
+        }
+    }
+
+    /**
+     * Obtiene el número de sentencias conservadas.
+     *
+     * @return El tamaño actual de la caché.
+     */
+    synchronized int getTamano() {
+        return sentencias.size();
+    }
+
+    private void expulsarSobrantes() {
+        Iterator<SentenciaCacheada> it = sentencias.values().iterator();
+        while (sentencias.size() > tamanoMaximo && it.hasNext()) {
+            SentenciaCacheada cacheada = it.next();
+            it.remove();
+            if (cacheada.isEnUso()) {
+                cacheada.cerrarAlLiberar = true;
+            } else {
+                cacheada.cerrarFisica();
+            }
+        }
+    }
+
+    private synchronized void liberar(SentenciaCacheada cacheada) {
+        if (cacheada.entrega == null) {
+            return;
+        }
+        cacheada.entrega = null;
+        if (cacheada.cerrarAlLiberar) {
+            cacheada.cerrarFisica();
+            return;
+        }
+        try {
+            cacheada.pstmt.clearParameters();
+            cacheada.pstmt.clearBatch();
+        } catch (SQLException e) {
+            // Una sentencia que no se puede limpiar no se vuelve a entregar
+            sentencias.values().remove(cacheada);
+            cacheada.cerrarFisica();
+        }
+    }
+
+    /**
+     * Sentencia física conservada en la caché.
+     */
+    private final class SentenciaCacheada {
+
+        private final PreparedStatement pstmt;
+        private boolean cerrarAlLiberar;
+
+        // Entrega en curso, o null si la sentencia está libre
+        private Entrega entrega;
+
+        private SentenciaCacheada(PreparedStatement pstmt) {
+            this.pstmt = pstmt;
+        }
+
+        private boolean isEnUso() {
+            return entrega != null;
+        }
+
+        private PreparedStatement entregar(Connection prestada) {
+            entrega = new Entrega(this, prestada);
+            return (PreparedStatement) Proxy.newProxyInstance(CacheSentencias.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, entrega);
+        }
+
+        private void cerrarFisica() {
+            try {
+                pstmt.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Error al cerrar una sentencia en caché", e);
+            }
+        }
+    }
+
+    /**
+     * Vista de una sentencia entregada a un llamador. Cada entrega tiene su
+     * propia vista, así que una referencia antigua no puede cerrar ni usar la
+     * sentencia después de que se entregue a otro.
+     */
+    private final class Entrega implements InvocationHandler {
+
+        private final SentenciaCacheada cacheada;
+        private final Connection prestada;
+
+        private Entrega(SentenciaCacheada cacheada, Connection prestada) {
+            this.cacheada = cacheada;
+            this.prestada = prestada;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            int parametros = method.getParameterCount();
+            if ("equals".equals(nombre) && parametros == 1) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(nombre) && parametros == 0) {
+                return System.identityHashCode(proxy);
+            }
+            boolean vigente;
+            synchronized (CacheSentencias.this) {
+                vigente = cacheada.entrega == this;
+                if (vigente && "close".equals(nombre) && parametros == 0) {
+                    liberar(cacheada);
+                    return null;
+                }
+            }
+            if ("close".equals(nombre) && parametros == 0) {
+                return null;
+            }
+            if ("isClosed".equals(nombre) && parametros == 0) {
+                return !vigente;
+            }
+            if (!vigente) {
+                throw new SQLException("La sentencia ya fue cerrada");
+            }
+            if ("getConnection".equals(nombre) && parametros == 0) {
+                return prestada;
+            }
+            try {
+                return method.invoke(cacheada.pstmt, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Vista de una sentencia preparada fuera de la caché. Sólo oculta la
+     * conexión física; el resto de métodos, close() incluido, van a la
+     * sentencia.
+     */
+    private static final class Aparte implements InvocationHandler {
+
+        private final PreparedStatement pstmt;
+        private final Connection prestada;
+
+        private Aparte(PreparedStatement pstmt, Connection prestada) {
+            this.pstmt = pstmt;
+            this.prestada = prestada;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            int parametros = method.getParameterCount();
+            if ("equals".equals(nombre) && parametros == 1) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(nombre) && parametros == 0) {
+                return System.identityHashCode(proxy);
+            }
+            if ("getConnection".equals(nombre) && parametros == 0) {
+                return prestada;
+            }
+            try {
+                return method.invoke(pstmt, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
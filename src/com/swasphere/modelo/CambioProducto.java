@@ -0,0 +1,75 @@
+package com.swasphere.modelo;
+
+/**
+ * Representa un cambio sobre un producto: su estado tras una inserción o
+ * actualización, o la marca de que fue eliminado.
+ *
+ * @autor ljsanchez23
+ */
+public class CambioProducto {
+
+    private final String nombre;
+    private final Producto producto;
+    private final long cambio;
+
+    /**
+     * Constructor de la clase CambioProducto.
+     *
+     * @param nombre El nombre del producto.
+     * @param producto El estado actual del producto, o null si fue eliminado.
+     * @param cambio El número de secuencia del cambio.
+     */
+    public CambioProducto(String nombre, Producto producto, long cambio) {
+        this.nombre = nombre;
+        this.producto = producto;
+        this.cambio = cambio;
+    }
+
+    /**
+     * Obtiene el nombre del producto.
+     *
+     * @return El nombre del producto.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Obtiene el estado del producto tras el cambio.
+     *
+     * @return El producto, o null si el cambio es una eliminación.
+     */
+    public Producto getProducto() {
+        return producto;
+    }
+
+    /**
+     * Obtiene el número de secuencia del cambio. Los números crecen en el
+     * orden en que se confirmaron los cambios.
+     *
+     * @return El número de secuencia.
+     */
+    public long getCambio() {
+        return cambio;
+    }
+
+    /**
+     * Indica si el cambio es una eliminación.
+     *
+     * @return true si el producto fue eliminado, false en caso contrario.
+     */
+    public boolean isEliminado() {
+        return producto == null;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con los detalles del cambio.
+     */
+    @Override
+    public String toString() {
+        return "CambioProducto{" + "nombre='" + nombre + '\'' + ", cambio=" + cambio
+                + (producto == null ? ", eliminado" : ", producto=" + producto) + '}';
+    }
+}
@@ -0,0 +1,70 @@
+package com.swasphere.modelo;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Señal para detener una lectura larga desde otro hilo. Mientras la lectura
+ * ejecuta una sentencia en la base de datos, cancelar también cancela la
+ * sentencia, de modo que el servidor deja de enviar filas.
+ *
+ * @autor ljsanchez23
+ */
+public class Cancelacion {
+
+    private volatile boolean cancelada;
+    private Statement sentencia;
+
+    /**
+     * Pide que se detenga la lectura y cancela la sentencia en curso, si hay
+     * una.
+     */
+    public void cancelar() {
+        Statement actual;
+        synchronized (this) {
+            if (cancelada) {
+                return;
+            }
+            cancelada = true;
+            actual = sentencia;
+        }
+        if (actual != null) {
+            cancelarSentencia(actual);
+        }
+    }
+
+    /**
+     * Indica si se pidió detener la lectura.
+     *
+     * @return true si la lectura fue cancelada.
+     */
+    public boolean isCancelada() {
+        return cancelada;
+    }
+
+    /**
+     * Registra la sentencia que ejecuta la lectura. Si la lectura ya fue
+     * cancelada, la sentencia se cancela enseguida.
+     *
+     * @param sentencia La sentencia en curso, o null cuando termina.
+     */
+    void registrar(Statement sentencia) {
+        synchronized (this) {
+            this.sentencia = sentencia;
+            if (!cancelada || sentencia == null) {
+                return;
+            }
+        }
+        cancelarSentencia(sentencia);
+    }
+
+    private static void cancelarSentencia(Statement sentencia) {
+        try {
+            sentencia.cancel();
+        } catch (SQLException e) {
+            // La sentencia ya terminó o el controlador no admite cancelarla:
+            // la lectura se detiene igualmente en la siguiente fila
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.swasphere.modelo;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cierre ordenado de la aplicación. Los componentes registran sus acciones de
+ * cierre en una fase y un único gancho de apagado de la máquina virtual las
+ * ejecuta fase por fase, de modo que las escrituras pendientes terminen antes
+ * de cerrar el diario y el diario antes de cerrar el pool de conexiones.
+ * Dentro de una fase las acciones se ejecutan en el orden de registro.
+ *
+ * @autor ljsanchez23
+ */
+public final class CierreAplicacion {
+
+    /**
+     * Fases del cierre, en el orden en que se ejecutan.
+     */
+    public enum Fase {
+        /**
+         * Deja de aceptar peticiones nuevas.
+         */
+        PETICIONES,
+        /**
+         * Escribe las actualizaciones pendientes.
+         */
+        ESCRITURAS,
+        /**
+         * Cierra el diario de mutaciones.
+         */
+        DIARIO,
+        /**
+         * Cierra las conexiones a la base de datos.
+         */
+        CONEXIONES
+    }
+
+    private static final Map<Fase, List<Runnable>> ACCIONES = new EnumMap<>(Fase.class);
+    private static boolean ganchoInstalado;
+    private static boolean cerrada;
+
+    private CierreAplicacion() {
+    }
+
+    /**
+     * Registra una acción de cierre. La primera vez instala el gancho de
+     * apagado; si el cierre ya empezó la acción no se registra.
+     *
+     * @param fase La fase en la que se ejecuta la acción.
+     * @param accion La acción de cierre.
+     */
+    public static synchronized void registrar(Fase fase, Runnable accion) {
+        if (cerrada) {
+            return;
+        }
+        ACCIONES.computeIfAbsent(fase, f -> new ArrayList<>()).add(accion);
+        if (!ganchoInstalado) {
+            Runtime.getRuntime().addShutdownHook(new Thread(CierreAplicacion::cerrar, "cierre-aplicacion"));
+            ganchoInstalado = true;
+        }
+    }
+
+    /**
+     * Ejecuta las acciones registradas, fase por fase. Un fallo en una acción
+     * no impide ejecutar las siguientes. Sólo tiene efecto la primera vez.
+     */
+    public static void cerrar() {
+        Map<Fase, List<Runnable>> acciones;
+        synchronized (CierreAplicacion.class) {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            acciones = new EnumMap<>(ACCIONES);
+            ACCIONES.clear();
+        }
+        for (List<Runnable> fase : acciones.values()) {
+            for (Runnable accion : fase) {
+                try {
+                    accion.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
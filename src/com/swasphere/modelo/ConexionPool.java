@@ -0,0 +1,425 @@
+package com.swasphere.modelo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool acotado de conexiones JDBC compartido por toda la aplicación. Las
+ * conexiones entregadas se devuelven al pool al invocar close(), y cada
+ * conexión física conserva sus sentencias preparadas entre préstamos.
+ *
+ * @autor ljsanchez23
+ */
+public class ConexionPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ConexionPool.class.getName());
+
+    private static ConexionPool instancia;
+
+    private final ConfiguracionPool configuracion;
+    private final Semaphore permisos;
+    private final ScheduledExecutorService mantenimiento;
+
+    // Conexiones libres, la más reciente primero; protegidas por this
+    private final Deque<ConexionFisica> inactivas = new ArrayDeque<>();
+    private final Map<ConexionFisica, Prestamo> prestadas = new ConcurrentHashMap<>();
+    private int abiertas;
+
+    // Contadores para las estadísticas
+    private final AtomicLong prestamos = new AtomicLong();
+    private final AtomicLong creadas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong esperasAgotadas = new AtomicLong();
+    private final AtomicLong fugas = new AtomicLong();
+    private final AtomicLong tiempoEsperaNanos = new AtomicLong();
+    private final AtomicLong sentenciasReutilizadas = new AtomicLong();
+    private final AtomicLong sentenciasPreparadas = new AtomicLong();
+
+    private volatile boolean cerrado;
+
+    /**
+     * Constructor de la clase ConexionPool. Abre en ese momento el número
+     * mínimo de conexiones configurado.
+     *
+     * @param configuracion Los parámetros del pool.
+     */
+    public ConexionPool(ConfiguracionPool configuracion) {
+        if (configuracion.getTamanoMaximo() < 1 || configuracion.getTamanoMinimo() > configuracion.getTamanoMaximo()) {
+            throw new IllegalArgumentException("Tamaños de pool no válidos");
+        }
+        this.configuracion = configuracion;
+        this.permisos = new Semaphore(configuracion.getTamanoMaximo(), true);
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "pool-conexiones-mantenimiento");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        completarMinimo();
+        long periodo = configuracion.getPeriodoMantenimientoMs();
+        mantenimiento.scheduleWithFixedDelay(this::mantener, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtiene el pool de la aplicación, creándolo a partir de las propiedades
+     * del sistema la primera vez que se solicita.
+     *
+     * @return La instancia compartida del pool.
+     */
+    public static synchronized ConexionPool getInstancia() {
+        if (instancia == null) {
+            instancia = new ConexionPool(ConfiguracionPool.desdePropiedades());
+            CierreAplicacion.registrar(CierreAplicacion.Fase.CONEXIONES, instancia::cerrar);
+        }
+        return instancia;
+    }
+
+    /**
+     * Toma prestada una conexión del pool. La conexión debe cerrarse para
+     * devolverla.
+     *
+     * @return Una conexión válida a la base de datos.
+     * @throws SQLException Si no se obtiene una conexión a tiempo o la base de
+     * datos no responde.
+     */
+    public Connection getConnection() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+        long inicio = System.nanoTime();
+        try {
+            if (!permisos.tryAcquire(configuracion.getTiempoEsperaMs(), TimeUnit.MILLISECONDS)) {
+                esperasAgotadas.incrementAndGet();
+                throw new SQLTimeoutException("Tiempo de espera agotado al obtener una conexión del pool");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión", e);
+        }
+        try {
+            ConexionFisica fisica = tomarInactivaValida();
+            if (fisica == null) {
+                fisica = abrir();
+            }
+            tiempoEsperaNanos.addAndGet(System.nanoTime() - inicio);
+            prestamos.incrementAndGet();
+            prestadas.put(fisica, new Prestamo(configuracion.getUmbralFugaMs() > 0));
+            return (Connection) Proxy.newProxyInstance(ConexionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ConexionPrestada(fisica));
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Obtiene las estadísticas actuales del pool.
+     *
+     * @return Una fotografía de las estadísticas.
+     */
+    public EstadisticasPool getEstadisticas() {
+        int libres;
+        synchronized (this) {
+            libres = inactivas.size();
+        }
+        return new EstadisticasPool(prestadas.size(), libres, permisos.getQueueLength(), prestamos.get(),
+                creadas.get(), descartadas.get(), esperasAgotadas.get(), fugas.get(), tiempoEsperaNanos.get(),
+                sentenciasReutilizadas.get(), sentenciasPreparadas.get());
+    }
+
+    /**
+     * Cierra todas las conexiones inactivas e impide nuevos préstamos. Las
+     * conexiones prestadas se cierran al devolverse.
+     */
+    public void cerrar() {
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        List<ConexionFisica> libres;
+        synchronized (this) {
+            libres = new ArrayList<>(inactivas);
+            inactivas.clear();
+            abiertas -= libres.size();
+        }
+        for (ConexionFisica fisica : libres) {
+            cerrarFisica(fisica);
+        }
+        LOGGER.log(Level.INFO, "Pool de conexiones cerrado: {0}", getEstadisticas());
+    }
+
+    /**
+     * Envuelve una conexión externa para que close() no la cierre. Permite
+     * usar la misma sintaxis try-with-resources con conexiones del pool y con
+     * conexiones administradas por el llamador.
+     *
+     * @param connection La conexión a envolver.
+     * @return Una vista de la conexión que ignora close().
+     */
+    static Connection noCerrable(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(ConexionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        return null;
+                    }
+                    return invocar(connection, method, args);
+                });
+    }
+
+    private ConexionFisica tomarInactivaValida() {
+        while (true) {
+            ConexionFisica fisica;
+            synchronized (this) {
+                fisica = inactivas.pollFirst();
+            }
+            if (fisica == null) {
+                return null;
+            }
+            if (esValida(fisica)) {
+                return fisica;
+            }
+            descartar(fisica);
+        }
+    }
+
+    private boolean esValida(ConexionFisica fisica) {
+        if (System.currentTimeMillis() - fisica.ultimoUso < configuracion.getUmbralValidacionMs()) {
+            return true;
+        }
+        try {
+            return fisica.connection.isValid(configuracion.getTiempoValidacionSeg());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private ConexionFisica abrir() throws SQLException {
+        Connection connection = DriverManager.getConnection(configuracion.getUrl(), configuracion.getUsuario(),
+                configuracion.getPassword());
+        creadas.incrementAndGet();
+        synchronized (this) {
+            abiertas++;
+        }
+        int tamanoCache = configuracion.getTamanoCacheSentencias();
+        return new ConexionFisica(connection, tamanoCache > 0
+                ? new CacheSentencias(connection, tamanoCache, sentenciasReutilizadas, sentenciasPreparadas) : null);
+    }
+
+    /**
+     * Abre las conexiones que faltan para llegar al tamaño mínimo y las deja
+     * inactivas. Si la base de datos no responde se vuelve a intentar en el
+     * siguiente mantenimiento.
+     */
+    private void completarMinimo() {
+        while (!cerrado) {
+            synchronized (this) {
+                if (abiertas >= configuracion.getTamanoMinimo()) {
+                    return;
+                }
+            }
+            ConexionFisica fisica;
+            try {
+                fisica = abrir();
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "No se pudieron abrir las conexiones mínimas del pool", e);
+                return;
+            }
+            synchronized (this) {
+                if (!cerrado) {
+                    inactivas.offerLast(fisica);
+                    continue;
+                }
+            }
+            descartar(fisica);
+        }
+    }
+
+    private void devolver(ConexionFisica fisica) {
+        prestadas.remove(fisica);
+        if (fisica.sentencias != null) {
+            fisica.sentencias.liberarTodas();
+        }
+        try {
+            boolean reutilizable = !cerrado && !fisica.connection.isClosed();
+            if (reutilizable && !fisica.connection.getAutoCommit()) {
+                // No dejar transacciones abiertas para el siguiente usuario
+                fisica.connection.rollback();
+                fisica.connection.setAutoCommit(true);
+            }
+            if (reutilizable) {
+                fisica.ultimoUso = System.currentTimeMillis();
+                synchronized (this) {
+                    inactivas.offerFirst(fisica);
+                }
+            } else {
+                descartar(fisica);
+            }
+        } catch (SQLException e) {
+            descartar(fisica);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    private void descartar(ConexionFisica fisica) {
+        synchronized (this) {
+            abiertas--;
+        }
+        cerrarFisica(fisica);
+    }
+
+    /**
+     * Cierra una conexión ya retirada del recuento de abiertas. Es una
+     * operación de red, así que nunca se hace con el cerrojo del pool.
+     */
+    private void cerrarFisica(ConexionFisica fisica) {
+        descartadas.incrementAndGet();
+        if (fisica.sentencias != null) {
+            fisica.sentencias.cerrar();
+        }
+        try {
+            fisica.connection.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Error al cerrar una conexión descartada", e);
+        }
+    }
+
+    /**
+     * Tarea periódica: cierra las conexiones inactivas sobrantes, repone las
+     * que falten hasta el mínimo y reporta los préstamos que superan el
+     * umbral de fuga.
+     */
+    private void mantener() {
+        long ahora = System.currentTimeMillis();
+        List<ConexionFisica> sobrantes = new ArrayList<>();
+        synchronized (this) {
+            // Las más antiguas están al final de la cola
+            Iterator<ConexionFisica> it = inactivas.descendingIterator();
+            while (it.hasNext() && abiertas > configuracion.getTamanoMinimo()) {
+                ConexionFisica fisica = it.next();
+                if (ahora - fisica.ultimoUso < configuracion.getTiempoInactividadMs()) {
+                    break;
+                }
+                it.remove();
+                abiertas--;
+                sobrantes.add(fisica);
+            }
+        }
+        for (ConexionFisica fisica : sobrantes) {
+            cerrarFisica(fisica);
+        }
+        completarMinimo();
+        long umbralFuga = configuracion.getUmbralFugaMs();
+        if (umbralFuga > 0) {
+            for (Prestamo prestamo : prestadas.values()) {
+                if (!prestamo.reportado && ahora - prestamo.inicio > umbralFuga) {
+                    prestamo.reportado = true;
+                    fugas.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "Posible fuga: conexión prestada hace " + (ahora - prestamo.inicio)
+                            + " ms sin devolverse", prestamo.origen);
+                }
+            }
+        }
+    }
+
+    private static Object invocar(Object destino, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Conexión física abierta contra la base de datos, con su caché de
+     * sentencias preparadas.
+     */
+    private static final class ConexionFisica {
+
+        private final Connection connection;
+        private final CacheSentencias sentencias;
+        private volatile long ultimoUso = System.currentTimeMillis();
+
+        private ConexionFisica(Connection connection, CacheSentencias sentencias) {
+            this.connection = connection;
+            this.sentencias = sentencias;
+        }
+    }
+
+    /**
+     * Datos de un préstamo en curso, usados para la detección de fugas.
+     */
+    private static final class Prestamo {
+
+        private final long inicio = System.currentTimeMillis();
+        private final Throwable origen;
+        private volatile boolean reportado;
+
+        private Prestamo(boolean capturarOrigen) {
+            this.origen = capturarOrigen ? new Throwable("Conexión tomada aquí") : null;
+        }
+    }
+
+    /**
+     * Manejador del proxy entregado al llamador: redirige todo a la conexión
+     * física salvo close(), que la devuelve al pool.
+     */
+    private final class ConexionPrestada implements InvocationHandler {
+
+        private ConexionFisica fisica;
+
+        private ConexionPrestada(ConexionFisica fisica) {
+            this.fisica = fisica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            if ("equals".equals(nombre) && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(nombre) && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+            if ("close".equals(nombre) && method.getParameterCount() == 0) {
+                synchronized (this) {
+                    if (fisica != null) {
+                        ConexionFisica devuelta = fisica;
+                        fisica = null;
+                        devolver(devuelta);
+                    }
+                }
+                return null;
+            }
+            if ("isClosed".equals(nombre) && method.getParameterCount() == 0) {
+                ConexionFisica actual = fisica;
+                return actual == null || actual.connection.isClosed();
+            }
+            ConexionFisica actual = fisica;
+            if (actual == null) {
+                throw new SQLException("La conexión ya fue devuelta al pool");
+            }
+            if ("prepareStatement".equals(nombre) && method.getParameterCount() == 1 && actual.sentencias != null) {
+                return actual.sentencias.preparar((String) args[0], (Connection) proxy);
+            }
+            return invocar(actual.connection, method, args);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.swasphere.modelo;
+
+/**
+ * Parámetros de configuración del pool de conexiones a la base de datos.
+ *
+ * @autor ljsanchez23
+ */
+public class ConfiguracionPool {
+
+    // Datos de acceso a la base de datos
+    private String url;
+    private String usuario;
+    private String password;
+
+    // Límites y tiempos del pool
+    private int tamanoMinimo = 1;
+    private int tamanoMaximo = 10;
+    private long tiempoEsperaMs = 30_000;
+    private long tiempoInactividadMs = 600_000;
+    private long umbralValidacionMs = 5_000;
+    private int tiempoValidacionSeg = 3;
+    private long umbralFugaMs = 60_000;
+    private long periodoMantenimientoMs = 30_000;
+    private int tamanoCacheSentencias = 64;
+
+    /**
+     * Constructor de la clase ConfiguracionPool.
+     *
+     * @param url La URL JDBC de la base de datos.
+     * @param usuario El usuario de la base de datos.
+     * @param password La contraseña de la base de datos.
+     */
+    public ConfiguracionPool(String url, String usuario, String password) {
+        this.url = url;
+        this.usuario = usuario;
+        this.password = password;
+    }
+
+    /**
+     * Crea una configuración a partir de las propiedades del sistema. Los
+     * datos de acceso se leen de DB_URL, DB_USER y DB_PASSWORD; los límites
+     * del pool de las propiedades opcionales DB_POOL_*.
+     *
+     * @return La configuración leída de las propiedades del sistema.
+     */
+    public static ConfiguracionPool desdePropiedades() {
+        ConfiguracionPool configuracion = new ConfiguracionPool(
+                propiedadObligatoria("DB_URL"),
+                propiedadObligatoria("DB_USER"),
+                propiedadObligatoria("DB_PASSWORD"));
+        configuracion.setTamanoMinimo(Integer.getInteger("DB_POOL_MIN", configuracion.getTamanoMinimo()));
+        configuracion.setTamanoMaximo(Integer.getInteger("DB_POOL_MAX", configuracion.getTamanoMaximo()));
+        configuracion.setTiempoEsperaMs(Long.getLong("DB_POOL_TIEMPO_ESPERA_MS", configuracion.getTiempoEsperaMs()));
+        configuracion.setTiempoInactividadMs(Long.getLong("DB_POOL_INACTIVIDAD_MS", configuracion.getTiempoInactividadMs()));
+        configuracion.setUmbralValidacionMs(Long.getLong("DB_POOL_VALIDACION_MS", configuracion.getUmbralValidacionMs()));
+        configuracion.setUmbralFugaMs(Long.getLong("DB_POOL_FUGA_MS", configuracion.getUmbralFugaMs()));
+        configuracion.setTamanoCacheSentencias(Integer.getInteger("DB_POOL_CACHE_SENTENCIAS", configuracion.getTamanoCacheSentencias()));
+        return configuracion;
+    }
+
+    private static String propiedadObligatoria(String nombre) {
+        String valor = System.getProperty(nombre);
+        if (valor == null) {
+            throw new IllegalStateException("Falta la propiedad del sistema " + nombre);
+        }
+        return valor.trim();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUsuario() {
+        return usuario;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Obtiene el número de conexiones que el pool conserva aunque estén
+     * inactivas.
+     *
+     * @return El tamaño mínimo del pool.
+     */
+    public int getTamanoMinimo() {
+        return tamanoMinimo;
+    }
+
+    public void setTamanoMinimo(int tamanoMinimo) {
+        this.tamanoMinimo = tamanoMinimo;
+    }
+
+    /**
+     * Obtiene el número máximo de conexiones abiertas al mismo tiempo.
+     *
+     * @return El tamaño máximo del pool.
+     */
+    public int getTamanoMaximo() {
+        return tamanoMaximo;
+    }
+
+    public void setTamanoMaximo(int tamanoMaximo) {
+        this.tamanoMaximo = tamanoMaximo;
+    }
+
+    /**
+     * Obtiene el tiempo máximo que se espera por una conexión libre antes de
+     * fallar.
+     *
+     * @return El tiempo de espera en milisegundos.
+     */
+    public long getTiempoEsperaMs() {
+        return tiempoEsperaMs;
+    }
+
+    public void setTiempoEsperaMs(long tiempoEsperaMs) {
+        this.tiempoEsperaMs = tiempoEsperaMs;
+    }
+
+    /**
+     * Obtiene el tiempo tras el cual una conexión inactiva se cierra, siempre
+     * que se respete el tamaño mínimo.
+     *
+     * @return El tiempo de inactividad en milisegundos.
+     */
+    public long getTiempoInactividadMs() {
+        return tiempoInactividadMs;
+    }
+
+    public void setTiempoInactividadMs(long tiempoInactividadMs) {
+        this.tiempoInactividadMs = tiempoInactividadMs;
+    }
+
+    /**
+     * Obtiene el tiempo de inactividad a partir del cual una conexión se
+     * valida antes de entregarla. Las conexiones usadas hace menos tiempo se
+     * entregan sin validar para no pagar un viaje de ida y vuelta extra.
+     *
+     * @return El umbral de validación en milisegundos.
+     */
+    public long getUmbralValidacionMs() {
+        return umbralValidacionMs;
+    }
+
+    public void setUmbralValidacionMs(long umbralValidacionMs) {
+        this.umbralValidacionMs = umbralValidacionMs;
+    }
+
+    public int getTiempoValidacionSeg() {
+        return tiempoValidacionSeg;
+    }
+
+    public void setTiempoValidacionSeg(int tiempoValidacionSeg) {
+        this.tiempoValidacionSeg = tiempoValidacionSeg;
+    }
+
+    /**
+     * Obtiene el tiempo que una conexión puede permanecer prestada antes de
+     * reportarse como posible fuga. Un valor de 0 desactiva la detección.
+     *
+     * @return El umbral de fuga en milisegundos.
+     */
+    public long getUmbralFugaMs() {
+        return umbralFugaMs;
+    }
+
+    public void setUmbralFugaMs(long umbralFugaMs) {
+        this.umbralFugaMs = umbralFugaMs;
+    }
+
+    public long getPeriodoMantenimientoMs() {
+        return periodoMantenimientoMs;
+    }
+
+    public void setPeriodoMantenimientoMs(long periodoMantenimientoMs) {
+        this.periodoMantenimientoMs = periodoMantenimientoMs;
+    }
+
+    /**
+     * Obtiene el número máximo de sentencias preparadas que cada conexión
+     * conserva para reutilizarlas. Un valor de 0 desactiva la caché.
+     *
+     * @return El tamaño de la caché de sentencias por conexión.
+     */
+    public int getTamanoCacheSentencias() {
+        return tamanoCacheSentencias;
+    }
+
+    public void setTamanoCacheSentencias(int tamanoCacheSentencias) {
+        this.tamanoCacheSentencias = tamanoCacheSentencias;
+    }
+}
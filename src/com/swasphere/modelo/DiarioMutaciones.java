@@ -0,0 +1,401 @@
+package com.swasphere.modelo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de sólo anexado de las mutaciones del inventario. Los registros se
+ * acumulan en memoria y un hilo escritor los anexa al segmento en curso y lo
+ * sincroniza con el disco en grupo: una sola sincronización cubre todos los
+ * registros acumulados desde la anterior. Cuando un segmento supera su
+ * tamaño máximo se abre el siguiente. Cada apertura empieza un segmento
+ * nuevo, de modo que un registro incompleto por una caída queda al final de
+ * un segmento anterior y no se mezcla con los nuevos.
+ *
+ * Si falla la escritura de un grupo, el segmento se trunca hasta el último
+ * registro completo y se reintenta. Si vuelve a fallar el diario queda
+ * averiado: los registros del grupo no se dan por sincronizados, quien los
+ * espera recibe el error y no se aceptan más registros.
+ *
+ * Formato de cada registro: longitud del resto (int), secuencia (long),
+ * marca de tiempo (long), tipo (byte), cantidad (int), precio (double),
+ * longitud del nombre (short), nombre en UTF-8 y CRC32 de todo lo anterior
+ * salvo la longitud (int).
+ *
+ * @autor ljsanchez23
+ */
+public class DiarioMutaciones implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(DiarioMutaciones.class.getName());
+
+    static final String PREFIJO = "diario-";
+    static final String EXTENSION = ".log";
+
+    // Longitud, secuencia, marca de tiempo, tipo, cantidad, precio y longitud del nombre
+    static final int CABECERA = 4 + 8 + 8 + 1 + 4 + 8 + 2;
+    static final int CRC = 4;
+
+    // Intentos de escribir un grupo antes de dar el diario por averiado
+    private static final int INTENTOS_ESCRITURA = 2;
+
+    private final Path directorio;
+    private final long tamanoSegmento;
+    private final long intervaloNanos;
+    private final boolean esperarDisco;
+    private final Thread hilo;
+
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition hayRegistros = cerrojo.newCondition();
+    private final Condition sincronizado = cerrojo.newCondition();
+    private final CRC32 crc = new CRC32();
+
+    // Estado compartido, protegido por el cerrojo
+    private ByteBuffer pendientes = ByteBuffer.allocate(64 * 1024);
+    private long primeraPendiente;
+    private long secuencia;
+    private long secuenciaEnDisco;
+    private boolean urgente;
+    private boolean cerrado;
+    private IOException averia;
+
+    // Segmento en curso, usado sólo por el hilo escritor
+    private FileChannel segmento;
+    private long tamanoActual;
+
+    /**
+     * Constructor de la clase DiarioMutaciones. Continúa la numeración del
+     * diario existente en el directorio y arranca el hilo escritor.
+     *
+     * @param directorio El directorio de los segmentos.
+     * @param tamanoSegmento El tamaño a partir del cual se abre un segmento
+     * nuevo, en bytes.
+     * @param intervaloMillis El tiempo máximo que un registro espera a
+     * escribirse cuando no se espera al disco.
+     * @param esperarDisco true para que registrar no termine hasta que el
+     * registro esté sincronizado con el disco.
+     * @throws IOException Si no se puede leer el diario o crear el segmento.
+     */
+    public DiarioMutaciones(Path directorio, long tamanoSegmento, long intervaloMillis, boolean esperarDisco) throws IOException {
+        this.directorio = directorio;
+        this.tamanoSegmento = Math.max(1024, tamanoSegmento);
+        this.intervaloNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervaloMillis));
+        this.esperarDisco = esperarDisco;
+        Files.createDirectories(directorio);
+        secuencia = ReproductorDiario.ultimaSecuencia(directorio);
+        secuenciaEnDisco = secuencia;
+        abrirSegmento(secuencia + 1);
+        hilo = new Thread(this::escribir, "diario-mutaciones");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Anexa un registro al diario y, si el diario espera al disco, espera a
+     * que esté sincronizado.
+     *
+     * @param tipo El tipo de mutación.
+     * @param nombre El nombre del producto, o null en una limpieza.
+     * @param cantidad La cantidad resultante, o la diferencia en un ajuste.
+     * @param precio El precio resultante.
+     * @return El número de secuencia del registro.
+     * @throws UncheckedIOException Si el diario está averiado, o si se espera
+     * al disco y no se pudo escribir el registro.
+     */
+    public long registrar(RegistroDiario.Tipo tipo, String nombre, int cantidad, double precio) {
+        long numero = anexar(tipo, nombre, cantidad, precio);
+        esperar(numero);
+        return numero;
+    }
+
+    /**
+     * Anexa un registro al diario sin esperar al disco. Permite numerar el
+     * registro mientras se sostiene un cerrojo y esperar después con
+     * esperar.
+     *
+     * @param tipo El tipo de mutación.
+     * @param nombre El nombre del producto, o null en una limpieza.
+     * @param cantidad La cantidad resultante, o la diferencia en un ajuste.
+     * @param precio El precio resultante.
+     * @return El número de secuencia del registro.
+     * @throws UncheckedIOException Si el diario está averiado.
+     */
+    public long anexar(RegistroDiario.Tipo tipo, String nombre, int cantidad, double precio) {
+        byte[] bytesNombre = nombre == null ? new byte[0] : nombre.getBytes(StandardCharsets.UTF_8);
+        if (bytesNombre.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Nombre demasiado largo para el diario: " + bytesNombre.length + " bytes");
+        }
+        int longitud = CABECERA - 4 + bytesNombre.length + CRC;
+        cerrojo.lock();
+        try {
+            if (cerrado) {
+                throw new IllegalStateException("El diario está cerrado");
+            }
+            comprobarAveria();
+            long numero = ++secuencia;
+            if (pendientes.position() == 0) {
+                primeraPendiente = numero;
+                hayRegistros.signal();
+            }
+            asegurarEspacio(4 + longitud);
+            int inicio = pendientes.position();
+            pendientes.putInt(longitud).putLong(numero).putLong(System.currentTimeMillis()).put((byte) tipo.ordinal())
+                    .putInt(cantidad).putDouble(precio).putShort((short) bytesNombre.length).put(bytesNombre);
+            crc.reset();
+            crc.update(pendientes.array(), inicio + 4, longitud - CRC);
+            pendientes.putInt((int) crc.getValue());
+            return numero;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Si el diario espera al disco, espera a que un registro anexado esté
+     * sincronizado. En otro caso no hace nada.
+     *
+     * @param numero El número de secuencia del registro.
+     * @throws UncheckedIOException Si no se pudo escribir el registro.
+     */
+    public void esperar(long numero) {
+        if (!esperarDisco) {
+            return;
+        }
+        cerrojo.lock();
+        try {
+            while (secuenciaEnDisco < numero && averia == null && hilo.isAlive()) {
+                sincronizado.awaitUninterruptibly();
+            }
+            if (secuenciaEnDisco < numero) {
+                comprobarAveria();
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Escribe y sincroniza con el disco los registros anexados hasta ahora.
+     *
+     * @throws UncheckedIOException Si el diario está averiado.
+     */
+    public void sincronizar() {
+        cerrojo.lock();
+        try {
+            long objetivo = secuencia;
+            urgente = true;
+            hayRegistros.signal();
+            while (secuenciaEnDisco < objetivo && averia == null && hilo.isAlive()) {
+                sincronizado.awaitUninterruptibly();
+            }
+            if (secuenciaEnDisco < objetivo) {
+                comprobarAveria();
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene el número del último registro anexado.
+     *
+     * @return La secuencia del último registro, o 0 si el diario está vacío.
+     */
+    public long getSecuencia() {
+        cerrojo.lock();
+        try {
+            return secuencia;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Indica si el diario dejó de aceptar registros porque no pudo
+     * escribirlos.
+     *
+     * @return true si el diario está averiado, false en caso contrario.
+     */
+    public boolean isAveriado() {
+        cerrojo.lock();
+        try {
+            return averia != null;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene el directorio de los segmentos.
+     *
+     * @return El directorio del diario.
+     */
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    /**
+     * Escribe los registros pendientes, los sincroniza y cierra el segmento
+     * en curso. Después ya no se aceptan registros.
+     */
+    @Override
+    public void close() {
+        cerrojo.lock();
+        try {
+            cerrado = true;
+            hayRegistros.signal();
+        } finally {
+            cerrojo.unlock();
+        }
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void escribir() {
+        ByteBuffer libre = ByteBuffer.allocate(pendientes.capacity());
+        while (true) {
+            ByteBuffer lote;
+            long primera;
+            long ultima;
+            cerrojo.lock();
+            try {
+                while (pendientes.position() == 0 && !cerrado) {
+                    hayRegistros.awaitUninterruptibly();
+                }
+                if (pendientes.position() == 0) {
+                    cerrarSegmento();
+                    return;
+                }
+                // Los registros que llegan mientras tanto comparten la sincronización
+                long restante = esperarDisco ? 0 : intervaloNanos;
+                while (restante > 0 && !urgente && !cerrado) {
+                    try {
+                        restante = hayRegistros.awaitNanos(restante);
+                    } catch (InterruptedException e) {
+                        restante = 0;
+                    }
+                }
+                urgente = false;
+                lote = pendientes;
+                primera = primeraPendiente;
+                ultima = secuencia;
+                libre.clear();
+                pendientes = libre;
+            } finally {
+                cerrojo.unlock();
+            }
+
+            lote.flip();
+            IOException error = escribirLote(lote, primera);
+            if (error != null) {
+                LOGGER.log(Level.SEVERE, "No se pudieron escribir los registros " + primera + " a " + ultima
+                        + " del diario; el diario queda averiado", error);
+            }
+
+            cerrojo.lock();
+            try {
+                if (error == null) {
+                    secuenciaEnDisco = ultima;
+                } else {
+                    averia = error;
+                }
+                sincronizado.signalAll();
+            } finally {
+                cerrojo.unlock();
+            }
+            if (error != null) {
+                cerrarSegmento();
+                return;
+            }
+            libre = lote;
+        }
+    }
+
+    /**
+     * Anexa un grupo de registros al segmento y lo sincroniza. Si falla,
+     * trunca el segmento hasta el último registro completo para no dejar
+     * uno a medias delante del siguiente, y lo reintenta.
+     *
+     * @return null si el grupo quedó en el disco, o el último error.
+     */
+    private IOException escribirLote(ByteBuffer lote, long primera) {
+        IOException error = null;
+        for (int intento = 0; intento < INTENTOS_ESCRITURA; intento++) {
+            long inicio = tamanoActual;
+            try {
+                if (inicio > 0 && inicio + lote.remaining() > tamanoSegmento) {
+                    cerrarSegmento();
+                    abrirSegmento(primera);
+                    inicio = tamanoActual;
+                }
+                while (lote.hasRemaining()) {
+                    segmento.write(lote);
+                }
+                segmento.force(false);
+                tamanoActual = inicio + lote.limit();
+                return null;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Falló la escritura del diario desde el registro " + primera, e);
+                error = e;
+                try {
+                    segmento.truncate(inicio);
+                    segmento.position(inicio);
+                    lote.rewind();
+                } catch (IOException e2) {
+                    e.addSuppressed(e2);
+                    return e;
+                }
+            }
+        }
+        return error;
+    }
+
+    /**
+     * Lanza el error que averió el diario, si lo hay. Debe llamarse con el
+     * cerrojo tomado.
+     */
+    private void comprobarAveria() {
+        if (averia != null) {
+            throw new UncheckedIOException("El diario de mutaciones está averiado", averia);
+        }
+    }
+
+    private void asegurarEspacio(int bytes) {
+        if (pendientes.remaining() < bytes) {
+            ByteBuffer mayor = ByteBuffer.allocate(Math.max(pendientes.capacity() * 2, pendientes.position() + bytes));
+            pendientes.flip();
+            mayor.put(pendientes);
+            pendientes = mayor;
+        }
+    }
+
+    private void abrirSegmento(long primeraSecuencia) throws IOException {
+        Path ruta = directorio.resolve(String.format("%s%020d%s", PREFIJO, primeraSecuencia, EXTENSION));
+        // Si ya existe no tiene ningún registro válido: se creó antes de una caída
+        segmento = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        tamanoActual = 0;
+    }
+
+    private void cerrarSegmento() {
+        try {
+            segmento.force(true);
+            segmento.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "No se pudo cerrar el segmento del diario", e);
+        }
+    }
+}
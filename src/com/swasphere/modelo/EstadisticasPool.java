@@ -0,0 +1,127 @@
+package com.swasphere.modelo;
+
+/**
+ * Fotografía de las estadísticas de uso del pool de conexiones.
+ *
+ * @autor ljsanchez23
+ */
+public class EstadisticasPool {
+
+    private final int conexionesActivas;
+    private final int conexionesInactivas;
+    private final int hilosEsperando;
+    private final long prestamos;
+    private final long conexionesCreadas;
+    private final long conexionesDescartadas;
+    private final long esperasAgotadas;
+    private final long fugasDetectadas;
+    private final long tiempoEsperaTotalNanos;
+    private final long sentenciasReutilizadas;
+    private final long sentenciasPreparadas;
+
+    /**
+     * Constructor de la clase EstadisticasPool.
+     *
+     * @param conexionesActivas Las conexiones prestadas en este momento.
+     * @param conexionesInactivas Las conexiones abiertas disponibles.
+     * @param hilosEsperando Los hilos esperando una conexión.
+     * @param prestamos El total de préstamos realizados.
+     * @param conexionesCreadas El total de conexiones físicas abiertas.
+     * @param conexionesDescartadas El total de conexiones físicas cerradas.
+     * @param esperasAgotadas El total de préstamos que agotaron la espera.
+     * @param fugasDetectadas El total de posibles fugas reportadas.
+     * @param tiempoEsperaTotalNanos El tiempo total esperado por conexiones.
+     * @param sentenciasReutilizadas Las sentencias servidas desde la caché.
+     * @param sentenciasPreparadas Las sentencias que hubo que preparar.
+     */
+    public EstadisticasPool(int conexionesActivas, int conexionesInactivas, int hilosEsperando, long prestamos,
+            long conexionesCreadas, long conexionesDescartadas, long esperasAgotadas, long fugasDetectadas,
+            long tiempoEsperaTotalNanos, long sentenciasReutilizadas, long sentenciasPreparadas) {
+        this.conexionesActivas = conexionesActivas;
+        this.conexionesInactivas = conexionesInactivas;
+        this.hilosEsperando = hilosEsperando;
+        this.prestamos = prestamos;
+        this.conexionesCreadas = conexionesCreadas;
+        this.conexionesDescartadas = conexionesDescartadas;
+        this.esperasAgotadas = esperasAgotadas;
+        this.fugasDetectadas = fugasDetectadas;
+        this.tiempoEsperaTotalNanos = tiempoEsperaTotalNanos;
+        this.sentenciasReutilizadas = sentenciasReutilizadas;
+        this.sentenciasPreparadas = sentenciasPreparadas;
+    }
+
+    public int getConexionesActivas() {
+        return conexionesActivas;
+    }
+
+    public int getConexionesInactivas() {
+        return conexionesInactivas;
+    }
+
+    public int getHilosEsperando() {
+        return hilosEsperando;
+    }
+
+    public long getPrestamos() {
+        return prestamos;
+    }
+
+    public long getConexionesCreadas() {
+        return conexionesCreadas;
+    }
+
+    public long getConexionesDescartadas() {
+        return conexionesDescartadas;
+    }
+
+    public long getEsperasAgotadas() {
+        return esperasAgotadas;
+    }
+
+    public long getFugasDetectadas() {
+        return fugasDetectadas;
+    }
+
+    /**
+     * Obtiene el tiempo medio que un préstamo esperó por una conexión.
+     *
+     * @return El tiempo medio de espera en milisegundos.
+     */
+    public double getEsperaMediaMs() {
+        return prestamos == 0 ? 0 : tiempoEsperaTotalNanos / 1_000_000.0 / prestamos;
+    }
+
+    public long getSentenciasReutilizadas() {
+        return sentenciasReutilizadas;
+    }
+
+    public long getSentenciasPreparadas() {
+        return sentenciasPreparadas;
+    }
+
+    /**
+     * Obtiene la fracción de sentencias servidas desde la caché de las
+     * conexiones.
+     *
+     * @return La tasa de aciertos entre 0 y 1.
+     */
+    public double getTasaAciertosSentencias() {
+        long total = sentenciasReutilizadas + sentenciasPreparadas;
+        return total == 0 ? 0 : (double) sentenciasReutilizadas / total;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con las estadísticas del pool.
+     */
+    @Override
+    public String toString() {
+        return "EstadisticasPool{" + "activas=" + conexionesActivas + ", inactivas=" + conexionesInactivas
+                + ", esperando=" + hilosEsperando + ", prestamos=" + prestamos + ", creadas=" + conexionesCreadas
+                + ", descartadas=" + conexionesDescartadas + ", esperasAgotadas=" + esperasAgotadas
+                + ", fugas=" + fugasDetectadas + ", esperaMediaMs=" + String.format("%.3f", getEsperaMediaMs())
+                + ", sentenciasReutilizadas=" + sentenciasReutilizadas + ", sentenciasPreparadas=" + sentenciasPreparadas
+                + ", tasaAciertosSentencias=" + String.format("%.3f", getTasaAciertosSentencias()) + '}';
+    }
+}
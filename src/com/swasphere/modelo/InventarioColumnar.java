@@ -0,0 +1,266 @@
+package com.swasphere.modelo;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Instantánea del inventario organizada por columnas en arreglos primitivos,
+ * pensada para análisis sobre millones de productos. Los nombres se guardan
+ * codificados en UTF-8 en un único arreglo de bytes, las cantidades en un
+ * int[] y los precios en punto fijo con cuatro decimales en un long[], de
+ * modo que cada producto ocupa unos pocos bytes más que su nombre en lugar
+ * de un objeto Producto con su String.
+ *
+ * Las agregaciones recorren los arreglos de forma secuencial con bucles
+ * simples que la máquina virtual puede vectorizar. La instantánea es
+ * inmutable y puede compartirse entre hilos.
+ *
+ * @autor ljsanchez23
+ */
+public class InventarioColumnar {
+
+    /**
+     * Factor de escala de los precios: un precio se guarda como
+     * Math.round(precio * ESCALA_PRECIO).
+     */
+    public static final long ESCALA_PRECIO = 10_000;
+
+    private final int tamano;
+    // Los arreglos los leen también ArchivoColumnar al escribir la instantánea
+    final byte[] nombres;
+    final int[] inicioNombre;
+    final int[] cantidades;
+    final long[] precios;
+
+    InventarioColumnar(int tamano, byte[] nombres, int[] inicioNombre, int[] cantidades, long[] precios) {
+        this.tamano = tamano;
+        this.nombres = nombres;
+        this.inicioNombre = inicioNombre;
+        this.cantidades = cantidades;
+        this.precios = precios;
+    }
+
+    /**
+     * Construye la instantánea recorriendo el inventario sin cargarlo antes
+     * como lista de objetos.
+     *
+     * @param productoRepository El repositorio de productos a recorrer.
+     * @return La instantánea del inventario.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    public static InventarioColumnar cargar(ProductoRepository productoRepository) throws SQLException {
+        Acumulador acumulador = new Acumulador();
+        productoRepository.recorrerProductos(acumulador::agregar);
+        return acumulador.construir();
+    }
+
+    /**
+     * Construye la instantánea a partir de productos ya cargados.
+     *
+     * @param productos Los productos del inventario.
+     * @return La instantánea del inventario.
+     */
+    public static InventarioColumnar desde(Iterable<Producto> productos) {
+        Acumulador acumulador = new Acumulador();
+        for (Producto producto : productos) {
+            acumulador.agregar(producto);
+        }
+        return acumulador.construir();
+    }
+
+    /**
+     * Obtiene el número de productos.
+     *
+     * @return El número de productos de la instantánea.
+     */
+    public int getTamano() {
+        return tamano;
+    }
+
+    /**
+     * Obtiene el nombre de un producto. El String se crea en cada llamada.
+     *
+     * @param indice La posición del producto.
+     * @return El nombre del producto.
+     */
+    public String getNombre(int indice) {
+        int inicio = inicioNombre[indice];
+        return new String(nombres, inicio, inicioNombre[indice + 1] - inicio, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Obtiene la cantidad de un producto.
+     *
+     * @param indice La posición del producto.
+     * @return La cantidad del producto.
+     */
+    public int getCantidad(int indice) {
+        return cantidades[indice];
+    }
+
+    /**
+     * Obtiene el precio de un producto.
+     *
+     * @param indice La posición del producto.
+     * @return El precio del producto.
+     */
+    public double getPrecio(int indice) {
+        return (double) precios[indice] / ESCALA_PRECIO;
+    }
+
+    /**
+     * Obtiene el precio de un producto en punto fijo.
+     *
+     * @param indice La posición del producto.
+     * @return El precio multiplicado por ESCALA_PRECIO.
+     */
+    public long getPrecioFijo(int indice) {
+        return precios[indice];
+    }
+
+    /**
+     * Crea un objeto Producto con los datos de una posición.
+     *
+     * @param indice La posición del producto.
+     * @return Un nuevo objeto Producto.
+     */
+    public Producto getProducto(int indice) {
+        return new Producto(getNombre(indice), getCantidad(indice), getPrecio(indice));
+    }
+
+    /**
+     * Calcula el total de unidades en existencia.
+     *
+     * @return La suma de las cantidades.
+     */
+    public long getTotalUnidades() {
+        long total = 0;
+        for (int i = 0; i < tamano; i++) {
+            total += cantidades[i];
+        }
+        return total;
+    }
+
+    /**
+     * Calcula la valoración del inventario en punto fijo, sumando cantidad por
+     * precio de cada producto. Es exacta mientras el total no supere unos
+     * 9,2e14 unidades monetarias.
+     *
+     * @return La valoración multiplicada por ESCALA_PRECIO.
+     */
+    public long getValoracionTotalFija() {
+        long total = 0;
+        for (int i = 0; i < tamano; i++) {
+            total += cantidades[i] * precios[i];
+        }
+        return total;
+    }
+
+    /**
+     * Calcula la valoración del inventario.
+     *
+     * @return La suma de cantidad por precio de cada producto.
+     */
+    public double getValoracionTotal() {
+        return (double) getValoracionTotalFija() / ESCALA_PRECIO;
+    }
+
+    /**
+     * Obtiene el precio mínimo del inventario.
+     *
+     * @return El precio mínimo, o NaN si el inventario está vacío.
+     */
+    public double getPrecioMinimo() {
+        if (tamano == 0) {
+            return Double.NaN;
+        }
+        long minimo = Long.MAX_VALUE;
+        for (int i = 0; i < tamano; i++) {
+            minimo = Math.min(minimo, precios[i]);
+        }
+        return (double) minimo / ESCALA_PRECIO;
+    }
+
+    /**
+     * Obtiene el precio máximo del inventario.
+     *
+     * @return El precio máximo, o NaN si el inventario está vacío.
+     */
+    public double getPrecioMaximo() {
+        if (tamano == 0) {
+            return Double.NaN;
+        }
+        long maximo = Long.MIN_VALUE;
+        for (int i = 0; i < tamano; i++) {
+            maximo = Math.max(maximo, precios[i]);
+        }
+        return (double) maximo / ESCALA_PRECIO;
+    }
+
+    /**
+     * Estima la memoria ocupada por los arreglos de la instantánea,
+     * incluidas las cabeceras de los arreglos.
+     *
+     * @return El número aproximado de bytes.
+     */
+    public long getBytesEstimados() {
+        return bytesArreglo(nombres.length, 1) + bytesArreglo(inicioNombre.length, 4)
+                + bytesArreglo(cantidades.length, 4) + bytesArreglo(precios.length, 8);
+    }
+
+    private static long bytesArreglo(int longitud, int bytesElemento) {
+        // Cabecera de 16 bytes y relleno a múltiplos de 8
+        return (16 + (long) longitud * bytesElemento + 7) & ~7L;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con el resumen de la instantánea.
+     */
+    @Override
+    public String toString() {
+        return "InventarioColumnar{" + "productos=" + tamano + ", unidades=" + getTotalUnidades()
+                + ", valoracion=" + getValoracionTotal() + ", bytes=" + getBytesEstimados() + '}';
+    }
+
+    /**
+     * Acumula productos en arreglos que crecen al doble y se recortan al
+     * terminar.
+     */
+    private static final class Acumulador {
+
+        private byte[] nombres = new byte[1024];
+        private int[] inicioNombre = new int[65];
+        private int[] cantidades = new int[64];
+        private long[] precios = new long[64];
+        private int tamano;
+        private int bytesNombres;
+
+        private void agregar(Producto producto) {
+            if (tamano == cantidades.length) {
+                int capacidad = cantidades.length * 2;
+                cantidades = Arrays.copyOf(cantidades, capacidad);
+                precios = Arrays.copyOf(precios, capacidad);
+                inicioNombre = Arrays.copyOf(inicioNombre, capacidad + 1);
+            }
+            byte[] nombre = producto.getNombre().getBytes(StandardCharsets.UTF_8);
+            if (bytesNombres + nombre.length > nombres.length) {
+                nombres = Arrays.copyOf(nombres, Math.max(nombres.length * 2, bytesNombres + nombre.length));
+            }
+            System.arraycopy(nombre, 0, nombres, bytesNombres, nombre.length);
+            bytesNombres += nombre.length;
+            cantidades[tamano] = producto.getCantidad();
+            precios[tamano] = Math.round(producto.getPrecio() * ESCALA_PRECIO);
+            tamano++;
+            inicioNombre[tamano] = bytesNombres;
+        }
+
+        private InventarioColumnar construir() {
+            return new InventarioColumnar(tamano, Arrays.copyOf(nombres, bytesNombres),
+                    Arrays.copyOf(inicioNombre, tamano + 1), Arrays.copyOf(cantidades, tamano),
+                    Arrays.copyOf(precios, tamano));
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.swasphere.modelo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Aplica en orden las migraciones del esquema de la base de datos que aún no
+ * se han aplicado, registrando cada versión en la tabla esquema_version.
+ *
+ * @autor ljsanchez23
+ */
+public class MigradorEsquema {
+
+    private static final Logger LOGGER = Logger.getLogger(MigradorEsquema.class.getName());
+
+    // Bloqueo con nombre para que dos clientes no migren a la vez
+    private static final String BLOQUEO = "supplyswasphere_migraciones";
+
+    // Errores de MySQL al añadir una columna o un índice que ya existe: MySQL
+    // no admite IF NOT EXISTS en esas sentencias
+    private static final int ER_DUP_FIELDNAME = 1060;
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    private static final List<Migracion> MIGRACIONES = new ArrayList<>();
+
+    static {
+        MIGRACIONES.add(new Migracion(1, "Tablas base",
+                "CREATE TABLE IF NOT EXISTS productos ("
+                + " nombre VARCHAR(255) NOT NULL,"
+                + " cantidad INT NOT NULL,"
+                + " precio DOUBLE NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS usuarios ("
+                + " nombreUsuario VARCHAR(100) NOT NULL PRIMARY KEY,"
+                + " password VARCHAR(255) NOT NULL)"));
+        MIGRACIONES.add(new Migracion(2, "Nombre normalizado indexado para búsquedas sin distinguir mayúsculas",
+                "ALTER TABLE productos ADD COLUMN nombre_normalizado VARCHAR(255)"
+                + " AS (LOWER(TRIM(nombre))) STORED",
+                "CREATE INDEX idx_productos_nombre_normalizado ON productos (nombre_normalizado)",
+                "CREATE INDEX idx_productos_nombre ON productos (nombre)"));
+        MIGRACIONES.add(new Migracion(3, "Seguimiento de cambios con secuencia global y marcas de eliminación",
+                "CREATE TABLE IF NOT EXISTS secuencia_cambios ("
+                + " id TINYINT NOT NULL PRIMARY KEY,"
+                + " valor BIGINT NOT NULL)",
+                "INSERT IGNORE INTO secuencia_cambios (id, valor) VALUES (1, 0)",
+                "ALTER TABLE productos ADD COLUMN cambio BIGINT NOT NULL DEFAULT 0",
+                "CREATE INDEX idx_productos_cambio ON productos (cambio)",
+                "CREATE TABLE IF NOT EXISTS productos_eliminados ("
+                + " nombre_normalizado VARCHAR(255) NOT NULL PRIMARY KEY,"
+                + " nombre VARCHAR(255) NOT NULL,"
+                + " cambio BIGINT NOT NULL,"
+                + " INDEX idx_productos_eliminados_cambio (cambio))",
+                // El bloqueo de la fila de secuencia dura hasta la confirmación,
+                // así que el orden de los números coincide con el de confirmación
+                "DROP TRIGGER IF EXISTS productos_cambio_insercion",
+                "CREATE TRIGGER productos_cambio_insercion BEFORE INSERT ON productos FOR EACH ROW BEGIN"
+                + " UPDATE secuencia_cambios SET valor = valor + 1 WHERE id = 1;"
+                + " SET NEW.cambio = (SELECT valor FROM secuencia_cambios WHERE id = 1);"
+                + " END",
+                "DROP TRIGGER IF EXISTS productos_cambio_actualizacion",
+                "CREATE TRIGGER productos_cambio_actualizacion BEFORE UPDATE ON productos FOR EACH ROW BEGIN"
+                + " UPDATE secuencia_cambios SET valor = valor + 1 WHERE id = 1;"
+                + " SET NEW.cambio = (SELECT valor FROM secuencia_cambios WHERE id = 1);"
+                + " END",
+                "DROP TRIGGER IF EXISTS productos_cambio_eliminacion",
+                "CREATE TRIGGER productos_cambio_eliminacion AFTER DELETE ON productos FOR EACH ROW BEGIN"
+                + " DECLARE siguiente BIGINT;"
+                + " UPDATE secuencia_cambios SET valor = valor + 1 WHERE id = 1;"
+                + " SELECT valor INTO siguiente FROM secuencia_cambios WHERE id = 1;"
+                + " INSERT INTO productos_eliminados (nombre_normalizado, nombre, cambio)"
+                + " VALUES (OLD.nombre_normalizado, OLD.nombre, siguiente)"
+                + " ON DUPLICATE KEY UPDATE nombre = OLD.nombre, cambio = siguiente;"
+                + " END"));
+        MIGRACIONES.add(new Migracion(4, "Versión de fila para modificaciones optimistas",
+                "ALTER TABLE productos ADD COLUMN version BIGINT NOT NULL DEFAULT 0",
+                "DROP TRIGGER IF EXISTS productos_cambio_actualizacion",
+                "CREATE TRIGGER productos_cambio_actualizacion BEFORE UPDATE ON productos FOR EACH ROW BEGIN"
+                + " UPDATE secuencia_cambios SET valor = valor + 1 WHERE id = 1;"
+                + " SET NEW.cambio = (SELECT valor FROM secuencia_cambios WHERE id = 1);"
+                + " SET NEW.version = OLD.version + 1;"
+                + " END"));
+        MIGRACIONES.add(new Migracion(5, "Índices de cantidad y precio para los informes del inventario",
+                "CREATE INDEX idx_productos_cantidad ON productos (cantidad)",
+                "CREATE INDEX idx_productos_precio ON productos (precio)"));
+        // Hasta esta versión MySQL aceptaba dos productos con el mismo nombre
+        // normalizado; de cada grupo repetido se conserva la fila modificada en
+        // último lugar. Todas las sentencias se pueden repetir si la migración
+        // se interrumpe, y la última cambia el índice de forma atómica
+        MIGRACIONES.add(new Migracion(6, "Nombre normalizado único",
+                "CREATE TABLE IF NOT EXISTS productos_duplicados ("
+                + " nombre_normalizado VARCHAR(255) NOT NULL PRIMARY KEY,"
+                + " cambio BIGINT NOT NULL DEFAULT 0)",
+                "INSERT IGNORE INTO productos_duplicados (nombre_normalizado)"
+                + " SELECT nombre_normalizado FROM productos GROUP BY nombre_normalizado HAVING COUNT(*) > 1",
+                // Renumera los repetidos en su orden de modificación para
+                // deshacer los empates de las filas anteriores a la versión 3
+                "UPDATE productos SET cantidad = cantidad"
+                + " WHERE nombre_normalizado IN (SELECT nombre_normalizado FROM productos_duplicados)"
+                + " ORDER BY cambio",
+                "UPDATE productos_duplicados d SET d.cambio ="
+                + " (SELECT MAX(p.cambio) FROM productos p WHERE p.nombre_normalizado = d.nombre_normalizado)",
+                "DELETE FROM productos WHERE EXISTS (SELECT 1 FROM productos_duplicados d"
+                + " WHERE d.nombre_normalizado = productos.nombre_normalizado AND productos.cambio < d.cambio)",
+                // La eliminación deja marcas posteriores a la fila conservada;
+                // se vuelve a modificar para que quien siga los cambios no la
+                // dé por eliminada
+                "UPDATE productos SET cantidad = cantidad"
+                + " WHERE nombre_normalizado IN (SELECT nombre_normalizado FROM productos_duplicados)",
+                "DROP TABLE IF EXISTS productos_duplicados",
+                "ALTER TABLE productos DROP INDEX idx_productos_nombre_normalizado,"
+                + " ADD UNIQUE INDEX idx_productos_nombre_normalizado (nombre_normalizado)"));
+        // La fila única de secuencia_cambios quedaba bloqueada hasta la
+        // confirmación de cada escritura, lo que serializaba a todos los
+        // escritores y podía provocar interbloqueos en las transacciones de
+        // varias filas. Ahora cada cambio reserva su número con AUTO_INCREMENT,
+        // que no espera a la confirmación, y anota cuándo lo reservó para que
+        // ProductoDAO sepa qué huecos pueden pertenecer a transacciones en curso
+        MIGRACIONES.add(new Migracion(7, "Registro de cambios sin bloqueo global",
+                "CREATE TABLE IF NOT EXISTS registro_cambios ("
+                + " cambio BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+                + " reservado DATETIME(3) NOT NULL)",
+                // La numeración continúa la anterior; los números por debajo
+                // del menor registrado se dan por confirmados
+                "INSERT INTO registro_cambios (cambio, reservado)"
+                + " SELECT GREATEST((SELECT COALESCE(MAX(cambio), 0) FROM productos),"
+                + " (SELECT COALESCE(MAX(cambio), 0) FROM productos_eliminados)) + 1, SYSDATE(3)"
+                + " FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM registro_cambios)",
+                // SYSDATE y no NOW: la hora de la reserva, no la del inicio de la sentencia
+                "DROP TRIGGER IF EXISTS productos_cambio_insercion",
+                "CREATE TRIGGER productos_cambio_insercion BEFORE INSERT ON productos FOR EACH ROW BEGIN"
+                + " INSERT INTO registro_cambios (reservado) VALUES (SYSDATE(3));"
+                + " SET NEW.cambio = LAST_INSERT_ID();"
+                + " END",
+                "DROP TRIGGER IF EXISTS productos_cambio_actualizacion",
+                "CREATE TRIGGER productos_cambio_actualizacion BEFORE UPDATE ON productos FOR EACH ROW BEGIN"
+                + " INSERT INTO registro_cambios (reservado) VALUES (SYSDATE(3));"
+                + " SET NEW.cambio = LAST_INSERT_ID();"
+                + " SET NEW.version = OLD.version + 1;"
+                + " END",
+                "DROP TRIGGER IF EXISTS productos_cambio_eliminacion",
+                "CREATE TRIGGER productos_cambio_eliminacion AFTER DELETE ON productos FOR EACH ROW BEGIN"
+                + " DECLARE siguiente BIGINT;"
+                + " INSERT INTO registro_cambios (reservado) VALUES (SYSDATE(3));"
+                + " SET siguiente = LAST_INSERT_ID();"
+                + " INSERT INTO productos_eliminados (nombre_normalizado, nombre, cambio)"
+                + " VALUES (OLD.nombre_normalizado, OLD.nombre, siguiente)"
+                + " ON DUPLICATE KEY UPDATE nombre = OLD.nombre, cambio = siguiente;"
+                + " END",
+                "DROP TABLE IF EXISTS secuencia_cambios"));
+        // Sin intercalación explícita el nombre normalizado heredaba la de la
+        // tabla, que en MySQL 8 no distingue acentos: el índice único
+        // rechazaba "Café" si existía "Cafe" y las búsquedas devolvían
+        // variantes que no coincidían con las claves de Java
+        MIGRACIONES.add(new Migracion(8, "Nombre normalizado con intercalación binaria",
+                "ALTER TABLE productos MODIFY COLUMN nombre_normalizado VARCHAR(255)"
+                + " CHARACTER SET utf8mb4 COLLATE utf8mb4_bin AS (LOWER(TRIM(nombre))) STORED",
+                "ALTER TABLE productos_eliminados MODIFY COLUMN nombre_normalizado VARCHAR(255)"
+                + " CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL"));
+        // Una escritura que falla o se deshace deja sin usar los números que
+        // reservó. Los disparadores los anotan en una variable de sesión, que
+        // no se deshace con la transacción, para que ProductoDAO los registre
+        // como vacíos en lugar de esperar a que el hueco se resuelva por tiempo
+        MIGRACIONES.add(new Migracion(9, "Números de cambio reservados por sesión",
+                "DROP TRIGGER IF EXISTS productos_cambio_insercion",
+                "CREATE TRIGGER productos_cambio_insercion BEFORE INSERT ON productos FOR EACH ROW BEGIN"
+                + " INSERT INTO registro_cambios (reservado) VALUES (SYSDATE(3));"
+                + " SET NEW.cambio = LAST_INSERT_ID();"
+                + " SET @cambios_reservados = CONCAT_WS(',', @cambios_reservados, NEW.cambio);"
+                + " END",
+                "DROP TRIGGER IF EXISTS productos_cambio_actualizacion",
+                "CREATE TRIGGER productos_cambio_actualizacion BEFORE UPDATE ON productos FOR EACH ROW BEGIN"
+                + " INSERT INTO registro_cambios (reservado) VALUES (SYSDATE(3));"
+                + " SET NEW.cambio = LAST_INSERT_ID();"
+                + " SET NEW.version = OLD.version + 1;"
+                + " SET @cambios_reservados = CONCAT_WS(',', @cambios_reservados, NEW.cambio);"
+                + " END",
+                "DROP TRIGGER IF EXISTS productos_cambio_eliminacion",
+                "CREATE TRIGGER productos_cambio_eliminacion AFTER DELETE ON productos FOR EACH ROW BEGIN"
+                + " DECLARE siguiente BIGINT;"
+                + " INSERT INTO registro_cambios (reservado) VALUES (SYSDATE(3));"
+                + " SET siguiente = LAST_INSERT_ID();"
+                + " SET @cambios_reservados = CONCAT_WS(',', @cambios_reservados, siguiente);"
+                + " INSERT INTO productos_eliminados (nombre_normalizado, nombre, cambio)"
+                + " VALUES (OLD.nombre_normalizado, OLD.nombre, siguiente)"
+                + " ON DUPLICATE KEY UPDATE nombre = OLD.nombre, cambio = siguiente;"
+                + " END"));
+    }
+
+    /**
+     * Obtiene la última versión del esquema conocida por la aplicación.
+     *
+     * @return La versión de la última migración.
+     */
+    public static int getVersionActual() {
+        return MIGRACIONES.get(MIGRACIONES.size() - 1).version;
+    }
+
+    /**
+     * Aplica las migraciones pendientes usando una conexión del pool.
+     *
+     * @return El número de migraciones aplicadas.
+     * @throws SQLException Si alguna migración falla.
+     */
+    public int migrar() throws SQLException {
+        try (Connection connection = ConexionPool.getInstancia().getConnection()) {
+            return migrar(connection);
+        }
+    }
+
+    /**
+     * Aplica las migraciones pendientes. Las sentencias DDL de MySQL confirman
+     * implícitamente, por lo que cada versión se registra justo después de
+     * aplicarse y sus sentencias se pueden repetir para reanudar tras un
+     * fallo.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return El número de migraciones aplicadas.
+     * @throws SQLException Si alguna migración falla.
+     */
+    public int migrar(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS esquema_version ("
+                    + " version INT NOT NULL PRIMARY KEY,"
+                    + " descripcion VARCHAR(200) NOT NULL,"
+                    + " aplicada_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+        bloquear(connection);
+        try {
+            int versionActual = leerVersion(connection);
+            int aplicadas = 0;
+            for (Migracion migracion : MIGRACIONES) {
+                if (migracion.version > versionActual) {
+                    aplicar(connection, migracion);
+                    aplicadas++;
+                }
+            }
+            return aplicadas;
+        } finally {
+            desbloquear(connection);
+        }
+    }
+
+    private int leerVersion(Connection connection) throws SQLException {
+        String sql = "SELECT COALESCE(MAX(version), 0) FROM esquema_version";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql); ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void aplicar(Connection connection, Migracion migracion) throws SQLException {
+        LOGGER.log(Level.INFO, "Aplicando migración {0}: {1}", new Object[]{migracion.version, migracion.descripcion});
+        try (Statement statement = connection.createStatement()) {
+            for (String sentencia : migracion.sentencias) {
+                for (String adaptada : adaptar(sentencia)) {
+                    try {
+                        statement.execute(adaptada);
+                    } catch (SQLException e) {
+                        if (e.getErrorCode() != ER_DUP_FIELDNAME && e.getErrorCode() != ER_DUP_KEYNAME) {
+                            throw e;
+                        }
+                        // Se aplicó en un intento anterior que no llegó a registrar la versión
+                        LOGGER.log(Level.INFO, "Sentencia ya aplicada: {0}", e.getMessage());
+                    }
+                }
+            }
+        }
+        String sql = "INSERT INTO esquema_version (version, descripcion) VALUES (?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, migracion.version);
+            pstmt.setString(2, migracion.descripcion);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Adapta una sentencia de migración a la base de datos. Las migraciones
+     * están escritas para MySQL y por omisión se ejecutan sin cambios; una
+     * base de datos compatible con MySQL en lo demás puede redefinir este
+     * método para sustituir las sentencias que no admite.
+     *
+     * @param sentencia La sentencia escrita para MySQL.
+     * @return Las sentencias a ejecutar en su lugar, en orden.
+     */
+    protected String[] adaptar(String sentencia) {
+        return new String[]{sentencia};
+    }
+
+    /**
+     * Obtiene el bloqueo de migraciones, esperando hasta 60 segundos si otro
+     * cliente está migrando.
+     *
+     * @param connection La conexión a la base de datos.
+     * @throws SQLException Si no se puede obtener el bloqueo.
+     */
+    protected void bloquear(Connection connection) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT GET_LOCK(?, 60)")) {
+            pstmt.setString(1, BLOQUEO);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("No se pudo obtener el bloqueo de migraciones");
+                }
+            }
+        }
+    }
+
+    /**
+     * Libera el bloqueo de migraciones.
+     *
+     * @param connection La conexión a la base de datos.
+     */
+    protected void desbloquear(Connection connection) {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, BLOQUEO);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Una versión del esquema y las sentencias que la aplican.
+     */
+    private static final class Migracion {
+
+        private final int version;
+        private final String descripcion;
+        private final String[] sentencias;
+
+        private Migracion(int version, String descripcion, String... sentencias) {
+            this.version = version;
+            this.descripcion = descripcion;
+            this.sentencias = sentencias;
+        }
+    }
+}
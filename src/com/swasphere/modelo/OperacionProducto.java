@@ -0,0 +1,136 @@
+package com.swasphere.modelo;
+
+/**
+ * Escritura pendiente sobre un producto dentro de una transacción: una
+ * inserción, una eliminación o una actualización que puede fijar la cantidad,
+ * sumarle unidades y fijar el precio a la vez.
+ *
+ * @autor ljsanchez23
+ */
+public class OperacionProducto {
+
+    /**
+     * Tipos de operación.
+     */
+    public enum Tipo {
+        INSERTAR, ACTUALIZAR, ELIMINAR
+    }
+
+    private final Tipo tipo;
+    private final String nombre;
+    private final Producto producto;
+    private final Integer cantidad;
+    private final int delta;
+    private final Double precio;
+
+    private OperacionProducto(Tipo tipo, String nombre, Producto producto, Integer cantidad, int delta, Double precio) {
+        this.tipo = tipo;
+        this.nombre = nombre;
+        this.producto = producto;
+        this.cantidad = cantidad;
+        this.delta = delta;
+        this.precio = precio;
+    }
+
+    /**
+     * Crea una inserción.
+     *
+     * @param producto El producto a agregar.
+     * @return La operación.
+     */
+    public static OperacionProducto insertar(Producto producto) {
+        return new OperacionProducto(Tipo.INSERTAR, producto.getNombre(), producto, null, 0, null);
+    }
+
+    /**
+     * Crea una eliminación.
+     *
+     * @param nombre El nombre del producto a eliminar.
+     * @return La operación.
+     */
+    public static OperacionProducto eliminar(String nombre) {
+        return new OperacionProducto(Tipo.ELIMINAR, nombre, null, null, 0, null);
+    }
+
+    /**
+     * Crea una actualización. La cantidad final es la cantidad indicada, o la
+     * almacenada si es null, más el delta.
+     *
+     * @param nombre El nombre del producto.
+     * @param cantidad La nueva cantidad, o null para conservar la actual.
+     * @param delta Las unidades a sumar a la cantidad.
+     * @param precio El nuevo precio, o null para conservar el actual.
+     * @return La operación.
+     */
+    public static OperacionProducto actualizar(String nombre, Integer cantidad, int delta, Double precio) {
+        return new OperacionProducto(Tipo.ACTUALIZAR, nombre, null, cantidad, delta, precio);
+    }
+
+    /**
+     * Obtiene el tipo de la operación.
+     *
+     * @return El tipo.
+     */
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtiene el nombre del producto afectado.
+     *
+     * @return El nombre del producto.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Obtiene el producto a insertar.
+     *
+     * @return El producto, o null si la operación no es una inserción.
+     */
+    public Producto getProducto() {
+        return producto;
+    }
+
+    /**
+     * Obtiene la cantidad a fijar.
+     *
+     * @return La cantidad, o null para conservar la almacenada.
+     */
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    /**
+     * Obtiene las unidades a sumar a la cantidad.
+     *
+     * @return El delta de la cantidad.
+     */
+    public int getDelta() {
+        return delta;
+    }
+
+    /**
+     * Obtiene el precio a fijar.
+     *
+     * @return El precio, o null para conservar el almacenado.
+     */
+    public Double getPrecio() {
+        return precio;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con los detalles de la operación.
+     */
+    @Override
+    public String toString() {
+        return "OperacionProducto{" + "tipo=" + tipo + ", nombre='" + nombre + '\''
+                + (producto != null ? ", producto=" + producto : "")
+                + (cantidad != null ? ", cantidad=" + cantidad : "")
+                + (delta != 0 ? ", delta=" + delta : "")
+                + (precio != null ? ", precio=" + precio : "") + '}';
+    }
+}
@@ -1,5 +1,7 @@
 package com.swasphere.modelo;
 
+import java.util.Locale;
+
 /**
  * Representa un producto en el sistema.
  *
@@ -12,6 +14,9 @@ public class Producto {
     private int cantidad;
     private double precio;
 
+    // Versión de la fila, se incrementa con cada modificación
+    private long version;
+
     /**
      * Constructor de la clase Producto.
      *
@@ -25,6 +30,52 @@ public class Producto {
         this.precio = precio;
     }
 
+    /**
+     * Constructor de la clase Producto.
+     *
+     * @param nombre El nombre del producto.
+     * @param cantidad La cantidad del producto.
+     * @param precio El precio del producto.
+     * @param version La versión de la fila leída.
+     */
+    public Producto(String nombre, int cantidad, double precio, long version) {
+        this(nombre, cantidad, precio);
+        this.version = version;
+    }
+
+    /**
+     * Constructor de copia de la clase Producto.
+     *
+     * @param otro El producto a copiar.
+     */
+    public Producto(Producto otro) {
+        this(otro.nombre, otro.cantidad, otro.precio, otro.version);
+    }
+
+    /**
+     * Normaliza un nombre de producto para compararlo sin distinguir
+     * mayúsculas ni espacios en los extremos. Sólo quita espacios, igual que
+     * el TRIM de la columna nombre_normalizado, para que las claves de Java
+     * coincidan con las de la base de datos.
+     *
+     * @param nombre El nombre del producto.
+     * @return El nombre normalizado, o null si el nombre es null.
+     */
+    public static String normalizarNombre(String nombre) {
+        if (nombre == null) {
+            return null;
+        }
+        int inicio = 0;
+        int fin = nombre.length();
+        while (inicio < fin && nombre.charAt(inicio) == ' ') {
+            inicio++;
+        }
+        while (fin > inicio && nombre.charAt(fin - 1) == ' ') {
+            fin--;
+        }
+        return nombre.substring(inicio, fin).toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Obtiene el nombre del producto.
      *
@@ -79,6 +130,26 @@ public class Producto {
         this.precio = precio;
     }
 
+    /**
+     * Obtiene la versión de la fila de la que se leyó el producto. Las
+     * modificaciones condicionales sólo se aplican si la versión almacenada
+     * sigue siendo ésta.
+     *
+     * @return La versión del producto.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Establece la versión del producto.
+     *
+     * @param version La versión del producto.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     /**
      * Método que permite crear una descripción textual del objeto.
      *
@@ -86,6 +157,6 @@ public class Producto {
      */
     @Override
     public String toString() {
-        return "Producto{" + "nombre='" + nombre + '\'' + ", cantidad=" + cantidad + ", precio=" + precio + '}';
+        return "Producto{" + "nombre='" + nombre + '\'' + ", cantidad=" + cantidad + ", precio=" + precio + ", version=" + version + '}';
     }
 }
@@ -1,11 +1,29 @@
 package com.swasphere.modelo;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Clase que maneja las operaciones de la base de datos para la entidad
@@ -13,19 +31,92 @@ import java.util.List;
  *
  * @autor ljsanchez23
  */
-public class ProductoDAO {
+public class ProductoDAO implements ProductoRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(ProductoDAO.class.getName());
+
+    // Tiempo tras el que un hueco del registro de cambios se da por deshecho
+    // cuando no se pueden leer las transacciones activas. Los huecos de las
+    // escrituras que fallan en esta aplicación se registran al momento; este
+    // plazo sólo cubre las transacciones de clientes que perdieron la conexión
+    private static final long ESPERA_CAMBIOS_MS = Long.getLong("CAMBIOS_ESPERA_MS", 60_000L);
+
+    // Cada cuánto se borran los números ya confirmados de registro_cambios
+    private static final long INTERVALO_PODA_MS = 10_000L;
+
+    private static final AtomicLong ULTIMA_PODA = new AtomicLong();
+    private static volatile boolean transaccionesVisibles = true;
 
     private Connection conn;
+    private int tamanoLote = 1000;
+    private int tamanoFetch = 1000;
+
+    /**
+     * Constructor de la clase ProductoDAO. Cada operación toma prestada una
+     * conexión del pool de la aplicación y la devuelve al terminar.
+     */
+    public ProductoDAO() {
+        this(null);
+    }
 
     /**
      * Constructor de la clase ProductoDAO.
      *
-     * @param conn La conexión a la base de datos.
+     * @param conn La conexión a la base de datos. El llamador es responsable
+     * de cerrarla.
      */
     public ProductoDAO(Connection conn) {
         this.conn = conn;
     }
 
+    /**
+     * Establece cuántas filas se envían en cada lote de las operaciones
+     * masivas. Cada lote se confirma en su propia transacción.
+     *
+     * @param tamanoLote El número de filas por lote.
+     */
+    public void setTamanoLote(int tamanoLote) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
+        }
+        this.tamanoLote = tamanoLote;
+    }
+
+    /**
+     * Obtiene cuántas filas se envían en cada lote de las operaciones masivas.
+     *
+     * @return El número de filas por lote.
+     */
+    public int getTamanoLote() {
+        return tamanoLote;
+    }
+
+    /**
+     * Establece cuántas filas se piden al servidor en cada viaje durante los
+     * recorridos del inventario. Con MySQL Connector/J el recorrido sólo se
+     * hace por cursor si la URL incluye useCursorFetch=true; con
+     * Integer.MIN_VALUE el driver transmite las filas una a una.
+     *
+     * @param tamanoFetch El número de filas por viaje.
+     */
+    public void setTamanoFetch(int tamanoFetch) {
+        this.tamanoFetch = tamanoFetch;
+    }
+
+    /**
+     * Método para obtener una conexión a la base de datos.
+     *
+     * @return La conexión recibida en el constructor, o una conexión prestada
+     * por el pool si no se recibió ninguna.
+     * @throws SQLException Si no se puede obtener una conexión.
+     */
+    private Connection getConnection() throws SQLException {
+        if (conn != null) {
+            return ConexionPool.noCerrable(conn);
+        }
+        return ConexionPool.getInstancia().getConnection();
+    }
+
     /**
      * Inserta un nuevo producto en la base de datos.
      *
@@ -33,13 +124,14 @@ public class ProductoDAO {
      * @return true si el producto fue insertado exitosamente, false en caso
      * contrario.
      */
+    @Override
     public boolean agregarProducto(Producto producto) {
         String sql = "INSERT INTO productos (nombre, cantidad, precio) VALUES (?, ?, ?)";
-        try (PreparedStatement preparedStatement = conn.prepareStatement(sql)) {
+        try (Connection connection = getConnection(); PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setString(1, producto.getNombre());
             preparedStatement.setInt(2, producto.getCantidad());
             preparedStatement.setDouble(3, producto.getPrecio());
-            int result = preparedStatement.executeUpdate();
+            int result = escribir(connection, preparedStatement);
             return result > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -54,11 +146,12 @@ public class ProductoDAO {
      * @return true si el producto fue eliminado exitosamente, false en caso
      * contrario.
      */
+    @Override
     public boolean eliminarProducto(String nombre) {
-        String sql = "DELETE FROM productos WHERE nombre = ?";
-        try (PreparedStatement preparedStatement = conn.prepareStatement(sql)) {
-            preparedStatement.setString(1, nombre);
-            int result = preparedStatement.executeUpdate();
+        String sql = "DELETE FROM productos WHERE nombre_normalizado = ?";
+        try (Connection connection = getConnection(); PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, Producto.normalizarNombre(nombre));
+            int result = escribir(connection, preparedStatement);
             return result > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -75,12 +168,13 @@ public class ProductoDAO {
      * contrario.
      * @throws SQLException Si ocurre un error en la base de datos.
      */
+    @Override
     public boolean actualizarCantidad(String nombre, int nuevaCantidad) throws SQLException {
-        String sql = "UPDATE productos SET cantidad = ? WHERE nombre = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        String sql = "UPDATE productos SET cantidad = ? WHERE nombre_normalizado = ?";
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, nuevaCantidad);
-            pstmt.setString(2, nombre);
-            int affectedRows = pstmt.executeUpdate();
+            pstmt.setString(2, Producto.normalizarNombre(nombre));
+            int affectedRows = escribir(connection, pstmt);
             return affectedRows > 0;
         }
     }
@@ -94,16 +188,100 @@ public class ProductoDAO {
      * contrario.
      * @throws SQLException Si ocurre un error en la base de datos.
      */
+    @Override
     public boolean actualizarPrecio(String nombre, double nuevoPrecio) throws SQLException {
-        String sql = "UPDATE productos SET precio = ? WHERE nombre = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        String sql = "UPDATE productos SET precio = ? WHERE nombre_normalizado = ?";
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setDouble(1, nuevoPrecio);
-            pstmt.setString(2, nombre);
-            int affectedRows = pstmt.executeUpdate();
+            pstmt.setString(2, Producto.normalizarNombre(nombre));
+            int affectedRows = escribir(connection, pstmt);
             return affectedRows > 0;
         }
     }
 
+    /**
+     * Actualiza la cantidad de un producto sólo si su versión almacenada es
+     * la esperada. Cada modificación de la fila incrementa su versión, por lo
+     * que un cambio hecho por otro usuario desde la lectura provoca un
+     * conflicto en lugar de perderse.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevaCantidad La nueva cantidad del producto.
+     * @param versionEsperada La versión del producto que se leyó.
+     * @return El resultado con el estado actual del producto.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public ResultadoActualizacion actualizarCantidad(String nombre, int nuevaCantidad, long versionEsperada) throws SQLException {
+        String sql = "UPDATE productos SET cantidad = ? WHERE nombre_normalizado = ? AND version = ?";
+        return actualizarSiVersion(sql, nuevaCantidad, nombre, versionEsperada);
+    }
+
+    /**
+     * Actualiza el precio de un producto sólo si su versión almacenada es la
+     * esperada.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevoPrecio El nuevo precio del producto.
+     * @param versionEsperada La versión del producto que se leyó.
+     * @return El resultado con el estado actual del producto.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public ResultadoActualizacion actualizarPrecio(String nombre, double nuevoPrecio, long versionEsperada) throws SQLException {
+        String sql = "UPDATE productos SET precio = ? WHERE nombre_normalizado = ? AND version = ?";
+        return actualizarSiVersion(sql, nuevoPrecio, nombre, versionEsperada);
+    }
+
+    private ResultadoActualizacion actualizarSiVersion(String sql, Object valor, String nombre, long versionEsperada)
+            throws SQLException {
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setObject(1, valor);
+            pstmt.setString(2, Producto.normalizarNombre(nombre));
+            pstmt.setLong(3, versionEsperada);
+            boolean actualizado = escribir(connection, pstmt) > 0;
+            // Se relee la fila para devolver la versión nueva o la que causó el conflicto
+            Producto actual = buscarProducto(connection, nombre);
+            return actualizado && actual != null
+                    ? ResultadoActualizacion.actualizado(actual)
+                    : ResultadoActualizacion.rechazado(actual);
+        }
+    }
+
+    /**
+     * Suma una cantidad a las existencias de un producto con una única
+     * sentencia UPDATE. La nueva cantidad se guarda con LAST_INSERT_ID(expr),
+     * que MySQL conserva por conexión, para leerla sin volver a consultar la
+     * fila.
+     *
+     * @param nombre El nombre del producto.
+     * @param delta Las unidades a sumar; negativas para una salida.
+     * @param permitirNegativo false para rechazar el ajuste si las
+     * existencias quedarían por debajo de cero.
+     * @return La nueva cantidad, o null si el producto no existe o el ajuste
+     * fue rechazado.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public Integer ajustarCantidad(String nombre, int delta, boolean permitirNegativo) throws SQLException {
+        String sql = "UPDATE productos SET cantidad = LAST_INSERT_ID(cantidad + ?) WHERE nombre_normalizado = ?"
+                + (permitirNegativo ? "" : " AND cantidad + ? >= 0");
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, delta);
+            pstmt.setString(2, Producto.normalizarNombre(nombre));
+            if (!permitirNegativo) {
+                pstmt.setInt(3, delta);
+            }
+            if (escribir(connection, pstmt) == 0) {
+                return null;
+            }
+            try (PreparedStatement consulta = connection.prepareStatement("SELECT LAST_INSERT_ID()");
+                    ResultSet rs = consulta.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
     /**
      * Busca un producto por su nombre en la base de datos.
      *
@@ -112,16 +290,55 @@ public class ProductoDAO {
      * contrario.
      * @throws SQLException Si ocurre un error en la base de datos.
      */
+    @Override
     public Producto buscarProducto(String nombre) throws SQLException {
-        String sql = "SELECT * FROM productos WHERE LOWER(nombre) = LOWER(?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, nombre);
+        try (Connection connection = getConnection()) {
+            return buscarProducto(connection, nombre);
+        }
+    }
+
+    /**
+     * Averigua cuáles de varios productos existen, consultando en bloques
+     * de tamanoLote nombres.
+     *
+     * @param nombres Los nombres de los productos.
+     * @return Los nombres normalizados de los productos que existen.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public Set<String> buscarExistentes(Collection<String> nombres) throws SQLException {
+        List<String> claves = new ArrayList<>(nombres.size());
+        for (String nombre : nombres) {
+            claves.add(Producto.normalizarNombre(nombre));
+        }
+        Set<String> existentes = new HashSet<>();
+        try (Connection connection = getConnection()) {
+            for (int inicio = 0; inicio < claves.size(); inicio += tamanoLote) {
+                List<String> bloque = claves.subList(inicio, Math.min(inicio + tamanoLote, claves.size()));
+                String sql = "SELECT nombre_normalizado FROM productos WHERE nombre_normalizado IN ("
+                        + String.join(", ", Collections.nCopies(bloque.size(), "?")) + ")";
+                try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < bloque.size(); i++) {
+                        pstmt.setString(i + 1, bloque.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            existentes.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        }
+        return existentes;
+    }
+
+    private Producto buscarProducto(Connection connection, String nombre) throws SQLException {
+        String sql = "SELECT nombre, cantidad, precio, version FROM productos WHERE nombre_normalizado = ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, Producto.normalizarNombre(nombre));
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    String nombreProducto = rs.getString("nombre");
-                    int cantidad = rs.getInt("cantidad");
-                    double precio = rs.getDouble("precio");
-                    return new Producto(nombreProducto, cantidad, precio);
+                    return leerProducto(rs);
                 }
             }
         }
@@ -133,15 +350,17 @@ public class ProductoDAO {
      *
      * @return Una lista de objetos Producto.
      */
+    @Override
     public List<Producto> obtenerTodosProductos() {
         List<Producto> productos = new ArrayList<>();
         String sql = "SELECT * FROM productos";
-        try (PreparedStatement preparedStatement = conn.prepareStatement(sql); ResultSet resultSet = preparedStatement.executeQuery()) {
+        try (Connection connection = getConnection(); PreparedStatement preparedStatement = connection.prepareStatement(sql); ResultSet resultSet = preparedStatement.executeQuery()) {
             while (resultSet.next()) {
                 String nombre = resultSet.getString("nombre");
                 int cantidad = resultSet.getInt("cantidad");
                 double precio = resultSet.getDouble("precio");
-                Producto producto = new Producto(nombre, cantidad, precio);
+                long version = resultSet.getLong("version");
+                Producto producto = new Producto(nombre, cantidad, precio, version);
                 productos.add(producto);
             }
         } catch (SQLException e) {
@@ -150,20 +369,780 @@ public class ProductoDAO {
         return productos;
     }
 
+    /**
+     * Recorre todos los productos de la base de datos sin cargarlos en
+     * memoria, entregándolos uno a uno al consumidor a medida que se leen.
+     *
+     * @param consumidor La acción a ejecutar para cada producto.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public void recorrerProductos(Consumer<Producto> consumidor) throws SQLException {
+        String sql = "SELECT nombre, cantidad, precio, version FROM productos";
+        try (Connection connection = getConnection(); PreparedStatement pstmt = prepararRecorrido(connection, sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                consumidor.accept(leerProducto(rs));
+            }
+        }
+    }
+
+    /**
+     * Recorre todos los productos de la base de datos hasta que se cancela.
+     * La cancelación cancela la sentencia en el servidor, de modo que no hace
+     * falta leer las filas que quedan para cerrar el recorrido.
+     *
+     * @param consumidor La acción a ejecutar para cada producto.
+     * @param cancelacion La señal que detiene el recorrido.
+     * @throws SQLException Si ocurre un error en la base de datos que no se
+     * debe a la cancelación.
+     */
+    @Override
+    public void recorrerProductos(Consumer<Producto> consumidor, Cancelacion cancelacion) throws SQLException {
+        String sql = "SELECT nombre, cantidad, precio, version FROM productos";
+        try (Connection connection = getConnection(); PreparedStatement pstmt = prepararRecorrido(connection, sql)) {
+            cancelacion.registrar(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (!cancelacion.isCancelada() && rs.next()) {
+                    consumidor.accept(leerProducto(rs));
+                }
+            } finally {
+                cancelacion.registrar(null);
+            }
+        } catch (SQLException e) {
+            // La sentencia cancelada termina con un error que no hay que propagar
+            if (!cancelacion.isCancelada()) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Obtiene un flujo perezoso con todos los productos de la base de datos.
+     * El flujo mantiene una conexión prestada hasta cerrarse, por lo que debe
+     * usarse dentro de un try-with-resources.
+     *
+     * @return Un flujo de objetos Producto.
+     * @throws SQLException Si ocurre un error al abrir la consulta.
+     */
+    @Override
+    public Stream<Producto> streamProductos() throws SQLException {
+        String sql = "SELECT nombre, cantidad, precio, version FROM productos";
+        Connection connection = getConnection();
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            pstmt = prepararRecorrido(connection, sql);
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            cerrarSilenciosamente(rs, pstmt, connection);
+            throw e;
+        }
+        ResultSet resultSet = rs;
+        PreparedStatement statement = pstmt;
+        Spliterator<Producto> spliterator = new Spliterators.AbstractSpliterator<Producto>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Producto> accion) {
+                try {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    accion.accept(leerProducto(resultSet));
+                    return true;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Error al leer el inventario", e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> cerrarSilenciosamente(resultSet, statement, connection));
+    }
+
+    /**
+     * Obtiene una página de productos ordenados por nombre usando paginación
+     * por clave: la página empieza después del último nombre de la anterior,
+     * por lo que el coste no crece con el número de páginas recorridas.
+     *
+     * @param despuesDeNombre El último nombre de la página anterior, o null
+     * para obtener la primera página.
+     * @param limite El número máximo de productos de la página.
+     * @return Una lista con los productos de la página, vacía al final.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public List<Producto> obtenerPagina(String despuesDeNombre, int limite) throws SQLException {
+        String sql = despuesDeNombre == null
+                ? "SELECT nombre, cantidad, precio, version FROM productos ORDER BY nombre LIMIT ?"
+                : "SELECT nombre, cantidad, precio, version FROM productos WHERE nombre > ? ORDER BY nombre LIMIT ?";
+        List<Producto> pagina = new ArrayList<>(limite);
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int indice = 1;
+            if (despuesDeNombre != null) {
+                pstmt.setString(indice++, despuesDeNombre);
+            }
+            pstmt.setInt(indice, limite);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    pagina.add(leerProducto(rs));
+                }
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Obtiene la página de productos ordenados por nombre que empieza en una
+     * posición. La base de datos recorre el índice de nombres hasta la
+     * posición, así que las páginas sucesivas deben pedirse con obtenerPagina.
+     *
+     * @param posicion La posición del primer producto, empezando en cero.
+     * @param limite El número máximo de productos de la página.
+     * @return Una lista con los productos de la página, vacía al final.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public List<Producto> obtenerPaginaEnPosicion(int posicion, int limite) throws SQLException {
+        String sql = "SELECT nombre, cantidad, precio, version FROM productos ORDER BY nombre LIMIT ? OFFSET ?";
+        List<Producto> pagina = new ArrayList<>(limite);
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, limite);
+            pstmt.setInt(2, posicion);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    pagina.add(leerProducto(rs));
+                }
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Cuenta los productos de la base de datos.
+     *
+     * @return El número de productos.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public long contarProductos() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM productos";
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Obtiene el número de secuencia del último cambio confirmado. Una carga
+     * completa debe leerlo antes de recorrer la tabla para que los cambios
+     * posteriores se puedan pedir con obtenerCambiosDesde.
+     *
+     * @return El número del último cambio, o 0 si no hay cambios.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public long obtenerUltimoCambio() throws SQLException {
+        try (Connection connection = getConnection()) {
+            long ultimo = horizonte(connection, 0);
+            if (podaPendiente()) {
+                podar(connection, ultimo);
+            }
+            return ultimo;
+        }
+    }
+
+    /**
+     * Obtiene los productos insertados, actualizados o eliminados después de
+     * un cambio dado, en el orden en que se confirmaron. Los números se
+     * reservan sin esperar a la confirmación, así que sólo se devuelven los
+     * cambios anteriores al primer número que aún puede pertenecer a una
+     * transacción en curso; los siguientes llegan en una llamada posterior.
+     *
+     * @param desdeCambio El número del último cambio ya conocido.
+     * @param limite El número máximo de cambios a devolver.
+     * @return Una lista de cambios ordenada por número de secuencia.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public List<CambioProducto> obtenerCambiosDesde(long desdeCambio, int limite) throws SQLException {
+        String sql = "SELECT nombre, cantidad, precio, version, cambio, 0 AS eliminado FROM productos"
+                + " WHERE cambio > ? AND cambio <= ?"
+                + " UNION ALL"
+                + " SELECT nombre, 0, 0, 0, cambio, 1 FROM productos_eliminados WHERE cambio > ? AND cambio <= ?"
+                + " ORDER BY cambio LIMIT ?";
+        List<CambioProducto> cambios = new ArrayList<>();
+        try (Connection connection = getConnection()) {
+            long hastaCambio = horizonte(connection, desdeCambio);
+            if (hastaCambio > desdeCambio) {
+                try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                    pstmt.setLong(1, desdeCambio);
+                    pstmt.setLong(2, hastaCambio);
+                    pstmt.setLong(3, desdeCambio);
+                    pstmt.setLong(4, hastaCambio);
+                    pstmt.setInt(5, limite);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            String nombre = rs.getString("nombre");
+                            Producto producto = rs.getInt("eliminado") == 1 ? null : leerProducto(rs);
+                            cambios.add(new CambioProducto(nombre, producto, rs.getLong("cambio")));
+                        }
+                    }
+                }
+            }
+            if (podaPendiente()) {
+                podar(connection, horizonte(connection, 0));
+            }
+        }
+        return cambios;
+    }
+
+    /**
+     * Calcula hasta qué número se pueden leer los cambios sin saltarse
+     * ninguno: el último antes del primer hueco de registro_cambios que aún
+     * puede pertenecer a una transacción en curso. Un hueco está resuelto si
+     * ninguna transacción de escritura activa empezó antes de que se
+     * reservara el número siguiente, lo que significa que la que lo reservó
+     * ya se deshizo. Sin permiso para leer las transacciones activas, o si la
+     * zona horaria de la sesión no es la del servidor, un hueco se da por
+     * deshecho pasado ESPERA_CAMBIOS_MS.
+     */
+    private long horizonte(Connection connection, long desdeCambio) throws SQLException {
+        // Las transacciones activas se leen antes que el registro: la que
+        // confirme entre las dos consultas ya aparece en el registro
+        Timestamp consulta = null;
+        Timestamp inicioActivas = null;
+        boolean activasConocidas = false;
+        if (transaccionesVisibles) {
+            String sql = "SELECT MIN(trx_started), NOW(3), @@session.time_zone"
+                    + " FROM information_schema.innodb_trx WHERE trx_rows_modified > 0";
+            try (PreparedStatement pstmt = connection.prepareStatement(sql); ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                inicioActivas = rs.getTimestamp(1);
+                consulta = rs.getTimestamp(2);
+                activasConocidas = "SYSTEM".equals(rs.getString(3));
+            } catch (SQLException e) {
+                LOGGER.log(Level.INFO, "No se pueden leer las transacciones activas; los huecos del registro de"
+                        + " cambios se resuelven por tiempo: {0}", e.getMessage());
+                transaccionesVisibles = false;
+            }
+        }
+        if (consulta == null) {
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT CURRENT_TIMESTAMP(3)");
+                    ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                consulta = rs.getTimestamp(1);
+            }
+        }
+
+        // Los números por debajo del menor registrado ya están confirmados
+        long esperado;
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT MIN(cambio) FROM registro_cambios");
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            long minimo = rs.getLong(1);
+            if (rs.wasNull()) {
+                return desdeCambio;
+            }
+            esperado = Math.max(desdeCambio + 1, minimo);
+        }
+        String sql = "SELECT cambio, reservado FROM registro_cambios WHERE cambio >= ? ORDER BY cambio LIMIT ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int filas;
+            do {
+                pstmt.setLong(1, esperado);
+                pstmt.setInt(2, tamanoLote);
+                filas = 0;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        filas++;
+                        long cambio = rs.getLong(1);
+                        if (cambio > esperado && !huecoResuelto(rs.getTimestamp(2), consulta, inicioActivas, activasConocidas)) {
+                            return esperado - 1;
+                        }
+                        esperado = cambio + 1;
+                    }
+                }
+            } while (filas == tamanoLote);
+        }
+        return esperado - 1;
+    }
+
+    /**
+     * Indica si el hueco anterior a un número reservado en un momento dado
+     * ya no puede pertenecer a una transacción en curso.
+     */
+    private static boolean huecoResuelto(Timestamp reservado, Timestamp consulta, Timestamp inicioActivas,
+            boolean activasConocidas) {
+        if (activasConocidas) {
+            // trx_started no tiene fracciones de segundo, lo que sólo adelanta el inicio
+            return reservado.before(consulta) && (inicioActivas == null || inicioActivas.after(reservado));
+        }
+        return consulta.getTime() - reservado.getTime() >= ESPERA_CAMBIOS_MS;
+    }
+
+    private static boolean podaPendiente() {
+        long ahora = System.currentTimeMillis();
+        long anterior = ULTIMA_PODA.get();
+        return ahora - anterior >= INTERVALO_PODA_MS && ULTIMA_PODA.compareAndSet(anterior, ahora);
+    }
+
+    /**
+     * Borra de registro_cambios los números anteriores al último confirmado
+     * sin huecos pendientes. Se conserva ése para que el menor número
+     * registrado siga marcando dónde empiezan los huecos posibles.
+     */
+    private void podar(Connection connection, long hastaCambio) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM registro_cambios WHERE cambio < ?")) {
+            pstmt.setLong(1, hastaCambio);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Ejecuta una escritura de una sola sentencia en modo de confirmación
+     * automática. Si falla, los números de cambio que reservó se registran
+     * como vacíos.
+     */
+    private static int escribir(Connection connection, PreparedStatement pstmt) throws SQLException {
+        olvidarReservas(connection);
+        try {
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            liberarReservas(connection);
+            throw e;
+        }
+    }
+
+    /**
+     * Vacía la variable de sesión @cambios_reservados, en la que los
+     * disparadores anotan los números de cambio que reservan. Se llama al
+     * empezar cada escritura para que sólo contenga los suyos.
+     */
+    private static void olvidarReservas(Connection connection) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("SET @cambios_reservados = NULL")) {
+            pstmt.execute();
+        }
+    }
+
+    /**
+     * Registra en registro_cambios los números que reservó una escritura
+     * fallida de esta conexión y que no llegaron a confirmarse, para que
+     * obtenerCambiosDesde no espere a una transacción que ya no existe. Se
+     * llama después de deshacerla; los números confirmados, o por debajo del
+     * menor registrado, se dejan como están. Si no se pueden registrar, el
+     * hueco se resuelve como los de otros clientes.
+     */
+    private static void liberarReservas(Connection connection) {
+        String sql = "INSERT INTO registro_cambios (cambio, reservado) SELECT ?, CURRENT_TIMESTAMP(3) FROM DUAL"
+                + " WHERE ? > (SELECT MIN(cambio) FROM registro_cambios)"
+                + " AND NOT EXISTS (SELECT 1 FROM registro_cambios WHERE cambio = ?)";
+        try {
+            String reservas;
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT @cambios_reservados");
+                    ResultSet rs = pstmt.executeQuery()) {
+                reservas = rs.next() ? rs.getString(1) : null;
+            }
+            if (reservas == null || reservas.isEmpty()) {
+                return;
+            }
+            olvidarReservas(connection);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (String reserva : reservas.split(",")) {
+                    long cambio = Long.parseLong(reserva);
+                    pstmt.setLong(1, cambio);
+                    pstmt.setLong(2, cambio);
+                    pstmt.setLong(3, cambio);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException | NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "No se pudieron registrar los números de cambio de una escritura fallida", e);
+        }
+    }
+
+    /**
+     * Calcula los totales del inventario con una única consulta de agregado.
+     *
+     * @return El resumen del inventario.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public ResumenInventario obtenerResumen() throws SQLException {
+        String sql = "SELECT COUNT(*), COALESCE(SUM(cantidad), 0), COALESCE(SUM(cantidad * precio), 0),"
+                + " MIN(precio), MAX(precio) FROM productos";
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            long productos = rs.getLong(1);
+            double precioMinimo = rs.getDouble(4);
+            double precioMaximo = rs.getDouble(5);
+            if (productos == 0) {
+                precioMinimo = Double.NaN;
+                precioMaximo = Double.NaN;
+            }
+            return new ResumenInventario(productos, rs.getLong(2), rs.getDouble(3), precioMinimo, precioMaximo);
+        }
+    }
+
+    /**
+     * Obtiene los productos con una cantidad inferior a un umbral, empezando
+     * por los de menor cantidad.
+     *
+     * @param umbral La cantidad a partir de la cual el stock no es bajo.
+     * @param limite El número máximo de productos a devolver.
+     * @return Una lista de productos ordenada por cantidad y nombre.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public List<Producto> obtenerStockBajo(int umbral, int limite) throws SQLException {
+        String sql = "SELECT nombre, cantidad, precio, version FROM productos WHERE cantidad < ?"
+                + " ORDER BY cantidad, nombre LIMIT ?";
+        return consultarProductos(sql, umbral, limite);
+    }
+
+    /**
+     * Obtiene los productos de mayor precio.
+     *
+     * @param limite El número de productos a devolver.
+     * @return Una lista de productos ordenada por precio descendente y
+     * nombre.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public List<Producto> obtenerMasCaros(int limite) throws SQLException {
+        String sql = "SELECT nombre, cantidad, precio, version FROM productos ORDER BY precio DESC, nombre LIMIT ?";
+        return consultarProductos(sql, limite);
+    }
+
+    /**
+     * Obtiene los productos con mayor cantidad.
+     *
+     * @param limite El número de productos a devolver.
+     * @return Una lista de productos ordenada por cantidad descendente y
+     * nombre.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public List<Producto> obtenerMayorCantidad(int limite) throws SQLException {
+        String sql = "SELECT nombre, cantidad, precio, version FROM productos ORDER BY cantidad DESC, nombre LIMIT ?";
+        return consultarProductos(sql, limite);
+    }
+
+    /**
+     * Cuenta los productos por intervalos de cantidad agrupando en la base de
+     * datos, de modo que sólo viaja una fila por intervalo.
+     *
+     * @param ancho El ancho de cada intervalo, mayor que cero.
+     * @return El número de productos por límite inferior de intervalo.
+     * @throws SQLException Si ocurre un error en la base de datos.
+     */
+    @Override
+    public SortedMap<Integer, Long> obtenerHistogramaCantidades(int ancho) throws SQLException {
+        if (ancho <= 0) {
+            throw new IllegalArgumentException("El ancho de los intervalos debe ser mayor que cero");
+        }
+        String sql = "SELECT FLOOR(cantidad / ?) AS intervalo, COUNT(*) FROM productos GROUP BY intervalo ORDER BY intervalo";
+        SortedMap<Integer, Long> histograma = new TreeMap<>();
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, ancho);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    histograma.put(rs.getInt(1) * ancho, rs.getLong(2));
+                }
+            }
+        }
+        return histograma;
+    }
+
+    private List<Producto> consultarProductos(String sql, int... parametros) throws SQLException {
+        List<Producto> productos = new ArrayList<>();
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                pstmt.setInt(i + 1, parametros[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    productos.add(leerProducto(rs));
+                }
+            }
+        }
+        return productos;
+    }
+
+    private PreparedStatement prepararRecorrido(Connection connection, String sql) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pstmt.setFetchSize(tamanoFetch);
+        return pstmt;
+    }
+
+    private static Producto leerProducto(ResultSet rs) throws SQLException {
+        return new Producto(rs.getString("nombre"), rs.getInt("cantidad"), rs.getDouble("precio"), rs.getLong("version"));
+    }
+
+    private static void cerrarSilenciosamente(AutoCloseable... recursos) {
+        for (AutoCloseable recurso : recursos) {
+            if (recurso != null) {
+                try {
+                    recurso.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
     /**
      * Elimina todos los registros de la tabla productos.
      *
-     * @return true si los registros fueron eliminados exitosamente, false en
-     * caso contrario.
+     * @return true si la tabla quedó vacía, aunque ya lo estuviera, false si
+     * ocurrió un error.
      */
+    @Override
     public boolean limpiarTabla() {
         String sql = "DELETE FROM productos";
-        try (PreparedStatement statement = conn.prepareStatement(sql)) {
-            int rowsUpdated = statement.executeUpdate();
-            return rowsUpdated > 0;
+        try (Connection connection = getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            escribir(connection, statement);
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
+
+    /**
+     * Inserta varios productos usando sentencias por lotes.
+     *
+     * @param productos Los productos a agregar.
+     * @return El resultado de cada inserción, en el orden recibido.
+     */
+    @Override
+    public ResultadoLote agregarProductos(Collection<Producto> productos) {
+        String sql = "INSERT INTO productos (nombre, cantidad, precio) VALUES (?, ?, ?)";
+        List<Producto> filas = new ArrayList<>(productos);
+        String[] claves = new String[filas.size()];
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = filas.get(i).getNombre();
+        }
+        return ejecutarLote(sql, filas, claves, (pstmt, producto) -> {
+            pstmt.setString(1, producto.getNombre());
+            pstmt.setInt(2, producto.getCantidad());
+            pstmt.setDouble(3, producto.getPrecio());
+        });
+    }
+
+    /**
+     * Actualiza la cantidad de varios productos usando sentencias por lotes.
+     *
+     * @param cantidades Las nuevas cantidades por nombre de producto.
+     * @return El resultado de cada actualización, en el orden de iteración
+     * del mapa.
+     */
+    @Override
+    public ResultadoLote actualizarCantidades(Map<String, Integer> cantidades) {
+        String sql = "UPDATE productos SET cantidad = ? WHERE nombre_normalizado = ?";
+        List<Map.Entry<String, Integer>> filas = new ArrayList<>(cantidades.entrySet());
+        return ejecutarLote(sql, filas, clavesDe(filas), (pstmt, fila) -> {
+            pstmt.setInt(1, fila.getValue());
+            pstmt.setString(2, Producto.normalizarNombre(fila.getKey()));
+        });
+    }
+
+    /**
+     * Actualiza el precio de varios productos usando sentencias por lotes.
+     *
+     * @param precios Los nuevos precios por nombre de producto.
+     * @return El resultado de cada actualización, en el orden de iteración
+     * del mapa.
+     */
+    @Override
+    public ResultadoLote actualizarPrecios(Map<String, Double> precios) {
+        String sql = "UPDATE productos SET precio = ? WHERE nombre_normalizado = ?";
+        List<Map.Entry<String, Double>> filas = new ArrayList<>(precios.entrySet());
+        return ejecutarLote(sql, filas, clavesDe(filas), (pstmt, fila) -> {
+            pstmt.setDouble(1, fila.getValue());
+            pstmt.setString(2, Producto.normalizarNombre(fila.getKey()));
+        });
+    }
+
+    /**
+     * Elimina varios productos usando sentencias por lotes.
+     *
+     * @param nombres Los nombres de los productos a eliminar.
+     * @return El resultado de cada eliminación, en el orden recibido.
+     */
+    @Override
+    public ResultadoLote eliminarProductos(Collection<String> nombres) {
+        String sql = "DELETE FROM productos WHERE nombre_normalizado = ?";
+        List<String> filas = new ArrayList<>(nombres);
+        return ejecutarLote(sql, filas, filas.toArray(new String[0]),
+                (pstmt, nombre) -> pstmt.setString(1, Producto.normalizarNombre(nombre)));
+    }
+
+    /**
+     * Aplica varias operaciones en una única transacción: o se confirman
+     * todas o, si alguna sentencia falla, se deshacen todas. Las operaciones
+     * se envían en lotes agrupadas por tipo: primero las eliminaciones,
+     * después las inserciones y por último las actualizaciones, por lo que
+     * cada producto debe aparecer una sola vez, salvo una eliminación seguida
+     * de una inserción para reemplazarlo.
+     *
+     * @param operaciones Las operaciones a aplicar.
+     * @return El resultado de cada operación, en el orden recibido. Las
+     * actualizaciones y eliminaciones que no encontraron el producto constan
+     * como no aplicadas sin deshacer el resto.
+     * @throws SQLException Si alguna sentencia falla; la transacción se
+     * deshace.
+     */
+    @Override
+    public ResultadoLote aplicarOperaciones(List<OperacionProducto> operaciones) throws SQLException {
+        String[] claves = new String[operaciones.size()];
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = operaciones.get(i).getNombre();
+        }
+        ResultadoLote resultado = new ResultadoLote(claves);
+        try (Connection connection = getConnection();
+                PreparedStatement eliminar = connection.prepareStatement("DELETE FROM productos WHERE nombre_normalizado = ?");
+                PreparedStatement insertar = connection.prepareStatement("INSERT INTO productos (nombre, cantidad, precio) VALUES (?, ?, ?)");
+                PreparedStatement actualizar = connection.prepareStatement("UPDATE productos"
+                        + " SET cantidad = COALESCE(?, cantidad) + ?, precio = COALESCE(?, precio) WHERE nombre_normalizado = ?")) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            olvidarReservas(connection);
+            try {
+                ejecutarOperaciones(eliminar, operaciones, OperacionProducto.Tipo.ELIMINAR, resultado,
+                        (pstmt, operacion) -> pstmt.setString(1, Producto.normalizarNombre(operacion.getNombre())));
+                ejecutarOperaciones(insertar, operaciones, OperacionProducto.Tipo.INSERTAR, resultado, (pstmt, operacion) -> {
+                    pstmt.setString(1, operacion.getProducto().getNombre());
+                    pstmt.setInt(2, operacion.getProducto().getCantidad());
+                    pstmt.setDouble(3, operacion.getProducto().getPrecio());
+                });
+                ejecutarOperaciones(actualizar, operaciones, OperacionProducto.Tipo.ACTUALIZAR, resultado, (pstmt, operacion) -> {
+                    pstmt.setObject(1, operacion.getCantidad(), Types.INTEGER);
+                    pstmt.setInt(2, operacion.getDelta());
+                    pstmt.setObject(3, operacion.getPrecio(), Types.DOUBLE);
+                    pstmt.setString(4, Producto.normalizarNombre(operacion.getNombre()));
+                });
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                liberarReservas(connection);
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return resultado;
+    }
+
+    private void ejecutarOperaciones(PreparedStatement pstmt, List<OperacionProducto> operaciones, OperacionProducto.Tipo tipo,
+            ResultadoLote resultado, ParametrosLote<OperacionProducto> parametros) throws SQLException {
+        int[] indices = new int[Math.min(tamanoLote, operaciones.size())];
+        int pendientes = 0;
+        for (int i = 0; i < operaciones.size(); i++) {
+            if (operaciones.get(i).getTipo() != tipo) {
+                continue;
+            }
+            parametros.asignar(pstmt, operaciones.get(i));
+            pstmt.addBatch();
+            indices[pendientes++] = i;
+            if (pendientes == indices.length) {
+                registrarLote(pstmt.executeBatch(), indices, pendientes, resultado);
+                pendientes = 0;
+            }
+        }
+        if (pendientes > 0) {
+            registrarLote(pstmt.executeBatch(), indices, pendientes, resultado);
+        }
+    }
+
+    private static void registrarLote(int[] filasAfectadas, int[] indices, int total, ResultadoLote resultado) {
+        for (int i = 0; i < total; i++) {
+            resultado.registrar(indices[i], filasAfectadas[i]);
+        }
+    }
+
+    private static String[] clavesDe(List<? extends Map.Entry<String, ?>> filas) {
+        String[] claves = new String[filas.size()];
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = filas.get(i).getKey();
+        }
+        return claves;
+    }
+
+    /**
+     * Ejecuta una sentencia para cada elemento en lotes de tamanoLote filas,
+     * confirmando cada lote en una transacción. Si un lote falla se deshace y
+     * se reintenta fila por fila para aplicar las filas válidas e informar
+     * exactamente cuáles fallaron.
+     */
+    private <T> ResultadoLote ejecutarLote(String sql, List<T> elementos, String[] claves, ParametrosLote<T> parametros) {
+        ResultadoLote resultado = new ResultadoLote(claves);
+        int procesadas = 0;
+        try (Connection connection = getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            olvidarReservas(connection);
+            try {
+                for (int inicio = 0; inicio < elementos.size(); inicio += tamanoLote) {
+                    int fin = Math.min(inicio + tamanoLote, elementos.size());
+                    try {
+                        for (int i = inicio; i < fin; i++) {
+                            parametros.asignar(pstmt, elementos.get(i));
+                            pstmt.addBatch();
+                        }
+                        int[] filasAfectadas = pstmt.executeBatch();
+                        connection.commit();
+                        for (int i = inicio; i < fin; i++) {
+                            resultado.registrar(i, filasAfectadas[i - inicio]);
+                        }
+                    } catch (BatchUpdateException e) {
+                        connection.rollback();
+                        pstmt.clearBatch();
+                        ejecutarFilaPorFila(connection, pstmt, elementos, inicio, fin, parametros, resultado);
+                        // Tanto el lote deshecho como las filas rechazadas
+                        // dejaron números reservados sin usar
+                        liberarReservas(connection);
+                    }
+                    procesadas = fin;
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                liberarReservas(connection);
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            for (int i = procesadas; i < claves.length; i++) {
+                resultado.registrarError(i, e.getMessage());
+            }
+        }
+        return resultado;
+    }
+
+    private <T> void ejecutarFilaPorFila(Connection connection, PreparedStatement pstmt, List<T> elementos, int inicio,
+            int fin, ParametrosLote<T> parametros, ResultadoLote resultado) throws SQLException {
+        for (int i = inicio; i < fin; i++) {
+            try {
+                parametros.asignar(pstmt, elementos.get(i));
+                resultado.registrar(i, pstmt.executeUpdate());
+            } catch (SQLException e) {
+                resultado.registrarError(i, e.getMessage());
+            }
+        }
+        connection.commit();
+    }
+
+    /**
+     * Asigna los parámetros de una fila de un lote.
+     */
+    private interface ParametrosLote<T> {
+
+        void asignar(PreparedStatement pstmt, T elemento) throws SQLException;
+    }
 }
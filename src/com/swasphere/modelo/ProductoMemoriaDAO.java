@@ -0,0 +1,699 @@
+package com.swasphere.modelo;
+
+import java.sql.SQLDataException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Almacenamiento de productos en memoria, sin base de datos. Mantiene un
+ * índice hash por nombre normalizado para las búsquedas, un índice ordenado
+ * por nombre para los recorridos y la paginación, y un registro de cambios
+ * con el mismo comportamiento que la secuencia de la base de datos.
+ *
+ * Las lecturas no bloquean; las escrituras se serializan para mantener los
+ * índices coherentes entre sí. A diferencia de la tabla de MySQL, no admite
+ * dos productos con el mismo nombre normalizado, y el orden de los nombres
+ * es el de {@link String#compareTo(String)}.
+ *
+ * @autor ljsanchez23
+ */
+public class ProductoMemoriaDAO implements ProductoRepository {
+
+    // Orden en que se aplican las operaciones de una transacción
+    private static final Comparator<Producto> POR_NOMBRE = Comparator.comparing(Producto::getNombre);
+    private static final Comparator<Producto> POR_CANTIDAD = Comparator.comparingInt(Producto::getCantidad).thenComparing(POR_NOMBRE);
+    private static final Comparator<Producto> POR_CANTIDAD_DESC = Comparator.comparingInt(Producto::getCantidad).reversed()
+            .thenComparing(POR_NOMBRE);
+    private static final Comparator<Producto> POR_PRECIO_DESC = Comparator.comparingDouble(Producto::getPrecio).reversed()
+            .thenComparing(POR_NOMBRE);
+
+    private static final OperacionProducto.Tipo[] ORDEN_OPERACIONES = {
+        OperacionProducto.Tipo.ELIMINAR, OperacionProducto.Tipo.INSERTAR, OperacionProducto.Tipo.ACTUALIZAR
+    };
+
+    private final ConcurrentHashMap<String, Producto> porClave = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Producto> porNombre = new ConcurrentSkipListMap<>();
+
+    // Último cambio de cada producto, incluidas las eliminaciones, como las
+    // columnas cambio de productos y productos_eliminados
+    private final ConcurrentSkipListMap<Long, CambioProducto> registroCambios = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> cambioPorClave = new ConcurrentHashMap<>();
+
+    private final Object escritura = new Object();
+    private volatile long ultimoCambio;
+
+    /**
+     * Inserta un nuevo producto.
+     *
+     * @param producto El producto a agregar.
+     * @return true si el producto fue insertado, false si ya existe un
+     * producto con el mismo nombre.
+     */
+    @Override
+    public boolean agregarProducto(Producto producto) {
+        String clave = Producto.normalizarNombre(producto.getNombre());
+        synchronized (escritura) {
+            if (porClave.containsKey(clave)) {
+                return false;
+            }
+            guardar(clave, new Producto(producto));
+            return true;
+        }
+    }
+
+    /**
+     * Elimina un producto.
+     *
+     * @param nombre El nombre del producto a eliminar.
+     * @return true si el producto fue eliminado exitosamente, false en caso
+     * contrario.
+     */
+    @Override
+    public boolean eliminarProducto(String nombre) {
+        synchronized (escritura) {
+            return borrar(Producto.normalizarNombre(nombre));
+        }
+    }
+
+    /**
+     * Actualiza la cantidad de un producto.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevaCantidad La nueva cantidad del producto.
+     * @return true si la cantidad fue actualizada exitosamente, false si el
+     * producto no existe.
+     */
+    @Override
+    public boolean actualizarCantidad(String nombre, int nuevaCantidad) {
+        String clave = Producto.normalizarNombre(nombre);
+        synchronized (escritura) {
+            Producto actual = porClave.get(clave);
+            if (actual == null) {
+                return false;
+            }
+            guardar(clave, new Producto(actual.getNombre(), nuevaCantidad, actual.getPrecio()));
+            return true;
+        }
+    }
+
+    /**
+     * Actualiza el precio de un producto.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevoPrecio El nuevo precio del producto.
+     * @return true si el precio fue actualizado exitosamente, false si el
+     * producto no existe.
+     */
+    @Override
+    public boolean actualizarPrecio(String nombre, double nuevoPrecio) {
+        String clave = Producto.normalizarNombre(nombre);
+        synchronized (escritura) {
+            Producto actual = porClave.get(clave);
+            if (actual == null) {
+                return false;
+            }
+            guardar(clave, new Producto(actual.getNombre(), actual.getCantidad(), nuevoPrecio));
+            return true;
+        }
+    }
+
+    /**
+     * Actualiza la cantidad de un producto sólo si su versión es la
+     * esperada.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevaCantidad La nueva cantidad del producto.
+     * @param versionEsperada La versión del producto que se leyó.
+     * @return El resultado con el estado actual del producto.
+     */
+    @Override
+    public ResultadoActualizacion actualizarCantidad(String nombre, int nuevaCantidad, long versionEsperada) {
+        String clave = Producto.normalizarNombre(nombre);
+        synchronized (escritura) {
+            Producto actual = porClave.get(clave);
+            if (actual == null || actual.getVersion() != versionEsperada) {
+                return ResultadoActualizacion.rechazado(actual == null ? null : new Producto(actual));
+            }
+            Producto nuevo = new Producto(actual.getNombre(), nuevaCantidad, actual.getPrecio());
+            guardar(clave, nuevo);
+            return ResultadoActualizacion.actualizado(new Producto(nuevo));
+        }
+    }
+
+    /**
+     * Actualiza el precio de un producto sólo si su versión es la esperada.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevoPrecio El nuevo precio del producto.
+     * @param versionEsperada La versión del producto que se leyó.
+     * @return El resultado con el estado actual del producto.
+     */
+    @Override
+    public ResultadoActualizacion actualizarPrecio(String nombre, double nuevoPrecio, long versionEsperada) {
+        String clave = Producto.normalizarNombre(nombre);
+        synchronized (escritura) {
+            Producto actual = porClave.get(clave);
+            if (actual == null || actual.getVersion() != versionEsperada) {
+                return ResultadoActualizacion.rechazado(actual == null ? null : new Producto(actual));
+            }
+            Producto nuevo = new Producto(actual.getNombre(), actual.getCantidad(), nuevoPrecio);
+            guardar(clave, nuevo);
+            return ResultadoActualizacion.actualizado(new Producto(nuevo));
+        }
+    }
+
+    /**
+     * Suma una cantidad a las existencias de un producto de forma atómica.
+     *
+     * @param nombre El nombre del producto.
+     * @param delta Las unidades a sumar; negativas para una salida.
+     * @param permitirNegativo false para rechazar el ajuste si las
+     * existencias quedarían por debajo de cero.
+     * @return La nueva cantidad, o null si el producto no existe o el ajuste
+     * fue rechazado.
+     * @throws SQLDataException Si la nueva cantidad no cabe en un int, como
+     * ocurre con la columna INT de MySQL.
+     */
+    @Override
+    public Integer ajustarCantidad(String nombre, int delta, boolean permitirNegativo) throws SQLDataException {
+        String clave = Producto.normalizarNombre(nombre);
+        synchronized (escritura) {
+            Producto actual = porClave.get(clave);
+            if (actual == null) {
+                return null;
+            }
+            long nuevaCantidad = (long) actual.getCantidad() + delta;
+            if (nuevaCantidad != (int) nuevaCantidad) {
+                throw new SQLDataException("Cantidad fuera de rango para " + actual.getNombre());
+            }
+            if (!permitirNegativo && nuevaCantidad < 0) {
+                return null;
+            }
+            guardar(clave, new Producto(actual.getNombre(), (int) nuevaCantidad, actual.getPrecio()));
+            return (int) nuevaCantidad;
+        }
+    }
+
+    /**
+     * Busca un producto por su nombre.
+     *
+     * @param nombre El nombre del producto.
+     * @return Una copia del producto si fue encontrado, null en caso
+     * contrario.
+     */
+    @Override
+    public Producto buscarProducto(String nombre) {
+        Producto producto = porClave.get(Producto.normalizarNombre(nombre));
+        return producto == null ? null : new Producto(producto);
+    }
+
+    /**
+     * Averigua cuáles de varios productos existen.
+     *
+     * @param nombres Los nombres de los productos.
+     * @return Los nombres normalizados de los productos que existen.
+     */
+    @Override
+    public Set<String> buscarExistentes(Collection<String> nombres) {
+        Set<String> existentes = new HashSet<>();
+        for (String nombre : nombres) {
+            String clave = Producto.normalizarNombre(nombre);
+            if (porClave.containsKey(clave)) {
+                existentes.add(clave);
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Obtiene una lista con todos los productos, ordenados por nombre.
+     *
+     * @return Una lista de copias de los productos.
+     */
+    @Override
+    public List<Producto> obtenerTodosProductos() {
+        List<Producto> productos = new ArrayList<>(porNombre.size());
+        recorrerProductos(productos::add);
+        return productos;
+    }
+
+    /**
+     * Recorre todos los productos en orden de nombre.
+     *
+     * @param consumidor La acción a ejecutar para cada producto.
+     */
+    @Override
+    public void recorrerProductos(Consumer<Producto> consumidor) {
+        for (Producto producto : porNombre.values()) {
+            consumidor.accept(new Producto(producto));
+        }
+    }
+
+    /**
+     * Recorre todos los productos en orden de nombre hasta que se cancela.
+     *
+     * @param consumidor La acción a ejecutar para cada producto.
+     * @param cancelacion La señal que detiene el recorrido.
+     */
+    @Override
+    public void recorrerProductos(Consumer<Producto> consumidor, Cancelacion cancelacion) {
+        for (Producto producto : porNombre.values()) {
+            if (cancelacion.isCancelada()) {
+                return;
+            }
+            consumidor.accept(new Producto(producto));
+        }
+    }
+
+    /**
+     * Obtiene un flujo con todos los productos en orden de nombre. No retiene
+     * recursos, pero cerrarlo es inofensivo.
+     *
+     * @return Un flujo de copias de los productos.
+     */
+    @Override
+    public Stream<Producto> streamProductos() {
+        return porNombre.values().stream().map(Producto::new);
+    }
+
+    /**
+     * Calcula los totales del inventario en una pasada.
+     *
+     * @return El resumen del inventario.
+     */
+    @Override
+    public ResumenInventario obtenerResumen() {
+        long productos = 0;
+        long unidades = 0;
+        double valoracion = 0;
+        double precioMinimo = Double.NaN;
+        double precioMaximo = Double.NaN;
+        for (Producto producto : porNombre.values()) {
+            double precio = producto.getPrecio();
+            if (productos++ == 0) {
+                precioMinimo = precio;
+                precioMaximo = precio;
+            } else {
+                precioMinimo = Math.min(precioMinimo, precio);
+                precioMaximo = Math.max(precioMaximo, precio);
+            }
+            unidades += producto.getCantidad();
+            valoracion += producto.getCantidad() * precio;
+        }
+        return new ResumenInventario(productos, unidades, valoracion, precioMinimo, precioMaximo);
+    }
+
+    /**
+     * Obtiene los productos con una cantidad inferior a un umbral, empezando
+     * por los de menor cantidad.
+     *
+     * @param umbral La cantidad a partir de la cual el stock no es bajo.
+     * @param limite El número máximo de productos a devolver.
+     * @return Una lista de copias ordenada por cantidad y nombre.
+     */
+    @Override
+    public List<Producto> obtenerStockBajo(int umbral, int limite) {
+        return principales(producto -> producto.getCantidad() < umbral, POR_CANTIDAD, limite);
+    }
+
+    /**
+     * Obtiene los productos de mayor precio.
+     *
+     * @param limite El número de productos a devolver.
+     * @return Una lista de copias ordenada por precio descendente y nombre.
+     */
+    @Override
+    public List<Producto> obtenerMasCaros(int limite) {
+        return principales(producto -> true, POR_PRECIO_DESC, limite);
+    }
+
+    /**
+     * Obtiene los productos con mayor cantidad.
+     *
+     * @param limite El número de productos a devolver.
+     * @return Una lista de copias ordenada por cantidad descendente y
+     * nombre.
+     */
+    @Override
+    public List<Producto> obtenerMayorCantidad(int limite) {
+        return principales(producto -> true, POR_CANTIDAD_DESC, limite);
+    }
+
+    /**
+     * Cuenta los productos por intervalos de cantidad.
+     *
+     * @param ancho El ancho de cada intervalo, mayor que cero.
+     * @return El número de productos por límite inferior de intervalo.
+     */
+    @Override
+    public SortedMap<Integer, Long> obtenerHistogramaCantidades(int ancho) {
+        if (ancho <= 0) {
+            throw new IllegalArgumentException("El ancho de los intervalos debe ser mayor que cero");
+        }
+        SortedMap<Integer, Long> histograma = new TreeMap<>();
+        for (Producto producto : porNombre.values()) {
+            histograma.merge(Math.floorDiv(producto.getCantidad(), ancho) * ancho, 1L, Long::sum);
+        }
+        return histograma;
+    }
+
+    /**
+     * Selecciona los primeros productos según un orden con un montículo
+     * acotado, sin ordenar todo el inventario.
+     */
+    private List<Producto> principales(Predicate<Producto> filtro, Comparator<Producto> orden, int limite) {
+        if (limite <= 0) {
+            return new ArrayList<>();
+        }
+        // La cabeza del montículo es el peor de los seleccionados
+        PriorityQueue<Producto> seleccion = new PriorityQueue<>(Math.min(limite, 1024), orden.reversed());
+        for (Producto producto : porNombre.values()) {
+            if (!filtro.test(producto)) {
+                continue;
+            }
+            if (seleccion.size() < limite) {
+                seleccion.add(producto);
+            } else if (orden.compare(producto, seleccion.peek()) < 0) {
+                seleccion.poll();
+                seleccion.add(producto);
+            }
+        }
+        List<Producto> productos = new ArrayList<>(seleccion.size());
+        for (Producto producto : seleccion) {
+            productos.add(new Producto(producto));
+        }
+        Collections.sort(productos, orden);
+        return productos;
+    }
+
+    /**
+     * Obtiene una página de productos ordenados por nombre a partir del
+     * índice ordenado, sin recorrer las páginas anteriores.
+     *
+     * @param despuesDeNombre El último nombre de la página anterior, o null
+     * para obtener la primera página.
+     * @param limite El número máximo de productos de la página.
+     * @return Una lista con los productos de la página, vacía al final.
+     */
+    @Override
+    public List<Producto> obtenerPagina(String despuesDeNombre, int limite) {
+        ConcurrentNavigableMap<String, Producto> resto = despuesDeNombre == null
+                ? porNombre : porNombre.tailMap(despuesDeNombre, false);
+        List<Producto> pagina = new ArrayList<>(Math.min(limite, 1024));
+        for (Producto producto : resto.values()) {
+            if (pagina.size() >= limite) {
+                break;
+            }
+            pagina.add(new Producto(producto));
+        }
+        return pagina;
+    }
+
+    /**
+     * Obtiene la página de productos ordenados por nombre que empieza en una
+     * posición. El índice ordenado no es posicional, así que se saltan los
+     * productos anteriores.
+     *
+     * @param posicion La posición del primer producto, empezando en cero.
+     * @param limite El número máximo de productos de la página.
+     * @return Una lista con los productos de la página, vacía al final.
+     */
+    @Override
+    public List<Producto> obtenerPaginaEnPosicion(int posicion, int limite) {
+        List<Producto> pagina = new ArrayList<>(Math.min(limite, 1024));
+        Iterator<Producto> it = porNombre.values().iterator();
+        for (int i = 0; i < posicion && it.hasNext(); i++) {
+            it.next();
+        }
+        while (pagina.size() < limite && it.hasNext()) {
+            pagina.add(new Producto(it.next()));
+        }
+        return pagina;
+    }
+
+    /**
+     * Cuenta los productos.
+     *
+     * @return El número de productos.
+     */
+    @Override
+    public long contarProductos() {
+        return porClave.size();
+    }
+
+    /**
+     * Obtiene el número de secuencia del último cambio.
+     *
+     * @return El número del último cambio, o 0 si no hay cambios.
+     */
+    @Override
+    public long obtenerUltimoCambio() {
+        return ultimoCambio;
+    }
+
+    /**
+     * Obtiene los productos insertados, actualizados o eliminados después de
+     * un cambio dado, en el orden en que se hicieron.
+     *
+     * @param desdeCambio El número del último cambio ya conocido.
+     * @param limite El número máximo de cambios a devolver.
+     * @return Una lista de cambios ordenada por número de secuencia.
+     */
+    @Override
+    public List<CambioProducto> obtenerCambiosDesde(long desdeCambio, int limite) {
+        List<CambioProducto> cambios = new ArrayList<>();
+        for (CambioProducto cambio : registroCambios.tailMap(desdeCambio, false).values()) {
+            if (cambios.size() >= limite) {
+                break;
+            }
+            cambios.add(cambio);
+        }
+        return cambios;
+    }
+
+    /**
+     * Elimina todos los productos.
+     *
+     * @return true, también si el inventario ya estaba vacío.
+     */
+    @Override
+    public boolean limpiarTabla() {
+        synchronized (escritura) {
+            List<String> nombres = new ArrayList<>(porNombre.keySet());
+            for (String nombre : nombres) {
+                eliminarProducto(nombre);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Inserta varios productos.
+     *
+     * @param productos Los productos a agregar.
+     * @return El resultado de cada inserción, en el orden recibido.
+     */
+    @Override
+    public ResultadoLote agregarProductos(Collection<Producto> productos) {
+        List<Producto> filas = new ArrayList<>(productos);
+        String[] claves = new String[filas.size()];
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = filas.get(i).getNombre();
+        }
+        ResultadoLote resultado = new ResultadoLote(claves);
+        for (int i = 0; i < claves.length; i++) {
+            resultado.registrar(i, agregarProducto(filas.get(i)) ? 1 : 0);
+        }
+        return resultado;
+    }
+
+    /**
+     * Actualiza la cantidad de varios productos.
+     *
+     * @param cantidades Las nuevas cantidades por nombre de producto.
+     * @return El resultado de cada actualización, en el orden de iteración
+     * del mapa.
+     */
+    @Override
+    public ResultadoLote actualizarCantidades(Map<String, Integer> cantidades) {
+        ResultadoLote resultado = new ResultadoLote(cantidades.keySet().toArray(new String[0]));
+        int i = 0;
+        for (Map.Entry<String, Integer> entrada : cantidades.entrySet()) {
+            resultado.registrar(i++, actualizarCantidad(entrada.getKey(), entrada.getValue()) ? 1 : 0);
+        }
+        return resultado;
+    }
+
+    /**
+     * Actualiza el precio de varios productos.
+     *
+     * @param precios Los nuevos precios por nombre de producto.
+     * @return El resultado de cada actualización, en el orden de iteración
+     * del mapa.
+     */
+    @Override
+    public ResultadoLote actualizarPrecios(Map<String, Double> precios) {
+        ResultadoLote resultado = new ResultadoLote(precios.keySet().toArray(new String[0]));
+        int i = 0;
+        for (Map.Entry<String, Double> entrada : precios.entrySet()) {
+            resultado.registrar(i++, actualizarPrecio(entrada.getKey(), entrada.getValue()) ? 1 : 0);
+        }
+        return resultado;
+    }
+
+    /**
+     * Elimina varios productos.
+     *
+     * @param nombres Los nombres de los productos a eliminar.
+     * @return El resultado de cada eliminación, en el orden recibido.
+     */
+    @Override
+    public ResultadoLote eliminarProductos(Collection<String> nombres) {
+        ResultadoLote resultado = new ResultadoLote(nombres.toArray(new String[0]));
+        int i = 0;
+        for (String nombre : nombres) {
+            resultado.registrar(i++, eliminarProducto(nombre) ? 1 : 0);
+        }
+        return resultado;
+    }
+
+    /**
+     * Aplica varias operaciones de forma atómica. El estado final de cada
+     * producto se calcula antes de modificar los índices, así que si una
+     * operación falla no se aplica ninguna. Se respeta el mismo orden que en
+     * la base de datos: eliminaciones, inserciones y actualizaciones.
+     *
+     * @param operaciones Las operaciones a aplicar.
+     * @return El resultado de cada operación, en el orden recibido.
+     * @throws SQLDataException Si alguna cantidad resultante no cabe en un
+     * int; no se aplica ninguna operación.
+     */
+    @Override
+    public ResultadoLote aplicarOperaciones(List<OperacionProducto> operaciones) throws SQLDataException {
+        String[] claves = new String[operaciones.size()];
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = operaciones.get(i).getNombre();
+        }
+        ResultadoLote resultado = new ResultadoLote(claves);
+        synchronized (escritura) {
+            // Estado final por clave; null indica que el producto se elimina
+            Map<String, Producto> finales = new LinkedHashMap<>();
+            Set<String> eliminadas = new HashSet<>();
+            for (OperacionProducto.Tipo tipo : ORDEN_OPERACIONES) {
+                for (int i = 0; i < operaciones.size(); i++) {
+                    OperacionProducto operacion = operaciones.get(i);
+                    if (operacion.getTipo() != tipo) {
+                        continue;
+                    }
+                    String clave = Producto.normalizarNombre(operacion.getNombre());
+                    Producto actual = finales.containsKey(clave) ? finales.get(clave) : porClave.get(clave);
+                    Producto nuevo = aplicar(operacion, actual);
+                    if (nuevo != actual) {
+                        finales.put(clave, nuevo);
+                        if (tipo == OperacionProducto.Tipo.ELIMINAR) {
+                            eliminadas.add(clave);
+                        }
+                    }
+                    resultado.registrar(i, nuevo != actual ? 1 : 0);
+                }
+            }
+            for (Map.Entry<String, Producto> entrada : finales.entrySet()) {
+                // Un producto eliminado y vuelto a agregar se reemplaza por uno nuevo
+                if (entrada.getValue() == null || eliminadas.contains(entrada.getKey())) {
+                    borrar(entrada.getKey());
+                }
+                if (entrada.getValue() != null) {
+                    guardar(entrada.getKey(), entrada.getValue());
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Calcula el estado de un producto tras una operación.
+     *
+     * @return El nuevo estado, null si se elimina, o el mismo objeto actual si
+     * la operación no tiene efecto.
+     */
+    private static Producto aplicar(OperacionProducto operacion, Producto actual) throws SQLDataException {
+        switch (operacion.getTipo()) {
+            case ELIMINAR:
+                return null;
+            case INSERTAR:
+                return actual == null ? new Producto(operacion.getProducto()) : actual;
+            default:
+                if (actual == null) {
+                    return null;
+                }
+                long cantidad = (long) (operacion.getCantidad() != null ? operacion.getCantidad() : actual.getCantidad())
+                        + operacion.getDelta();
+                if (cantidad != (int) cantidad) {
+                    throw new SQLDataException("Cantidad fuera de rango para " + actual.getNombre());
+                }
+                double precio = operacion.getPrecio() != null ? operacion.getPrecio() : actual.getPrecio();
+                return new Producto(actual.getNombre(), (int) cantidad, precio);
+        }
+    }
+
+    /**
+     * Elimina un producto de ambos índices y registra su eliminación. Debe
+     * invocarse con el cerrojo de escritura tomado.
+     */
+    private boolean borrar(String clave) {
+        Producto anterior = porClave.remove(clave);
+        if (anterior == null) {
+            return false;
+        }
+        porNombre.remove(anterior.getNombre());
+        registrarCambio(clave, new CambioProducto(anterior.getNombre(), null, ultimoCambio + 1));
+        return true;
+    }
+
+    /**
+     * Guarda el nuevo estado de un producto en ambos índices con la versión
+     * siguiente a la anterior. Debe invocarse con el cerrojo de escritura
+     * tomado.
+     */
+    private void guardar(String clave, Producto producto) {
+        Producto previo = porClave.get(clave);
+        producto.setVersion(previo == null ? 0 : previo.getVersion() + 1);
+        Producto anterior = porClave.put(clave, producto);
+        if (anterior != null && !anterior.getNombre().equals(producto.getNombre())) {
+            porNombre.remove(anterior.getNombre());
+        }
+        porNombre.put(producto.getNombre(), producto);
+        registrarCambio(clave, new CambioProducto(producto.getNombre(), new Producto(producto), ultimoCambio + 1));
+    }
+
+    /**
+     * Registra el último cambio de un producto y descarta el anterior. El
+     * nuevo se publica antes de retirar el viejo para que un lector
+     * concurrente nunca deje de verlo.
+     */
+    private void registrarCambio(String clave, CambioProducto cambio) {
+        registroCambios.put(cambio.getCambio(), cambio);
+        Long anterior = cambioPorClave.put(clave, cambio.getCambio());
+        if (anterior != null) {
+            registroCambios.remove(anterior);
+        }
+        ultimoCambio = cambio.getCambio();
+    }
+}
@@ -0,0 +1,315 @@
+package com.swasphere.modelo;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Operaciones de almacenamiento de la entidad Producto. Los productos se
+ * identifican por su nombre normalizado, sin distinguir mayúsculas ni
+ * espacios en los extremos.
+ *
+ * @autor ljsanchez23
+ */
+public interface ProductoRepository {
+
+    /**
+     * Inserta un nuevo producto.
+     *
+     * @param producto El producto a agregar.
+     * @return true si el producto fue insertado exitosamente, false en caso
+     * contrario o si ya existe un producto con el mismo nombre normalizado.
+     */
+    boolean agregarProducto(Producto producto);
+
+    /**
+     * Elimina un producto.
+     *
+     * @param nombre El nombre del producto a eliminar.
+     * @return true si el producto fue eliminado exitosamente, false en caso
+     * contrario.
+     */
+    boolean eliminarProducto(String nombre);
+
+    /**
+     * Actualiza la cantidad de un producto.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevaCantidad La nueva cantidad del producto.
+     * @return true si la cantidad fue actualizada exitosamente, false en caso
+     * contrario.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    boolean actualizarCantidad(String nombre, int nuevaCantidad) throws SQLException;
+
+    /**
+     * Actualiza el precio de un producto.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevoPrecio El nuevo precio del producto.
+     * @return true si el precio fue actualizado exitosamente, false en caso
+     * contrario.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    boolean actualizarPrecio(String nombre, double nuevoPrecio) throws SQLException;
+
+    /**
+     * Actualiza la cantidad de un producto sólo si nadie lo modificó desde
+     * que se leyó con la versión indicada.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevaCantidad La nueva cantidad del producto.
+     * @param versionEsperada La versión del producto que se leyó.
+     * @return El resultado con el estado actual del producto.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    ResultadoActualizacion actualizarCantidad(String nombre, int nuevaCantidad, long versionEsperada) throws SQLException;
+
+    /**
+     * Actualiza el precio de un producto sólo si nadie lo modificó desde que
+     * se leyó con la versión indicada.
+     *
+     * @param nombre El nombre del producto.
+     * @param nuevoPrecio El nuevo precio del producto.
+     * @param versionEsperada La versión del producto que se leyó.
+     * @return El resultado con el estado actual del producto.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    ResultadoActualizacion actualizarPrecio(String nombre, double nuevoPrecio, long versionEsperada) throws SQLException;
+
+    /**
+     * Suma una cantidad a las existencias de un producto en una sola
+     * operación atómica, sin leer antes la cantidad actual, de modo que dos
+     * movimientos simultáneos no se pisan.
+     *
+     * @param nombre El nombre del producto.
+     * @param delta Las unidades a sumar; negativas para una salida.
+     * @param permitirNegativo false para rechazar el ajuste si las
+     * existencias quedarían por debajo de cero.
+     * @return La nueva cantidad, o null si el producto no existe o el ajuste
+     * fue rechazado.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    Integer ajustarCantidad(String nombre, int delta, boolean permitirNegativo) throws SQLException;
+
+    /**
+     * Busca un producto por su nombre.
+     *
+     * @param nombre El nombre del producto.
+     * @return Un objeto Producto si el producto fue encontrado, null en caso
+     * contrario.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    Producto buscarProducto(String nombre) throws SQLException;
+
+    /**
+     * Averigua cuáles de varios productos existen.
+     *
+     * @param nombres Los nombres de los productos.
+     * @return Los nombres normalizados de los productos que existen.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    Set<String> buscarExistentes(Collection<String> nombres) throws SQLException;
+
+    /**
+     * Obtiene una lista con todos los productos.
+     *
+     * @return Una lista de objetos Producto.
+     */
+    List<Producto> obtenerTodosProductos();
+
+    /**
+     * Recorre todos los productos sin cargarlos en memoria, entregándolos uno
+     * a uno al consumidor.
+     *
+     * @param consumidor La acción a ejecutar para cada producto.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    void recorrerProductos(Consumer<Producto> consumidor) throws SQLException;
+
+    /**
+     * Recorre todos los productos como recorrerProductos, pero se detiene en
+     * cuanto se cancela, también si la lectura está esperando a la base de
+     * datos.
+     *
+     * @param consumidor La acción a ejecutar para cada producto.
+     * @param cancelacion La señal que detiene el recorrido.
+     * @throws SQLException Si ocurre un error en el almacenamiento que no se
+     * debe a la cancelación.
+     */
+    void recorrerProductos(Consumer<Producto> consumidor, Cancelacion cancelacion) throws SQLException;
+
+    /**
+     * Obtiene un flujo perezoso con todos los productos. El flujo puede
+     * retener recursos hasta cerrarse, por lo que debe usarse dentro de un
+     * try-with-resources.
+     *
+     * @return Un flujo de objetos Producto.
+     * @throws SQLException Si ocurre un error al abrir el recorrido.
+     */
+    Stream<Producto> streamProductos() throws SQLException;
+
+    /**
+     * Obtiene una página de productos ordenados por nombre. La página empieza
+     * después del último nombre de la anterior.
+     *
+     * @param despuesDeNombre El último nombre de la página anterior, o null
+     * para obtener la primera página.
+     * @param limite El número máximo de productos de la página.
+     * @return Una lista con los productos de la página, vacía al final.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    List<Producto> obtenerPagina(String despuesDeNombre, int limite) throws SQLException;
+
+    /**
+     * Obtiene la página de productos ordenados por nombre que empieza en una
+     * posición. A diferencia de obtenerPagina no necesita la página anterior,
+     * pero su coste crece con la posición, por lo que sólo conviene para
+     * saltos.
+     *
+     * @param posicion La posición del primer producto, empezando en cero.
+     * @param limite El número máximo de productos de la página.
+     * @return Una lista con los productos de la página, vacía al final.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    List<Producto> obtenerPaginaEnPosicion(int posicion, int limite) throws SQLException;
+
+    /**
+     * Cuenta los productos.
+     *
+     * @return El número de productos.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    long contarProductos() throws SQLException;
+
+    /**
+     * Obtiene el número de secuencia del último cambio confirmado.
+     *
+     * @return El número del último cambio, o 0 si no hay cambios.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    long obtenerUltimoCambio() throws SQLException;
+
+    /**
+     * Obtiene los productos insertados, actualizados o eliminados después de
+     * un cambio dado, en el orden en que se confirmaron. Un cambio con un
+     * número menor que otro ya devuelto nunca aparece después.
+     *
+     * @param desdeCambio El número del último cambio ya conocido.
+     * @param limite El número máximo de cambios a devolver.
+     * @return Una lista de cambios ordenada por número de secuencia.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    List<CambioProducto> obtenerCambiosDesde(long desdeCambio, int limite) throws SQLException;
+
+    /**
+     * Elimina todos los productos. Vaciar un inventario ya vacío también es
+     * un éxito.
+     *
+     * @return true si el inventario quedó vacío, false si ocurrió un error.
+     */
+    boolean limpiarTabla();
+
+    /**
+     * Inserta varios productos.
+     *
+     * @param productos Los productos a agregar.
+     * @return El resultado de cada inserción, en el orden recibido. Los
+     * productos cuyo nombre normalizado ya existe constan como fallidos.
+     */
+    ResultadoLote agregarProductos(Collection<Producto> productos);
+
+    /**
+     * Actualiza la cantidad de varios productos.
+     *
+     * @param cantidades Las nuevas cantidades por nombre de producto.
+     * @return El resultado de cada actualización, en el orden de iteración
+     * del mapa.
+     */
+    ResultadoLote actualizarCantidades(Map<String, Integer> cantidades);
+
+    /**
+     * Actualiza el precio de varios productos.
+     *
+     * @param precios Los nuevos precios por nombre de producto.
+     * @return El resultado de cada actualización, en el orden de iteración
+     * del mapa.
+     */
+    ResultadoLote actualizarPrecios(Map<String, Double> precios);
+
+    /**
+     * Elimina varios productos.
+     *
+     * @param nombres Los nombres de los productos a eliminar.
+     * @return El resultado de cada eliminación, en el orden recibido.
+     */
+    ResultadoLote eliminarProductos(Collection<String> nombres);
+
+    /**
+     * Aplica varias operaciones en una única transacción: o se confirman
+     * todas o no se aplica ninguna. Cada producto debe aparecer una sola vez,
+     * salvo una eliminación seguida de una inserción para reemplazarlo. Se
+     * aplican primero las eliminaciones, después las inserciones y por último
+     * las actualizaciones.
+     *
+     * @param operaciones Las operaciones a aplicar.
+     * @return El resultado de cada operación, en el orden recibido.
+     * @throws SQLException Si alguna operación falla; no se aplica ninguna.
+     */
+    ResultadoLote aplicarOperaciones(List<OperacionProducto> operaciones) throws SQLException;
+
+    /**
+     * Calcula los totales del inventario sin leer los productos uno a uno.
+     *
+     * @return El resumen del inventario.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    ResumenInventario obtenerResumen() throws SQLException;
+
+    /**
+     * Obtiene los productos con una cantidad inferior a un umbral, empezando
+     * por los de menor cantidad.
+     *
+     * @param umbral La cantidad a partir de la cual el stock no es bajo.
+     * @param limite El número máximo de productos a devolver.
+     * @return Una lista de productos ordenada por cantidad y nombre.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    List<Producto> obtenerStockBajo(int umbral, int limite) throws SQLException;
+
+    /**
+     * Obtiene los productos de mayor precio.
+     *
+     * @param limite El número de productos a devolver.
+     * @return Una lista de productos ordenada por precio descendente y
+     * nombre.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    List<Producto> obtenerMasCaros(int limite) throws SQLException;
+
+    /**
+     * Obtiene los productos con mayor cantidad.
+     *
+     * @param limite El número de productos a devolver.
+     * @return Una lista de productos ordenada por cantidad descendente y
+     * nombre.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    List<Producto> obtenerMayorCantidad(int limite) throws SQLException;
+
+    /**
+     * Cuenta los productos por intervalos de cantidad de igual ancho. El
+     * intervalo de clave k agrupa las cantidades de k a k + ancho - 1.
+     *
+     * @param ancho El ancho de cada intervalo, mayor que cero.
+     * @return El número de productos por límite inferior de intervalo; los
+     * intervalos sin productos no aparecen.
+     * @throws SQLException Si ocurre un error en el almacenamiento.
+     */
+    SortedMap<Integer, Long> obtenerHistogramaCantidades(int ancho) throws SQLException;
+}
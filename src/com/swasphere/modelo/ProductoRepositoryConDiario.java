@@ -0,0 +1,411 @@
+package com.swasphere.modelo;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de productos que anota en un diario de mutaciones cada
+ * escritura confirmada por otro repositorio. Las lecturas se delegan sin
+ * más. El diario guarda el estado resultante siempre que se conoce, de modo
+ * que reproducirlo desde el principio reconstruye el inventario. Cada
+ * escritura y su anotación se hacen sin que se intercale otra escritura del
+ * mismo producto, así el diario las guarda en el orden en que se aplicaron.
+ *
+ * @autor ljsanchez23
+ */
+public class ProductoRepositoryConDiario implements ProductoRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(ProductoRepositoryConDiario.class.getName());
+
+    // Orden en que aplicarOperaciones aplica cada tipo de operación
+    private static final OperacionProducto.Tipo[] ORDEN_APLICACION = {
+        OperacionProducto.Tipo.ELIMINAR, OperacionProducto.Tipo.INSERTAR, OperacionProducto.Tipo.ACTUALIZAR
+    };
+
+    private final ProductoRepository repositorio;
+    private final DiarioMutaciones diario;
+
+    // Serializan cada escritura con su anotación en el diario
+    private final ReentrantReadWriteLock cerrojoGlobal = new ReentrantReadWriteLock();
+    private final Object[] franjas = new Object[64];
+
+    // Secuencia del último registro anotado por cada hilo, pendiente de esperar al disco
+    private final ThreadLocal<long[]> ultimoRegistro = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Constructor de la clase ProductoRepositoryConDiario.
+     *
+     * @param repositorio El repositorio que almacena los productos.
+     * @param diario El diario en el que se anotan las escrituras.
+     */
+    public ProductoRepositoryConDiario(ProductoRepository repositorio, DiarioMutaciones diario) {
+        this.repositorio = repositorio;
+        this.diario = diario;
+        for (int i = 0; i < franjas.length; i++) {
+            franjas[i] = new Object();
+        }
+    }
+
+    /**
+     * Obtiene el diario de mutaciones.
+     *
+     * @return El diario en el que se anotan las escrituras.
+     */
+    public DiarioMutaciones getDiario() {
+        return diario;
+    }
+
+    @Override
+    public boolean agregarProducto(Producto producto) {
+        return escribir(producto.getNombre(), () -> {
+            boolean agregado = repositorio.agregarProducto(producto);
+            if (agregado) {
+                registrarAlta(producto);
+            }
+            return agregado;
+        });
+    }
+
+    @Override
+    public boolean eliminarProducto(String nombre) {
+        return escribir(nombre, () -> {
+            boolean eliminado = repositorio.eliminarProducto(nombre);
+            if (eliminado) {
+                registrar(RegistroDiario.Tipo.BAJA, nombre, 0, 0);
+            }
+            return eliminado;
+        });
+    }
+
+    @Override
+    public boolean actualizarCantidad(String nombre, int nuevaCantidad) throws SQLException {
+        return escribir(nombre, () -> {
+            boolean actualizado = repositorio.actualizarCantidad(nombre, nuevaCantidad);
+            if (actualizado) {
+                registrar(RegistroDiario.Tipo.CANTIDAD, nombre, nuevaCantidad, 0);
+            }
+            return actualizado;
+        });
+    }
+
+    @Override
+    public boolean actualizarPrecio(String nombre, double nuevoPrecio) throws SQLException {
+        return escribir(nombre, () -> {
+            boolean actualizado = repositorio.actualizarPrecio(nombre, nuevoPrecio);
+            if (actualizado) {
+                registrar(RegistroDiario.Tipo.PRECIO, nombre, 0, nuevoPrecio);
+            }
+            return actualizado;
+        });
+    }
+
+    @Override
+    public ResultadoActualizacion actualizarCantidad(String nombre, int nuevaCantidad, long versionEsperada) throws SQLException {
+        return escribir(nombre, () -> {
+            ResultadoActualizacion resultado = repositorio.actualizarCantidad(nombre, nuevaCantidad, versionEsperada);
+            if (resultado.isActualizado()) {
+                registrar(RegistroDiario.Tipo.CANTIDAD, nombre, resultado.getActual().getCantidad(), 0);
+            }
+            return resultado;
+        });
+    }
+
+    @Override
+    public ResultadoActualizacion actualizarPrecio(String nombre, double nuevoPrecio, long versionEsperada) throws SQLException {
+        return escribir(nombre, () -> {
+            ResultadoActualizacion resultado = repositorio.actualizarPrecio(nombre, nuevoPrecio, versionEsperada);
+            if (resultado.isActualizado()) {
+                registrar(RegistroDiario.Tipo.PRECIO, nombre, 0, resultado.getActual().getPrecio());
+            }
+            return resultado;
+        });
+    }
+
+    @Override
+    public Integer ajustarCantidad(String nombre, int delta, boolean permitirNegativo) throws SQLException {
+        return escribir(nombre, () -> {
+            Integer nuevaCantidad = repositorio.ajustarCantidad(nombre, delta, permitirNegativo);
+            if (nuevaCantidad != null) {
+                // Se anota la cantidad resultante, no la diferencia
+                registrar(RegistroDiario.Tipo.CANTIDAD, nombre, nuevaCantidad, 0);
+            }
+            return nuevaCantidad;
+        });
+    }
+
+    @Override
+    public Producto buscarProducto(String nombre) throws SQLException {
+        return repositorio.buscarProducto(nombre);
+    }
+
+    @Override
+    public Set<String> buscarExistentes(Collection<String> nombres) throws SQLException {
+        return repositorio.buscarExistentes(nombres);
+    }
+
+    @Override
+    public List<Producto> obtenerTodosProductos() {
+        return repositorio.obtenerTodosProductos();
+    }
+
+    @Override
+    public void recorrerProductos(Consumer<Producto> consumidor) throws SQLException {
+        repositorio.recorrerProductos(consumidor);
+    }
+
+    @Override
+    public void recorrerProductos(Consumer<Producto> consumidor, Cancelacion cancelacion) throws SQLException {
+        repositorio.recorrerProductos(consumidor, cancelacion);
+    }
+
+    @Override
+    public Stream<Producto> streamProductos() throws SQLException {
+        return repositorio.streamProductos();
+    }
+
+    @Override
+    public List<Producto> obtenerPagina(String despuesDeNombre, int limite) throws SQLException {
+        return repositorio.obtenerPagina(despuesDeNombre, limite);
+    }
+
+    @Override
+    public List<Producto> obtenerPaginaEnPosicion(int posicion, int limite) throws SQLException {
+        return repositorio.obtenerPaginaEnPosicion(posicion, limite);
+    }
+
+    @Override
+    public long contarProductos() throws SQLException {
+        return repositorio.contarProductos();
+    }
+
+    @Override
+    public long obtenerUltimoCambio() throws SQLException {
+        return repositorio.obtenerUltimoCambio();
+    }
+
+    @Override
+    public List<CambioProducto> obtenerCambiosDesde(long desdeCambio, int limite) throws SQLException {
+        return repositorio.obtenerCambiosDesde(desdeCambio, limite);
+    }
+
+    @Override
+    public boolean limpiarTabla() {
+        return escribir(null, () -> {
+            boolean limpiada = repositorio.limpiarTabla();
+            if (limpiada) {
+                registrar(RegistroDiario.Tipo.LIMPIEZA, null, 0, 0);
+            }
+            return limpiada;
+        });
+    }
+
+    @Override
+    public ResultadoLote agregarProductos(Collection<Producto> productos) {
+        return escribir(null, () -> {
+            ResultadoLote resultado = repositorio.agregarProductos(productos);
+            int indice = 0;
+            for (Producto producto : productos) {
+                if (resultado.isExitoso(indice++)) {
+                    registrarAlta(producto);
+                }
+            }
+            return resultado;
+        });
+    }
+
+    @Override
+    public ResultadoLote actualizarCantidades(Map<String, Integer> cantidades) {
+        return escribir(null, () -> {
+            ResultadoLote resultado = repositorio.actualizarCantidades(cantidades);
+            Iterator<Map.Entry<String, Integer>> it = cantidades.entrySet().iterator();
+            for (int i = 0; it.hasNext(); i++) {
+                Map.Entry<String, Integer> cantidad = it.next();
+                if (resultado.isExitoso(i)) {
+                    registrar(RegistroDiario.Tipo.CANTIDAD, cantidad.getKey(), cantidad.getValue(), 0);
+                }
+            }
+            return resultado;
+        });
+    }
+
+    @Override
+    public ResultadoLote actualizarPrecios(Map<String, Double> precios) {
+        return escribir(null, () -> {
+            ResultadoLote resultado = repositorio.actualizarPrecios(precios);
+            Iterator<Map.Entry<String, Double>> it = precios.entrySet().iterator();
+            for (int i = 0; it.hasNext(); i++) {
+                Map.Entry<String, Double> precio = it.next();
+                if (resultado.isExitoso(i)) {
+                    registrar(RegistroDiario.Tipo.PRECIO, precio.getKey(), 0, precio.getValue());
+                }
+            }
+            return resultado;
+        });
+    }
+
+    @Override
+    public ResultadoLote eliminarProductos(Collection<String> nombres) {
+        return escribir(null, () -> {
+            ResultadoLote resultado = repositorio.eliminarProductos(nombres);
+            int indice = 0;
+            for (String nombre : nombres) {
+                if (resultado.isExitoso(indice++)) {
+                    registrar(RegistroDiario.Tipo.BAJA, nombre, 0, 0);
+                }
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * {@inheritDoc} Las operaciones se anotan en el orden en que las aplica
+     * el repositorio: primero las eliminaciones, después las inserciones y
+     * por último las actualizaciones.
+     */
+    @Override
+    public ResultadoLote aplicarOperaciones(List<OperacionProducto> operaciones) throws SQLException {
+        return escribir(null, () -> {
+            ResultadoLote resultado = repositorio.aplicarOperaciones(operaciones);
+            for (OperacionProducto.Tipo tipo : ORDEN_APLICACION) {
+                for (int i = 0; i < operaciones.size(); i++) {
+                    OperacionProducto operacion = operaciones.get(i);
+                    if (operacion.getTipo() == tipo && resultado.isExitoso(i)) {
+                        registrarOperacion(operacion);
+                    }
+                }
+            }
+            return resultado;
+        });
+    }
+
+    @Override
+    public ResumenInventario obtenerResumen() throws SQLException {
+        return repositorio.obtenerResumen();
+    }
+
+    @Override
+    public List<Producto> obtenerStockBajo(int umbral, int limite) throws SQLException {
+        return repositorio.obtenerStockBajo(umbral, limite);
+    }
+
+    @Override
+    public List<Producto> obtenerMasCaros(int limite) throws SQLException {
+        return repositorio.obtenerMasCaros(limite);
+    }
+
+    @Override
+    public List<Producto> obtenerMayorCantidad(int limite) throws SQLException {
+        return repositorio.obtenerMayorCantidad(limite);
+    }
+
+    @Override
+    public SortedMap<Integer, Long> obtenerHistogramaCantidades(int ancho) throws SQLException {
+        return repositorio.obtenerHistogramaCantidades(ancho);
+    }
+
+    private void registrarOperacion(OperacionProducto operacion) {
+        switch (operacion.getTipo()) {
+            case INSERTAR:
+                registrarAlta(operacion.getProducto());
+                break;
+            case ELIMINAR:
+                registrar(RegistroDiario.Tipo.BAJA, operacion.getNombre(), 0, 0);
+                break;
+            default:
+                if (operacion.getCantidad() != null) {
+                    registrar(RegistroDiario.Tipo.CANTIDAD, operacion.getNombre(), operacion.getCantidad(), 0);
+                }
+                if (operacion.getDelta() != 0) {
+                    registrar(RegistroDiario.Tipo.AJUSTE, operacion.getNombre(), operacion.getDelta(), 0);
+                }
+                if (operacion.getPrecio() != null) {
+                    registrar(RegistroDiario.Tipo.PRECIO, operacion.getNombre(), 0, operacion.getPrecio());
+                }
+                break;
+        }
+    }
+
+    private void registrarAlta(Producto producto) {
+        registrar(RegistroDiario.Tipo.ALTA, producto.getNombre(), producto.getCantidad(), producto.getPrecio());
+    }
+
+    /**
+     * Ejecuta una escritura y la anota en el diario sin que otra escritura
+     * del mismo producto se intercale, de modo que el orden del diario sea
+     * el del repositorio. Las escrituras de un producto se serializan por su
+     * franja; las que afectan a varios productos excluyen a todas las demás.
+     * La espera al disco se hace después de soltar los cerrojos.
+     *
+     * @param nombre El nombre del producto, o null si la escritura afecta a
+     * varios productos.
+     * @param escritura La escritura, que anota en el diario lo que aplicó.
+     * @return El resultado de la escritura.
+     * @throws E Si falla la escritura.
+     */
+    private <T, E extends Exception> T escribir(String nombre, Escritura<T, E> escritura) throws E {
+        Lock cerrojo = nombre == null ? cerrojoGlobal.writeLock() : cerrojoGlobal.readLock();
+        try {
+            cerrojo.lock();
+            try {
+                if (nombre == null) {
+                    return escritura.ejecutar();
+                }
+                synchronized (franjas[Math.floorMod(Producto.normalizarNombre(nombre).hashCode(), franjas.length)]) {
+                    return escritura.ejecutar();
+                }
+            } finally {
+                cerrojo.unlock();
+            }
+        } finally {
+            esperarDisco();
+        }
+    }
+
+    /**
+     * Anota una escritura ya confirmada, sin esperar al disco. Un fallo del
+     * diario no deshace la escritura, así que sólo se informa.
+     */
+    private void registrar(RegistroDiario.Tipo tipo, String nombre, int cantidad, double precio) {
+        try {
+            ultimoRegistro.get()[0] = diario.anexar(tipo, nombre, cantidad, precio);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "No se pudo anotar en el diario: " + tipo + " " + nombre, e);
+        }
+    }
+
+    /**
+     * Espera al disco por el último registro anotado por el hilo, si lo hay.
+     */
+    private void esperarDisco() {
+        long[] ultimo = ultimoRegistro.get();
+        if (ultimo[0] == 0) {
+            return;
+        }
+        try {
+            diario.esperar(ultimo[0]);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "No se pudo sincronizar el diario hasta el registro " + ultimo[0], e);
+        } finally {
+            ultimo[0] = 0;
+        }
+    }
+
+    /**
+     * Escritura sobre el repositorio que se anota en el diario.
+     */
+    private interface Escritura<T, E extends Exception> {
+
+        T ejecutar() throws E;
+    }
+}
@@ -0,0 +1,116 @@
+package com.swasphere.modelo;
+
+/**
+ * Registro del diario de mutaciones del inventario. Cada escritura confirmada
+ * genera uno o varios registros con el estado resultante, salvo los ajustes
+ * de operaciones compuestas, que sólo conocen la diferencia.
+ *
+ * @autor ljsanchez23
+ */
+public class RegistroDiario {
+
+    /**
+     * Tipo de mutación registrada.
+     */
+    public enum Tipo {
+        ALTA, BAJA, CANTIDAD, PRECIO, AJUSTE, LIMPIEZA;
+
+        private static final Tipo[] VALORES = values();
+
+        static Tipo desdeCodigo(int codigo) {
+            return codigo >= 0 && codigo < VALORES.length ? VALORES[codigo] : null;
+        }
+    }
+
+    private final long secuencia;
+    private final long marcaTiempo;
+    private final Tipo tipo;
+    private final String nombre;
+    private final int cantidad;
+    private final double precio;
+
+    /**
+     * Constructor de la clase RegistroDiario.
+     *
+     * @param secuencia El número del registro en el diario.
+     * @param marcaTiempo El momento de la mutación, en milisegundos desde la
+     * época.
+     * @param tipo El tipo de mutación.
+     * @param nombre El nombre del producto, o null en una limpieza.
+     * @param cantidad La cantidad resultante, o la diferencia en un ajuste.
+     * @param precio El precio resultante.
+     */
+    public RegistroDiario(long secuencia, long marcaTiempo, Tipo tipo, String nombre, int cantidad, double precio) {
+        this.secuencia = secuencia;
+        this.marcaTiempo = marcaTiempo;
+        this.tipo = tipo;
+        this.nombre = nombre;
+        this.cantidad = cantidad;
+        this.precio = precio;
+    }
+
+    /**
+     * Obtiene el número del registro en el diario.
+     *
+     * @return El número de secuencia, creciente desde 1.
+     */
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    /**
+     * Obtiene el momento de la mutación.
+     *
+     * @return Los milisegundos desde la época.
+     */
+    public long getMarcaTiempo() {
+        return marcaTiempo;
+    }
+
+    /**
+     * Obtiene el tipo de mutación.
+     *
+     * @return El tipo del registro.
+     */
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtiene el nombre del producto.
+     *
+     * @return El nombre, o null en una limpieza.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Obtiene la cantidad registrada.
+     *
+     * @return La cantidad resultante, o la diferencia en un ajuste.
+     */
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    /**
+     * Obtiene el precio registrado.
+     *
+     * @return El precio resultante en un alta o cambio de precio.
+     */
+    public double getPrecio() {
+        return precio;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con los datos del registro.
+     */
+    @Override
+    public String toString() {
+        return "RegistroDiario{" + "secuencia=" + secuencia + ", marcaTiempo=" + marcaTiempo + ", tipo=" + tipo
+                + ", nombre=" + nombre + ", cantidad=" + cantidad + ", precio=" + precio + '}';
+    }
+}
@@ -0,0 +1,99 @@
+package com.swasphere.modelo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Selecciona al arrancar el almacenamiento de la aplicación. La propiedad del
+ * sistema ALMACENAMIENTO elige entre "mysql" (por defecto) y "memoria"; con
+ * el almacenamiento en memoria la aplicación funciona sin base de datos y se
+ * crea el usuario "admin" con la contraseña de MEMORIA_ADMIN_PASSWORD, o
+ * "admin" si no se indica.
+ *
+ * Si se indica DIARIO_DIRECTORIO, cada escritura de productos se anota en un
+ * diario de mutaciones en ese directorio, con segmentos de
+ * DIARIO_SEGMENTO_BYTES bytes y sincronizado con el disco cada
+ * DIARIO_SINCRONIZAR_MS milisegundos, o en cada escritura con
+ * DIARIO_ESPERAR_DISCO. Con el almacenamiento en memoria el inventario se
+ * reconstruye desde el diario al arrancar.
+ *
+ * @autor ljsanchez23
+ */
+public final class Repositorios {
+
+    private static ProductoRepository productos;
+    private static UsuarioRepository usuarios;
+
+    private Repositorios() {
+    }
+
+    /**
+     * Indica si la aplicación usa el almacenamiento en memoria.
+     *
+     * @return true si ALMACENAMIENTO vale "memoria", false en caso contrario.
+     */
+    public static boolean isMemoria() {
+        return "memoria".equals(System.getProperty("ALMACENAMIENTO", "mysql").trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Obtiene el repositorio de productos compartido por la aplicación.
+     *
+     * @return El repositorio de productos del almacenamiento configurado.
+     */
+    public static synchronized ProductoRepository getProductos() {
+        if (productos == null) {
+            productos = isMemoria() ? new ProductoMemoriaDAO() : new ProductoDAO();
+            String directorio = System.getProperty("DIARIO_DIRECTORIO", "").trim();
+            if (!directorio.isEmpty()) {
+                productos = conDiario(productos, Paths.get(directorio));
+            }
+        }
+        return productos;
+    }
+
+    /**
+     * Añade el diario de mutaciones a un repositorio. Si no se puede abrir
+     * el diario se sigue sin él.
+     *
+     * @param repositorio El repositorio de productos.
+     * @param directorio El directorio del diario.
+     * @return El repositorio que anota sus escrituras en el diario.
+     */
+    private static ProductoRepository conDiario(ProductoRepository repositorio, Path directorio) {
+        try {
+            if (isMemoria()) {
+                ReproductorDiario.restaurar(directorio, repositorio);
+            }
+            DiarioMutaciones diario = new DiarioMutaciones(directorio,
+                    Long.getLong("DIARIO_SEGMENTO_BYTES", 64L * 1024 * 1024),
+                    Long.getLong("DIARIO_SINCRONIZAR_MS", 10L),
+                    Boolean.getBoolean("DIARIO_ESPERAR_DISCO"));
+            CierreAplicacion.registrar(CierreAplicacion.Fase.DIARIO, diario::close);
+            return new ProductoRepositoryConDiario(repositorio, diario);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return repositorio;
+        }
+    }
+
+    /**
+     * Obtiene el repositorio de usuarios compartido por la aplicación.
+     *
+     * @return El repositorio de usuarios del almacenamiento configurado.
+     */
+    public static synchronized UsuarioRepository getUsuarios() {
+        if (usuarios == null) {
+            if (isMemoria()) {
+                UsuarioMemoriaDAO memoria = new UsuarioMemoriaDAO();
+                memoria.insertarUsuario("admin", System.getProperty("MEMORIA_ADMIN_PASSWORD", "admin"));
+                usuarios = memoria;
+            } else {
+                usuarios = new UsuarioDAO();
+            }
+        }
+        return usuarios;
+    }
+}
@@ -0,0 +1,223 @@
+package com.swasphere.modelo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Lectura del diario de mutaciones. Los segmentos se proyectan en memoria y
+ * se recorren en orden; la lectura de un segmento se detiene en el primer
+ * registro incompleto o con el CRC incorrecto, que sólo puede ser el último
+ * escrito antes de una caída.
+ *
+ * @autor ljsanchez23
+ */
+public final class ReproductorDiario {
+
+    // Productos por lote al restaurar un almacenamiento
+    private static final int LOTE_RESTAURACION = 10_000;
+
+    private ReproductorDiario() {
+    }
+
+    /**
+     * Recorre en orden todos los registros válidos del diario.
+     *
+     * @param directorio El directorio de los segmentos.
+     * @param consumidor La acción a ejecutar con cada registro.
+     * @return El número de registros leídos.
+     * @throws IOException Si no se puede leer algún segmento.
+     */
+    public static long recorrer(Path directorio, Consumer<RegistroDiario> consumidor) throws IOException {
+        long leidos = 0;
+        CRC32 crc = new CRC32();
+        for (Path ruta : segmentos(directorio)) {
+            try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+                MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+                RegistroDiario registro;
+                while ((registro = leer(datos, crc)) != null) {
+                    consumidor.accept(registro);
+                    leidos++;
+                }
+            }
+        }
+        return leidos;
+    }
+
+    /**
+     * Reconstruye el inventario aplicando en orden todos los registros del
+     * diario sobre un inventario vacío. Los cambios sobre productos que no
+     * aparecen dados de alta en el diario se ignoran.
+     *
+     * @param directorio El directorio de los segmentos.
+     * @return Los productos resultantes por nombre normalizado.
+     * @throws IOException Si no se puede leer algún segmento.
+     */
+    public static Map<String, Producto> reconstruir(Path directorio) throws IOException {
+        Map<String, Producto> productos = new HashMap<>();
+        recorrer(directorio, registro -> aplicar(productos, registro));
+        return productos;
+    }
+
+    /**
+     * Reemplaza el contenido de un almacenamiento por el inventario que
+     * reconstruye el diario, insertándolo en lotes.
+     *
+     * @param directorio El directorio de los segmentos.
+     * @param destino El almacenamiento a restaurar. Se vacía antes.
+     * @return El número de productos restaurados.
+     * @throws IOException Si no se puede leer algún segmento.
+     */
+    public static int restaurar(Path directorio, ProductoRepository destino) throws IOException {
+        Map<String, Producto> productos = reconstruir(directorio);
+        destino.limpiarTabla();
+        List<Producto> lote = new ArrayList<>(Math.min(LOTE_RESTAURACION, productos.size()));
+        int restaurados = 0;
+        for (Producto producto : productos.values()) {
+            lote.add(producto);
+            if (lote.size() == LOTE_RESTAURACION) {
+                restaurados += destino.agregarProductos(lote).getExitosos();
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            restaurados += destino.agregarProductos(lote).getExitosos();
+        }
+        return restaurados;
+    }
+
+    /**
+     * Obtiene el número del último registro válido del diario.
+     *
+     * @param directorio El directorio de los segmentos.
+     * @return La secuencia del último registro, o 0 si no hay ninguno.
+     * @throws IOException Si no se puede leer algún segmento.
+     */
+    static long ultimaSecuencia(Path directorio) throws IOException {
+        List<Path> rutas = segmentos(directorio);
+        CRC32 crc = new CRC32();
+        // Un segmento vacío se creó al abrir el diario sin llegar a escribir
+        for (int i = rutas.size() - 1; i >= 0; i--) {
+            long ultima = 0;
+            try (FileChannel canal = FileChannel.open(rutas.get(i), StandardOpenOption.READ)) {
+                MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+                RegistroDiario registro;
+                while ((registro = leer(datos, crc)) != null) {
+                    ultima = registro.getSecuencia();
+                }
+            }
+            if (ultima > 0) {
+                return ultima;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Lista los segmentos del diario en orden de secuencia.
+     *
+     * @param directorio El directorio de los segmentos.
+     * @return Las rutas de los segmentos; vacía si el directorio no existe.
+     * @throws IOException Si no se puede listar el directorio.
+     */
+    public static List<Path> segmentos(Path directorio) throws IOException {
+        List<Path> rutas = new ArrayList<>();
+        if (!Files.isDirectory(directorio)) {
+            return rutas;
+        }
+        try (DirectoryStream<Path> listado = Files.newDirectoryStream(directorio,
+                DiarioMutaciones.PREFIJO + "*" + DiarioMutaciones.EXTENSION)) {
+            for (Path ruta : listado) {
+                rutas.add(ruta);
+            }
+        }
+        // Los nombres llevan la secuencia con ceros a la izquierda
+        Collections.sort(rutas);
+        return rutas;
+    }
+
+    /**
+     * Lee el siguiente registro de un segmento.
+     *
+     * @return El registro, o null al final del segmento o en un registro
+     * dañado.
+     */
+    private static RegistroDiario leer(ByteBuffer datos, CRC32 crc) {
+        if (datos.remaining() < 4) {
+            return null;
+        }
+        int inicio = datos.position();
+        int longitud = datos.getInt(inicio);
+        if (longitud < DiarioMutaciones.CABECERA - 4 + DiarioMutaciones.CRC || longitud > datos.remaining() - 4) {
+            return null;
+        }
+        ByteBuffer contenido = datos.duplicate();
+        contenido.position(inicio + 4).limit(inicio + 4 + longitud - DiarioMutaciones.CRC);
+        crc.reset();
+        crc.update(contenido);
+        if ((int) crc.getValue() != datos.getInt(inicio + 4 + longitud - DiarioMutaciones.CRC)) {
+            return null;
+        }
+        datos.position(inicio + 4);
+        long secuencia = datos.getLong();
+        long marcaTiempo = datos.getLong();
+        RegistroDiario.Tipo tipo = RegistroDiario.Tipo.desdeCodigo(datos.get());
+        int cantidad = datos.getInt();
+        double precio = datos.getDouble();
+        int longitudNombre = datos.getShort();
+        if (tipo == null || longitudNombre < 0 || longitudNombre > datos.remaining() - DiarioMutaciones.CRC) {
+            datos.position(inicio);
+            return null;
+        }
+        String nombre = null;
+        if (tipo != RegistroDiario.Tipo.LIMPIEZA) {
+            byte[] bytes = new byte[longitudNombre];
+            datos.get(bytes);
+            nombre = new String(bytes, StandardCharsets.UTF_8);
+        }
+        datos.position(inicio + 4 + longitud);
+        return new RegistroDiario(secuencia, marcaTiempo, tipo, nombre, cantidad, precio);
+    }
+
+    private static void aplicar(Map<String, Producto> productos, RegistroDiario registro) {
+        if (registro.getTipo() == RegistroDiario.Tipo.LIMPIEZA) {
+            productos.clear();
+            return;
+        }
+        String clave = Producto.normalizarNombre(registro.getNombre());
+        switch (registro.getTipo()) {
+            case ALTA:
+                productos.put(clave, new Producto(registro.getNombre(), registro.getCantidad(), registro.getPrecio()));
+                break;
+            case BAJA:
+                productos.remove(clave);
+                break;
+            default:
+                Producto producto = productos.get(clave);
+                if (producto == null) {
+                    break;
+                }
+                if (registro.getTipo() == RegistroDiario.Tipo.CANTIDAD) {
+                    producto.setCantidad(registro.getCantidad());
+                } else if (registro.getTipo() == RegistroDiario.Tipo.AJUSTE) {
+                    producto.setCantidad(producto.getCantidad() + registro.getCantidad());
+                } else {
+                    producto.setPrecio(registro.getPrecio());
+                }
+                break;
+        }
+    }
+}
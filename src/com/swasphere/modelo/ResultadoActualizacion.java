@@ -0,0 +1,95 @@
+package com.swasphere.modelo;
+
+/**
+ * Resultado de una modificación condicionada a la versión de un producto.
+ * Incluye siempre el estado actual del producto, de modo que ante un
+ * conflicto el llamador puede mostrar los valores vigentes sin otra consulta.
+ *
+ * @autor ljsanchez23
+ */
+public class ResultadoActualizacion {
+
+    /**
+     * Estados posibles de una modificación condicional.
+     */
+    public enum Estado {
+        /**
+         * La modificación se aplicó.
+         */
+        ACTUALIZADO,
+        /**
+         * Otro usuario modificó el producto después de leerlo.
+         */
+        CONFLICTO,
+        /**
+         * El producto ya no existe.
+         */
+        NO_ENCONTRADO
+    }
+
+    private final Estado estado;
+    private final Producto actual;
+
+    private ResultadoActualizacion(Estado estado, Producto actual) {
+        this.estado = estado;
+        this.actual = actual;
+    }
+
+    /**
+     * Crea el resultado de una modificación aplicada.
+     *
+     * @param actual El producto tras la modificación.
+     * @return El resultado de la modificación.
+     */
+    public static ResultadoActualizacion actualizado(Producto actual) {
+        return new ResultadoActualizacion(Estado.ACTUALIZADO, actual);
+    }
+
+    /**
+     * Crea el resultado de una modificación rechazada.
+     *
+     * @param actual El estado vigente del producto, o null si ya no existe.
+     * @return Un conflicto si el producto existe, o NO_ENCONTRADO si no.
+     */
+    public static ResultadoActualizacion rechazado(Producto actual) {
+        return new ResultadoActualizacion(actual == null ? Estado.NO_ENCONTRADO : Estado.CONFLICTO, actual);
+    }
+
+    /**
+     * Obtiene el estado de la modificación.
+     *
+     * @return El estado.
+     */
+    public Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * Indica si la modificación se aplicó.
+     *
+     * @return true si el producto fue modificado, false en caso contrario.
+     */
+    public boolean isActualizado() {
+        return estado == Estado.ACTUALIZADO;
+    }
+
+    /**
+     * Obtiene el estado actual del producto: el modificado si la operación
+     * se aplicó, o el vigente que causó el conflicto.
+     *
+     * @return El producto, o null si ya no existe.
+     */
+    public Producto getActual() {
+        return actual;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con el resultado.
+     */
+    @Override
+    public String toString() {
+        return "ResultadoActualizacion{" + "estado=" + estado + ", actual=" + actual + '}';
+    }
+}
@@ -0,0 +1,151 @@
+package com.swasphere.modelo;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resultado fila por fila de una operación masiva sobre productos.
+ *
+ * @autor ljsanchez23
+ */
+public class ResultadoLote {
+
+    private final String[] claves;
+    private final int[] filasAfectadas;
+    private final String[] errores;
+
+    /**
+     * Constructor de la clase ResultadoLote. Todas las filas empiezan como
+     * no procesadas.
+     *
+     * @param claves Los nombres de producto de cada fila, en orden.
+     */
+    public ResultadoLote(String[] claves) {
+        this.claves = claves;
+        this.filasAfectadas = new int[claves.length];
+        this.errores = new String[claves.length];
+    }
+
+    /**
+     * Crea el resultado de un lote que no llegó a ejecutarse: todas sus filas
+     * constan con el mismo error.
+     *
+     * @param claves Los nombres de producto de cada fila, en orden.
+     * @param error La descripción del error.
+     * @return El resultado con todas las filas fallidas.
+     */
+    public static ResultadoLote fallido(Collection<String> claves, String error) {
+        ResultadoLote resultado = new ResultadoLote(claves.toArray(new String[0]));
+        for (int i = 0; i < resultado.getTotal(); i++) {
+            resultado.registrarError(i, error);
+        }
+        return resultado;
+    }
+
+    /**
+     * Registra el número de filas afectadas por una fila del lote.
+     *
+     * @param indice La posición de la fila en el lote.
+     * @param filas Las filas afectadas informadas por el driver.
+     */
+    void registrar(int indice, int filas) {
+        filasAfectadas[indice] = filas;
+        errores[indice] = filas == Statement.EXECUTE_FAILED ? "Error al ejecutar la sentencia" : null;
+    }
+
+    /**
+     * Registra un error para una fila del lote.
+     *
+     * @param indice La posición de la fila en el lote.
+     * @param error La descripción del error.
+     */
+    void registrarError(int indice, String error) {
+        filasAfectadas[indice] = Statement.EXECUTE_FAILED;
+        errores[indice] = error;
+    }
+
+    /**
+     * Obtiene el número de filas del lote.
+     *
+     * @return El total de filas.
+     */
+    public int getTotal() {
+        return claves.length;
+    }
+
+    /**
+     * Obtiene el nombre del producto de una fila.
+     *
+     * @param indice La posición de la fila en el lote.
+     * @return El nombre del producto.
+     */
+    public String getClave(int indice) {
+        return claves[indice];
+    }
+
+    /**
+     * Indica si una fila se aplicó. Las actualizaciones y eliminaciones que no
+     * encontraron el producto se consideran no aplicadas.
+     *
+     * @param indice La posición de la fila en el lote.
+     * @return true si la fila afectó algún registro, false en caso contrario.
+     */
+    public boolean isExitoso(int indice) {
+        int filas = filasAfectadas[indice];
+        return filas > 0 || filas == Statement.SUCCESS_NO_INFO;
+    }
+
+    /**
+     * Obtiene el error de una fila.
+     *
+     * @param indice La posición de la fila en el lote.
+     * @return La descripción del error, o null si la fila no falló.
+     */
+    public String getError(int indice) {
+        return errores[indice];
+    }
+
+    /**
+     * Obtiene el número de filas aplicadas.
+     *
+     * @return El total de filas aplicadas.
+     */
+    public int getExitosos() {
+        int exitosos = 0;
+        for (int i = 0; i < claves.length; i++) {
+            if (isExitoso(i)) {
+                exitosos++;
+            }
+        }
+        return exitosos;
+    }
+
+    /**
+     * Obtiene los nombres de los productos cuyas filas no se aplicaron.
+     *
+     * @return Una lista con los nombres fallidos, en el orden del lote.
+     */
+    public List<String> getClavesFallidas() {
+        List<String> fallidas = new ArrayList<>();
+        for (int i = 0; i < claves.length; i++) {
+            if (!isExitoso(i)) {
+                fallidas.add(claves[i]);
+            }
+        }
+        return fallidas;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con el resumen del lote.
+     */
+    @Override
+    public String toString() {
+        int exitosos = getExitosos();
+        return "ResultadoLote{" + "total=" + claves.length + ", exitosos=" + exitosos
+                + ", fallidos=" + (claves.length - exitosos) + '}';
+    }
+}
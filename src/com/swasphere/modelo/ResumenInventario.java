@@ -0,0 +1,89 @@
+package com.swasphere.modelo;
+
+/**
+ * Totales del inventario calculados por el almacenamiento: número de
+ * productos, unidades en existencia, valoración y rango de precios.
+ *
+ * @autor ljsanchez23
+ */
+public class ResumenInventario {
+
+    private final long productos;
+    private final long unidades;
+    private final double valoracion;
+    private final double precioMinimo;
+    private final double precioMaximo;
+
+    /**
+     * Constructor de la clase ResumenInventario.
+     *
+     * @param productos El número de productos.
+     * @param unidades La suma de las cantidades.
+     * @param valoracion La suma de cantidad por precio de cada producto.
+     * @param precioMinimo El precio mínimo, o NaN si no hay productos.
+     * @param precioMaximo El precio máximo, o NaN si no hay productos.
+     */
+    public ResumenInventario(long productos, long unidades, double valoracion, double precioMinimo, double precioMaximo) {
+        this.productos = productos;
+        this.unidades = unidades;
+        this.valoracion = valoracion;
+        this.precioMinimo = precioMinimo;
+        this.precioMaximo = precioMaximo;
+    }
+
+    /**
+     * Obtiene el número de productos.
+     *
+     * @return El número de productos del inventario.
+     */
+    public long getProductos() {
+        return productos;
+    }
+
+    /**
+     * Obtiene el total de unidades en existencia.
+     *
+     * @return La suma de las cantidades.
+     */
+    public long getUnidades() {
+        return unidades;
+    }
+
+    /**
+     * Obtiene la valoración del inventario.
+     *
+     * @return La suma de cantidad por precio de cada producto.
+     */
+    public double getValoracion() {
+        return valoracion;
+    }
+
+    /**
+     * Obtiene el precio mínimo.
+     *
+     * @return El precio mínimo, o NaN si el inventario está vacío.
+     */
+    public double getPrecioMinimo() {
+        return precioMinimo;
+    }
+
+    /**
+     * Obtiene el precio máximo.
+     *
+     * @return El precio máximo, o NaN si el inventario está vacío.
+     */
+    public double getPrecioMaximo() {
+        return precioMaximo;
+    }
+
+    /**
+     * Método que permite crear una descripción textual del objeto.
+     *
+     * @return Una cadena de texto con los totales del inventario.
+     */
+    @Override
+    public String toString() {
+        return "ResumenInventario{" + "productos=" + productos + ", unidades=" + unidades + ", valoracion=" + valoracion
+                + ", precioMinimo=" + precioMinimo + ", precioMaximo=" + precioMaximo + '}';
+    }
+}
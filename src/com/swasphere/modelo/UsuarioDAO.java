@@ -1,7 +1,6 @@
 package com.swasphere.modelo;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.ResultSet;
@@ -11,26 +10,16 @@ import java.sql.ResultSet;
  *
  * @autor ljsanchez23
  */
-public class UsuarioDAO {
-
-    // Constantes para la conexión a la base de datos
-    private static final String URL = System.getProperty("DB_URL").trim();
-    private static final String USER = System.getProperty("DB_USER").trim();
-    private static final String PASSWORD = System.getProperty("DB_PASSWORD").trim();
+public class UsuarioDAO implements UsuarioRepository {
 
     /**
      * Método para obtener una conexión a la base de datos.
      *
-     * @return La conexión a la base de datos.
+     * @return Una conexión prestada por el pool de la aplicación.
+     * @throws SQLException Si no se puede obtener una conexión.
      */
-    private Connection getConnection() {
-        Connection connection = null;
-        try {
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return connection;
+    private Connection getConnection() throws SQLException {
+        return ConexionPool.getInstancia().getConnection();
     }
 
     /**
@@ -41,6 +30,7 @@ public class UsuarioDAO {
      * @return true si el usuario fue insertado exitosamente, false en caso
      * contrario.
      */
+    @Override
     public boolean insertarUsuario(String nombreUsuario, String password) {
         String sql = "INSERT INTO usuarios (nombreUsuario, password) VALUES (?, ?)";
         try (Connection connection = getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -61,6 +51,7 @@ public class UsuarioDAO {
      * @return true si el usuario fue eliminado exitosamente, false en caso
      * contrario.
      */
+    @Override
     public boolean eliminarUsuario(String nombreUsuario) {
         String sql = "DELETE FROM usuarios WHERE nombreUsuario = ?";
         try (Connection connection = getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -81,6 +72,7 @@ public class UsuarioDAO {
      * @return true si la contraseña fue actualizada exitosamente, false en caso
      * contrario.
      */
+    @Override
     public boolean actualizarPassword(String nombreUsuario, String newPassword) {
         String sql = "UPDATE usuarios SET password = ? WHERE nombreUsuario = ?";
         try (Connection connection = getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -100,6 +92,7 @@ public class UsuarioDAO {
      * @return true si los registros fueron eliminados exitosamente, false en
      * caso contrario.
      */
+    @Override
     public boolean limpiarTabla() {
         String sql = "DELETE FROM usuarios";
         try (Connection connection = getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -118,15 +111,18 @@ public class UsuarioDAO {
      * @return Un objeto Usuario si el usuario fue encontrado, null en caso
      * contrario.
      */
+    @Override
     public Usuario buscarUsuarioPorNombre(String nombreUsuario) {
         String sql = "SELECT * FROM usuarios WHERE nombreUsuario = ?";
         try (Connection connection = getConnection(); PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setString(1, nombreUsuario);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                String nombre = resultSet.getString("nombreUsuario");
-                String password = resultSet.getString("password");
-                return new Usuario(nombre, password);
+            // El resultado se cierra aquí porque la sentencia vuelve a la caché de la conexión
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    String nombre = resultSet.getString("nombreUsuario");
+                    String password = resultSet.getString("password");
+                    return new Usuario(nombre, password);
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -0,0 +1,75 @@
+package com.swasphere.modelo;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Almacenamiento de usuarios en memoria, sin base de datos.
+ *
+ * @autor ljsanchez23
+ */
+public class UsuarioMemoriaDAO implements UsuarioRepository {
+
+    private final ConcurrentHashMap<String, String> passwords = new ConcurrentHashMap<>();
+
+    /**
+     * Inserta un nuevo usuario.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @param password La contraseña del usuario.
+     * @return true si el usuario fue insertado, false si ya existe.
+     */
+    @Override
+    public boolean insertarUsuario(String nombreUsuario, String password) {
+        return passwords.putIfAbsent(nombreUsuario, password) == null;
+    }
+
+    /**
+     * Elimina un usuario.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @return true si el usuario fue eliminado exitosamente, false en caso
+     * contrario.
+     */
+    @Override
+    public boolean eliminarUsuario(String nombreUsuario) {
+        return passwords.remove(nombreUsuario) != null;
+    }
+
+    /**
+     * Actualiza la contraseña de un usuario.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @param newPassword La nueva contraseña del usuario.
+     * @return true si la contraseña fue actualizada exitosamente, false si el
+     * usuario no existe.
+     */
+    @Override
+    public boolean actualizarPassword(String nombreUsuario, String newPassword) {
+        return passwords.replace(nombreUsuario, newPassword) != null;
+    }
+
+    /**
+     * Elimina todos los usuarios.
+     *
+     * @return true si se eliminó algún usuario, false en caso contrario.
+     */
+    @Override
+    public boolean limpiarTabla() {
+        boolean habia = !passwords.isEmpty();
+        passwords.clear();
+        return habia;
+    }
+
+    /**
+     * Busca un usuario por su nombre de usuario.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @return Un objeto Usuario si el usuario fue encontrado, null en caso
+     * contrario.
+     */
+    @Override
+    public Usuario buscarUsuarioPorNombre(String nombreUsuario) {
+        String password = passwords.get(nombreUsuario);
+        return password == null ? null : new Usuario(nombreUsuario, password);
+    }
+}
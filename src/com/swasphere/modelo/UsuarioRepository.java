@@ -0,0 +1,54 @@
+package com.swasphere.modelo;
+
+/**
+ * Operaciones de almacenamiento de la entidad Usuario.
+ *
+ * @autor ljsanchez23
+ */
+public interface UsuarioRepository {
+
+    /**
+     * Inserta un nuevo usuario.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @param password La contraseña del usuario.
+     * @return true si el usuario fue insertado exitosamente, false en caso
+     * contrario.
+     */
+    boolean insertarUsuario(String nombreUsuario, String password);
+
+    /**
+     * Elimina un usuario.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @return true si el usuario fue eliminado exitosamente, false en caso
+     * contrario.
+     */
+    boolean eliminarUsuario(String nombreUsuario);
+
+    /**
+     * Actualiza la contraseña de un usuario.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @param newPassword La nueva contraseña del usuario.
+     * @return true si la contraseña fue actualizada exitosamente, false en caso
+     * contrario.
+     */
+    boolean actualizarPassword(String nombreUsuario, String newPassword);
+
+    /**
+     * Elimina todos los usuarios.
+     *
+     * @return true si se eliminó algún usuario, false en caso contrario.
+     */
+    boolean limpiarTabla();
+
+    /**
+     * Busca un usuario por su nombre de usuario.
+     *
+     * @param nombreUsuario El nombre de usuario.
+     * @return Un objeto Usuario si el usuario fue encontrado, null en caso
+     * contrario.
+     */
+    Usuario buscarUsuarioPorNombre(String nombreUsuario);
+}
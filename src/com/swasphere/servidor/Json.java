@@ -0,0 +1,257 @@
+package com.swasphere.servidor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lectura y escritura mínimas de JSON para el servidor, sin dependencias.
+ * Al leer, los objetos se devuelven como Map, los arreglos como List, los
+ * números enteros como Long y el resto de números como Double.
+ *
+ * @autor ljsanchez23
+ */
+final class Json {
+
+    // Profundidad máxima de anidamiento de un documento
+    private static final int PROFUNDIDAD_MAXIMA = 32;
+
+    private final String texto;
+    private int posicion;
+
+    private Json(String texto) {
+        this.texto = texto;
+    }
+
+    /**
+     * Interpreta un documento JSON.
+     *
+     * @param texto El documento.
+     * @return El valor del documento.
+     * @throws IllegalArgumentException Si el documento no es JSON válido.
+     */
+    static Object leer(String texto) {
+        Json lector = new Json(texto);
+        Object valor = lector.valor(0);
+        lector.saltarEspacios();
+        if (lector.posicion != texto.length()) {
+            throw lector.error("contenido después del documento");
+        }
+        return valor;
+    }
+
+    /**
+     * Añade una cadena entre comillas, con los caracteres especiales
+     * escapados.
+     *
+     * @param destino El texto en construcción.
+     * @param cadena La cadena a añadir.
+     * @return El mismo destino.
+     */
+    static StringBuilder cadena(StringBuilder destino, String cadena) {
+        destino.append('"');
+        for (int i = 0; i < cadena.length(); i++) {
+            char c = cadena.charAt(i);
+            switch (c) {
+                case '"':
+                    destino.append("\\\"");
+                    break;
+                case '\\':
+                    destino.append("\\\\");
+                    break;
+                case '\n':
+                    destino.append("\\n");
+                    break;
+                case '\r':
+                    destino.append("\\r");
+                    break;
+                case '\t':
+                    destino.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        destino.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        destino.append(c);
+                    }
+                    break;
+            }
+        }
+        return destino.append('"');
+    }
+
+    private Object valor(int profundidad) {
+        if (profundidad > PROFUNDIDAD_MAXIMA) {
+            throw error("anidamiento demasiado profundo");
+        }
+        saltarEspacios();
+        if (posicion >= texto.length()) {
+            throw error("se esperaba un valor");
+        }
+        char c = texto.charAt(posicion);
+        switch (c) {
+            case '{':
+                return objeto(profundidad);
+            case '[':
+                return arreglo(profundidad);
+            case '"':
+                return cadena();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return numero();
+                }
+                throw error("carácter inesperado '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> objeto(int profundidad) {
+        Map<String, Object> objeto = new LinkedHashMap<>();
+        posicion++;
+        saltarEspacios();
+        if (consumir('}')) {
+            return objeto;
+        }
+        do {
+            saltarEspacios();
+            if (posicion >= texto.length() || texto.charAt(posicion) != '"') {
+                throw error("se esperaba el nombre de un campo");
+            }
+            String clave = cadena();
+            saltarEspacios();
+            if (!consumir(':')) {
+                throw error("se esperaba ':'");
+            }
+            objeto.put(clave, valor(profundidad + 1));
+            saltarEspacios();
+        } while (consumir(','));
+        if (!consumir('}')) {
+            throw error("se esperaba '}'");
+        }
+        return objeto;
+    }
+
+    private List<Object> arreglo(int profundidad) {
+        List<Object> arreglo = new ArrayList<>();
+        posicion++;
+        saltarEspacios();
+        if (consumir(']')) {
+            return arreglo;
+        }
+        do {
+            arreglo.add(valor(profundidad + 1));
+            saltarEspacios();
+        } while (consumir(','));
+        if (!consumir(']')) {
+            throw error("se esperaba ']'");
+        }
+        return arreglo;
+    }
+
+    private String cadena() {
+        StringBuilder cadena = new StringBuilder();
+        posicion++;
+        while (posicion < texto.length()) {
+            char c = texto.charAt(posicion++);
+            if (c == '"') {
+                return cadena.toString();
+            }
+            if (c != '\\') {
+                cadena.append(c);
+                continue;
+            }
+            if (posicion >= texto.length()) {
+                break;
+            }
+            char escape = texto.charAt(posicion++);
+            switch (escape) {
+                case '"':
+                case '\\':
+                case '/':
+                    cadena.append(escape);
+                    break;
+                case 'b':
+                    cadena.append('\b');
+                    break;
+                case 'f':
+                    cadena.append('\f');
+                    break;
+                case 'n':
+                    cadena.append('\n');
+                    break;
+                case 'r':
+                    cadena.append('\r');
+                    break;
+                case 't':
+                    cadena.append('\t');
+                    break;
+                case 'u':
+                    if (posicion + 4 > texto.length()) {
+                        throw error("escape unicode incompleto");
+                    }
+                    try {
+                        cadena.append((char) Integer.parseInt(texto.substring(posicion, posicion + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("escape unicode no válido");
+                    }
+                    posicion += 4;
+                    break;
+                default:
+                    throw error("escape no válido '\\" + escape + "'");
+            }
+        }
+        throw error("cadena sin cerrar");
+    }
+
+    private Object numero() {
+        int inicio = posicion;
+        boolean decimal = false;
+        while (posicion < texto.length()) {
+            char c = texto.charAt(posicion);
+            if (c == '.' || c == 'e' || c == 'E') {
+                decimal = true;
+            } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                break;
+            }
+            posicion++;
+        }
+        String numero = texto.substring(inicio, posicion);
+        try {
+            return decimal ? (Object) Double.parseDouble(numero) : (Object) Long.parseLong(numero);
+        } catch (NumberFormatException e) {
+            throw error("número no válido: " + numero);
+        }
+    }
+
+    private Object literal(String literal, Object valor) {
+        if (!texto.startsWith(literal, posicion)) {
+            throw error("se esperaba " + literal);
+        }
+        posicion += literal.length();
+        return valor;
+    }
+
+    private boolean consumir(char c) {
+        if (posicion < texto.length() && texto.charAt(posicion) == c) {
+            posicion++;
+            return true;
+        }
+        return false;
+    }
+
+    private void saltarEspacios() {
+        while (posicion < texto.length() && Character.isWhitespace(texto.charAt(posicion))) {
+            posicion++;
+        }
+    }
+
+    private IllegalArgumentException error(String mensaje) {
+        return new IllegalArgumentException("JSON no válido en la posición " + posicion + ": " + mensaje);
+    }
+}
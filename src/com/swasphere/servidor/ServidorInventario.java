@@ -0,0 +1,508 @@
+package com.swasphere.servidor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.swasphere.controlador.ProductoControlador;
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ResultadoLote;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Servidor HTTP con las operaciones de inventario en JSON, para integrar
+ * otros sistemas sin la interfaz gráfica. Usa el servidor HTTP del JDK, que
+ * mantiene abiertas las conexiones entre peticiones porque todas las
+ * respuestas llevan su longitud. Cada petición se atiende en un hilo
+ * virtual si la máquina virtual los ofrece (Java 21 o posterior) y, si no,
+ * en un grupo de hilos de tamaño fijo. Quien arranca el servidor debe activar
+ * antes la propiedad sun.net.httpserver.nodelay; ver
+ * SupplySwaSphere.iniciarServidor.
+ *
+ * Rutas:
+ * <ul>
+ * <li>GET /api/salud: número de productos y último cambio.</li>
+ * <li>GET /api/productos?despues=&amp;limite=: página del inventario
+ * ordenado por nombre; "siguiente" es el valor de "despues" para la página
+ * siguiente, o null en la última.</li>
+ * <li>GET /api/productos/{nombre}: un producto.</li>
+ * <li>POST /api/productos/{nombre}/ajuste con {"delta": n,
+ * "permitirNegativo": false}: suma unidades a la cantidad.</li>
+ * <li>POST /api/lotes/busqueda con {"nombres": [...]}: varios productos.</li>
+ * <li>POST /api/lotes/ajustes con {"ajustes": [{"nombre", "delta"}],
+ * "permitirNegativo": false}: varios ajustes, cada uno por separado.</li>
+ * <li>POST /api/lotes/cantidades y /api/lotes/precios con un objeto de
+ * nombre a valor: actualización en lote.</li>
+ * </ul>
+ * Los nombres de las rutas van codificados como en una URL. Un error del
+ * almacenamiento se responde con 503, sin confundirlo con un producto que no
+ * existe ni con un ajuste rechazado.
+ *
+ * Las peticiones POST que modifican el inventario (todas salvo
+ * /api/lotes/busqueda) deben llevar la cabecera "Authorization: Bearer" con
+ * el token del servidor. Sin token configurado esas rutas responden 403.
+ *
+ * @autor ljsanchez23
+ */
+public class ServidorInventario {
+
+    private static final Logger LOGGER = Logger.getLogger(ServidorInventario.class.getName());
+
+    private static final String PRODUCTOS = "/api/productos";
+    private static final String LOTES = "/api/lotes/";
+    // Única ruta POST que no modifica el inventario
+    private static final String BUSQUEDA = LOTES + "busqueda";
+    private static final String PREFIJO_TOKEN = "Bearer ";
+
+    private static final int LIMITE_PAGINA_DEFECTO = 100;
+    private static final int LIMITE_PAGINA_MAXIMO = 1_000;
+    // Elementos como máximo en una petición en lote
+    private static final int MAXIMO_LOTE = 10_000;
+    private static final int MAXIMO_CUERPO = 8 * 1024 * 1024;
+
+    private final ProductoControlador controlador;
+    private final HttpServer servidor;
+    private final ExecutorService ejecutor;
+    private final byte[] token;
+
+    /**
+     * Error que se responde al cliente con un código HTTP.
+     */
+    private static final class ErrorPeticion extends RuntimeException {
+
+        private final int codigo;
+
+        private ErrorPeticion(int codigo, String mensaje) {
+            super(mensaje);
+            this.codigo = codigo;
+        }
+    }
+
+    /**
+     * Constructor de la clase ServidorInventario. El servidor no atiende
+     * peticiones hasta llamar a {@link #iniciar()}.
+     *
+     * @param controlador El controlador de productos.
+     * @param direccion La dirección y el puerto en que escucha; el puerto 0
+     * elige uno libre.
+     * @param hilos El número de hilos si no hay hilos virtuales.
+     * @param token El token que exigen las rutas que modifican el
+     * inventario, o null para rechazarlas.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public ServidorInventario(ProductoControlador controlador, InetSocketAddress direccion, int hilos, String token)
+            throws IOException {
+        this.controlador = controlador;
+        this.token = token == null || token.isEmpty() ? null : token.getBytes(StandardCharsets.UTF_8);
+        this.ejecutor = crearEjecutor(Math.max(1, hilos));
+        this.servidor = HttpServer.create(direccion, 0);
+        servidor.setExecutor(ejecutor);
+        servidor.createContext("/api/salud", intercambio -> atender(intercambio, this::salud));
+        servidor.createContext(PRODUCTOS, intercambio -> atender(intercambio, this::productos));
+        servidor.createContext(LOTES, intercambio -> atender(intercambio, this::lotes));
+    }
+
+    /**
+     * Empieza a atender peticiones.
+     */
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Deja de aceptar peticiones, espera a que terminen las que están en
+     * curso y libera los hilos.
+     *
+     * @param esperaSegundos El tiempo máximo de espera de las peticiones en
+     * curso.
+     */
+    public void detener(int esperaSegundos) {
+        servidor.stop(esperaSegundos);
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(esperaSegundos, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Obtiene el puerto en que escucha el servidor.
+     *
+     * @return El número de puerto.
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Crea el ejecutor de las peticiones: un hilo virtual por petición si la
+     * máquina virtual los ofrece, o un grupo fijo de hilos. Se busca por
+     * reflexión para que el proyecto siga compilando con Java 17.
+     */
+    private static ExecutorService crearEjecutor(int hilos) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(hilos, tarea -> {
+                Thread hilo = new Thread(tarea, "servidor-inventario");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    /**
+     * Operación de una ruta: recibe el método, la ruta sin el prefijo del
+     * contexto, los parámetros y el cuerpo, y devuelve el JSON de respuesta.
+     */
+    private interface Ruta {
+
+        String atender(String metodo, String ruta, Map<String, String> parametros, String cuerpo) throws SQLException;
+    }
+
+    private void atender(HttpExchange intercambio, Ruta ruta) {
+        int codigo = 200;
+        String respuesta;
+        try {
+            autorizar(intercambio);
+            String cuerpo = leerCuerpo(intercambio);
+            String camino = intercambio.getRequestURI().getRawPath()
+                    .substring(intercambio.getHttpContext().getPath().length());
+            respuesta = ruta.atender(intercambio.getRequestMethod(), camino,
+                    parametros(intercambio.getRequestURI().getRawQuery()), cuerpo);
+        } catch (ErrorPeticion e) {
+            codigo = e.codigo;
+            respuesta = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            codigo = 400;
+            respuesta = error(e.getMessage());
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error del almacenamiento al atender " + intercambio.getRequestURI(), e);
+            codigo = 503;
+            respuesta = error("El almacenamiento no responde");
+        } catch (RuntimeException | IOException e) {
+            LOGGER.log(Level.SEVERE, "Error al atender " + intercambio.getRequestURI(), e);
+            codigo = 500;
+            respuesta = error("Error interno del servidor");
+        }
+        try {
+            byte[] bytes = respuesta.getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            intercambio.sendResponseHeaders(codigo, bytes.length);
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(bytes);
+            }
+        } catch (IOException e) {
+            // El cliente cerró la conexión
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Comprueba el token de las peticiones que modifican el inventario. La
+     * comparación tarda lo mismo sea cual sea el primer byte distinto.
+     */
+    private void autorizar(HttpExchange intercambio) {
+        if (!"POST".equals(intercambio.getRequestMethod())
+                || intercambio.getRequestURI().getRawPath().equals(BUSQUEDA)) {
+            return;
+        }
+        if (token == null) {
+            throw new ErrorPeticion(403, "Las escrituras están desactivadas: el servidor no tiene token");
+        }
+        String cabecera = intercambio.getRequestHeaders().getFirst("Authorization");
+        if (cabecera == null || !cabecera.startsWith(PREFIJO_TOKEN) || !MessageDigest.isEqual(token,
+                cabecera.substring(PREFIJO_TOKEN.length()).getBytes(StandardCharsets.UTF_8))) {
+            intercambio.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            throw new ErrorPeticion(401, "Falta el token o no es válido");
+        }
+    }
+
+    /**
+     * Lee el cuerpo completo; la conexión sólo puede reutilizarse si no
+     * quedan bytes sin leer.
+     */
+    private static String leerCuerpo(HttpExchange intercambio) throws IOException {
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            byte[] bytes = entrada.readNBytes(MAXIMO_CUERPO + 1);
+            if (bytes.length > MAXIMO_CUERPO) {
+                throw new ErrorPeticion(413, "El cuerpo supera los " + MAXIMO_CUERPO + " bytes");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private String salud(String metodo, String ruta, Map<String, String> parametros, String cuerpo) {
+        exigirMetodo(metodo, "GET");
+        long productos = controlador.getNumeroProductos();
+        long ultimoCambio = controlador.getUltimoCambio();
+        if (productos < 0 || ultimoCambio < 0) {
+            throw new ErrorPeticion(503, "El almacenamiento no responde");
+        }
+        return "{\"estado\":\"ok\",\"productos\":" + productos + ",\"ultimoCambio\":" + ultimoCambio + "}";
+    }
+
+    private String productos(String metodo, String ruta, Map<String, String> parametros, String cuerpo)
+            throws SQLException {
+        if (ruta.isEmpty() || ruta.equals("/")) {
+            exigirMetodo(metodo, "GET");
+            return pagina(parametros);
+        }
+        if (!ruta.startsWith("/")) {
+            throw new ErrorPeticion(404, "Ruta no encontrada");
+        }
+        String[] partes = ruta.substring(1).split("/", -1);
+        String nombre = URLDecoder.decode(partes[0], StandardCharsets.UTF_8);
+        if (partes.length == 1) {
+            exigirMetodo(metodo, "GET");
+            Producto producto = controlador.consultarProducto(nombre);
+            if (producto == null) {
+                throw new ErrorPeticion(404, "Producto no encontrado: " + nombre);
+            }
+            return producto(new StringBuilder(), producto).toString();
+        }
+        if (partes.length == 2 && partes[1].equals("ajuste")) {
+            exigirMetodo(metodo, "POST");
+            Map<String, Object> peticion = objeto(Json.leer(cuerpo), "cuerpo");
+            int delta = entero(peticion.get("delta"), "delta");
+            Integer cantidad = controlador.registrarAjuste(nombre, delta, permitirNegativo(peticion));
+            if (cantidad == null) {
+                throw new ErrorPeticion(409, "No se pudo ajustar " + nombre
+                        + ": el producto no existe o no hay existencias suficientes");
+            }
+            StringBuilder respuesta = new StringBuilder("{\"nombre\":");
+            return Json.cadena(respuesta, nombre).append(",\"cantidad\":").append(cantidad).append('}').toString();
+        }
+        throw new ErrorPeticion(404, "Ruta no encontrada");
+    }
+
+    private String pagina(Map<String, String> parametros) throws SQLException {
+        int limite = LIMITE_PAGINA_DEFECTO;
+        if (parametros.containsKey("limite")) {
+            try {
+                limite = Integer.parseInt(parametros.get("limite"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("limite no válido: " + parametros.get("limite"));
+            }
+            if (limite < 1 || limite > LIMITE_PAGINA_MAXIMO) {
+                throw new IllegalArgumentException("limite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO);
+            }
+        }
+        List<Producto> pagina = controlador.consultarPagina(parametros.get("despues"), limite);
+        StringBuilder respuesta = new StringBuilder("{\"productos\":[");
+        for (int i = 0; i < pagina.size(); i++) {
+            if (i > 0) {
+                respuesta.append(',');
+            }
+            producto(respuesta, pagina.get(i));
+        }
+        respuesta.append("],\"siguiente\":");
+        if (pagina.size() < limite) {
+            respuesta.append("null");
+        } else {
+            Json.cadena(respuesta, pagina.get(pagina.size() - 1).getNombre());
+        }
+        return respuesta.append('}').toString();
+    }
+
+    private String lotes(String metodo, String ruta, Map<String, String> parametros, String cuerpo)
+            throws SQLException {
+        exigirMetodo(metodo, "POST");
+        Map<String, Object> peticion = objeto(Json.leer(cuerpo), "cuerpo");
+        switch (ruta) {
+            case "busqueda":
+                return busqueda(lista(peticion.get("nombres"), "nombres"));
+            case "ajustes":
+                return ajustes(lista(peticion.get("ajustes"), "ajustes"), permitirNegativo(peticion));
+            case "cantidades": {
+                limitarLote(peticion.size());
+                Map<String, Integer> cantidades = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> entrada : peticion.entrySet()) {
+                    cantidades.put(entrada.getKey(), entero(entrada.getValue(), entrada.getKey()));
+                }
+                return resultadoLote(controlador.actualizarCantidades(cantidades));
+            }
+            case "precios": {
+                limitarLote(peticion.size());
+                Map<String, Double> precios = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> entrada : peticion.entrySet()) {
+                    precios.put(entrada.getKey(), decimal(entrada.getValue(), entrada.getKey()));
+                }
+                return resultadoLote(controlador.actualizarPrecios(precios));
+            }
+            default:
+                throw new ErrorPeticion(404, "Ruta no encontrada");
+        }
+    }
+
+    private String busqueda(List<Object> nombres) throws SQLException {
+        limitarLote(nombres.size());
+        StringBuilder encontrados = new StringBuilder();
+        StringBuilder noEncontrados = new StringBuilder();
+        for (Object valor : nombres) {
+            String nombre = texto(valor, "nombres");
+            Producto producto = controlador.consultarProducto(nombre);
+            if (producto != null) {
+                producto(encontrados.length() > 0 ? encontrados.append(',') : encontrados, producto);
+            } else {
+                Json.cadena(noEncontrados.length() > 0 ? noEncontrados.append(',') : noEncontrados, nombre);
+            }
+        }
+        return "{\"productos\":[" + encontrados + "],\"noEncontrados\":[" + noEncontrados + "]}";
+    }
+
+    /**
+     * Aplica cada ajuste por separado. Un ajuste que falla por el
+     * almacenamiento se informa con "error"; si fallan así todos, se
+     * responde 503.
+     */
+    private String ajustes(List<Object> ajustes, boolean permitirNegativo) throws SQLException {
+        limitarLote(ajustes.size());
+        StringBuilder respuesta = new StringBuilder("{\"resultados\":[");
+        SQLException ultimoError = null;
+        int errores = 0;
+        for (int i = 0; i < ajustes.size(); i++) {
+            Map<String, Object> ajuste = objeto(ajustes.get(i), "ajustes");
+            String nombre = texto(ajuste.get("nombre"), "nombre");
+            int delta = entero(ajuste.get("delta"), "delta");
+            if (i > 0) {
+                respuesta.append(',');
+            }
+            Json.cadena(respuesta.append("{\"nombre\":"), nombre).append(",\"cantidad\":");
+            try {
+                Integer cantidad = controlador.registrarAjuste(nombre, delta, permitirNegativo);
+                respuesta.append(cantidad == null ? "null" : cantidad.toString()).append('}');
+            } catch (SQLException e) {
+                ultimoError = e;
+                errores++;
+                respuesta.append("null,\"error\":\"El almacenamiento no responde\"}");
+            }
+        }
+        if (errores > 0 && errores == ajustes.size()) {
+            throw ultimoError;
+        }
+        return respuesta.append("]}").toString();
+    }
+
+    /**
+     * Describe el resultado de una actualización en lote. Las filas que no
+     * encontraron el producto van en "fallidos" y las que fallaron por el
+     * almacenamiento en "errores"; si ninguna se aplicó y alguna falló así,
+     * se responde 503.
+     */
+    private static String resultadoLote(ResultadoLote resultado) {
+        StringBuilder fallidos = new StringBuilder();
+        StringBuilder errores = new StringBuilder();
+        for (int i = 0; i < resultado.getTotal(); i++) {
+            if (resultado.isExitoso(i)) {
+                continue;
+            }
+            StringBuilder destino = resultado.getError(i) == null ? fallidos : errores;
+            Json.cadena(destino.length() > 0 ? destino.append(',') : destino, resultado.getClave(i));
+        }
+        if (resultado.getExitosos() == 0 && errores.length() > 0) {
+            throw new ErrorPeticion(503, "El almacenamiento no responde");
+        }
+        return "{\"actualizados\":" + resultado.getExitosos() + ",\"fallidos\":[" + fallidos
+                + "],\"errores\":[" + errores + "]}";
+    }
+
+    private static StringBuilder producto(StringBuilder destino, Producto producto) {
+        Json.cadena(destino.append("{\"nombre\":"), producto.getNombre());
+        return destino.append(",\"cantidad\":").append(producto.getCantidad())
+                .append(",\"precio\":").append(producto.getPrecio())
+                .append(",\"version\":").append(producto.getVersion()).append('}');
+    }
+
+    private static String error(String mensaje) {
+        return Json.cadena(new StringBuilder("{\"error\":"), mensaje == null ? "" : mensaje).append('}').toString();
+    }
+
+    private static void exigirMetodo(String metodo, String esperado) {
+        if (!esperado.equals(metodo)) {
+            throw new ErrorPeticion(405, "Método no permitido: " + metodo);
+        }
+    }
+
+    private static void limitarLote(int tamano) {
+        if (tamano > MAXIMO_LOTE) {
+            throw new ErrorPeticion(413, "El lote supera los " + MAXIMO_LOTE + " elementos");
+        }
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.put(URLDecoder.decode(clave, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return parametros;
+    }
+
+    private static boolean permitirNegativo(Map<String, Object> peticion) {
+        Object valor = peticion.get("permitirNegativo");
+        if (valor != null && !(valor instanceof Boolean)) {
+            throw new IllegalArgumentException("permitirNegativo debe ser true o false");
+        }
+        return Boolean.TRUE.equals(valor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> objeto(Object valor, String campo) {
+        if (!(valor instanceof Map)) {
+            throw new IllegalArgumentException(campo + " debe ser un objeto JSON");
+        }
+        return (Map<String, Object>) valor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> lista(Object valor, String campo) {
+        if (!(valor instanceof List)) {
+            throw new IllegalArgumentException(campo + " debe ser un arreglo JSON");
+        }
+        return (List<Object>) valor;
+    }
+
+    private static String texto(Object valor, String campo) {
+        if (!(valor instanceof String) || ((String) valor).trim().isEmpty()) {
+            throw new IllegalArgumentException(campo + " debe ser un texto no vacío");
+        }
+        return (String) valor;
+    }
+
+    private static int entero(Object valor, String campo) {
+        if (!(valor instanceof Long) || (Long) valor < Integer.MIN_VALUE || (Long) valor > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(campo + " debe ser un número entero");
+        }
+        return ((Long) valor).intValue();
+    }
+
+    private static double decimal(Object valor, String campo) {
+        if (!(valor instanceof Number) || !(((Number) valor).doubleValue() >= 0)
+                || Double.isInfinite(((Number) valor).doubleValue())) {
+            throw new IllegalArgumentException(campo + " debe ser un número mayor o igual que cero");
+        }
+        return ((Number) valor).doubleValue();
+    }
+}
@@ -0,0 +1,132 @@
+package com.swasphere.vista;
+
+import com.swasphere.controlador.ProductoControladorAsincrono;
+import com.swasphere.modelo.Producto;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+
+/**
+ * Carga del inventario completo en la tabla por bloques. Las filas aparecen
+ * a medida que se leen, un monitor muestra cuántas van del total estimado y
+ * permite cancelar la carga, lo que también cancela la consulta en curso. A
+ * diferencia de las demás operaciones, la carga no deshabilita los botones
+ * de la ventana: se puede trabajar con las filas ya cargadas.
+ *
+ * @autor ljsanchez23
+ */
+class CargaInventario {
+
+    // Productos por bloque agregado a la tabla
+    private static final int TAMANO_BLOQUE = 1000;
+
+    private final JFrame ventana;
+    private final ProductoControladorAsincrono productoAsincrono;
+    private final ModeloTablaInventario modelo;
+    private final Runnable alTerminar;
+    private CompletableFuture<Long> carga;
+    private ProgressMonitor progreso;
+    private long cargados;
+    private long estimados;
+
+    // Cambia con cada carga para descartar los bloques de una carga cancelada
+    private int generacion;
+
+    /**
+     * Constructor de la clase CargaInventario.
+     *
+     * @param ventana La ventana que muestra la tabla.
+     * @param productoAsincrono El controlador del que se lee el inventario.
+     * @param modelo El modelo de la tabla a llenar.
+     * @param alTerminar La acción a ejecutar cuando la tabla contiene el
+     * inventario completo.
+     */
+    CargaInventario(JFrame ventana, ProductoControladorAsincrono productoAsincrono, ModeloTablaInventario modelo,
+            Runnable alTerminar) {
+        this.ventana = ventana;
+        this.productoAsincrono = productoAsincrono;
+        this.modelo = modelo;
+        this.alTerminar = alTerminar;
+        ventana.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancelar();
+            }
+        });
+    }
+
+    /**
+     * Vacía la tabla y empieza a cargar el inventario completo, cancelando la
+     * carga anterior si no había terminado.
+     *
+     * @param productosEstimados El número de productos esperado, para mostrar
+     * el progreso.
+     */
+    void iniciar(long productosEstimados) {
+        cancelar();
+        modelo.iniciarCarga();
+        cargados = 0;
+        estimados = Math.max(1, productosEstimados);
+        progreso = new ProgressMonitor(ventana, "Cargando inventario...", "", 0, (int) Math.min(Integer.MAX_VALUE, estimados));
+        int numero = ++generacion;
+        carga = productoAsincrono.cargarInventario(TAMANO_BLOQUE,
+                bloque -> SwingUtilities.invokeLater(() -> recibir(numero, bloque)));
+        carga.whenComplete((ultimoCambio, error) -> SwingUtilities.invokeLater(() -> terminar(numero, ultimoCambio, error)));
+    }
+
+    /**
+     * Cancela la carga en curso, si hay una. Las filas ya cargadas se
+     * conservan, pero la siguiente carga vuelve a ser completa.
+     */
+    void cancelar() {
+        if (carga == null) {
+            return;
+        }
+        generacion++;
+        carga.cancel(true);
+        carga = null;
+        progreso.close();
+    }
+
+    private void recibir(int numero, List<Producto> bloque) {
+        if (numero != generacion) {
+            return;
+        }
+        modelo.agregarBloque(bloque);
+        cargados += bloque.size();
+        progreso.setNote(cargados + " de " + Math.max(cargados, estimados) + " productos");
+        progreso.setProgress((int) Math.min(cargados, Integer.MAX_VALUE));
+        if (progreso.isCanceled()) {
+            cancelar();
+        }
+    }
+
+    private void terminar(int numero, Long ultimoCambio, Throwable error) {
+        if (numero != generacion) {
+            return;
+        }
+        carga = null;
+        progreso.close();
+        if (error == null && ultimoCambio >= 0) {
+            modelo.terminarCarga(ultimoCambio);
+            alTerminar.run();
+        } else if (error == null || !esCancelacion(error)) {
+            if (error != null) {
+                error.printStackTrace();
+            }
+            JOptionPane.showMessageDialog(ventana, "Error al cargar el inventario.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static boolean esCancelacion(Throwable error) {
+        return error instanceof CancellationException
+                || (error instanceof CompletionException && error.getCause() instanceof CancellationException);
+    }
+}
@@ -0,0 +1,213 @@
+package com.swasphere.vista;
+
+import com.swasphere.controlador.CoincidenciaProducto;
+import com.swasphere.controlador.ProductoControladorAsincrono;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.AbstractAction;
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * Diálogo de búsqueda de productos que sugiere nombres mientras se escribe.
+ * Las sugerencias se piden en segundo plano y sólo se muestran las de la
+ * última consulta. Las flechas recorren las sugerencias y Enter acepta la
+ * elegida o, si no hay ninguna elegida, el texto escrito.
+ *
+ * @autor ljsanchez23
+ */
+class DialogoBusqueda extends JDialog {
+
+    // Número de sugerencias mostradas
+    private static final int SUGERENCIAS = 10;
+
+    private final ProductoControladorAsincrono productoAsincrono;
+    private final JTextField campo = new JTextField(28);
+    private final DefaultListModel<String> sugerencias = new DefaultListModel<>();
+    private final JList<String> lista = new JList<>(sugerencias);
+    private CompletableFuture<List<String>> consulta;
+    private String resultado;
+
+    private DialogoBusqueda(JFrame ventana, ProductoControladorAsincrono productoAsincrono) {
+        super(ventana, "Buscar producto", true);
+        this.productoAsincrono = productoAsincrono;
+
+        lista.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        lista.setVisibleRowCount(SUGERENCIAS);
+        lista.setFocusable(false);
+        lista.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && lista.getSelectedValue() != null) {
+                    aceptar(lista.getSelectedValue());
+                }
+            }
+        });
+        campo.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                pedirSugerencias();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                pedirSugerencias();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                pedirSugerencias();
+            }
+        });
+        asignarTecla(KeyEvent.VK_DOWN, "siguiente", () -> mover(1));
+        asignarTecla(KeyEvent.VK_UP, "anterior", () -> mover(-1));
+        asignarTecla(KeyEvent.VK_ENTER, "aceptar", () -> aceptar(lista.getSelectedValue() != null
+                ? lista.getSelectedValue() : campo.getText()));
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "cancelar");
+        getRootPane().getActionMap().put("cancelar", accion(this::dispose));
+
+        JButton buscar = new JButton("Buscar");
+        buscar.addActionListener(evt -> aceptar(lista.getSelectedValue() != null ? lista.getSelectedValue() : campo.getText()));
+        JButton cancelar = new JButton("Cancelar");
+        cancelar.addActionListener(evt -> dispose());
+
+        JPanel panel = new JPanel(new BorderLayout(0, 6));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        JPanel arriba = new JPanel(new BorderLayout(0, 4));
+        arriba.add(new JLabel("Ingrese el nombre del producto a buscar:"), BorderLayout.NORTH);
+        arriba.add(campo, BorderLayout.CENTER);
+        panel.add(arriba, BorderLayout.NORTH);
+        JScrollPane desplazamiento = new JScrollPane(lista);
+        desplazamiento.setPreferredSize(new Dimension(320, 190));
+        panel.add(desplazamiento, BorderLayout.CENTER);
+        JPanel botones = new JPanel(new FlowLayout(FlowLayout.RIGHT, 6, 0));
+        botones.add(buscar);
+        botones.add(cancelar);
+        panel.add(botones, BorderLayout.SOUTH);
+        setContentPane(panel);
+        pack();
+        setLocationRelativeTo(ventana);
+    }
+
+    /**
+     * Muestra el diálogo y espera a que el usuario elija un nombre.
+     *
+     * @param ventana La ventana propietaria.
+     * @param productoAsincrono El controlador que da las sugerencias.
+     * @return El nombre elegido, sin espacios en los extremos, o null si el
+     * usuario canceló.
+     */
+    static String pedirNombre(JFrame ventana, ProductoControladorAsincrono productoAsincrono) {
+        DialogoBusqueda dialogo = new DialogoBusqueda(ventana, productoAsincrono);
+        dialogo.setVisible(true);
+        return dialogo.resultado;
+    }
+
+    /**
+     * Ofrece al usuario los nombres parecidos a uno que no se encontró.
+     *
+     * @param ventana La ventana propietaria.
+     * @param similares Las coincidencias de la búsqueda aproximada, o null.
+     * @return El nombre elegido, o null si no hay coincidencias o el usuario
+     * canceló.
+     */
+    static String elegirSimilar(JFrame ventana, List<CoincidenciaProducto> similares) {
+        if (similares == null || similares.isEmpty()) {
+            return null;
+        }
+        String[] opciones = new String[similares.size()];
+        for (int i = 0; i < opciones.length; i++) {
+            CoincidenciaProducto coincidencia = similares.get(i);
+            opciones[i] = coincidencia.getNombre() + " (" + Math.round(coincidencia.getPuntuacion() * 100) + " %)";
+        }
+        Object elegida = JOptionPane.showInputDialog(ventana, "Producto no encontrado. ¿Quiso decir?", "Buscar producto",
+                JOptionPane.QUESTION_MESSAGE, null, opciones, opciones[0]);
+        for (int i = 0; i < opciones.length; i++) {
+            if (opciones[i].equals(elegida)) {
+                return similares.get(i).getNombre();
+            }
+        }
+        return null;
+    }
+
+    private void pedirSugerencias() {
+        if (consulta != null) {
+            consulta.cancel(false);
+        }
+        String prefijo = campo.getText().trim();
+        if (prefijo.isEmpty()) {
+            consulta = null;
+            sugerencias.clear();
+            return;
+        }
+        CompletableFuture<List<String>> actual = productoAsincrono.sugerirNombres(prefijo, SUGERENCIAS);
+        consulta = actual;
+        actual.thenAccept(nombres -> SwingUtilities.invokeLater(() -> {
+            // Una respuesta de una consulta anterior llega tarde: se descarta
+            if (consulta != actual || nombres == null) {
+                return;
+            }
+            sugerencias.clear();
+            for (String nombre : nombres) {
+                sugerencias.addElement(nombre);
+            }
+        }));
+    }
+
+    private void mover(int paso) {
+        if (sugerencias.isEmpty()) {
+            return;
+        }
+        int indice = Math.max(-1, Math.min(sugerencias.size() - 1, lista.getSelectedIndex() + paso));
+        if (indice < 0) {
+            lista.clearSelection();
+        } else {
+            lista.setSelectedIndex(indice);
+            lista.ensureIndexIsVisible(indice);
+        }
+    }
+
+    private void aceptar(String nombre) {
+        resultado = nombre == null ? "" : nombre.trim();
+        if (consulta != null) {
+            consulta.cancel(false);
+        }
+        dispose();
+    }
+
+    private void asignarTecla(int tecla, String nombre, Runnable accion) {
+        campo.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(tecla, 0), nombre);
+        campo.getActionMap().put(nombre, accion(accion));
+    }
+
+    private static AbstractAction accion(Runnable accion) {
+        return new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                accion.run();
+            }
+        };
+    }
+}
@@ -0,0 +1,122 @@
+package com.swasphere.vista;
+
+import java.awt.Cursor;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+
+/**
+ * Coordina las operaciones en segundo plano de una ventana: mientras hay
+ * operaciones pendientes muestra el cursor de espera y deshabilita los
+ * controles, y entrega los resultados en el hilo de eventos de Swing. La
+ * tecla Escape o el cierre de la ventana cancelan las operaciones pendientes.
+ *
+ * @autor ljsanchez23
+ */
+class EjecutorVista {
+
+    private final JFrame ventana;
+    private final JComponent[] controles;
+    private final Set<CompletableFuture<?>> pendientes = new LinkedHashSet<>();
+
+    /**
+     * Constructor de la clase EjecutorVista.
+     *
+     * @param ventana La ventana que ejecuta las operaciones.
+     * @param controles Los controles a deshabilitar mientras hay operaciones
+     * pendientes.
+     */
+    EjecutorVista(JFrame ventana, JComponent... controles) {
+        this.ventana = ventana;
+        this.controles = controles;
+        JComponent raiz = ventana.getRootPane();
+        raiz.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "cancelarOperaciones");
+        raiz.getActionMap().put("cancelarOperaciones", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                cancelar();
+            }
+        });
+        ventana.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancelar();
+            }
+        });
+    }
+
+    /**
+     * Espera el resultado de una operación sin bloquear el hilo de eventos.
+     * Debe invocarse desde el hilo de eventos.
+     *
+     * @param <T> El tipo del resultado.
+     * @param futuro La operación en curso.
+     * @param alTerminar La acción a ejecutar en el hilo de eventos con el
+     * resultado, si la operación no falló ni se canceló.
+     */
+    <T> void ejecutar(CompletableFuture<T> futuro, Consumer<T> alTerminar) {
+        if (pendientes.isEmpty()) {
+            setOcupado(true);
+        }
+        pendientes.add(futuro);
+        futuro.whenComplete((resultado, error) -> SwingUtilities.invokeLater(() -> {
+            pendientes.remove(futuro);
+            if (pendientes.isEmpty()) {
+                setOcupado(false);
+            }
+            if (error == null) {
+                alTerminar.accept(resultado);
+            } else if (!esCancelacion(error)) {
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(ventana, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }));
+    }
+
+    /**
+     * Cancela todas las operaciones pendientes. Sus resultados se descartan.
+     */
+    void cancelar() {
+        List<CompletableFuture<?>> copia = new ArrayList<>(pendientes);
+        for (CompletableFuture<?> futuro : copia) {
+            futuro.cancel(true);
+        }
+    }
+
+    /**
+     * Indica si hay operaciones pendientes.
+     *
+     * @return true si alguna operación está en curso.
+     */
+    boolean isOcupado() {
+        return !pendientes.isEmpty();
+    }
+
+    private void setOcupado(boolean ocupado) {
+        ventana.setCursor(Cursor.getPredefinedCursor(ocupado ? Cursor.WAIT_CURSOR : Cursor.DEFAULT_CURSOR));
+        for (JComponent control : controles) {
+            control.setEnabled(!ocupado);
+        }
+    }
+
+    private static boolean esCancelacion(Throwable error) {
+        return error instanceof CancellationException
+                || (error instanceof CompletionException && error.getCause() instanceof CancellationException);
+    }
+}
@@ -1,16 +1,18 @@
 package com.swasphere.vista;
 
 import javax.swing.JOptionPane;
-import java.sql.SQLException;
-import java.sql.Connection;
-import java.sql.DriverManager;
+import com.swasphere.controlador.CanalCambios;
 import com.swasphere.controlador.ProductoControlador;
+import com.swasphere.controlador.ProductoControladorAsincrono;
+import com.swasphere.modelo.CambioProducto;
 import com.swasphere.modelo.Producto;
-import com.swasphere.modelo.ProductoDAO;
+import com.swasphere.modelo.ResultadoActualizacion;
 import java.awt.Dimension;
 import java.awt.Toolkit;
-import javax.swing.table.DefaultTableModel;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.List;
+import javax.swing.SwingUtilities;
 
 /**
  * Vista para la gestión de inventario de productos.
@@ -19,11 +21,31 @@ import java.util.List;
  */
 public class GestorVista extends javax.swing.JFrame {
 
+    // Número de productos a partir del cual la tabla lee sólo las páginas visibles
+    private static final int UMBRAL_TABLA_VIRTUAL = Integer.getInteger("TABLA_VIRTUAL_DESDE", 20_000);
+
+    private final ProductoControladorAsincrono productoAsincrono = new ProductoControladorAsincrono(ProductoControlador.getInstancia());
+    private final ModeloTablaInventario modeloInventario = new ModeloTablaInventario();
+    private final ModeloTablaVirtual modeloVirtual = new ModeloTablaVirtual(productoAsincrono);
+    private final EjecutorVista ejecutorVista;
+    private final CargaInventario cargaInventario;
+    private CanalCambios.Suscripcion suscripcionCambios;
+
     /**
      * Crea una nueva instancia de GestorVista.
      */
     public GestorVista() {
         initComponents();
+        jTable1.setModel(modeloInventario);
+        cargaInventario = new CargaInventario(this, productoAsincrono, modeloInventario,
+                () -> suscribirCambios(modeloInventario.getUltimoCambio()));
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancelarSuscripcion();
+            }
+        });
+        ejecutorVista = new EjecutorVista(this, jButton1, jButton2, jButton3, jButton4, jButton5, jButton6);
         setResizable(false);
         Dimension dim = Toolkit.getDefaultToolkit().getScreenSize();
         int x = (dim.width - getSize().width) / 2;
@@ -287,32 +309,104 @@ public class GestorVista extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     /**
-     * Actualiza la tabla de productos con la lista proporcionada.
+     * Refresca la tabla de productos. Si la tabla ya contiene el inventario
+     * completo sólo se aplican los cambios confirmados desde la última carga;
+     * en caso contrario se carga el inventario completo.
+     */
+    private void refrescarInventario() {
+        if (jTable1.getModel() == modeloInventario && modeloInventario.isIncremental()) {
+            ejecutorVista.ejecutar(productoAsincrono.getCambiosDesde(modeloInventario.getUltimoCambio()), cambios -> {
+                if (cambios != null) {
+                    modeloInventario.aplicarCambios(cambios);
+                } else {
+                    cargarInventario();
+                }
+            });
+        } else {
+            cargarInventario();
+        }
+    }
+
+    /**
+     * Carga el inventario en la tabla. Hasta cierto número de productos se
+     * carga completo; con más se muestra la tabla virtual, que lee en segundo
+     * plano sólo las páginas que se van mostrando.
+     */
+    private void cargarInventario() {
+        cargaInventario.cancelar();
+        cancelarSuscripcion();
+        ejecutorVista.ejecutar(productoAsincrono.getNumeroProductos(), numero -> {
+            if (numero > UMBRAL_TABLA_VIRTUAL) {
+                mostrarModelo(modeloVirtual);
+                modeloVirtual.recargar(numero);
+                suscribirCambios(-1);
+            } else {
+                mostrarModelo(modeloInventario);
+                cargaInventario.iniciar(numero);
+            }
+        });
+    }
+
+    /**
+     * Muestra un modelo en la tabla y vacía el que se mostraba.
      *
-     * @param productos La lista de productos a mostrar en la tabla.
+     * @param modelo El modelo a mostrar.
      */
-    private void actualizarTabla(List<Producto> productos) {
-        DefaultTableModel tableModel = (DefaultTableModel) jTable1.getModel();
-        tableModel.setRowCount(0); // Limpiar la tabla existente
-        for (Producto producto : productos) {
-            Object[] rowData = {producto.getNombre(), producto.getCantidad(), producto.getPrecio()};
-            tableModel.addRow(rowData);
+    private void mostrarModelo(ModeloTablaProductos modelo) {
+        if (jTable1.getModel() != modelo) {
+            modeloTabla().limpiar();
+            jTable1.setModel(modelo);
         }
     }
 
-    private void jButton4ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton4ActionPerformed
-        // Conectar a la base de datos y usar el controlador para obtener los productos
-        try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-            ProductoDAO productoDAO = new ProductoDAO(conn);
-            ProductoControlador productoControlador = new ProductoControlador(productoDAO);
-            List<Producto> productos = productoControlador.getInventario();
-
-            // Actualizar la tabla con los productos obtenidos
-            actualizarTabla(productos);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
+    /**
+     * Suscribe la tabla a los cambios confirmados en el inventario, también
+     * por otros usuarios, para mostrarlos sin refrescar.
+     *
+     * @param desdeCambio El último cambio reflejado en la tabla, o -1 para
+     * recibir sólo los cambios que se confirmen a partir de ahora.
+     */
+    private void suscribirCambios(long desdeCambio) {
+        cancelarSuscripcion();
+        suscripcionCambios = productoAsincrono.getControlador().getCanalCambios().suscribir(desdeCambio,
+                cambios -> SwingUtilities.invokeLater(() -> recibirCambios(cambios)));
+    }
+
+    /**
+     * Deja de recibir los cambios del inventario.
+     */
+    private void cancelarSuscripcion() {
+        if (suscripcionCambios != null) {
+            suscripcionCambios.cancelar();
+            suscripcionCambios = null;
+        }
+    }
+
+    /**
+     * Refleja en la tabla un lote de cambios recibido del canal.
+     *
+     * @param cambios Los cambios en orden de confirmación.
+     */
+    private void recibirCambios(List<CambioProducto> cambios) {
+        if (jTable1.getModel() == modeloVirtual) {
+            modeloVirtual.aplicarCambios(cambios);
+        } else if (modeloInventario.isIncremental()) {
+            modeloInventario.aplicarCambios(cambios);
         }
+    }
+
+    /**
+     * Obtiene el modelo que muestra la tabla.
+     *
+     * @return El modelo del inventario completo o el de la tabla virtual.
+     */
+    private ModeloTablaProductos modeloTabla() {
+        return (ModeloTablaProductos) jTable1.getModel();
+    }
+
+    private void jButton4ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton4ActionPerformed
+        // Usar el controlador compartido para refrescar los productos
+        refrescarInventario();
     }//GEN-LAST:event_jButton4ActionPerformed
 
     /**
@@ -321,11 +415,11 @@ public class GestorVista extends javax.swing.JFrame {
      * @param evt El evento de acción.
      */
     private void jButton5ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton5ActionPerformed
-        // Obtener el modelo de la tabla
-        DefaultTableModel tableModel = (DefaultTableModel) jTable1.getModel();
-
-        // Limpiar la tabla estableciendo la cantidad de filas a 0
-        tableModel.setRowCount(0);
+        // Limpiar la tabla; la siguiente carga será completa
+        cargaInventario.cancelar();
+        cancelarSuscripcion();
+        mostrarModelo(modeloInventario);
+        modeloInventario.limpiar();
     }//GEN-LAST:event_jButton5ActionPerformed
 
     /**
@@ -334,33 +428,49 @@ public class GestorVista extends javax.swing.JFrame {
      * @param evt El evento de acción.
      */
     private void jButton1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton1ActionPerformed
-        // Mostrar cuadro de diálogo para que el usuario ingrese el nombre del producto
-        String nombreProducto = JOptionPane.showInputDialog(this, "Ingrese el nombre del producto a buscar:");
+        // Mostrar cuadro de diálogo con sugerencias para que el usuario ingrese el nombre del producto
+        String nombreProducto = DialogoBusqueda.pedirNombre(this, productoAsincrono);
 
         if (nombreProducto != null && !nombreProducto.trim().isEmpty()) {
-            // Conectar a la base de datos y usar el controlador para buscar el producto
-            try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-                ProductoDAO productoDAO = new ProductoDAO(conn);
-                ProductoControlador productoControlador = new ProductoControlador(productoDAO);
-
-                Producto producto = productoControlador.buscarProducto(nombreProducto.trim());
+            // Buscar el producto en segundo plano
+            ejecutorVista.ejecutar(productoAsincrono.buscarProducto(nombreProducto.trim()), producto -> {
                 if (producto != null) {
                     // Añadir el producto encontrado a la tabla sin limpiar la tabla existente
-                    DefaultTableModel tableModel = (DefaultTableModel) jTable1.getModel();
-                    Object[] rowData = {producto.getNombre(), producto.getCantidad(), producto.getPrecio()};
-                    tableModel.addRow(rowData);
+                    modeloTabla().agregar(producto);
+                    productoAsincrono.getControlador().registrarUsoNombre(producto.getNombre());
                 } else {
-                    JOptionPane.showMessageDialog(this, "Producto no encontrado.", "Error", JOptionPane.ERROR_MESSAGE);
+                    ofrecerSimilares(nombreProducto.trim());
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            });
         } else {
             JOptionPane.showMessageDialog(this, "Debe ingresar un nombre de producto.", "Advertencia", JOptionPane.WARNING_MESSAGE);
         }
     }//GEN-LAST:event_jButton1ActionPerformed
 
+    /**
+     * Busca nombres parecidos a uno que no se encontró y, si el usuario elige
+     * uno, añade ese producto a la tabla.
+     *
+     * @param nombreProducto El nombre buscado.
+     */
+    private void ofrecerSimilares(String nombreProducto) {
+        ejecutorVista.ejecutar(productoAsincrono.buscarProductosSimilares(nombreProducto, 5), similares -> {
+            String elegido = DialogoBusqueda.elegirSimilar(this, similares);
+            if (elegido == null) {
+                JOptionPane.showMessageDialog(this, "Producto no encontrado.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            ejecutorVista.ejecutar(productoAsincrono.buscarProducto(elegido), producto -> {
+                if (producto != null) {
+                    modeloTabla().agregar(producto);
+                    productoAsincrono.getControlador().registrarUsoNombre(producto.getNombre());
+                } else {
+                    JOptionPane.showMessageDialog(this, "Producto no encontrado.", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        });
+    }
+
     /**
      * Maneja el evento de cerrar sesión.
      *
@@ -386,26 +496,21 @@ public class GestorVista extends javax.swing.JFrame {
         // Crear una instancia de Producto
         Producto producto = new Producto(nombre, cantidad, precio);
 
-        // Conectar a la base de datos y usar el controlador
-        try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-            ProductoDAO productoDAO = new ProductoDAO(conn);
-            ProductoControlador productoControlador = new ProductoControlador(productoDAO);
-
-            if (productoControlador.productoExiste(nombre)) {
+        // Validar y agregar el producto en segundo plano
+        ejecutorVista.ejecutar(productoAsincrono.productoExiste(nombre), existe -> {
+            if (existe) {
                 JOptionPane.showMessageDialog(this, "El producto ya existe en el inventario.", "Error", JOptionPane.ERROR_MESSAGE);
             } else {
-                if (productoControlador.agregarProducto(producto)) {
-                    JOptionPane.showMessageDialog(this, "El producto ha sido agregado exitosamente.");
-                    List<Producto> productos = productoControlador.getInventario();
-                    actualizarTabla(productos);
-                } else {
-                    JOptionPane.showMessageDialog(this, "El producto no ha sido agregado exitosamente.", "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                ejecutorVista.ejecutar(productoAsincrono.agregarProducto(producto), agregado -> {
+                    if (agregado) {
+                        JOptionPane.showMessageDialog(this, "El producto ha sido agregado exitosamente.");
+                        refrescarInventario();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "El producto no ha sido agregado exitosamente.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }//GEN-LAST:event_jButton6ActionPerformed
 
     /**
@@ -416,50 +521,56 @@ public class GestorVista extends javax.swing.JFrame {
     private void jButton2ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton2ActionPerformed
         // Obtener la fila seleccionada
         int selectedRow = jTable1.getSelectedRow();
-        if (selectedRow != -1) {
-            // Obtener el nombre del producto de la fila seleccionada
-            String nombreProducto = (String) jTable1.getValueAt(selectedRow, 0);
+        // Obtener el producto de la fila seleccionada; en la tabla virtual puede estar cargándose
+        Producto productoSeleccionado = selectedRow != -1 ? modeloTabla().getProducto(selectedRow) : null;
+        if (productoSeleccionado != null) {
+            String nombreProducto = productoSeleccionado.getNombre();
 
-            // Mostrar cuadro de diálogo para seleccionar entre modificar cantidad o precio
-            Object[] options = {"Cantidad", "Precio"};
+            // Mostrar cuadro de diálogo para seleccionar entre modificar cantidad, precio o registrar un movimiento
+            Object[] options = {"Cantidad", "Precio", "Entrada/Salida"};
             int choice = JOptionPane.showOptionDialog(this, "¿Qué desea modificar?", "Modificar Producto",
-                    JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
-
-            if (choice == JOptionPane.YES_OPTION || choice == JOptionPane.NO_OPTION) {
-                try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-                    ProductoDAO productoDAO = new ProductoDAO(conn);
-                    ProductoControlador productoControlador = new ProductoControlador(productoDAO);
+                    JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
 
+            if (choice != JOptionPane.CLOSED_OPTION) {
+                try {
                     if (choice == JOptionPane.YES_OPTION) {
                         // Modificar cantidad
                         String nuevaCantidadStr = JOptionPane.showInputDialog(this, "Ingrese la nueva cantidad:");
                         if (nuevaCantidadStr != null && !nuevaCantidadStr.trim().isEmpty()) {
                             int nuevaCantidad = Integer.parseInt(nuevaCantidadStr.trim());
-                            if (productoControlador.actualizarCantidad(nombreProducto, nuevaCantidad)) {
-                                // Actualizar la tabla
-                                jTable1.setValueAt(nuevaCantidad, selectedRow, 1);
-                                JOptionPane.showMessageDialog(this, "Cantidad actualizada exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                            } else {
-                                JOptionPane.showMessageDialog(this, "Error al actualizar la cantidad.", "Error", JOptionPane.ERROR_MESSAGE);
-                            }
+                            // Sólo se aplica si nadie modificó el producto desde que se mostró
+                            ejecutorVista.ejecutar(productoAsincrono.actualizarCantidad(nombreProducto, nuevaCantidad, productoSeleccionado.getVersion()),
+                                    resultado -> mostrarResultadoModificacion(nombreProducto, resultado, "Cantidad actualizada exitosamente.", "Error al actualizar la cantidad."));
                         }
                     } else if (choice == JOptionPane.NO_OPTION) {
                         // Modificar precio
                         String nuevoPrecioStr = JOptionPane.showInputDialog(this, "Ingrese el nuevo precio:");
                         if (nuevoPrecioStr != null && !nuevoPrecioStr.trim().isEmpty()) {
                             double nuevoPrecio = Double.parseDouble(nuevoPrecioStr.trim());
-                            if (productoControlador.actualizarPrecio(nombreProducto, nuevoPrecio)) {
-                                // Actualizar la tabla
-                                jTable1.setValueAt(nuevoPrecio, selectedRow, 2);
-                                JOptionPane.showMessageDialog(this, "Precio actualizado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                            } else {
-                                JOptionPane.showMessageDialog(this, "Error al actualizar el precio.", "Error", JOptionPane.ERROR_MESSAGE);
-                            }
+                            ejecutorVista.ejecutar(productoAsincrono.actualizarPrecio(nombreProducto, nuevoPrecio, productoSeleccionado.getVersion()),
+                                    resultado -> mostrarResultadoModificacion(nombreProducto, resultado, "Precio actualizado exitosamente.", "Error al actualizar el precio."));
+                        }
+                    } else {
+                        // Registrar una entrada o salida sobre la cantidad almacenada, no sobre la mostrada
+                        String movimientoStr = JOptionPane.showInputDialog(this, "Ingrese las unidades que entran (o negativas si salen):");
+                        if (movimientoStr != null && !movimientoStr.trim().isEmpty()) {
+                            int movimiento = Integer.parseInt(movimientoStr.trim());
+                            ejecutorVista.ejecutar(productoAsincrono.ajustarCantidad(nombreProducto, movimiento, false), nuevaCantidad -> {
+                                if (nuevaCantidad != null) {
+                                    // Recargar el producto: el ajuste cambió su versión y la fila
+                                    // mostrada provocaría un falso conflicto en la siguiente modificación
+                                    ejecutorVista.ejecutar(productoAsincrono.buscarProducto(nombreProducto), actual -> {
+                                        if (actual != null) {
+                                            modeloTabla().actualizar(actual);
+                                        }
+                                    });
+                                    JOptionPane.showMessageDialog(this, "Cantidad actualizada exitosamente. Nueva cantidad: " + nuevaCantidad, "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                                } else {
+                                    JOptionPane.showMessageDialog(this, "No se pudo registrar el movimiento: el producto no existe o no hay existencias suficientes.", "Error", JOptionPane.ERROR_MESSAGE);
+                                }
+                            });
                         }
                     }
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                    JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
                 } catch (NumberFormatException e) {
                     JOptionPane.showMessageDialog(this, "Dato ingresado no válido.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -469,6 +580,39 @@ public class GestorVista extends javax.swing.JFrame {
         }
     }//GEN-LAST:event_jButton2ActionPerformed
 
+    /**
+     * Refleja en la tabla el resultado de una modificación condicional y lo
+     * informa al usuario. Ante un conflicto se muestran los valores vigentes.
+     *
+     * @param nombreProducto El nombre del producto modificado.
+     * @param resultado El resultado de la modificación, o null si falló.
+     * @param mensajeExito El mensaje a mostrar si se aplicó.
+     * @param mensajeError El mensaje a mostrar si ocurrió un error.
+     */
+    private void mostrarResultadoModificacion(String nombreProducto, ResultadoActualizacion resultado, String mensajeExito, String mensajeError) {
+        if (resultado == null) {
+            JOptionPane.showMessageDialog(this, mensajeError, "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        switch (resultado.getEstado()) {
+            case ACTUALIZADO:
+                modeloTabla().actualizar(resultado.getActual());
+                JOptionPane.showMessageDialog(this, mensajeExito, "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                break;
+            case CONFLICTO:
+                Producto vigente = resultado.getActual();
+                modeloTabla().actualizar(vigente);
+                JOptionPane.showMessageDialog(this, "Otro usuario modificó el producto. Valores actuales:\n"
+                        + "Cantidad: " + vigente.getCantidad() + "\nPrecio: " + vigente.getPrecio()
+                        + "\nRevise los datos y vuelva a intentarlo.", "Conflicto", JOptionPane.WARNING_MESSAGE);
+                break;
+            default:
+                modeloTabla().eliminar(nombreProducto);
+                JOptionPane.showMessageDialog(this, "El producto ya no existe.", "Error", JOptionPane.ERROR_MESSAGE);
+                break;
+        }
+    }
+
     /**
      * Maneja el evento de eliminar un producto.
      *
@@ -477,27 +621,21 @@ public class GestorVista extends javax.swing.JFrame {
     private void jButton3ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton3ActionPerformed
         // Obtener la fila seleccionada
         int selectedRow = jTable1.getSelectedRow();
-        if (selectedRow != -1) {
-            // Obtener el nombre del producto de la fila seleccionada
-            String nombreProducto = (String) jTable1.getValueAt(selectedRow, 0);
-
-            // Conectar a la base de datos y usar el controlador para eliminar el producto
-            try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-                ProductoDAO productoDAO = new ProductoDAO(conn);
-                ProductoControlador productoControlador = new ProductoControlador(productoDAO);
-
-                if (productoControlador.eliminarProducto(nombreProducto)) {
+        // Obtener el producto de la fila seleccionada; en la tabla virtual puede estar cargándose
+        Producto productoSeleccionado = selectedRow != -1 ? modeloTabla().getProducto(selectedRow) : null;
+        if (productoSeleccionado != null) {
+            String nombreProducto = productoSeleccionado.getNombre();
+
+            // Eliminar el producto en segundo plano
+            ejecutorVista.ejecutar(productoAsincrono.eliminarProducto(nombreProducto), eliminado -> {
+                if (eliminado) {
                     JOptionPane.showMessageDialog(this, "Producto eliminado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                    // Actualizar la tabla eliminando la fila seleccionada
-                    DefaultTableModel tableModel = (DefaultTableModel) jTable1.getModel();
-                    tableModel.removeRow(selectedRow);
+                    // Actualizar la tabla eliminando la fila del producto
+                    modeloTabla().eliminar(nombreProducto);
                 } else {
                     JOptionPane.showMessageDialog(this, "Error al eliminar el producto.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            });
         } else {
             JOptionPane.showMessageDialog(this, "Seleccione un producto para eliminar.", "Advertencia", JOptionPane.WARNING_MESSAGE);
         }
@@ -1,18 +1,34 @@
 package com.swasphere.vista;
 
 import javax.swing.JOptionPane;
-import java.sql.SQLException;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import com.swasphere.modelo.UsuarioDAO;
 import com.swasphere.controlador.UsuarioControlador;
+import com.swasphere.controlador.UsuarioControladorAsincrono;
+import com.swasphere.controlador.CanalCambios;
 import com.swasphere.controlador.ProductoControlador;
+import com.swasphere.controlador.ProductoControladorAsincrono;
+import com.swasphere.controlador.ResultadoImportacion;
+import com.swasphere.modelo.CambioProducto;
 import com.swasphere.modelo.Producto;
-import com.swasphere.modelo.ProductoDAO;
+import com.swasphere.modelo.ResultadoActualizacion;
 import java.awt.Dimension;
 import java.awt.Toolkit;
-import javax.swing.table.DefaultTableModel;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.JFileChooser;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.DefaultTableModel;
 
 /**
  * Vista de administrador para la gestión del inventario y usuarios.
@@ -21,11 +37,40 @@ import java.util.List;
  */
 public class GestorVistaAdmin extends javax.swing.JFrame {
 
+    // Máximo de filas del informe de stock bajo
+    private static final int LIMITE_INFORME = 500;
+
+    // Número de productos a partir del cual la tabla lee sólo las páginas visibles
+    private static final int UMBRAL_TABLA_VIRTUAL = Integer.getInteger("TABLA_VIRTUAL_DESDE", 20_000);
+
+    private final ProductoControladorAsincrono productoAsincrono = new ProductoControladorAsincrono(ProductoControlador.getInstancia());
+    private final UsuarioControladorAsincrono usuarioAsincrono = new UsuarioControladorAsincrono(new UsuarioControlador());
+    private final ModeloTablaInventario modeloInventario = new ModeloTablaInventario();
+    private final ModeloTablaVirtual modeloVirtual = new ModeloTablaVirtual(productoAsincrono);
+    private final EjecutorVista ejecutorVista;
+    private final CargaInventario cargaInventario;
+    private CanalCambios.Suscripcion suscripcionCambios;
+    private final JMenu menuArchivo = new JMenu("Archivo");
+    private final JMenu menuInformes = new JMenu("Informes");
+
     /**
      * Crea una nueva instancia de GestorVistaAdmin.
      */
     public GestorVistaAdmin() {
         initComponents();
+        jTable1.setModel(modeloInventario);
+        cargaInventario = new CargaInventario(this, productoAsincrono, modeloInventario,
+                () -> suscribirCambios(modeloInventario.getUltimoCambio()));
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancelarSuscripcion();
+            }
+        });
+        crearMenuArchivo();
+        crearMenuInformes();
+        ejecutorVista = new EjecutorVista(this, jButton1, jButton2, jButton3, jButton4, jButton5, jButton6, jButton7, jButton8,
+                menuArchivo, menuInformes);
         setResizable(false);
         Dimension dim = Toolkit.getDefaultToolkit().getScreenSize();
         int x = (dim.width - getSize().width) / 2;
@@ -331,37 +376,341 @@ public class GestorVistaAdmin extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     /**
-     * Actualiza la tabla de productos con la lista proporcionada.
+     * Crea el menú de archivo, con la exportación e importación del
+     * inventario en CSV.
+     */
+    private void crearMenuArchivo() {
+        JMenuItem exportar = new JMenuItem("Exportar inventario a CSV...");
+        exportar.addActionListener(evt -> exportarCsv());
+        JMenuItem importar = new JMenuItem("Importar productos desde CSV...");
+        importar.addActionListener(evt -> importarCsv());
+        menuArchivo.add(exportar);
+        menuArchivo.add(importar);
+    }
+
+    /**
+     * Pide un archivo y exporta el inventario. Si el nombre termina en ".gz"
+     * el archivo se comprime.
+     */
+    private void exportarCsv() {
+        JFileChooser selector = crearSelectorCsv();
+        selector.setSelectedFile(new File("inventario.csv"));
+        if (selector.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File archivo = selector.getSelectedFile();
+        if (archivo.exists() && JOptionPane.showConfirmDialog(this, "El archivo ya existe. ¿Desea reemplazarlo?",
+                "Exportar inventario", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+        boolean comprimir = archivo.getName().toLowerCase(Locale.ROOT).endsWith(".gz");
+        ejecutorVista.ejecutar(productoAsincrono.exportarCsv(archivo.toPath(), comprimir), filas -> {
+            if (filas < 0) {
+                JOptionPane.showMessageDialog(this, "No se pudo exportar el inventario.", "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, "Se exportaron " + filas + " productos.", "Exportar inventario",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+    }
+
+    /**
+     * Pide un archivo CSV, importa sus productos y muestra el informe de
+     * errores si hubo registros rechazados.
+     */
+    private void importarCsv() {
+        JFileChooser selector = crearSelectorCsv();
+        if (selector.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        ejecutorVista.ejecutar(productoAsincrono.importarCsv(selector.getSelectedFile().toPath()), resultado -> {
+            if (resultado == null) {
+                JOptionPane.showMessageDialog(this, "No se pudo leer el archivo.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            mostrarResultadoImportacion(resultado);
+            cargarInventario();
+        });
+    }
+
+    private void mostrarResultadoImportacion(ResultadoImportacion resultado) {
+        String mensaje = "Registros leídos: " + resultado.getRegistros()
+                + "\nProductos agregados: " + resultado.getInsertados()
+                + "\nProductos actualizados: " + resultado.getActualizados()
+                + "\nRegistros rechazados: " + resultado.getRechazados();
+        if (resultado.getErrores().isEmpty()) {
+            JOptionPane.showMessageDialog(this, mensaje, "Importar productos", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JTextArea errores = new JTextArea(String.join("\n", resultado.getErrores()));
+        errores.setEditable(false);
+        JScrollPane panel = new JScrollPane(errores);
+        panel.setPreferredSize(new Dimension(420, 200));
+        JOptionPane.showMessageDialog(this, new Object[]{mensaje, " ", "Errores:", panel}, "Importar productos",
+                JOptionPane.WARNING_MESSAGE);
+    }
+
+    private JFileChooser crearSelectorCsv() {
+        JFileChooser selector = new JFileChooser();
+        selector.setFileFilter(new FileNameExtensionFilter("Archivos CSV (*.csv, *.csv.gz)", "csv", "gz"));
+        return selector;
+    }
+
+    /**
+     * Crea el menú de informes. Los informes se calculan con consultas de
+     * agregado, por lo que no cargan el inventario en la tabla.
+     */
+    private void crearMenuInformes() {
+        JMenuItem resumen = new JMenuItem("Resumen del inventario");
+        resumen.addActionListener(evt -> mostrarResumen());
+        JMenuItem stockBajo = new JMenuItem("Stock bajo...");
+        stockBajo.addActionListener(evt -> {
+            Integer umbral = pedirEntero("Mostrar productos con cantidad menor que:", 10);
+            if (umbral != null) {
+                mostrarProductos("Stock bajo (menos de " + umbral + ")", productoAsincrono.getStockBajo(umbral, LIMITE_INFORME));
+            }
+        });
+        JMenuItem masCaros = new JMenuItem("Productos más caros...");
+        masCaros.addActionListener(evt -> {
+            Integer limite = pedirEntero("Número de productos a mostrar:", 10);
+            if (limite != null) {
+                mostrarProductos("Productos más caros", productoAsincrono.getMasCaros(limite));
+            }
+        });
+        JMenuItem mayorCantidad = new JMenuItem("Productos con mayor cantidad...");
+        mayorCantidad.addActionListener(evt -> {
+            Integer limite = pedirEntero("Número de productos a mostrar:", 10);
+            if (limite != null) {
+                mostrarProductos("Productos con mayor cantidad", productoAsincrono.getMayorCantidad(limite));
+            }
+        });
+        JMenuItem histograma = new JMenuItem("Distribución de cantidades...");
+        histograma.addActionListener(evt -> {
+            Integer ancho = pedirEntero("Ancho de cada intervalo de cantidad:", 10);
+            if (ancho != null) {
+                mostrarHistograma(ancho);
+            }
+        });
+        menuInformes.add(resumen);
+        menuInformes.addSeparator();
+        menuInformes.add(stockBajo);
+        menuInformes.add(masCaros);
+        menuInformes.add(mayorCantidad);
+        menuInformes.add(histograma);
+        JMenuBar barra = new JMenuBar();
+        barra.add(menuArchivo);
+        barra.add(menuInformes);
+        setJMenuBar(barra);
+        pack();
+    }
+
+    /**
+     * Muestra los totales del inventario.
+     */
+    private void mostrarResumen() {
+        ejecutorVista.ejecutar(productoAsincrono.getResumenInventario(), resumen -> {
+            if (resumen == null) {
+                JOptionPane.showMessageDialog(this, "No se pudo calcular el resumen.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            String mensaje = "Productos: " + resumen.getProductos()
+                    + "\nUnidades en existencia: " + resumen.getUnidades()
+                    + "\nValoración total: " + String.format("%.2f", resumen.getValoracion());
+            if (resumen.getProductos() > 0) {
+                mensaje += "\nPrecio mínimo: " + resumen.getPrecioMinimo()
+                        + "\nPrecio máximo: " + resumen.getPrecioMaximo();
+            }
+            JOptionPane.showMessageDialog(this, mensaje, "Resumen del inventario", JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+
+    /**
+     * Muestra en un diálogo los productos de un informe cuando la consulta
+     * termina.
+     *
+     * @param titulo El título del diálogo.
+     * @param futuro La consulta en curso.
+     */
+    private void mostrarProductos(String titulo, CompletableFuture<List<Producto>> futuro) {
+        ejecutorVista.ejecutar(futuro, productos -> {
+            if (productos == null) {
+                JOptionPane.showMessageDialog(this, "No se pudo obtener el informe.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (productos.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No hay productos que mostrar.", titulo, JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            DefaultTableModel modelo = new DefaultTableModel(new Object[]{"Nombre", "Cantidad", "Precio"}, 0);
+            for (Producto producto : productos) {
+                modelo.addRow(new Object[]{producto.getNombre(), producto.getCantidad(), producto.getPrecio()});
+            }
+            mostrarTabla(titulo, modelo);
+        });
+    }
+
+    /**
+     * Muestra cuántos productos hay en cada intervalo de cantidad.
+     *
+     * @param ancho El ancho de cada intervalo.
+     */
+    private void mostrarHistograma(int ancho) {
+        ejecutorVista.ejecutar(productoAsincrono.getHistogramaCantidades(ancho), histograma -> {
+            if (histograma == null) {
+                JOptionPane.showMessageDialog(this, "No se pudo obtener el informe.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (histograma.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "El inventario está vacío.", "Distribución de cantidades",
+                        JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            DefaultTableModel modelo = new DefaultTableModel(new Object[]{"Cantidad", "Productos"}, 0);
+            for (Map.Entry<Integer, Long> intervalo : histograma.entrySet()) {
+                int desde = intervalo.getKey();
+                modelo.addRow(new Object[]{desde + " - " + (desde + ancho - 1), intervalo.getValue()});
+            }
+            mostrarTabla("Distribución de cantidades", modelo);
+        });
+    }
+
+    private void mostrarTabla(String titulo, DefaultTableModel modelo) {
+        JTable tabla = new JTable(modelo);
+        tabla.setDefaultEditor(Object.class, null);
+        JScrollPane panel = new JScrollPane(tabla);
+        panel.setPreferredSize(new Dimension(420, 260));
+        JOptionPane.showMessageDialog(this, panel, titulo, JOptionPane.PLAIN_MESSAGE);
+    }
+
+    /**
+     * Pide un número entero positivo al usuario.
+     *
+     * @param mensaje El mensaje del diálogo.
+     * @param valorInicial El valor propuesto.
+     * @return El número ingresado, o null si el usuario canceló o el valor no
+     * es válido.
+     */
+    private Integer pedirEntero(String mensaje, int valorInicial) {
+        String valor = JOptionPane.showInputDialog(this, mensaje, valorInicial);
+        if (valor == null) {
+            return null;
+        }
+        try {
+            int numero = Integer.parseInt(valor.trim());
+            if (numero > 0) {
+                return numero;
+            }
+        } catch (NumberFormatException e) {
+            // Se informa abajo
+        }
+        JOptionPane.showMessageDialog(this, "Debe ingresar un número entero mayor que cero.", "Advertencia", JOptionPane.WARNING_MESSAGE);
+        return null;
+    }
+
+    /**
+     * Refresca la tabla de productos. Si la tabla ya contiene el inventario
+     * completo sólo se aplican los cambios confirmados desde la última carga;
+     * en caso contrario se carga el inventario completo.
+     */
+    private void refrescarInventario() {
+        if (jTable1.getModel() == modeloInventario && modeloInventario.isIncremental()) {
+            ejecutorVista.ejecutar(productoAsincrono.getCambiosDesde(modeloInventario.getUltimoCambio()), cambios -> {
+                if (cambios != null) {
+                    modeloInventario.aplicarCambios(cambios);
+                } else {
+                    cargarInventario();
+                }
+            });
+        } else {
+            cargarInventario();
+        }
+    }
+
+    /**
+     * Carga el inventario en la tabla. Hasta cierto número de productos se
+     * carga completo; con más se muestra la tabla virtual, que lee en segundo
+     * plano sólo las páginas que se van mostrando.
+     */
+    private void cargarInventario() {
+        cargaInventario.cancelar();
+        cancelarSuscripcion();
+        ejecutorVista.ejecutar(productoAsincrono.getNumeroProductos(), numero -> {
+            if (numero > UMBRAL_TABLA_VIRTUAL) {
+                mostrarModelo(modeloVirtual);
+                modeloVirtual.recargar(numero);
+                suscribirCambios(-1);
+            } else {
+                mostrarModelo(modeloInventario);
+                cargaInventario.iniciar(numero);
+            }
+        });
+    }
+
+    /**
+     * Muestra un modelo en la tabla y vacía el que se mostraba.
      *
-     * @param productos La lista de productos a mostrar en la tabla.
+     * @param modelo El modelo a mostrar.
      */
-    private void actualizarTabla(List<Producto> productos) {
-        DefaultTableModel tableModel = (DefaultTableModel) jTable1.getModel();
-        tableModel.setRowCount(0); // Limpiar la tabla existente
-        for (Producto producto : productos) {
-            Object[] rowData = {producto.getNombre(), producto.getCantidad(), producto.getPrecio()};
-            tableModel.addRow(rowData);
+    private void mostrarModelo(ModeloTablaProductos modelo) {
+        if (jTable1.getModel() != modelo) {
+            modeloTabla().limpiar();
+            jTable1.setModel(modelo);
         }
     }
 
+    /**
+     * Suscribe la tabla a los cambios confirmados en el inventario, también
+     * por otros usuarios, para mostrarlos sin refrescar.
+     *
+     * @param desdeCambio El último cambio reflejado en la tabla, o -1 para
+     * recibir sólo los cambios que se confirmen a partir de ahora.
+     */
+    private void suscribirCambios(long desdeCambio) {
+        cancelarSuscripcion();
+        suscripcionCambios = productoAsincrono.getControlador().getCanalCambios().suscribir(desdeCambio,
+                cambios -> SwingUtilities.invokeLater(() -> recibirCambios(cambios)));
+    }
+
+    /**
+     * Deja de recibir los cambios del inventario.
+     */
+    private void cancelarSuscripcion() {
+        if (suscripcionCambios != null) {
+            suscripcionCambios.cancelar();
+            suscripcionCambios = null;
+        }
+    }
+
+    /**
+     * Refleja en la tabla un lote de cambios recibido del canal.
+     *
+     * @param cambios Los cambios en orden de confirmación.
+     */
+    private void recibirCambios(List<CambioProducto> cambios) {
+        if (jTable1.getModel() == modeloVirtual) {
+            modeloVirtual.aplicarCambios(cambios);
+        } else if (modeloInventario.isIncremental()) {
+            modeloInventario.aplicarCambios(cambios);
+        }
+    }
+
+    /**
+     * Obtiene el modelo que muestra la tabla.
+     *
+     * @return El modelo del inventario completo o el de la tabla virtual.
+     */
+    private ModeloTablaProductos modeloTabla() {
+        return (ModeloTablaProductos) jTable1.getModel();
+    }
+
     /**
      * Maneja el evento de obtener productos y actualizar la tabla.
      *
      * @param evt El evento de acción.
      */
     private void jButton4ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton4ActionPerformed
-        // Conectar a la base de datos y usar el controlador para obtener los productos
-        try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-            ProductoDAO productoDAO = new ProductoDAO(conn);
-            ProductoControlador productoControlador = new ProductoControlador(productoDAO);
-            List<Producto> productos = productoControlador.getInventario();
-
-            // Actualizar la tabla con los productos obtenidos
-            actualizarTabla(productos);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        // Usar el controlador compartido para refrescar los productos
+        refrescarInventario();
     }//GEN-LAST:event_jButton4ActionPerformed
 
     /**
@@ -370,11 +719,11 @@ public class GestorVistaAdmin extends javax.swing.JFrame {
      * @param evt El evento de acción.
      */
     private void jButton5ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton5ActionPerformed
-        // Obtener el modelo de la tabla
-        DefaultTableModel tableModel = (DefaultTableModel) jTable1.getModel();
-
-        // Limpiar la tabla estableciendo la cantidad de filas a 0
-        tableModel.setRowCount(0);
+        // Limpiar la tabla; la siguiente carga será completa
+        cargaInventario.cancelar();
+        cancelarSuscripcion();
+        mostrarModelo(modeloInventario);
+        modeloInventario.limpiar();
     }//GEN-LAST:event_jButton5ActionPerformed
 
     /**
@@ -383,33 +732,49 @@ public class GestorVistaAdmin extends javax.swing.JFrame {
      * @param evt El evento de acción.
      */
     private void jButton1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton1ActionPerformed
-        // Mostrar cuadro de diálogo para que el usuario ingrese el nombre del producto
-        String nombreProducto = JOptionPane.showInputDialog(this, "Ingrese el nombre del producto a buscar:");
+        // Mostrar cuadro de diálogo con sugerencias para que el usuario ingrese el nombre del producto
+        String nombreProducto = DialogoBusqueda.pedirNombre(this, productoAsincrono);
 
         if (nombreProducto != null && !nombreProducto.trim().isEmpty()) {
-            // Conectar a la base de datos y usar el controlador para buscar el producto
-            try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-                ProductoDAO productoDAO = new ProductoDAO(conn);
-                ProductoControlador productoControlador = new ProductoControlador(productoDAO);
-
-                Producto producto = productoControlador.buscarProducto(nombreProducto.trim());
+            // Buscar el producto en segundo plano
+            ejecutorVista.ejecutar(productoAsincrono.buscarProducto(nombreProducto.trim()), producto -> {
                 if (producto != null) {
                     // Añadir el producto encontrado a la tabla sin limpiar la tabla existente
-                    DefaultTableModel tableModel = (DefaultTableModel) jTable1.getModel();
-                    Object[] rowData = {producto.getNombre(), producto.getCantidad(), producto.getPrecio()};
-                    tableModel.addRow(rowData);
+                    modeloTabla().agregar(producto);
+                    productoAsincrono.getControlador().registrarUsoNombre(producto.getNombre());
                 } else {
-                    JOptionPane.showMessageDialog(this, "Producto no encontrado.", "Error", JOptionPane.ERROR_MESSAGE);
+                    ofrecerSimilares(nombreProducto.trim());
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            });
         } else {
             JOptionPane.showMessageDialog(this, "Debe ingresar un nombre de producto.", "Advertencia", JOptionPane.WARNING_MESSAGE);
         }
     }//GEN-LAST:event_jButton1ActionPerformed
 
+    /**
+     * Busca nombres parecidos a uno que no se encontró y, si el usuario elige
+     * uno, añade ese producto a la tabla.
+     *
+     * @param nombreProducto El nombre buscado.
+     */
+    private void ofrecerSimilares(String nombreProducto) {
+        ejecutorVista.ejecutar(productoAsincrono.buscarProductosSimilares(nombreProducto, 5), similares -> {
+            String elegido = DialogoBusqueda.elegirSimilar(this, similares);
+            if (elegido == null) {
+                JOptionPane.showMessageDialog(this, "Producto no encontrado.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            ejecutorVista.ejecutar(productoAsincrono.buscarProducto(elegido), producto -> {
+                if (producto != null) {
+                    modeloTabla().agregar(producto);
+                    productoAsincrono.getControlador().registrarUsoNombre(producto.getNombre());
+                } else {
+                    JOptionPane.showMessageDialog(this, "Producto no encontrado.", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        });
+    }
+
     /**
      * Maneja el evento de cerrar sesión.
      *
@@ -431,20 +796,14 @@ public class GestorVistaAdmin extends javax.swing.JFrame {
         String nombreUsuario = jTextField4.getText();
         String password = new String(jPasswordField1.getPassword());
 
-        // Conectar a la base de datos
-        try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-            UsuarioDAO usuarioDAO = new UsuarioDAO();
-            UsuarioControlador usuarioControlador = new UsuarioControlador();
-
-            if (usuarioControlador.registrarUsuario(nombreUsuario, password)) {
+        // Registrar el usuario en segundo plano
+        ejecutorVista.ejecutar(usuarioAsincrono.registrarUsuario(nombreUsuario, password), registrado -> {
+            if (registrado) {
                 JOptionPane.showMessageDialog(this, "Usuario agregado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
             } else {
                 JOptionPane.showMessageDialog(this, "El nombre de usuario ya existe.", "Error", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }//GEN-LAST:event_jButton8ActionPerformed
 
     /**
@@ -457,20 +816,14 @@ public class GestorVistaAdmin extends javax.swing.JFrame {
         String nombreUsuario = jTextField4.getText();
         // String password = new String(jPasswordField1.getPassword());
 
-        // Conectar a la base de datos
-        try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-            //  UsuarioDAO usuarioDAO = new UsuarioDAO();
-            UsuarioControlador usuarioControlador = new UsuarioControlador();
-
-            if (usuarioControlador.eliminarUsuario(nombreUsuario)) {
+        // Eliminar el usuario en segundo plano
+        ejecutorVista.ejecutar(usuarioAsincrono.eliminarUsuario(nombreUsuario), eliminado -> {
+            if (eliminado) {
                 JOptionPane.showMessageDialog(this, "Usuario eliminado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
             } else {
                 JOptionPane.showMessageDialog(this, "El usuario no existe.", "Error", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }//GEN-LAST:event_jButton7ActionPerformed
 
     /**
@@ -487,28 +840,56 @@ public class GestorVistaAdmin extends javax.swing.JFrame {
         // Crear una instancia de Producto
         Producto producto = new Producto(nombre, cantidad, precio);
 
-        // Conectar a la base de datos y usar el controlador
-        try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-            ProductoDAO productoDAO = new ProductoDAO(conn);
-            ProductoControlador productoControlador = new ProductoControlador(productoDAO);
-
-            if (productoControlador.productoExiste(nombre)) {
+        // Validar y agregar el producto en segundo plano
+        ejecutorVista.ejecutar(productoAsincrono.productoExiste(nombre), existe -> {
+            if (existe) {
                 JOptionPane.showMessageDialog(this, "El producto ya existe en el inventario.", "Error", JOptionPane.ERROR_MESSAGE);
             } else {
-                if (productoControlador.agregarProducto(producto)) {
-                    JOptionPane.showMessageDialog(this, "El producto ha sido agregado exitosamente.");
-                    List<Producto> productos = productoControlador.getInventario();
-                    actualizarTabla(productos);
-                } else {
-                    JOptionPane.showMessageDialog(this, "El producto no ha sido agregado exitosamente.", "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                ejecutorVista.ejecutar(productoAsincrono.agregarProducto(producto), agregado -> {
+                    if (agregado) {
+                        JOptionPane.showMessageDialog(this, "El producto ha sido agregado exitosamente.");
+                        refrescarInventario();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "El producto no ha sido agregado exitosamente.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }//GEN-LAST:event_jButton6ActionPerformed
 
+    /**
+     * Refleja en la tabla el resultado de una modificación condicional y lo
+     * informa al usuario. Ante un conflicto se muestran los valores vigentes.
+     *
+     * @param nombreProducto El nombre del producto modificado.
+     * @param resultado El resultado de la modificación, o null si falló.
+     * @param mensajeExito El mensaje a mostrar si se aplicó.
+     * @param mensajeError El mensaje a mostrar si ocurrió un error.
+     */
+    private void mostrarResultadoModificacion(String nombreProducto, ResultadoActualizacion resultado, String mensajeExito, String mensajeError) {
+        if (resultado == null) {
+            JOptionPane.showMessageDialog(this, mensajeError, "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        switch (resultado.getEstado()) {
+            case ACTUALIZADO:
+                modeloTabla().actualizar(resultado.getActual());
+                JOptionPane.showMessageDialog(this, mensajeExito, "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                break;
+            case CONFLICTO:
+                Producto vigente = resultado.getActual();
+                modeloTabla().actualizar(vigente);
+                JOptionPane.showMessageDialog(this, "Otro usuario modificó el producto. Valores actuales:\n"
+                        + "Cantidad: " + vigente.getCantidad() + "\nPrecio: " + vigente.getPrecio()
+                        + "\nRevise los datos y vuelva a intentarlo.", "Conflicto", JOptionPane.WARNING_MESSAGE);
+                break;
+            default:
+                modeloTabla().eliminar(nombreProducto);
+                JOptionPane.showMessageDialog(this, "El producto ya no existe.", "Error", JOptionPane.ERROR_MESSAGE);
+                break;
+        }
+    }
+
     /**
      * Maneja el evento de eliminar un producto.
      *
@@ -517,27 +898,21 @@ public class GestorVistaAdmin extends javax.swing.JFrame {
     private void jButton3ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton3ActionPerformed
         // Obtener la fila seleccionada
         int selectedRow = jTable1.getSelectedRow();
-        if (selectedRow != -1) {
-            // Obtener el nombre del producto de la fila seleccionada
-            String nombreProducto = (String) jTable1.getValueAt(selectedRow, 0);
+        // Obtener el producto de la fila seleccionada; en la tabla virtual puede estar cargándose
+        Producto productoSeleccionado = selectedRow != -1 ? modeloTabla().getProducto(selectedRow) : null;
+        if (productoSeleccionado != null) {
+            String nombreProducto = productoSeleccionado.getNombre();
 
-            // Conectar a la base de datos y usar el controlador para eliminar el producto
-            try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-                ProductoDAO productoDAO = new ProductoDAO(conn);
-                ProductoControlador productoControlador = new ProductoControlador(productoDAO);
-
-                if (productoControlador.eliminarProducto(nombreProducto)) {
+            // Eliminar el producto en segundo plano
+            ejecutorVista.ejecutar(productoAsincrono.eliminarProducto(nombreProducto), eliminado -> {
+                if (eliminado) {
                     JOptionPane.showMessageDialog(this, "Producto eliminado exitosamente", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                    // Actualizar la tabla eliminando la fila seleccionada
-                    DefaultTableModel tableModel = (DefaultTableModel) jTable1.getModel();
-                    tableModel.removeRow(selectedRow);
+                    // Actualizar la tabla eliminando la fila del producto
+                    modeloTabla().eliminar(nombreProducto);
                 } else {
                     JOptionPane.showMessageDialog(this, "Error al eliminar el producto", "Error", JOptionPane.ERROR_MESSAGE);
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            });
         } else {
             JOptionPane.showMessageDialog(this, "Seleccione un producto para eliminar", "Advertencia", JOptionPane.WARNING_MESSAGE);
         }
@@ -551,50 +926,56 @@ public class GestorVistaAdmin extends javax.swing.JFrame {
     private void jButton2ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton2ActionPerformed
         // Obtener la fila seleccionada
         int selectedRow = jTable1.getSelectedRow();
-        if (selectedRow != -1) {
-            // Obtener el nombre del producto de la fila seleccionada
-            String nombreProducto = (String) jTable1.getValueAt(selectedRow, 0);
+        // Obtener el producto de la fila seleccionada; en la tabla virtual puede estar cargándose
+        Producto productoSeleccionado = selectedRow != -1 ? modeloTabla().getProducto(selectedRow) : null;
+        if (productoSeleccionado != null) {
+            String nombreProducto = productoSeleccionado.getNombre();
 
-            // Mostrar cuadro de diálogo para seleccionar entre modificar cantidad o precio
-            Object[] options = {"Cantidad", "Precio"};
+            // Mostrar cuadro de diálogo para seleccionar entre modificar cantidad, precio o registrar un movimiento
+            Object[] options = {"Cantidad", "Precio", "Entrada/Salida"};
             int choice = JOptionPane.showOptionDialog(this, "¿Qué desea modificar?", "Modificar Producto",
-                    JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
-
-            if (choice == JOptionPane.YES_OPTION || choice == JOptionPane.NO_OPTION) {
-                try (Connection conn = DriverManager.getConnection(System.getProperty("DB_URL").trim(), System.getProperty("DB_USER").trim(), System.getProperty("DB_PASSWORD").trim())) {
-                    ProductoDAO productoDAO = new ProductoDAO(conn);
-                    ProductoControlador productoControlador = new ProductoControlador(productoDAO);
+                    JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
 
+            if (choice != JOptionPane.CLOSED_OPTION) {
+                try {
                     if (choice == JOptionPane.YES_OPTION) {
                         // Modificar cantidad
                         String nuevaCantidadStr = JOptionPane.showInputDialog(this, "Ingrese la nueva cantidad:");
                         if (nuevaCantidadStr != null && !nuevaCantidadStr.trim().isEmpty()) {
                             int nuevaCantidad = Integer.parseInt(nuevaCantidadStr.trim());
-                            if (productoControlador.actualizarCantidad(nombreProducto, nuevaCantidad)) {
-                                // Actualizar la tabla
-                                jTable1.setValueAt(nuevaCantidad, selectedRow, 1);
-                                JOptionPane.showMessageDialog(this, "Cantidad actualizada exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                            } else {
-                                JOptionPane.showMessageDialog(this, "Error al actualizar la cantidad.", "Error", JOptionPane.ERROR_MESSAGE);
-                            }
+                            // Sólo se aplica si nadie modificó el producto desde que se mostró
+                            ejecutorVista.ejecutar(productoAsincrono.actualizarCantidad(nombreProducto, nuevaCantidad, productoSeleccionado.getVersion()),
+                                    resultado -> mostrarResultadoModificacion(nombreProducto, resultado, "Cantidad actualizada exitosamente.", "Error al actualizar la cantidad."));
                         }
                     } else if (choice == JOptionPane.NO_OPTION) {
                         // Modificar precio
                         String nuevoPrecioStr = JOptionPane.showInputDialog(this, "Ingrese el nuevo precio:");
                         if (nuevoPrecioStr != null && !nuevoPrecioStr.trim().isEmpty()) {
                             double nuevoPrecio = Double.parseDouble(nuevoPrecioStr.trim());
-                            if (productoControlador.actualizarPrecio(nombreProducto, nuevoPrecio)) {
-                                // Actualizar la tabla
-                                jTable1.setValueAt(nuevoPrecio, selectedRow, 2);
-                                JOptionPane.showMessageDialog(this, "Precio actualizado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                            } else {
-                                JOptionPane.showMessageDialog(this, "Error al actualizar el precio.", "Error", JOptionPane.ERROR_MESSAGE);
-                            }
+                            ejecutorVista.ejecutar(productoAsincrono.actualizarPrecio(nombreProducto, nuevoPrecio, productoSeleccionado.getVersion()),
+                                    resultado -> mostrarResultadoModificacion(nombreProducto, resultado, "Precio actualizado exitosamente.", "Error al actualizar el precio."));
+                        }
+                    } else {
+                        // Registrar una entrada o salida sobre la cantidad almacenada, no sobre la mostrada
+                        String movimientoStr = JOptionPane.showInputDialog(this, "Ingrese las unidades que entran (o negativas si salen):");
+                        if (movimientoStr != null && !movimientoStr.trim().isEmpty()) {
+                            int movimiento = Integer.parseInt(movimientoStr.trim());
+                            ejecutorVista.ejecutar(productoAsincrono.ajustarCantidad(nombreProducto, movimiento, false), nuevaCantidad -> {
+                                if (nuevaCantidad != null) {
+                                    // Recargar el producto: el ajuste cambió su versión y la fila
+                                    // mostrada provocaría un falso conflicto en la siguiente modificación
+                                    ejecutorVista.ejecutar(productoAsincrono.buscarProducto(nombreProducto), actual -> {
+                                        if (actual != null) {
+                                            modeloTabla().actualizar(actual);
+                                        }
+                                    });
+                                    JOptionPane.showMessageDialog(this, "Cantidad actualizada exitosamente. Nueva cantidad: " + nuevaCantidad, "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                                } else {
+                                    JOptionPane.showMessageDialog(this, "No se pudo registrar el movimiento: el producto no existe o no hay existencias suficientes.", "Error", JOptionPane.ERROR_MESSAGE);
+                                }
+                            });
                         }
                     }
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                    JOptionPane.showMessageDialog(this, "Error de conexión a la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
                 } catch (NumberFormatException e) {
                     JOptionPane.showMessageDialog(this, "Dato ingresado no válido.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -639,7 +1020,6 @@ public class GestorVistaAdmin extends javax.swing.JFrame {
             }
         });
     }
-    private DefaultTableModel tableModel;
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton jButton1;
     private javax.swing.JButton jButton2;
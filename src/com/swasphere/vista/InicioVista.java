@@ -1,6 +1,7 @@
 package com.swasphere.vista;
 
 import com.swasphere.controlador.UsuarioControlador;
+import com.swasphere.controlador.UsuarioControladorAsincrono;
 import javax.swing.JOptionPane;
 import java.awt.*;
 
@@ -11,14 +12,16 @@ import java.awt.*;
  */
 public class InicioVista extends javax.swing.JFrame {
 
-    private UsuarioControlador usuarioControlador;
+    private UsuarioControladorAsincrono usuarioAsincrono;
+    private EjecutorVista ejecutorVista;
 
     /**
      * Crea una nueva instancia de InicioVista.
      */
     public InicioVista() {
-        usuarioControlador = new UsuarioControlador();
+        usuarioAsincrono = new UsuarioControladorAsincrono(new UsuarioControlador());
         initComponents();
+        ejecutorVista = new EjecutorVista(this, jButton1);
         setResizable(false);
         Dimension dim = Toolkit.getDefaultToolkit().getScreenSize();
         int x = (dim.width - getSize().width) / 2;
@@ -130,30 +133,30 @@ public class InicioVista extends javax.swing.JFrame {
         String nombreUsuario = jTextField1.getText();
         String password = new String(jPasswordField1.getPassword());
 
-        // Llamar al método de autenticación del controlador
-        String resultadoAutenticacion = usuarioControlador.autenticar(nombreUsuario, password);
-
-        // Mostrar el resultado de la autenticación
-        switch (resultadoAutenticacion) {
-            case "Autenticado":
-                JOptionPane.showMessageDialog(this, "Inicio de sesión exitoso!");
-                dispose();
-                if (nombreUsuario.contains("admin")) {
-                    new GestorVistaAdmin().setVisible(true);
-                } else {
-                    new GestorVista().setVisible(true);
-                }
-                break;
-            case "Usuario no existe":
-                JOptionPane.showMessageDialog(this, "El usuario no existe en el sistema.", "Error de autenticación", JOptionPane.ERROR_MESSAGE);
-                break;
-            case "Contraseña incorrecta":
-                JOptionPane.showMessageDialog(this, "La contraseña es incorrecta.", "Error de autenticación", JOptionPane.ERROR_MESSAGE);
-                break;
-            default:
-                JOptionPane.showMessageDialog(this, "Error desconocido en la autenticación.", "Error", JOptionPane.ERROR_MESSAGE);
-                break;
-        }
+        // Autenticar en segundo plano sin bloquear la ventana
+        ejecutorVista.ejecutar(usuarioAsincrono.autenticar(nombreUsuario, password), resultadoAutenticacion -> {
+            // Mostrar el resultado de la autenticación
+            switch (resultadoAutenticacion) {
+                case "Autenticado":
+                    JOptionPane.showMessageDialog(this, "Inicio de sesión exitoso!");
+                    dispose();
+                    if (nombreUsuario.contains("admin")) {
+                        new GestorVistaAdmin().setVisible(true);
+                    } else {
+                        new GestorVista().setVisible(true);
+                    }
+                    break;
+                case "Usuario no existe":
+                    JOptionPane.showMessageDialog(this, "El usuario no existe en el sistema.", "Error de autenticación", JOptionPane.ERROR_MESSAGE);
+                    break;
+                case "Contraseña incorrecta":
+                    JOptionPane.showMessageDialog(this, "La contraseña es incorrecta.", "Error de autenticación", JOptionPane.ERROR_MESSAGE);
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(this, "Error desconocido en la autenticación.", "Error", JOptionPane.ERROR_MESSAGE);
+                    break;
+            }
+        });
     }//GEN-LAST:event_jButton1ActionPerformed
 
     private void jTextField1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jTextField1ActionPerformed
@@ -0,0 +1,224 @@
+package com.swasphere.vista;
+
+import com.swasphere.modelo.CambioProducto;
+import com.swasphere.modelo.Producto;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modelo de la tabla de inventario. Mantiene un índice por nombre para poder
+ * aplicar cambios incrementales sin reconstruir la tabla.
+ *
+ * @autor ljsanchez23
+ */
+public class ModeloTablaInventario extends ModeloTablaProductos {
+
+    private final List<Producto> filas = new ArrayList<>();
+    private final Map<String, Integer> indice = new HashMap<>();
+
+    // Último cambio reflejado; -1 si la tabla no contiene el inventario completo
+    private long ultimoCambio = -1;
+
+    @Override
+    public int getRowCount() {
+        return filas.size();
+    }
+
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        return valorColumna(filas.get(fila), columna);
+    }
+
+    @Override
+    public Producto getProducto(int fila) {
+        return filas.get(fila);
+    }
+
+    /**
+     * Reemplaza el contenido de la tabla por el inventario completo.
+     *
+     * @param productos Los productos del inventario.
+     * @param ultimoCambio El número del último cambio leído antes de cargar
+     * los productos.
+     */
+    public void setInventario(List<Producto> productos, long ultimoCambio) {
+        filas.clear();
+        filas.addAll(productos);
+        reconstruirIndice();
+        this.ultimoCambio = ultimoCambio;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Vacía la tabla para cargar el inventario completo por bloques.
+     */
+    public void iniciarCarga() {
+        limpiar();
+    }
+
+    /**
+     * Agrega al final de la tabla un bloque de productos recién leído. Los
+     * productos que ya se muestran, por ejemplo porque el usuario los buscó
+     * durante la carga, sólo se actualizan.
+     *
+     * @param productos Los productos del bloque.
+     */
+    public void agregarBloque(List<Producto> productos) {
+        int primeraNueva = filas.size();
+        for (Producto producto : productos) {
+            String clave = Producto.normalizarNombre(producto.getNombre());
+            Integer fila = indice.putIfAbsent(clave, filas.size());
+            if (fila == null) {
+                filas.add(producto);
+            } else {
+                filas.set(fila, producto);
+                fireTableRowsUpdated(fila, fila);
+            }
+        }
+        if (filas.size() > primeraNueva) {
+            fireTableRowsInserted(primeraNueva, filas.size() - 1);
+        }
+    }
+
+    /**
+     * Marca la carga por bloques como completa, de modo que los siguientes
+     * refrescos sólo apliquen los cambios posteriores.
+     *
+     * @param ultimoCambio El número del último cambio leído antes de cargar
+     * los productos.
+     */
+    public void terminarCarga(long ultimoCambio) {
+        this.ultimoCambio = ultimoCambio;
+    }
+
+    /**
+     * Indica si la tabla contiene el inventario completo y puede refrescarse
+     * aplicando sólo los cambios posteriores.
+     *
+     * @return true si se pueden aplicar cambios incrementales.
+     */
+    public boolean isIncremental() {
+        return ultimoCambio >= 0;
+    }
+
+    /**
+     * Obtiene el número del último cambio reflejado en la tabla.
+     *
+     * @return El número del último cambio, o -1 si la tabla no contiene el
+     * inventario completo.
+     */
+    public long getUltimoCambio() {
+        return ultimoCambio;
+    }
+
+    /**
+     * Aplica a la tabla una lista de cambios ordenada por número de
+     * secuencia. Los cambios ya reflejados se ignoran. El coste es
+     * proporcional al número de cambios salvo cuando hay eliminaciones, que
+     * compactan la tabla una sola vez.
+     *
+     * @param cambios Los cambios a aplicar.
+     */
+    public void aplicarCambios(List<CambioProducto> cambios) {
+        boolean hayEliminaciones = false;
+        int primeraNueva = filas.size();
+        for (CambioProducto cambio : cambios) {
+            if (cambio.getCambio() <= ultimoCambio) {
+                continue;
+            }
+            String clave = Producto.normalizarNombre(cambio.getNombre());
+            Integer fila = indice.get(clave);
+            if (cambio.isEliminado()) {
+                if (fila != null) {
+                    filas.set(fila, null);
+                    indice.remove(clave);
+                    hayEliminaciones = true;
+                }
+            } else if (fila != null) {
+                filas.set(fila, cambio.getProducto());
+                if (fila < primeraNueva) {
+                    fireTableRowsUpdated(fila, fila);
+                }
+            } else {
+                indice.put(clave, filas.size());
+                filas.add(cambio.getProducto());
+            }
+            ultimoCambio = Math.max(ultimoCambio, cambio.getCambio());
+        }
+        if (hayEliminaciones) {
+            filas.removeIf(producto -> producto == null);
+            reconstruirIndice();
+            fireTableDataChanged();
+        } else if (filas.size() > primeraNueva) {
+            fireTableRowsInserted(primeraNueva, filas.size() - 1);
+        }
+    }
+
+    /**
+     * Agrega un producto a la tabla, o actualiza su fila si ya se muestra.
+     *
+     * @param producto El producto a mostrar.
+     */
+    @Override
+    public void agregar(Producto producto) {
+        String clave = Producto.normalizarNombre(producto.getNombre());
+        Integer fila = indice.get(clave);
+        if (fila != null) {
+            filas.set(fila, producto);
+            fireTableRowsUpdated(fila, fila);
+        } else {
+            indice.put(clave, filas.size());
+            filas.add(producto);
+            fireTableRowsInserted(filas.size() - 1, filas.size() - 1);
+        }
+    }
+
+    /**
+     * Actualiza la fila de un producto si se muestra en la tabla.
+     *
+     * @param producto El producto con sus nuevos valores.
+     */
+    @Override
+    public void actualizar(Producto producto) {
+        Integer fila = indice.get(Producto.normalizarNombre(producto.getNombre()));
+        if (fila != null) {
+            filas.set(fila, producto);
+            fireTableRowsUpdated(fila, fila);
+        }
+    }
+
+    /**
+     * Quita de la tabla la fila de un producto.
+     *
+     * @param nombre El nombre del producto.
+     */
+    @Override
+    public void eliminar(String nombre) {
+        Integer fila = indice.get(Producto.normalizarNombre(nombre));
+        if (fila != null) {
+            filas.remove((int) fila);
+            reconstruirIndice();
+            fireTableRowsDeleted(fila, fila);
+        }
+    }
+
+    /**
+     * Vacía la tabla.
+     */
+    @Override
+    public void limpiar() {
+        filas.clear();
+        indice.clear();
+        ultimoCambio = -1;
+        fireTableDataChanged();
+    }
+
+    private void reconstruirIndice() {
+        indice.clear();
+        for (int i = 0; i < filas.size(); i++) {
+            indice.put(Producto.normalizarNombre(filas.get(i).getNombre()), i);
+        }
+    }
+}
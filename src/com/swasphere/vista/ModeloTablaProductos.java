@@ -0,0 +1,90 @@
+package com.swasphere.vista;
+
+import com.swasphere.modelo.Producto;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Base de los modelos de la tabla de inventario. Define las columnas y las
+ * operaciones con las que las vistas reflejan en la tabla los cambios que
+ * hace el usuario.
+ *
+ * @autor ljsanchez23
+ */
+public abstract class ModeloTablaProductos extends AbstractTableModel {
+
+    private static final String[] COLUMNAS = {"Nombre", "Cantidad", "Precio"};
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int columna) {
+        return COLUMNAS[columna];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columna) {
+        switch (columna) {
+            case 1:
+                return Integer.class;
+            case 2:
+                return Double.class;
+            default:
+                return String.class;
+        }
+    }
+
+    /**
+     * Obtiene el valor de una columna de un producto.
+     *
+     * @param producto El producto de la fila.
+     * @param columna El índice de la columna.
+     * @return El valor de la celda.
+     */
+    protected static Object valorColumna(Producto producto, int columna) {
+        switch (columna) {
+            case 0:
+                return producto.getNombre();
+            case 1:
+                return producto.getCantidad();
+            default:
+                return producto.getPrecio();
+        }
+    }
+
+    /**
+     * Obtiene el producto mostrado en una fila.
+     *
+     * @param fila El índice de la fila.
+     * @return El producto de la fila, o null si todavía no está disponible.
+     */
+    public abstract Producto getProducto(int fila);
+
+    /**
+     * Muestra un producto en la tabla, o actualiza su fila si ya se muestra.
+     *
+     * @param producto El producto a mostrar.
+     */
+    public abstract void agregar(Producto producto);
+
+    /**
+     * Actualiza la fila de un producto si se muestra en la tabla.
+     *
+     * @param producto El producto con sus nuevos valores.
+     */
+    public abstract void actualizar(Producto producto);
+
+    /**
+     * Quita de la tabla la fila de un producto.
+     *
+     * @param nombre El nombre del producto.
+     */
+    public abstract void eliminar(String nombre);
+
+    /**
+     * Vacía la tabla.
+     */
+    public abstract void limpiar();
+}
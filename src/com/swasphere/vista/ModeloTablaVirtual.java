@@ -0,0 +1,231 @@
+package com.swasphere.vista;
+
+import com.swasphere.controlador.ProductoControladorAsincrono;
+import com.swasphere.modelo.CambioProducto;
+import com.swasphere.modelo.Producto;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.SwingUtilities;
+
+/**
+ * Modelo de la tabla de inventario para catálogos grandes. Sólo conoce el
+ * número de productos: las filas se piden por páginas en segundo plano a
+ * medida que la tabla las muestra, y mientras llegan se muestra una fila
+ * provisional. Se conservan las últimas páginas usadas, de modo que la
+ * memoria no depende del tamaño del inventario.
+ *
+ * Una página se pide a continuación de la anterior si ésta sigue en memoria,
+ * que es el caso al desplazarse, y por posición cuando se salta a otra parte
+ * de la tabla. Al recibir una página se adelanta la siguiente.
+ *
+ * @autor ljsanchez23
+ */
+public class ModeloTablaVirtual extends ModeloTablaProductos {
+
+    // Filas por página
+    static final int TAMANO_PAGINA = 200;
+
+    // Páginas conservadas en memoria
+    private static final int PAGINAS_EN_MEMORIA = 16;
+
+    private static final String CARGANDO = "Cargando...";
+
+    private final ProductoControladorAsincrono productoAsincrono;
+    private final Map<Integer, List<Producto>> paginas = new LinkedHashMap<Integer, List<Producto>>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Producto>> mayor) {
+            return size() > PAGINAS_EN_MEMORIA;
+        }
+    };
+    private final Set<Integer> pendientes = new HashSet<>();
+    private int filas;
+
+    // Cambia con cada recarga para descartar las páginas pedidas antes
+    private long generacion;
+
+    /**
+     * Constructor de la clase ModeloTablaVirtual.
+     *
+     * @param productoAsincrono El controlador del que se piden las páginas.
+     */
+    public ModeloTablaVirtual(ProductoControladorAsincrono productoAsincrono) {
+        this.productoAsincrono = productoAsincrono;
+    }
+
+    @Override
+    public int getRowCount() {
+        return filas;
+    }
+
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        Producto producto = getProducto(fila);
+        if (producto == null) {
+            return columna == 0 ? CARGANDO : null;
+        }
+        return valorColumna(producto, columna);
+    }
+
+    /**
+     * Obtiene el producto de una fila si su página está en memoria; si no, la
+     * pide en segundo plano.
+     *
+     * @param fila El índice de la fila.
+     * @return El producto de la fila, o null si su página todavía no llegó.
+     */
+    @Override
+    public Producto getProducto(int fila) {
+        int numero = fila / TAMANO_PAGINA;
+        List<Producto> pagina = paginas.get(numero);
+        if (pagina == null) {
+            pedir(numero, true);
+            return null;
+        }
+        int posicion = fila % TAMANO_PAGINA;
+        // Pasada la mitad de la página se adelanta la siguiente
+        if (posicion >= TAMANO_PAGINA / 2) {
+            pedir(numero + 1, false);
+        }
+        return posicion < pagina.size() ? pagina.get(posicion) : null;
+    }
+
+    /**
+     * Descarta las páginas en memoria y muestra un inventario con otro número
+     * de productos. Las filas se vuelven a pedir cuando se muestran.
+     *
+     * @param numeroProductos El número de productos del inventario.
+     */
+    public void recargar(long numeroProductos) {
+        generacion++;
+        paginas.clear();
+        pendientes.clear();
+        filas = (int) Math.min(Integer.MAX_VALUE, Math.max(0, numeroProductos));
+        fireTableDataChanged();
+    }
+
+    /**
+     * El inventario completo ya se muestra, así que sólo se actualiza la
+     * fila del producto si su página está en memoria.
+     *
+     * @param producto El producto a mostrar.
+     */
+    @Override
+    public void agregar(Producto producto) {
+        actualizar(producto);
+    }
+
+    /**
+     * Actualiza la fila de un producto si su página está en memoria.
+     *
+     * @param producto El producto con sus nuevos valores.
+     */
+    @Override
+    public void actualizar(Producto producto) {
+        String clave = Producto.normalizarNombre(producto.getNombre());
+        for (Map.Entry<Integer, List<Producto>> entrada : paginas.entrySet()) {
+            List<Producto> pagina = entrada.getValue();
+            for (int i = 0; i < pagina.size(); i++) {
+                if (Producto.normalizarNombre(pagina.get(i).getNombre()).equals(clave)) {
+                    pagina.set(i, producto);
+                    int fila = entrada.getKey() * TAMANO_PAGINA + i;
+                    fireTableRowsUpdated(fila, fila);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Actualiza las filas en memoria de los productos modificados por una
+     * lista de cambios, en una sola pasada por las páginas. Las altas y
+     * bajas desplazan las filas, así que se reflejan al recargar.
+     *
+     * @param cambios Los cambios a aplicar.
+     */
+    public void aplicarCambios(List<CambioProducto> cambios) {
+        Map<String, Producto> modificados = new HashMap<>();
+        for (CambioProducto cambio : cambios) {
+            if (!cambio.isEliminado()) {
+                modificados.put(Producto.normalizarNombre(cambio.getNombre()), cambio.getProducto());
+            }
+        }
+        if (modificados.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Integer, List<Producto>> entrada : paginas.entrySet()) {
+            List<Producto> pagina = entrada.getValue();
+            for (int i = 0; i < pagina.size(); i++) {
+                Producto producto = modificados.get(Producto.normalizarNombre(pagina.get(i).getNombre()));
+                if (producto != null) {
+                    pagina.set(i, producto);
+                    int fila = entrada.getKey() * TAMANO_PAGINA + i;
+                    fireTableRowsUpdated(fila, fila);
+                }
+            }
+        }
+    }
+
+    /**
+     * Quita una fila. Las filas posteriores se desplazan, por lo que se
+     * vuelven a pedir todas las páginas.
+     *
+     * @param nombre El nombre del producto.
+     */
+    @Override
+    public void eliminar(String nombre) {
+        recargar(filas - 1);
+    }
+
+    /**
+     * Vacía la tabla y libera las páginas en memoria.
+     */
+    @Override
+    public void limpiar() {
+        recargar(0);
+    }
+
+    /**
+     * Pide una página en segundo plano si no está en memoria ni pedida.
+     *
+     * @param numero El número de la página.
+     * @param adelantar true para pedir también la siguiente cuando llegue.
+     */
+    private void pedir(int numero, boolean adelantar) {
+        int desde = numero * TAMANO_PAGINA;
+        if (desde >= filas || paginas.containsKey(numero) || !pendientes.add(numero)) {
+            return;
+        }
+        long pedida = generacion;
+        List<Producto> anterior = paginas.get(numero - 1);
+        boolean seguida = anterior != null && anterior.size() == TAMANO_PAGINA;
+        (seguida
+                ? productoAsincrono.getPaginaInventario(anterior.get(TAMANO_PAGINA - 1).getNombre(), TAMANO_PAGINA)
+                : productoAsincrono.getPaginaInventarioEnPosicion(desde, TAMANO_PAGINA))
+                .thenAccept(pagina -> SwingUtilities.invokeLater(() -> recibir(numero, pagina, pedida, adelantar)));
+    }
+
+    private void recibir(int numero, List<Producto> pagina, long pedida, boolean adelantar) {
+        // La tabla se recargó mientras se leía la página
+        if (pedida != generacion) {
+            return;
+        }
+        pendientes.remove(numero);
+        if (pagina == null || pagina.isEmpty()) {
+            // Error o inventario reducido por otro usuario: se reintenta al volver a mostrarla
+            return;
+        }
+        paginas.put(numero, pagina);
+        int desde = numero * TAMANO_PAGINA;
+        int hasta = Math.min(filas, desde + TAMANO_PAGINA) - 1;
+        if (hasta >= desde) {
+            fireTableRowsUpdated(desde, hasta);
+        }
+        if (adelantar) {
+            pedir(numero + 1, false);
+        }
+    }
+}
@@ -3,7 +3,17 @@
  * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Main.java to edit this template
  */
 package supplyswasphere;
+import com.swasphere.controlador.ProductoControlador;
+import com.swasphere.modelo.CierreAplicacion;
+import com.swasphere.modelo.MigradorEsquema;
+import com.swasphere.modelo.Repositorios;
+import com.swasphere.servidor.ServidorInventario;
 import com.swasphere.vista.InicioVista;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.sql.SQLException;
+import javax.swing.JOptionPane;
 
 /**
  *
@@ -12,9 +22,33 @@ import com.swasphere.vista.InicioVista;
 public class SupplySwaSphere {
 
     /**
+     * Arranca la aplicación. Con el argumento --servidor arranca sin
+     * interfaz gráfica y atiende la API HTTP del inventario en el puerto
+     * SERVIDOR_PUERTO (8080 por defecto) de la interfaz local.
+     *
      * @param args the command line arguments
      */
     public static void main(String[] args) {
+        boolean servidor = args.length > 0 && "--servidor".equals(args[0]);
+
+        // Llevar el esquema de la base de datos a la versión actual
+        if (!Repositorios.isMemoria()) {
+            try {
+                new MigradorEsquema().migrar();
+            } catch (SQLException e) {
+                e.printStackTrace();
+                if (!servidor) {
+                    JOptionPane.showMessageDialog(null, "No se pudo actualizar el esquema de la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                return;
+            }
+        }
+
+        if (servidor) {
+            iniciarServidor();
+            return;
+        }
+
         // Crear y mostrar la ventana de inicio
         java.awt.EventQueue.invokeLater(new Runnable() {
             public void run() {
@@ -22,5 +56,40 @@ public class SupplySwaSphere {
             }
         });
     }
+
+    /**
+     * Arranca la API HTTP del inventario y la detiene al cerrar la máquina
+     * virtual. Escucha sólo en la interfaz local salvo que SERVIDOR_DIRECCION
+     * indique otra. Las rutas que modifican el inventario exigen el token de
+     * SERVIDOR_TOKEN; sin él quedan desactivadas. SERVIDOR_HILOS fija los
+     * hilos de peticiones cuando no hay hilos virtuales.
+     */
+    private static void iniciarServidor() {
+        int puerto = Integer.getInteger("SERVIDOR_PUERTO", 8080);
+        String direccion = System.getProperty("SERVIDOR_DIRECCION", "").trim();
+        String token = System.getProperty("SERVIDOR_TOKEN");
+        // Sin TCP_NODELAY la cabecera y el cuerpo de la respuesta van en
+        // segmentos separados y cada petición sobre una conexión persistente
+        // espera el ACK retardado del cliente, unos 40 ms. La propiedad vale
+        // para toda la máquina virtual y el servidor HTTP del JDK la lee al
+        // crear el primero, por eso se fija aquí antes de crearlo.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        try {
+            InetAddress interfaz = direccion.isEmpty()
+                    ? InetAddress.getLoopbackAddress() : InetAddress.getByName(direccion);
+            ServidorInventario servidor = new ServidorInventario(ProductoControlador.getInstancia(),
+                    new InetSocketAddress(interfaz, puerto), Integer.getInteger("SERVIDOR_HILOS", 64), token);
+            servidor.iniciar();
+            CierreAplicacion.registrar(CierreAplicacion.Fase.PETICIONES, () -> servidor.detener(2));
+            System.out.println("Servidor de inventario escuchando en " + interfaz.getHostAddress() + ":" + servidor.getPuerto());
+            if (token == null || token.isEmpty()) {
+                System.out.println("Sin SERVIDOR_TOKEN: las rutas que modifican el inventario están desactivadas");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
     
 }
@@ -0,0 +1,122 @@
+package com.swasphere.controlador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swasphere.embebida.BaseDatosEmbebida;
+import com.swasphere.modelo.Producto;
+import com.swasphere.modelo.ProductoDAO;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas de la importación de CSV sobre el repositorio JDBC, con una base de
+ * datos embebida en modo MySQL.
+ *
+ * @autor ljsanchez23
+ */
+class ImportadorCsvTest {
+
+    @TempDir
+    Path directorio;
+
+    private Connection conexion;
+    private ProductoDAO dao;
+    private ProductoControlador controlador;
+
+    @BeforeEach
+    void preparar() throws SQLException {
+        conexion = BaseDatosEmbebida.crear("importacion" + System.nanoTime());
+        dao = new ProductoDAO(conexion);
+        controlador = new ProductoControlador(dao);
+    }
+
+    @AfterEach
+    void cerrar() throws SQLException {
+        conexion.close();
+    }
+
+    @Test
+    void importarDosVecesActualizaSinDuplicar() throws Exception {
+        Path archivo = escribirCsv("nombre,cantidad,precio",
+                "Tornillo,10,0.5",
+                "Tuerca,20,0.25",
+                "Arandela,30,0.1");
+
+        ResultadoImportacion primera = controlador.importarCsv(archivo);
+        assertNotNull(primera);
+        assertEquals(3, primera.getInsertados());
+        assertEquals(0, primera.getActualizados());
+        assertEquals(3, dao.contarProductos());
+
+        ResultadoImportacion segunda = controlador.importarCsv(archivo);
+        assertNotNull(segunda);
+        assertEquals(0, segunda.getInsertados());
+        assertEquals(3, segunda.getActualizados());
+        assertEquals(0, segunda.getRechazados(), () -> segunda.getErrores().toString());
+        assertEquals(3, dao.contarProductos());
+    }
+
+    @Test
+    void importarMezclaAltasYActualizaciones() throws Exception {
+        controlador.importarCsv(escribirCsv("nombre,cantidad,precio", "Tornillo,10,0.5"));
+
+        ResultadoImportacion resultado = controlador.importarCsv(escribirCsv("nombre,cantidad,precio",
+                " tornillo ,15,0.75",
+                "Clavo,5,0.05"));
+        assertNotNull(resultado);
+        assertEquals(1, resultado.getInsertados());
+        assertEquals(1, resultado.getActualizados());
+        assertEquals(2, dao.contarProductos());
+
+        Producto tornillo = dao.buscarProducto("Tornillo");
+        assertEquals(15, tornillo.getCantidad());
+        assertEquals(0.75, tornillo.getPrecio(), 1e-9);
+        assertTrue(dao.buscarExistentes(List.of("CLAVO")).contains("clavo"));
+    }
+
+    @Test
+    void nombresQueSoloDifierenEnAcentosSonProductosDistintos() throws Exception {
+        ResultadoImportacion resultado = controlador.importarCsv(escribirCsv("nombre,cantidad,precio",
+                "Cafe,10,1.5",
+                "Café,20,2.5"));
+        assertNotNull(resultado);
+        assertEquals(2, resultado.getInsertados(), () -> resultado.getErrores().toString());
+        assertEquals(2, dao.contarProductos());
+        assertEquals(10, dao.buscarProducto("cafe").getCantidad());
+        assertEquals(20, dao.buscarProducto("CAFÉ").getCantidad());
+        assertEquals(Set.of("café"), dao.buscarExistentes(List.of("Café")));
+    }
+
+    @Test
+    void primeraLineaConComillasSinCerrarNoBloquea() throws Exception {
+        Path archivo = escribirCsv("\"Tornillo,10,0.5");
+
+        ResultadoImportacion resultado = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> controlador.importarCsv(archivo));
+        assertNotNull(resultado);
+        assertEquals(1, resultado.getRegistros());
+        assertEquals(1, resultado.getRechazados());
+        assertEquals(0, resultado.getInsertados());
+        assertEquals(0, dao.contarProductos());
+    }
+
+    private Path escribirCsv(String... lineas) throws Exception {
+        Path archivo = Files.createTempFile(directorio, "inventario", ".csv");
+        Files.write(archivo, Arrays.asList(lineas), StandardCharsets.UTF_8);
+        return archivo;
+    }
+}
@@ -0,0 +1,56 @@
+package com.swasphere.modelo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Pruebas de ida y vuelta del archivo columnar del inventario.
+ *
+ * @autor ljsanchez23
+ */
+class ArchivoColumnarTest {
+
+    @TempDir
+    Path directorio;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void inventarioVacioSeLeeComoSeEscribio(boolean comprimir) throws Exception {
+        Path archivo = directorio.resolve("vacio.swic");
+        InventarioColumnar vacio = InventarioColumnar.desde(List.of());
+
+        long tamano = ArchivoColumnar.escribir(vacio, archivo, comprimir);
+        assertEquals(Files.size(archivo), tamano);
+
+        InventarioColumnar leido = ArchivoColumnar.leer(archivo);
+        assertEquals(0, leido.getTamano());
+        assertEquals(0, leido.getTotalUnidades());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void inventarioConProductosSeLeeComoSeEscribio(boolean comprimir) throws Exception {
+        Path archivo = directorio.resolve("inventario.swic");
+        InventarioColumnar inventario = InventarioColumnar.desde(List.of(
+                new Producto("Tornillo", 10, 0.5),
+                new Producto("Tornillo largo", 4, 0.75),
+                new Producto("Tuerca", 20, 0.25)));
+
+        long tamano = ArchivoColumnar.escribir(inventario, archivo, comprimir);
+        assertEquals(Files.size(archivo), tamano);
+
+        InventarioColumnar leido = ArchivoColumnar.leer(archivo);
+        assertEquals(3, leido.getTamano());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(inventario.getNombre(i), leido.getNombre(i));
+            assertEquals(inventario.getCantidad(i), leido.getCantidad(i));
+            assertEquals(inventario.getPrecioFijo(i), leido.getPrecioFijo(i));
+        }
+    }
+}
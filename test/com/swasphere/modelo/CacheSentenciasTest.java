@@ -0,0 +1,57 @@
+package com.swasphere.modelo;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swasphere.embebida.BaseDatosEmbebida;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de la caché de sentencias preparadas de una conexión.
+ *
+ * @autor ljsanchez23
+ */
+class CacheSentenciasTest {
+
+    private static final String SQL = "SELECT COUNT(*) FROM productos";
+
+    private Connection fisica;
+    private Connection prestada;
+    private CacheSentencias cache;
+
+    @BeforeEach
+    void preparar() throws SQLException {
+        fisica = BaseDatosEmbebida.crear("sentencias" + System.nanoTime());
+        prestada = ConexionPool.noCerrable(fisica);
+        cache = new CacheSentencias(fisica, 4, new AtomicLong(), new AtomicLong());
+    }
+
+    @AfterEach
+    void cerrar() throws SQLException {
+        cache.cerrar();
+        fisica.close();
+    }
+
+    @Test
+    void sentenciaPreparadaApartePorEstarEnUsoNoExponeLaConexionFisica() throws SQLException {
+        PreparedStatement enUso = cache.preparar(SQL, prestada);
+        PreparedStatement aparte = cache.preparar(SQL, prestada);
+        assertNotSame(enUso, aparte);
+        assertSame(prestada, enUso.getConnection());
+        assertSame(prestada, aparte.getConnection());
+
+        aparte.close();
+        assertTrue(aparte.isClosed());
+        assertFalse(enUso.isClosed());
+        enUso.close();
+        assertTrue(enUso.isClosed());
+    }
+}
@@ -0,0 +1,82 @@
+package com.swasphere.modelo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swasphere.embebida.BaseDatosEmbebida;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas del registro de cambios de ProductoDAO cuando una escritura falla,
+ * con una base de datos embebida en modo MySQL.
+ *
+ * @autor ljsanchez23
+ */
+class ProductoDAOTest {
+
+    private Connection conexion;
+    private ProductoDAO dao;
+
+    @BeforeEach
+    void preparar() throws SQLException {
+        conexion = BaseDatosEmbebida.crear("cambios" + System.nanoTime());
+        dao = new ProductoDAO(conexion);
+    }
+
+    @AfterEach
+    void cerrar() throws SQLException {
+        conexion.close();
+    }
+
+    @Test
+    void insercionDuplicadaNoDetieneLosCambios() throws SQLException {
+        assertTrue(dao.agregarProducto(new Producto("Tornillo", 10, 0.5)));
+        assertFalse(dao.agregarProducto(new Producto(" tornillo", 5, 0.5)));
+        assertTrue(dao.agregarProducto(new Producto("Tuerca", 20, 0.25)));
+
+        assertEquals(List.of("Tornillo", "Tuerca"), nombresDesde(0));
+    }
+
+    @Test
+    void loteConUnaFilaRechazadaNoDetieneLosCambios() throws SQLException {
+        assertTrue(dao.agregarProducto(new Producto("Tornillo", 10, 0.5)));
+
+        ResultadoLote resultado = dao.agregarProductos(List.of(
+                new Producto("Arandela", 1, 0.1),
+                new Producto("TORNILLO", 2, 0.2),
+                new Producto("Clavo", 3, 0.3)));
+        assertEquals(List.of("TORNILLO"), resultado.getClavesFallidas());
+
+        assertEquals(List.of("Tornillo", "Arandela", "Clavo"), nombresDesde(0));
+    }
+
+    @Test
+    void transaccionDeshechaNoDetieneLosCambios() throws SQLException {
+        assertTrue(dao.agregarProducto(new Producto("Tornillo", 10, 0.5)));
+
+        assertThrows(SQLException.class, () -> dao.aplicarOperaciones(List.of(
+                OperacionProducto.insertar(new Producto("Arandela", 1, 0.1)),
+                OperacionProducto.insertar(new Producto("Tornillo", 2, 0.2)))));
+        assertTrue(dao.agregarProducto(new Producto("Clavo", 3, 0.3)));
+
+        assertEquals(List.of("Tornillo", "Clavo"), nombresDesde(0));
+    }
+
+    private List<String> nombresDesde(long desdeCambio) throws SQLException {
+        List<CambioProducto> cambios = dao.obtenerCambiosDesde(desdeCambio, 100);
+        assertEquals(dao.obtenerUltimoCambio(), cambios.get(cambios.size() - 1).getCambio());
+        List<String> nombres = new ArrayList<>();
+        for (CambioProducto cambio : cambios) {
+            nombres.add(cambio.getNombre());
+        }
+        return nombres;
+    }
+}